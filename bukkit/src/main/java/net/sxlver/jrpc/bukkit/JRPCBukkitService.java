@@ -10,6 +10,8 @@ import net.sxlver.jrpc.core.protocol.Packet;
 import org.jetbrains.annotations.Blocking;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
+
 /**
  * The type Jrpc service.
  */
@@ -66,6 +68,15 @@ public class JRPCBukkitService {
         publish(packet, new MessageTarget(Message.TargetType.ALL));
     }
 
+    /**
+     * Broadcast several messages to all clients in as few frames as possible.
+     *
+     * @param packets the packets
+     */
+    public void broadcastBatch(final @NonNull Collection<? extends Packet> packets) {
+        client.publishBatch(packets, new MessageTarget(Message.TargetType.ALL), null);
+    }
+
     /**
      * Publish a message to the client(s) matching the provided {@link MessageTarget}
      *
@@ -131,6 +142,27 @@ public class JRPCBukkitService {
         return client.publish(packet, new MessageTarget(Message.TargetType.LOAD_BALANCED, target), expectedResponse);
     }
 
+    /**
+     * Publish load balanced conversation. Conversations with the same routing key are
+     * sent to the same client of the target type as long as its members do not change.
+     *
+     * @param <TRequest>       the type parameter
+     * @param <TResponse>      the type parameter
+     * @param packet           the packet
+     * @param expectedResponse the expected response
+     * @param target           the target
+     * @param routingKey       the routing key, e.g. a player's UUID
+     * @return the conversation
+     */
+    public <TRequest extends Packet, TResponse extends Packet>
+    Conversation<TRequest, TResponse> publishLoadBalanced(final @NonNull TRequest packet,
+                                                          final @NotNull Class<TResponse> expectedResponse,
+                                                          final @NonNull String target,
+                                                          final @NonNull String routingKey) {
+
+        return client.publish(packet, MessageTarget.keyed(target, routingKey), expectedResponse);
+    }
+
 
     /**
      * Gets the client's local unique id.
@@ -0,0 +1,147 @@
+package net.sxlver.jrpc.client.benchmark;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import net.sxlver.configlib.configs.yaml.YamlConfiguration;
+import net.sxlver.jrpc.client.JRPCClient;
+import net.sxlver.jrpc.client.config.JRPCDefaultConfiguration;
+import net.sxlver.jrpc.client.protocol.codec.JRPCClientMessageEncoder;
+import net.sxlver.jrpc.core.protocol.Message;
+import net.sxlver.jrpc.core.protocol.MessageTarget;
+import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.protocol.codec.FlushCoalescingHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Publishes packets through the net handler of a client connected to a local socket that discards
+ * everything it reads, and reports the CPU time the event loop spent per message. With
+ * {@code encode-on-caller-thread} the envelope is encoded by the publishing thread, so the event loop
+ * only writes the finished frames.
+ *
+ * <p>Run through {@code ./gradlew :client:benchmark --args="<loop|caller> [messages, default 100000] [rounds, default 5]"}.
+ */
+public final class CallerEncodeBenchmark {
+    private static final MessageTarget TARGET = new MessageTarget(Message.TargetType.TYPE, "lobby");
+
+    private CallerEncodeBenchmark() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final String mode = args.length > 0 ? args[0].toLowerCase(Locale.ROOT) : "caller";
+        if(!mode.equals("loop") && !mode.equals("caller")) {
+            throw new IllegalArgumentException("Unknown mode " + mode + ", expected loop or caller");
+        }
+        final int messages = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        final Path dataFolder = Files.createTempDirectory("jrpc-benchmark");
+        final JRPCDefaultConfiguration config = new JRPCDefaultConfiguration(dataFolder.resolve("config.yml"), YamlConfiguration.YamlProperties.builder().build());
+        config.setAutoReconnect(false);
+        config.setEncodeOnCallerThread(mode.equals("caller"));
+        final JRPCClient client = new JRPCClient(config, dataFolder.toString(), false);
+
+        final EventLoopGroup group = new NioEventLoopGroup(1);
+        try (final ServerSocket sink = new ServerSocket(0)) {
+            final Thread drain = new Thread(() -> discard(sink), "sink");
+            drain.setDaemon(true);
+            drain.start();
+
+            final Channel channel = new Bootstrap()
+                    .group(group)
+                    .channel(NioSocketChannel.class)
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(final SocketChannel channel) {
+                            channel.pipeline().addLast("flush_coalescing", new FlushCoalescingHandler(config.getMaxCoalescedFlushes(), config.getMaxFlushDelayMicros()));
+                            channel.pipeline().addLast("message_handler", client.getNetHandler());
+                            channel.pipeline().addLast("message_encoder", new JRPCClientMessageEncoder(JRPCClient.PROTOCOL_VERSION.getVersionNumber()));
+                        }
+                    })
+                    .connect(new InetSocketAddress("localhost", sink.getLocalPort())).sync().channel();
+
+            final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            final long eventLoopThread = channel.eventLoop().submit(() -> Thread.currentThread().getId()).get();
+            final long callerThread = Thread.currentThread().getId();
+            final PlayerList packet = PlayerList.of(10);
+
+            // the first round warms up
+            for (int round = 0; round <= rounds; round++) {
+                final long loopStart = threads.getThreadCpuTime(eventLoopThread);
+                final long callerStart = threads.getThreadCpuTime(callerThread);
+                for (int i = 0; i < messages; i++) {
+                    client.publish(packet, TARGET);
+                }
+                // written after every message published before, completes once all of them have been flushed
+                channel.writeAndFlush(Unpooled.EMPTY_BUFFER).sync();
+                final double loopMicros = (threads.getThreadCpuTime(eventLoopThread) - loopStart) / 1000.0 / messages;
+                final double callerMicros = (threads.getThreadCpuTime(callerThread) - callerStart) / 1000.0 / messages;
+                if(round > 0) {
+                    System.out.printf("%s round %d: %.2f us/msg on the event loop, %.2f us/msg on the caller%n", mode, round, loopMicros, callerMicros);
+                }
+            }
+            channel.close().sync();
+        }finally {
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    private static void discard(final ServerSocket sink) {
+        try (final Socket socket = sink.accept(); final InputStream in = socket.getInputStream()) {
+            final byte[] buffer = new byte[64 * 1024];
+            while(in.read(buffer) != -1) {
+                // discarded
+            }
+        }catch(final IOException ignored) {
+            // the benchmark is over
+        }
+    }
+
+    // final fields are not serialized
+    static final class PlayerList extends Packet {
+        private List<PlayerEntry> players;
+
+        static PlayerList of(final int count) {
+            final PlayerList packet = new PlayerList();
+            packet.players = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                final PlayerEntry entry = new PlayerEntry();
+                entry.name = "player-" + i;
+                entry.uuid = UUID.nameUUIDFromBytes(entry.name.getBytes()).toString();
+                entry.world = "world";
+                entry.x = i * 16.5;
+                entry.y = 64;
+                entry.z = -i * 8.25;
+                packet.players.add(entry);
+            }
+            return packet;
+        }
+    }
+
+    static final class PlayerEntry {
+        private String name;
+        private String uuid;
+        private String world;
+        private double x;
+        private double y;
+        private double z;
+    }
+}
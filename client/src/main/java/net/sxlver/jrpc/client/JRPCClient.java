@@ -19,12 +19,15 @@ import net.sxlver.jrpc.core.LogProvider;
 import net.sxlver.jrpc.core.config.ConfigurationManager;
 import net.sxlver.jrpc.core.config.DataFolderProvider;
 import net.sxlver.jrpc.core.protocol.*;
+import net.sxlver.jrpc.core.protocol.codec.FlushCoalescingHandler;
+import net.sxlver.jrpc.core.protocol.codec.FrameCompressionCodec;
 import net.sxlver.jrpc.core.protocol.codec.JRPCMessageDecoder;
 import net.sxlver.jrpc.core.protocol.impl.JRPCClientHandshakeMessage;
 import net.sxlver.jrpc.core.protocol.impl.JRPCHandshake;
 import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
 import net.sxlver.jrpc.core.protocol.packet.ClusterInformationConversation;
 import net.sxlver.jrpc.core.serialization.CentralGson;
+import net.sxlver.jrpc.core.serialization.PacketTypeRegistry;
 import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
 import net.sxlver.jrpc.core.util.Callback;
 import net.sxlver.jrpc.core.util.StringUtil;
@@ -32,15 +35,18 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.jetbrains.annotations.*;
 
 import java.io.File;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.*;
 
 public class JRPCClient implements DataFolderProvider, ProtocolInformationProvider, LogProvider, DataSource {
 
-    public static final ProtocolVersion PROTOCOL_VERSION = ProtocolVersion.V0_1;
+    public static final ProtocolVersion PROTOCOL_VERSION = ProtocolVersion.V0_2;
     private final ConfigurationManager configurationManager;
     private final JRPCClientConfiguration config;
 
@@ -53,7 +59,11 @@ public class JRPCClient implements DataFolderProvider, ProtocolInformationProvid
 
     private JRPCClientChannelHandler handler;
 
-    private final Set<RawDataReceiver> dataReceivers = ConcurrentHashMap.newKeySet();
+    private final Set<RawDataReceiver> dataReceivers = new CopyOnWriteArraySet<>();
+    // the server assigns the epoch with every successful handshake
+    private final ConversationUIDSequence conversationUIDs = new ConversationUIDSequence();
+    // replaced by the table received with every handshake
+    private final PacketTypeRegistry packetTypes = new PacketTypeRegistry();
 
     private final String dataFolder;
 
@@ -79,6 +89,7 @@ public class JRPCClient implements DataFolderProvider, ProtocolInformationProvid
         this.logger = new InternalLogger(getClass(), Path.of(getDataFolder(), "logs").toFile());
         this.centralGson = CentralGson.PROTOCOL_INSTANCE;
         this.logger.setLogLevel(config.getLoggingLevel());
+        this.handler = new JRPCClientChannelHandler(this);
         Runtime.getRuntime().addShutdownHook(new Thread(this::close));
         if(setUncaughtExceptionHandler) {
             Thread.currentThread().setUncaughtExceptionHandler((thread, throwable) -> logger.fatal("An unexpected Exception occurred. {}", ExceptionUtils.getStackTrace(throwable)));
@@ -92,6 +103,7 @@ public class JRPCClient implements DataFolderProvider, ProtocolInformationProvid
         this.logger = new InternalLogger(getClass(), Path.of(getDataFolder(), "logs").toFile());
         this.centralGson = CentralGson.PROTOCOL_INSTANCE;
         this.logger.setLogLevel(config.getLoggingLevel());
+        this.handler = new JRPCClientChannelHandler(this);
         Runtime.getRuntime().addShutdownHook(new Thread(this::close));
         if(setUncaughtExceptionHandler) {
             Thread.currentThread().setUncaughtExceptionHandler((thread, throwable) -> logger.fatal("An unexpected Exception occurred. {}", ExceptionUtils.getStackTrace(throwable)));
@@ -120,7 +132,7 @@ public class JRPCClient implements DataFolderProvider, ProtocolInformationProvid
 
             if(connectedChannel.channel().isOpen()) {
                 logger.info("Successfully opened connection.");
-                authenticate(new JRPCHandshake(config.getAuthenticationToken(), config.getUniqueId(), config.getType()));
+                authenticate(new JRPCHandshake(config.getAuthenticationToken(), config.getUniqueId(), config.getType(), packetTypes.getLocalTypeNames(), true));
             }else {
                 logger.warn("Could not establish connection to the server.");
                 if(config.isAutoReconnect()) {
@@ -149,6 +161,7 @@ public class JRPCClient implements DataFolderProvider, ProtocolInformationProvid
             connectedChannel.channel().close().syncUninterruptibly();
             this.connectedChannel = null;
         }
+        if(loopGroup == null) return;
 
         try {
             logger.info("shutting down event loop group");
@@ -290,6 +303,176 @@ public class JRPCClient implements DataFolderProvider, ProtocolInformationProvid
         return handler.write(packet, target, expectedResponse, conversationUID);
     }
 
+    /**
+     * Publish several messages to the client(s) matching the MessageTarget provided. The
+     * messages are packed into as few frames as possible, which the server routes as a unit,
+     * every message is still handed to the handlers of the receiving client on its own.
+     *
+     * @param <TRequest>       the type parameter
+     * @param <TResponse>      the type parameter
+     * @param packets          the packets
+     * @param target           the target of every packet
+     * @param expectedResponse the expected response to each packet
+     * @return the {@link Conversation} of each packet, in the order of the given packets
+     */
+    @NonBlocking
+    public <TRequest extends Packet, TResponse extends Packet>
+    List<Conversation<TRequest, TResponse>> publishBatch(final @NonNull Collection<? extends TRequest> packets,
+                                                         final @NonNull MessageTarget target,
+                                                         final @Nullable Class<TResponse> expectedResponse) {
+
+        return handler.writeBatch(packets, target, expectedResponse);
+    }
+
+    /**
+     * Sends a request to the client matching the MessageTarget provided and waits for its response
+     * as long as configured through the conversation timeout, see {@link #request(Packet, MessageTarget, Class, long, TimeUnit)}.
+     *
+     * @param <TResponse>  the type parameter
+     * @param packet       the request
+     * @param target       the target
+     * @param responseType the type of the response
+     * @return a future completed with the response
+     */
+    @NonBlocking
+    public <TResponse extends Packet>
+    CompletableFuture<TResponse> request(final @NonNull Packet packet,
+                                         final @NonNull MessageTarget target,
+                                         final @NonNull Class<TResponse> responseType) {
+
+        return request(packet, target, responseType, config.getConversationTimeOut(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a request to the client matching the MessageTarget provided. Unlike {@link #publish} no
+     * {@link Conversation} is kept for the request, the response completes the returned future and is
+     * not passed to any handler. The future is completed on the I/O thread that received the response,
+     * use the async variants of its methods for anything that may block.
+     *
+     * @param <TResponse>  the type parameter
+     * @param packet       the request
+     * @param target       the target
+     * @param responseType the type of the response
+     * @param timeout      how long to wait for the response
+     * @param timeUnit     the unit of the timeout
+     * @return a future completed with the response, or exceptionally with an
+     *         {@link net.sxlver.jrpc.client.protocol.exception.ErrorResponseException} if the other end
+     *         responded with an error or a {@link TimeoutException} if no response arrived in time
+     */
+    @NonBlocking
+    public <TResponse extends Packet>
+    CompletableFuture<TResponse> request(final @NonNull Packet packet,
+                                         final @NonNull MessageTarget target,
+                                         final @NonNull Class<TResponse> responseType,
+                                         final long timeout,
+                                         final @NonNull TimeUnit timeUnit) {
+
+        return handler.request(packet, target, responseType, timeUnit.toMillis(timeout));
+    }
+
+    /**
+     * Sends a request to the client(s) matching the MessageTarget provided and collects their
+     * responses until the conversation timeout has passed, see {@link #requestAll(Packet, MessageTarget, Class, int, long, TimeUnit)}.
+     *
+     * @param <TResponse>  the type parameter
+     * @param packet       the request
+     * @param target       the target
+     * @param responseType the type of the responses
+     * @return a future completed with the responses
+     */
+    @NonBlocking
+    public <TResponse extends Packet>
+    CompletableFuture<List<TResponse>> requestAll(final @NonNull Packet packet,
+                                                  final @NonNull MessageTarget target,
+                                                  final @NonNull Class<TResponse> responseType) {
+
+        return requestAll(packet, target, responseType, Integer.MAX_VALUE, config.getConversationTimeOut(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a request to the client(s) matching the MessageTarget provided and collects their
+     * responses, which are not passed to any handler. The future is completed on an I/O thread or
+     * the timer thread, use the async variants of its methods for anything that may block.
+     *
+     * @param <TResponse>  the type parameter
+     * @param packet       the request
+     * @param target       the target
+     * @param responseType the type of the responses, error responses are not collected
+     * @param maxResponses the number of responses after which the future completes without waiting for the timeout
+     * @param timeout      how long to collect responses
+     * @param timeUnit     the unit of the timeout
+     * @return a future completed with the responses received until the timeout or the maximum number of responses
+     */
+    @NonBlocking
+    public <TResponse extends Packet>
+    CompletableFuture<List<TResponse>> requestAll(final @NonNull Packet packet,
+                                                  final @NonNull MessageTarget target,
+                                                  final @NonNull Class<TResponse> responseType,
+                                                  final int maxResponses,
+                                                  final long timeout,
+                                                  final @NonNull TimeUnit timeUnit) {
+
+        return handler.requestAll(packet, target, responseType, maxResponses, timeUnit.toMillis(timeout));
+    }
+
+    /**
+     * Publish a message stream to the client(s) matching the MessageTarget provided. The
+     * header packet is handed to the handlers of the receiving client(s) along with a
+     * {@link MessageStream} of the body, which is sent in chunks of at most
+     * {@link net.sxlver.jrpc.core.protocol.impl.JRPCChunkMessage#MAX_CHUNK_LENGTH} bytes,
+     * so the body is not limited to {@link Message#MAX_PACKET_LENGTH}. Other messages are
+     * sent in between the chunks.
+     *
+     * <p>Streams can neither target the server nor be load balanced without a routing key,
+     * receivers may reply using the conversation uid of the stream.
+     *
+     * @param header the header packet
+     * @param body   the body, read on a pool thread and closed once it has been sent
+     * @param target the target
+     * @return a future completed once the whole stream has been sent or completed
+     *         exceptionally if the body could not be read or the connection was lost
+     */
+    @NonBlocking
+    public CompletableFuture<Void> publishStream(final @NonNull Packet header,
+                                                 final @NonNull InputStream body,
+                                                 final @NonNull MessageTarget target) {
+
+        return handler.writeStream(header, body, target);
+    }
+
+    /**
+     * Send a file to the client(s) matching the MessageTarget provided, as a message stream
+     * with a {@link net.sxlver.jrpc.core.protocol.packet.FileTransferHeader}. The file is copied
+     * to the socket by the kernel where supported, without passing through the heap. Receivers
+     * usually write it to disk using {@link MessageStream#transferTo(Path, long)}.
+     *
+     * <p>The same restrictions as for {@link #publishStream(Packet, InputStream, MessageTarget)} apply,
+     * the file must not be truncated whilst it is being sent.
+     *
+     * @param file   the file
+     * @param target the target
+     * @return a future completed once the whole file has been sent or completed
+     *         exceptionally if the file could not be read or the connection was lost
+     */
+    @NonBlocking
+    public CompletableFuture<Void> sendFile(final @NonNull Path file, final @NonNull MessageTarget target) {
+        return handler.writeFile(file, target);
+    }
+
+    /**
+     * Registers packet types this client sends or receives. The server assigns numeric ids
+     * to every type registered before the client connects, packets of any other type are
+     * sent with their class name. Packet types of procedures are registered automatically.
+     *
+     * @param types the packet types
+     */
+    @SafeVarargs
+    public final void registerPacketTypes(final @NonNull Class<? extends Packet>... types) {
+        for (final Class<? extends Packet> type : types) {
+            packetTypes.register(type);
+        }
+    }
+
     /**
      * Register a message receiver.
      *
@@ -387,6 +570,33 @@ public class JRPCClient implements DataFolderProvider, ProtocolInformationProvid
         return dataReceivers;
     }
 
+    /**
+     * Creates a uid for a conversation started by this client.
+     *
+     * @return the uid
+     */
+    public ConversationUID newConversationUID() {
+        return conversationUIDs.next();
+    }
+
+    /**
+     * Gets the sequence conversation uids of this client are generated from.
+     *
+     * @return the sequence
+     */
+    public ConversationUIDSequence getConversationUIDs() {
+        return conversationUIDs;
+    }
+
+    /**
+     * Gets the packet types registered on this client and the ids the server has assigned to them.
+     *
+     * @return the packet type registry
+     */
+    public PacketTypeRegistry getPacketTypes() {
+        return packetTypes;
+    }
+
     /**
      * Gets net handler.
      *
@@ -429,6 +639,23 @@ public class JRPCClient implements DataFolderProvider, ProtocolInformationProvid
         }
     }
 
+    /**
+     * Publish the header of a message stream to the data receivers.
+     *
+     * @param header the header chunk
+     * @param stream the stream its data is fed into
+     */
+    public void publishStreamToHandlers(final @NonNull JRPCMessage header, final @NonNull MessageStream stream) {
+        for (final RawDataReceiver dataReceiver : dataReceivers) {
+            try {
+                dataReceiver.onReceiveStream(header.source(), header.target(), header.targetType(), header.conversationId(), header.data(), stream);
+            }catch(final Exception exception) {
+                logger.fatal("Encountered error whilst publishing message stream to processor {}.", dataReceiver.getClass());
+                logger.fatal(exception);
+            }
+        }
+    }
+
     /**
      * Attempts to handshake the server and waits for its response.
      *
@@ -452,7 +679,9 @@ public class JRPCClient implements DataFolderProvider, ProtocolInformationProvid
             } catch (ChannelException exception) {
                 logger.fatal("Encountered error whilst settings options to channel: {}", ExceptionUtils.getStackTrace(exception));
             }
+            channel.pipeline().addLast("flush_coalescing", new FlushCoalescingHandler(config.getMaxCoalescedFlushes(), config.getMaxFlushDelayMicros()));
             channel.pipeline().addLast("frame_decoder", new LengthFieldBasedFrameDecoder(Message.MAX_PACKET_LENGTH, 0, 4, 0, 4));
+            channel.pipeline().addLast("compression_codec", new FrameCompressionCodec(config.getCompressionThreshold(), false));
             channel.pipeline().addLast("message_decoder", new JRPCMessageDecoder<>(JRPCClient.this));
             channel.pipeline().addLast("handshake_handler", new JRPCClientHandshakeHandler(JRPCClient.this));
             channel.pipeline().addLast("message_handler", handler);
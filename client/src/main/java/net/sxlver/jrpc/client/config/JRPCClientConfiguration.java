@@ -34,4 +34,14 @@ public interface JRPCClientConfiguration {
     int getMaxResponseParallelism();
 
     int getMaxResponseHandlingTime();
+
+    int getCompressionThreshold();
+
+    boolean isEncodeOnCallerThread();
+
+    int getMaxCoalescedFlushes();
+
+    int getMaxFlushDelayMicros();
+
+    int getStreamIdleTimeout();
 }
@@ -77,5 +77,36 @@ public class JRPCDefaultConfiguration extends YamlConfiguration implements JRPCC
 
     @Comment("Max amount of time a response can take to be processed in milliseconds")
     private int maxResponseHandlingTime = 1000;
-}
 
+    @Comment({
+            "Frames of at least this many bytes are compressed before they are sent to the server,",
+            "provided the server supports compression. Set to -1 to disable compression."
+    })
+    private int compressionThreshold = 1024;
+
+    @Comment({
+            "Whether messages are encoded on the thread sending them instead of the single network thread.",
+            "This spreads serialization across all publishing threads, packets must not be modified",
+            "after they have been sent either way."
+    })
+    private boolean encodeOnCallerThread = false;
+
+    @Comment({
+            "Flushes to the server are coalesced until this many messages are pending or the network thread",
+            "has processed all writes submitted so far. Set to 1 to flush every message on its own."
+    })
+    private int maxCoalescedFlushes = 256;
+
+    @Comment({
+            "The maximum time in microseconds a flush may be delayed to wait for further messages.",
+            "0 flushes as soon as the network thread has processed all pending writes, which does not",
+            "add any noticeable latency."
+    })
+    private int maxFlushDelayMicros = 0;
+
+    @Comment({
+            "Incoming message streams and file transfers are aborted if no data has been received",
+            "for this many seconds."
+    })
+    private int streamIdleTimeout = 30;
+}
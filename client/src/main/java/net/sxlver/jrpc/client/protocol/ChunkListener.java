@@ -0,0 +1,34 @@
+package net.sxlver.jrpc.client.protocol;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Receives the data of a {@link MessageStream} chunk by chunk. All methods are called on the
+ * IO thread of the connection and must not block.
+ */
+public interface ChunkListener {
+
+    /**
+     * Called for every chunk of the stream, in the order they were sent.
+     *
+     * @param chunk the chunk
+     */
+    void onChunk(final byte[] chunk);
+
+    /**
+     * Called once the last chunk has been received.
+     */
+    default void onComplete() {
+    }
+
+    /**
+     * Called if the stream ends before its last chunk has been received, because the sender
+     * gave up on it, a chunk went missing or the connection was closed.
+     *
+     * @param cause the reason the stream was aborted
+     */
+    default void onAbort(final @NonNull IOException cause) {
+    }
+}
@@ -0,0 +1,55 @@
+package net.sxlver.jrpc.client.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.DefaultFileRegion;
+import lombok.NonNull;
+import net.sxlver.jrpc.client.JRPCClient;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.MessageTarget;
+import net.sxlver.jrpc.core.protocol.codec.EnvelopeCodec;
+import net.sxlver.jrpc.core.protocol.impl.JRPCChunkMessage;
+
+import java.io.File;
+
+/**
+ * Writes the content of a file as the body of a message stream. The data of every chunk is
+ * written as a {@link DefaultFileRegion} following the encoded chunk prefix, so it is copied
+ * from the file to the socket by the kernel where supported and never enters the heap.
+ *
+ * <p>The file must not be truncated whilst it is being sent.
+ */
+class ChunkedFileWriter extends ChunkedStreamWriter {
+    private final File file;
+    private final long size;
+
+    // only accessed by the thread currently pumping
+    private long position;
+
+    ChunkedFileWriter(final @NonNull JRPCClient client,
+                      final @NonNull Channel channel,
+                      final @NonNull MessageTarget target,
+                      final @NonNull ConversationUID conversationUID,
+                      final @NonNull File file,
+                      final long size) {
+
+        super(client, channel, target, conversationUID);
+        this.file = file;
+        this.size = size;
+    }
+
+    @Override
+    protected void writeNextChunk() {
+        final int length = (int) Math.min(JRPCChunkMessage.MAX_CHUNK_LENGTH, size - position);
+        final JRPCChunkMessage chunk = nextChunk(position + length == size ? JRPCChunkMessage.FLAG_LAST : 0, null);
+        final ByteBuf prefix = channel.alloc().ioBuffer(EnvelopeCodec.estimateLength(chunk));
+        EnvelopeCodec.writeChunkPrefix(prefix, chunk, length, JRPCClient.PROTOCOL_VERSION.getVersionNumber());
+        // every region opens the file on its own, as releasing a region closes its file channel
+        write(chunk, prefix, length == 0 ? null : new DefaultFileRegion(file, position, length));
+        position += length;
+    }
+
+    @Override
+    protected void closeBody() {
+    }
+}
@@ -0,0 +1,49 @@
+package net.sxlver.jrpc.client.protocol;
+
+import io.netty.channel.Channel;
+import lombok.NonNull;
+import net.sxlver.jrpc.client.JRPCClient;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.MessageTarget;
+import net.sxlver.jrpc.core.protocol.impl.JRPCChunkMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Writes the body of a message stream read from an {@link InputStream}.
+ */
+class ChunkedInputStreamWriter extends ChunkedStreamWriter {
+    private final InputStream body;
+
+    ChunkedInputStreamWriter(final @NonNull JRPCClient client,
+                             final @NonNull Channel channel,
+                             final @NonNull MessageTarget target,
+                             final @NonNull ConversationUID conversationUID,
+                             final @NonNull InputStream body) {
+
+        super(client, channel, target, conversationUID);
+        this.body = body;
+    }
+
+    @Override
+    protected void writeNextChunk() throws IOException {
+        final byte[] buffer = new byte[JRPCChunkMessage.MAX_CHUNK_LENGTH];
+        final int read = body.readNBytes(buffer, 0, buffer.length);
+        if(read < buffer.length) {
+            write(nextChunk(JRPCChunkMessage.FLAG_LAST, Arrays.copyOf(buffer, read)));
+        }else {
+            write(nextChunk(0, buffer));
+        }
+    }
+
+    @Override
+    protected void closeBody() {
+        try {
+            body.close();
+        }catch(final IOException exception) {
+            client.getLogger().debugFine("Error whilst closing body of message stream {}: {}", conversationUID, exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package net.sxlver.jrpc.client.protocol;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.FileRegion;
+import lombok.NonNull;
+import net.sxlver.jrpc.client.JRPCClient;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.MessageTarget;
+import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.protocol.codec.EnvelopeCodec;
+import net.sxlver.jrpc.core.protocol.impl.JRPCChunkMessage;
+import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes a message stream, its header packet followed by the body split into chunks.
+ *
+ * <p>The body is read and encoded on a thread of {@link #BODY_READERS}. At most {@link #MAX_CHUNKS_IN_FLIGHT}
+ * chunks are handed to the channel before earlier ones have been written to the socket,
+ * so messages written in the meantime are sent in between the chunks instead of queueing
+ * up behind the whole body.
+ */
+abstract class ChunkedStreamWriter {
+    private static final int MAX_CHUNKS_IN_FLIGHT = 4;
+
+    // reading a body may block on disk or on the input stream it is read from, which must
+    // neither hold up the event loop nor the common pool other asynchronous tasks run on
+    private static final ExecutorService BODY_READERS = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("JRPC Stream Writer #%d").setDaemon(true).build());
+
+    protected final JRPCClient client;
+    protected final Channel channel;
+    protected final ConversationUID conversationUID;
+    private final MessageTarget target;
+
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean pumping = new AtomicBoolean();
+    private volatile boolean finished;
+
+    // only accessed by the thread currently pumping
+    private int sequence;
+
+    ChunkedStreamWriter(final @NonNull JRPCClient client,
+                        final @NonNull Channel channel,
+                        final @NonNull MessageTarget target,
+                        final @NonNull ConversationUID conversationUID) {
+
+        this.client = client;
+        this.channel = channel;
+        this.target = target;
+        this.conversationUID = conversationUID;
+    }
+
+    /**
+     * Creates the next chunk of the body using {@link #nextChunk(int, byte[])} and writes it.
+     *
+     * @throws IOException if the body could not be read, the stream is aborted
+     */
+    protected abstract void writeNextChunk() throws IOException;
+
+    /**
+     * Releases the body once the last chunk has been created or the stream failed.
+     */
+    protected abstract void closeBody();
+
+    /**
+     * Writes the header and starts streaming the body.
+     *
+     * @param header the header packet
+     * @return a future completed once the last chunk has been written to the socket
+     */
+    CompletableFuture<Void> start(final @NonNull Packet header) {
+        final byte[] data = PacketDataSerializer.serialize(header);
+        if(data.length == 0) {
+            fail(new IllegalArgumentException("Could not serialize header packet " + header.getClass()));
+            return future;
+        }
+        write(nextChunk(0, data));
+        schedulePump();
+        return future;
+    }
+
+    private void schedulePump() {
+        if(!finished && inFlight.get() < MAX_CHUNKS_IN_FLIGHT && pumping.compareAndSet(false, true)) {
+            try {
+                BODY_READERS.execute(this::pump);
+            }catch(final RejectedExecutionException exception) {
+                pumping.set(false);
+                fail(exception);
+            }
+        }
+    }
+
+    private void pump() {
+        try {
+            while(!finished && inFlight.get() < MAX_CHUNKS_IN_FLIGHT) {
+                writeNextChunk();
+            }
+        }catch(final IOException exception) {
+            client.getLogger().warn("Error whilst reading message stream {}, aborting stream: {}", conversationUID, exception.getMessage());
+            write(nextChunk(JRPCChunkMessage.FLAG_ABORTED, new byte[0]));
+            future.completeExceptionally(exception);
+        }catch(final RuntimeException exception) {
+            fail(exception);
+        }finally {
+            pumping.set(false);
+        }
+        // a chunk may have been written whilst this thread was about to stop pumping
+        schedulePump();
+    }
+
+    /**
+     * Creates the next chunk of the stream, the body is closed once the last chunk has been created.
+     *
+     * @param flags the flags of the chunk
+     * @param data  the data of the chunk or null if it is written separately
+     * @return the chunk
+     */
+    protected final JRPCChunkMessage nextChunk(final int flags, final byte[] data) {
+        final JRPCChunkMessage chunk = new JRPCChunkMessage(target.target(), target.type(), client.getSource(), conversationUID,
+                target.routingKey(), sequence++, flags, data, JRPCClient.PROTOCOL_VERSION.getVersionNumber());
+        if(chunk.isLast()) {
+            finished = true;
+            closeBody();
+        }
+        return chunk;
+    }
+
+    /**
+     * Encodes the chunk including its data and writes it to the channel.
+     *
+     * @param chunk the chunk
+     */
+    protected final void write(final JRPCChunkMessage chunk) {
+        final ByteBuf frame = channel.alloc().ioBuffer(EnvelopeCodec.estimateLength(chunk));
+        try {
+            EnvelopeCodec.write(frame, chunk, JRPCClient.PROTOCOL_VERSION.getVersionNumber());
+        }catch(final RuntimeException exception) {
+            frame.release();
+            throw exception;
+        }
+        write(chunk, frame, null);
+    }
+
+    /**
+     * Writes a chunk to the channel.
+     *
+     * @param chunk  the chunk
+     * @param frame  the encoded chunk, or only its prefix if the data is written as a region
+     * @param region the data of the chunk or null if it is part of the frame
+     */
+    protected final void write(final JRPCChunkMessage chunk, final ByteBuf frame, final @Nullable FileRegion region) {
+        inFlight.incrementAndGet();
+        final ChannelFutureListener listener = written -> onWritten(chunk, written, region != null);
+        if(region == null) {
+            channel.writeAndFlush(frame).addListener(listener);
+            return;
+        }
+
+        try {
+            // prefix and region must not be separated by writes of other threads
+            channel.eventLoop().execute(() -> {
+                channel.write(frame);
+                channel.writeAndFlush(region).addListener(listener);
+            });
+        }catch(final RejectedExecutionException exception) {
+            frame.release();
+            region.release();
+            inFlight.decrementAndGet();
+            fail(exception);
+        }
+    }
+
+    private void onWritten(final JRPCChunkMessage chunk, final ChannelFuture written, final boolean region) {
+        inFlight.decrementAndGet();
+        if(!written.isSuccess()) {
+            if(region && channel.isActive()) {
+                // a partially written region leaves a truncated frame behind
+                client.getLogger().warn("Closing connection after a chunk of message stream {} failed to be written.", conversationUID);
+                channel.close();
+            }
+            fail(written.cause());
+        }else if(chunk.isLast()) {
+            if(!chunk.isAborted()) {
+                future.complete(null);
+                client.getLogger().debugFiner("Sent message stream {} in {} chunk(s) to target {}. [Target Type: {}]", conversationUID, chunk.getSequence() + 1, target.target(), target.type());
+            }
+        }else {
+            schedulePump();
+        }
+    }
+
+    private void fail(final Throwable cause) {
+        if(!finished) {
+            finished = true;
+            closeBody();
+        }
+        future.completeExceptionally(cause);
+    }
+}
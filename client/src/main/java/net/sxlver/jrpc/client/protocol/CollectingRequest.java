@@ -0,0 +1,94 @@
+package net.sxlver.jrpc.client.protocol;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.client.protocol.exception.UndeliveredRequestException;
+import net.sxlver.jrpc.core.protocol.Packet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A request awaiting any number of responses, the future itself is registered as its observer. It
+ * completes with the responses collected once the maximum number of responses has been received or
+ * the timeout has passed, or exceptionally with an {@link UndeliveredRequestException} if the request
+ * could not be sent. Error responses and responses of other types are not collected. Cancelling
+ * the future unregisters the request, responses received afterwards are passed to the handlers instead.
+ *
+ * @param <TResponse> the type of the responses
+ */
+final class CollectingRequest<TResponse extends Packet> extends CompletableFuture<List<TResponse>> implements ResponseFuture {
+    private final Class<TResponse> responseType;
+    private final long timeout;
+    private final int maxResponses;
+    private final Runnable onCancel;
+
+    // guarded by this
+    private final List<TResponse> responses = new ArrayList<>();
+
+    /**
+     * @param responseType the type of the responses
+     * @param timeout      the time in milliseconds to collect responses for
+     * @param maxResponses the number of responses after which the future completes early
+     * @param onCancel     action run once the future has been cancelled
+     */
+    CollectingRequest(final @NonNull Class<TResponse> responseType, final long timeout, final int maxResponses, final @NonNull Runnable onCancel) {
+        this.responseType = responseType;
+        this.timeout = timeout;
+        this.maxResponses = maxResponses;
+        this.onCancel = onCancel;
+    }
+
+    @Override
+    public boolean accept(final @NonNull Packet response) {
+        if(!responseType.isInstance(response)) {
+            return false;
+        }
+
+        final List<TResponse> collected;
+        synchronized (this) {
+            if(isDone()) return true;
+            responses.add(responseType.cast(response));
+            if(responses.size() < maxResponses) return false;
+            collected = List.copyOf(responses);
+        }
+        complete(collected);
+        return true;
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if(cancelled) onCancel.run();
+        return cancelled;
+    }
+
+    @Override
+    public Class<? extends Packet> getExpectedResponse() {
+        return responseType;
+    }
+
+    @Override
+    public boolean isConcurrentResponseProcessing() {
+        return true;
+    }
+
+    @Override
+    public long timeout() {
+        return timeout;
+    }
+
+    @Override
+    public void notifyExpired() {
+        final List<TResponse> collected;
+        synchronized (this) {
+            collected = List.copyOf(responses);
+        }
+        complete(collected);
+    }
+
+    @Override
+    public void notifyUndelivered(final @NonNull Throwable cause) {
+        completeExceptionally(cause);
+    }
+}
@@ -3,21 +3,22 @@ package net.sxlver.jrpc.client.protocol;
 import lombok.NonNull;
 import net.sxlver.jrpc.client.JRPCClient;
 import net.sxlver.jrpc.client.config.JRPCClientConfiguration;
+import net.sxlver.jrpc.client.protocol.exception.ErrorResponseException;
 import net.sxlver.jrpc.core.protocol.ConversationUID;
 import net.sxlver.jrpc.core.protocol.ErrorInformationHolder;
 import net.sxlver.jrpc.core.protocol.Packet;
 import net.sxlver.jrpc.core.protocol.packet.ErrorInformationResponse;
 import net.sxlver.jrpc.core.util.ParallelLock;
-import net.sxlver.jrpc.core.util.TimedCache;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.concurrent.ThreadSafe;
-import java.util.Collections;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.BiConsumer;
@@ -30,7 +31,7 @@ import java.util.function.BiConsumer;
  * @param <TResponse> the type parameter
  */
 @ThreadSafe
-public final class Conversation<TRequest extends Packet, TResponse extends Packet> implements TimedCache.NotifyOnExpire {
+public final class Conversation<TRequest extends Packet, TResponse extends Packet> implements ResponseObserver {
 
     private final JRPCClient client;
 
@@ -54,10 +55,17 @@ public final class Conversation<TRequest extends Packet, TResponse extends Packe
     private volatile boolean handlerCalled;
     private volatile long maxResponseHandlingTime;
 
-    private final Set<MessageContext<TResponse>> processedResponses = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    // in the order received, replayed in that order by the publisher
+    private final Set<MessageContext<TResponse>> processedResponses = new CopyOnWriteArraySet<>();
 
     private ParallelLock parallelResponseHandlingLock;
 
+    private final Object publisherLock = new Object();
+    // guarded by publisherLock
+    private ConversationPublisher<MessageContext<TResponse>> publisher;
+    private boolean finished;
+    private Throwable failure;
+
     /**
      * Instantiates an empty conversation
      */
@@ -104,6 +112,7 @@ public final class Conversation<TRequest extends Packet, TResponse extends Packe
      *
      * @return the type of response that is expected
      */
+    @Override
     public Class<? extends Packet> getExpectedResponse() {
         return expectedResponse;
     }
@@ -120,7 +129,16 @@ public final class Conversation<TRequest extends Packet, TResponse extends Packe
      */
     void onResponse(final MessageContext<TResponse> context) {
         this.handlerCalled = true;
+        try {
+            invokeResponseHandler(context);
+        }finally {
+            if(!concurrentResponseProcessing) {
+                finish(null);
+            }
+        }
+    }
 
+    private void invokeResponseHandler(final MessageContext<TResponse> context) {
         if(!parallelResponseHandling) {
             // Since parallelResponseHandling has not been enabled, we make threads wait until each response has been
             // processed. Heavy I/O in the response handlers can lead to the blockage of netty I/O threads and should
@@ -153,7 +171,77 @@ public final class Conversation<TRequest extends Packet, TResponse extends Packe
 
     private void handleResponse(final MessageContext<TResponse> context) {
         responseConsumer.accept(request, context);
-        this.processedResponses.add(context);
+
+        final ConversationPublisher<MessageContext<TResponse>> publisher;
+        synchronized (publisherLock) {
+            publisher = this.publisher;
+            if(publisher == null) {
+                this.processedResponses.add(context);
+                return;
+            }
+            publisher.offer(context);
+        }
+        publisher.drain();
+    }
+
+    /**
+     * Marks that no more responses will be received and notifies the publisher, if present.
+     *
+     * @param failure the error the publisher fails with or null to complete it normally
+     */
+    private void finish(final @Nullable Throwable failure) {
+        final ConversationPublisher<MessageContext<TResponse>> publisher;
+        synchronized (publisherLock) {
+            if(finished) return;
+            this.finished = true;
+            this.failure = failure;
+            publisher = this.publisher;
+            if(publisher == null) return;
+            publisher.finish(failure);
+        }
+        publisher.drain();
+    }
+
+    /**
+     * Returns a {@link Flow.Publisher} view of the responses to this conversation.
+     *
+     * <p>Responses are delivered to the subscriber as it requests them and are not kept by the
+     * conversation afterwards, unlike without a publisher where every response is kept until the
+     * conversation expires to be passed to {@link #onTimeout(BiConsumer)}. Responses received before
+     * this method has been called are delivered first, the handler defined through
+     * {@link #onResponse(BiConsumer)} is still invoked for every response.
+     *
+     * <p>The publisher completes once the conversation expired or, unless concurrent responses are
+     * processed, after the response has been received. It fails with an {@link ErrorResponseException}
+     * if the other end responded with an error to a conversation expecting a single response, error
+     * responses to broadcasts are only passed to {@link #onExcept(BiConsumer)}. Cancelling the
+     * subscription unregisters the conversation.
+     *
+     * <p>Only a single subscriber is supported, responses are delivered on the I/O threads unless
+     * they are requested from another thread. The {@link #empty() empty conversation} is shared and
+     * returns a new publisher that completes right away on every call instead.
+     *
+     * @return the publisher of the responses
+     */
+    public Flow.Publisher<MessageContext<TResponse>> asPublisher() {
+        if(this == EMPTY) {
+            final ConversationPublisher<MessageContext<TResponse>> publisher = new ConversationPublisher<>(() -> {});
+            publisher.finish(null);
+            return publisher;
+        }
+        synchronized (publisherLock) {
+            if(publisher != null) {
+                return publisher;
+            }
+            final ConversationPublisher<MessageContext<TResponse>> publisher = new ConversationPublisher<>(() -> client.getNetHandler().invalidateConversation(conversationUID));
+            processedResponses.forEach(publisher::offer);
+            processedResponses.clear();
+            if(finished) {
+                publisher.finish(failure);
+            }
+            this.publisher = publisher;
+            return publisher;
+        }
     }
 
     /**
@@ -188,7 +276,13 @@ public final class Conversation<TRequest extends Packet, TResponse extends Packe
     }
 
     void except(final @NonNull Throwable throwable, final ErrorInformationHolder packet) {
-        errorHandler.accept(throwable, packet);
+        try {
+            errorHandler.accept(throwable, packet);
+        }finally {
+            if(!concurrentResponseProcessing) {
+                finish(new ErrorResponseException(packet));
+            }
+        }
     }
 
     /**
@@ -207,7 +301,8 @@ public final class Conversation<TRequest extends Packet, TResponse extends Packe
         return this;
     }
 
-    boolean isConcurrentResponseProcessing() {
+    @Override
+    public boolean isConcurrentResponseProcessing() {
         return concurrentResponseProcessing;
     }
 
@@ -357,6 +452,7 @@ public final class Conversation<TRequest extends Packet, TResponse extends Packe
     @Override
     @ApiStatus.Internal
     public void notifyExpired() {
+        finish(null);
         if(!handlerCalled || alwaysNotifyTimeout) {
             expire();
         }
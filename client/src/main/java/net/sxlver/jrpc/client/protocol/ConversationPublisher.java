@@ -0,0 +1,188 @@
+package net.sxlver.jrpc.client.protocol;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Flow.Publisher} of the responses to a {@link Conversation}, see {@link Conversation#asPublisher()}.
+ *
+ * <p>Responses are queued until the subscriber requested them and dropped from the queue as soon as
+ * they have been delivered. Only a single subscriber is supported, as responses are not replayed.
+ * Signals are delivered serially on whichever thread offered a response or requested more of them.
+ *
+ * @param <T> the type of the elements
+ */
+final class ConversationPublisher<T> implements Flow.Publisher<T> {
+    private final Runnable onCancel;
+
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    private volatile Flow.Subscriber<? super T> subscriber;
+    private volatile boolean done;
+    private volatile Throwable failure;
+    private volatile Throwable violation;
+    private volatile boolean cancelled;
+
+    // only accessed while draining
+    private boolean terminated;
+
+    /**
+     * @param onCancel action run once the subscriber cancelled its subscription
+     */
+    ConversationPublisher(final @NonNull Runnable onCancel) {
+        this.onCancel = onCancel;
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+        if(subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        if(!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(final long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The responses of a conversation can only be subscribed to once"));
+            return;
+        }
+
+        subscriber.onSubscribe(new ConversationSubscription());
+        // delivery starts after onSubscribe returned, even if it requested responses already
+        this.subscriber = subscriber;
+        drain();
+    }
+
+    /**
+     * Queues an element, which is delivered on the next {@link #drain()}.
+     *
+     * @param element the element
+     */
+    void offer(final @NonNull T element) {
+        if(done || cancelled) return;
+        queue.offer(element);
+    }
+
+    /**
+     * Marks that no more elements will be offered, the subscriber is notified on the next
+     * {@link #drain()} once all queued elements have been delivered.
+     *
+     * @param failure the error the subscriber is notified of or null to complete normally
+     */
+    void finish(final @Nullable Throwable failure) {
+        if(done) return;
+        this.failure = failure;
+        this.done = true;
+    }
+
+    /**
+     * Delivers as many queued elements as the subscriber requested and notifies it once the
+     * publisher has finished. Only one thread drains at a time, other threads calling this
+     * in the meantime make it drain once more instead.
+     */
+    void drain() {
+        if(wip.getAndIncrement() != 0) return;
+
+        int missed = 1;
+        do {
+            final Flow.Subscriber<? super T> subscriber = this.subscriber;
+            if(subscriber != null && !terminated) {
+                deliver(subscriber);
+            }
+            missed = wip.addAndGet(-missed);
+        }while(missed != 0);
+    }
+
+    private void deliver(final Flow.Subscriber<? super T> subscriber) {
+        if(cancelled) {
+            terminated = true;
+            queue.clear();
+            return;
+        }
+        if(violation != null) {
+            terminate();
+            subscriber.onError(violation);
+            return;
+        }
+
+        final long demand = requested.get();
+        long emitted = 0;
+        while(emitted != demand && !cancelled) {
+            final T element = queue.poll();
+            if(element == null) break;
+            try {
+                subscriber.onNext(element);
+            }catch(final RuntimeException exception) {
+                terminate();
+                throw exception;
+            }
+            emitted++;
+        }
+        if(emitted != 0 && demand != Long.MAX_VALUE) {
+            requested.addAndGet(-emitted);
+        }
+
+        // read before the queue, elements are always queued before the publisher is finished
+        final boolean finished = done;
+        if(cancelled) {
+            terminated = true;
+            queue.clear();
+        }else if(finished && queue.isEmpty()) {
+            terminated = true;
+            final Throwable failure = this.failure;
+            if(failure != null) {
+                subscriber.onError(failure);
+            }else {
+                subscriber.onComplete();
+            }
+        }
+    }
+
+    private void terminate() {
+        terminated = true;
+        cancel();
+    }
+
+    private void cancel() {
+        if(cancelled) return;
+        cancelled = true;
+        queue.clear();
+        onCancel.run();
+    }
+
+    private final class ConversationSubscription implements Flow.Subscription {
+        @Override
+        public void request(final long n) {
+            if(n <= 0) {
+                violation = new IllegalArgumentException("Requested a non-positive number of elements: " + n);
+            }else {
+                requested.getAndAccumulate(n, (current, added) -> {
+                    final long sum = current + added;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            ConversationPublisher.this.cancel();
+            drain();
+        }
+    }
+}
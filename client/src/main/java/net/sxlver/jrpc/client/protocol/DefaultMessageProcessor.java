@@ -1,28 +1,28 @@
 package net.sxlver.jrpc.client.protocol;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import lombok.NonNull;
 import net.sxlver.jrpc.client.JRPCClient;
 import net.sxlver.jrpc.client.protocol.processors.DefaultErrorHandler;
+import net.sxlver.jrpc.client.protocol.processors.PacketTypeAssignmentHandler;
 import net.sxlver.jrpc.core.protocol.ConversationUID;
 import net.sxlver.jrpc.core.protocol.ErrorInformationHolder;
 import net.sxlver.jrpc.core.protocol.Message;
 import net.sxlver.jrpc.core.protocol.Packet;
 import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
+import net.sxlver.jrpc.core.util.HandlerTable;
 import net.sxlver.jrpc.core.util.TriConsumer;
 import org.apache.commons.lang3.exception.ExceptionUtils;
-
-import java.util.Map;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * A Default implementation for a {@link RawDataReceiver} that handles and parses incoming data
- * and passes it down to handlers that can be registered in this class
+ * and passes it down to handlers that can be registered in this class.
+ *
+ * <p>The handlers matching a packet class by their {@link MessageHandler#getPacketTypes() packet types}
+ * are resolved once per packet class and cached until the next handler is (un)registered.
  */
-@SuppressWarnings("UnstableApiUsage")
 public class DefaultMessageProcessor implements RawDataReceiver {
-
-    private final Cache<Class<? extends MessageHandler<?>>, MessageHandler<?>> registeredMessageReceivers = CacheBuilder.newBuilder().build();
+    private final HandlerTable<MessageHandler<?>> handlers = new HandlerTable<>(MessageHandler<?>[]::new, DefaultMessageProcessor::receives);
     private final JRPCClient client;
 
     private ErrorHandler<? extends ErrorInformationHolder> errorHandler;
@@ -47,32 +47,67 @@ public class DefaultMessageProcessor implements RawDataReceiver {
      * @param data            the data received
      */
     @Override
-    @SuppressWarnings("Unchecked")
     public void onReceive(final @NonNull String source,
                           final @NonNull String target,
                           final @NonNull Message.TargetType targetType,
                           final @NonNull ConversationUID conversationUID,
                           final byte[] data) {
 
+        dispatch(source, target, targetType, conversationUID, data, null);
+    }
+
+    /**
+     * Receives the header of a message stream and passes it down to the handlers along with the stream
+     *
+     * @param source          unique id of the client the stream originates from
+     * @param target          the target of the stream
+     * @param targetType      the target type of the stream
+     * @param conversationUID the stream's conversation id
+     * @param header          the header packet's data
+     * @param stream          the stream
+     */
+    @Override
+    public void onReceiveStream(final @NonNull String source,
+                                final @NonNull String target,
+                                final @NonNull Message.TargetType targetType,
+                                final @NonNull ConversationUID conversationUID,
+                                final byte[] header,
+                                final @NonNull MessageStream stream) {
+
+        dispatch(source, target, targetType, conversationUID, header, stream);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(final String source,
+                          final String target,
+                          final Message.TargetType targetType,
+                          final ConversationUID conversationUID,
+                          final byte[] data,
+                          final @Nullable MessageStream stream) {
+
         final JRPCClientChannelHandler netHandler = client.getNetHandler();
-        final Packet packet = PacketDataSerializer.deserializePacket(data);
+        final Packet packet = PacketDataSerializer.deserializePacket(data, client.getPacketTypes());
         if(packet == null) {
             client.getLogger().warn("Error whilst deserializing data from {} [Data Length: {}]", source, data.length);
             return;
         }
 
         client.getLogger().debugFiner("Received {} packet from {} [Conversation ID: {}] [Target: {}] [Target Type: {}]", packet.getClass(), source, conversationUID, target, targetType);
-        final MessageContext<Packet> context = new MessageContext<>(client, packet, null, source, target, targetType, conversationUID);
-        if(netHandler.isObserverPresent(conversationUID) && (!source.equals(client.getSource()) || netHandler.getObserver(conversationUID).getExpectedResponse() == packet.getClass())) {
+        // observers not expecting more than one response are unregistered by the lookup already
+        final ResponseObserver observer = netHandler.pollObserver(conversationUID, source, packet.getClass());
+        if(observer instanceof ResponseFuture future) {
+            if(future.accept(packet) && future.isConcurrentResponseProcessing()) {
+                netHandler.invalidateConversation(conversationUID);
+            }
+            return;
+        }
 
-            final Conversation<Packet, Packet> conversation = netHandler.getObserver(conversationUID);
+        final MessageContext<Packet> context = new MessageContext<>(client, packet, null, source, target, targetType, conversationUID, stream);
+        if(observer instanceof Conversation<?, ?> observed) {
+            final Conversation<Packet, Packet> conversation = (Conversation<Packet, Packet>) observed;
 
             @SuppressWarnings("all")
-            final MessageContext<Packet> conversationContext = new MessageContext<>(client, conversation.getRequest(), packet, source, target, targetType, conversationUID);
-            if(!conversation.isConcurrentResponseProcessing()) {
-                // we don't expect more than one response, so we can unregister the conversation at this point
-                netHandler.invalidateConversation(conversationUID);
-            }
+            final MessageContext<Packet> conversationContext = new MessageContext<>(client, conversation.getRequest(), packet, source, target, targetType, conversationUID, stream);
 
             // Have we received an error from the other end?
             if(packet instanceof ErrorInformationHolder errorPacket) {
@@ -100,8 +135,8 @@ public class DefaultMessageProcessor implements RawDataReceiver {
             }
         }
 
-        for (final Map.Entry<Class<? extends MessageHandler<?>>, MessageHandler<?>> entry : registeredMessageReceivers.asMap().entrySet()) {
-            final MessageHandler<Packet> handler = (MessageHandler<Packet>) entry.getValue();
+        for (final MessageHandler<?> registered : handlers.get(packet.getClass())) {
+            final MessageHandler<Packet> handler = (MessageHandler<Packet>) registered;
             try {
                 if(!handler.shouldAccept(packet)) continue;
                 handler.onReceive(context);
@@ -144,10 +179,9 @@ public class DefaultMessageProcessor implements RawDataReceiver {
      * @param handler the handler
      * @return the current instance of this class
      */
-    @SuppressWarnings("unchecked")
     public <T extends Packet>
     DefaultMessageProcessor registerHandler(final @NonNull MessageHandler<T> handler) {
-        registeredMessageReceivers.put((Class<? extends MessageHandler<?>>) handler.getClass(), handler);
+        handlers.register(handler);
         client.getLogger().debugFine("Registered message receiver {}", handler.getClass().getSimpleName());
         return this;
     }
@@ -161,11 +195,18 @@ public class DefaultMessageProcessor implements RawDataReceiver {
      */
     public <T extends MessageHandler<?>>
     DefaultMessageProcessor unregisterHandler(final @NonNull Class<T> handlerCls) {
-        registeredMessageReceivers.invalidate(handlerCls);
+        handlers.unregister(handlerCls);
         client.getLogger().debugFine("Unregistered message receiver {}", handlerCls.getSimpleName());
         return this;
     }
 
+    private static boolean receives(final MessageHandler<?> handler, final Class<?> packetType) {
+        for (final Class<? extends Packet> type : handler.getPacketTypes()) {
+            if(type.isAssignableFrom(packetType)) return true;
+        }
+        return false;
+    }
+
     private void populateDefaultHandlers() {
         setErrorHandler(new DefaultErrorHandler<>(client, (handler, messageContext, throwable) -> {
             client.getLogger().warn("Class {} has encountered an error whilst processing a request from '{}'. [Packet Type: {}]",
@@ -173,5 +214,6 @@ public class DefaultMessageProcessor implements RawDataReceiver {
             );
             client.getLogger().debugFine("Exception thrown: {}", ExceptionUtils.getStackTrace(throwable));
         }));
+        registerHandler(new PacketTypeAssignmentHandler(client));
     }
 }
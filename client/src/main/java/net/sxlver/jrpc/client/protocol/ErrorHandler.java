@@ -7,6 +7,9 @@ import net.sxlver.jrpc.core.protocol.Packet;
 import net.sxlver.jrpc.core.protocol.packet.ErrorInformationResponse;
 import net.sxlver.jrpc.core.util.TriConsumer;
 
+import java.util.Collection;
+import java.util.List;
+
 public abstract class ErrorHandler<T extends ErrorInformationHolder> implements MessageHandler<T> {
 
     private final JRPCClient client;
@@ -28,8 +31,8 @@ public abstract class ErrorHandler<T extends ErrorInformationHolder> implements
     }
 
     @Override
-    public boolean shouldAccept(final @NonNull Packet packet) {
-        return packet instanceof ErrorInformationHolder;
+    public Collection<Class<? extends Packet>> getPacketTypes() {
+        return List.of(ErrorInformationHolder.class);
     }
 
 
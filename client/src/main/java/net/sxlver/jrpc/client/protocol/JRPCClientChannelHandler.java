@@ -1,39 +1,60 @@
 package net.sxlver.jrpc.client.protocol;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.timeout.ReadTimeoutException;
 import lombok.NonNull;
 import net.sxlver.jrpc.client.JRPCClient;
+import net.sxlver.jrpc.client.protocol.exception.UndeliveredRequestException;
 import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.Message;
 import net.sxlver.jrpc.core.protocol.MessageTarget;
 import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.protocol.codec.EnvelopeCodec;
+import net.sxlver.jrpc.core.protocol.impl.JRPCBatchMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCChunkMessage;
 import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
 import net.sxlver.jrpc.core.protocol.impl.JRPCMessageBuilder;
-import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
-import net.sxlver.jrpc.core.util.TimedCache;
+import net.sxlver.jrpc.core.protocol.packet.FileTransferHeader;
+import net.sxlver.jrpc.core.util.TimedLongCache;
 import net.sxlver.jrpc.core.util.TimedQueue;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class JRPCClientChannelHandler extends SimpleChannelInboundHandler<JRPCMessage> {
 
     private final JRPCClient client;
     private Channel channel;
 
-    private static final TimedCache<ConversationUID, Conversation<? extends Packet, ? extends Packet>> conversationObservers = new TimedCache<>();
-    private static final TimedQueue<Conversation<? extends Packet, ? extends Packet>, JRPCMessage> queuedMessages = new TimedQueue<>();
+    private final TimedLongCache<ResponseObserver> conversationObservers = new TimedLongCache<>();
+    // keyed by the observer of each message, null if no response is expected
+    private final TimedQueue<ResponseObserver, JRPCMessage> queuedMessages = new TimedQueue<>(this::onQueuedMessageExpired);
+    private final MessageStreamReceiver streamReceiver;
     private volatile boolean handshaked;
 
     public JRPCClientChannelHandler(final JRPCClient client) {
         this.client = client;
+        this.streamReceiver = new MessageStreamReceiver(client);
     }
 
     @Override
     public void channelRead0(final @NotNull ChannelHandlerContext context, final @NotNull JRPCMessage message) {
+        if(message instanceof JRPCChunkMessage chunk) {
+            streamReceiver.accept(chunk);
+            return;
+        }
         client.publishToHandlers(message);
     }
 
@@ -56,12 +77,14 @@ public class JRPCClientChannelHandler extends SimpleChannelInboundHandler<JRPCMe
     @Override
     public void channelActive(@NotNull ChannelHandlerContext context) {
         this.channel = context.channel();
+        streamReceiver.open(channel);
         client.getLogger().debugFine("A connection has been established.");
         context.fireChannelActive();
     }
 
     @Override
     public void channelInactive(@NotNull ChannelHandlerContext context) {
+        streamReceiver.close();
         client.onChannelClose(context);
         handshaked = false;
         context.fireChannelInactive();
@@ -77,79 +100,294 @@ public class JRPCClientChannelHandler extends SimpleChannelInboundHandler<JRPCMe
                                             final @Nullable Class<TResponse> expectedResponse,
                                             final @Nullable ConversationUID conversationUID) {
 
-        final ConversationUID uid = conversationUID == null ? ConversationUID.newUid() : conversationUID;
+        final ConversationUID uid = conversationUID == null ? client.newConversationUID() : conversationUID;
+        final Conversation<TRequest, TResponse> conversation = expectedResponse == null ? Conversation.empty() : new Conversation<>(client, packet, uid, expectedResponse);
+        write(packet, target, uid, expectedResponse == null ? null : conversation);
+        return conversation;
+    }
+
+    /**
+     * Writes a request whose response completes the returned future, see {@link PendingRequest}.
+     *
+     * @param packet       the request
+     * @param target       the target
+     * @param responseType the type of the response
+     * @param timeout      the time in milliseconds to wait for the response
+     * @return the future
+     */
+    public <TResponse extends Packet>
+    CompletableFuture<TResponse> request(final @NonNull Packet packet,
+                                         final @NonNull MessageTarget target,
+                                         final @NonNull Class<TResponse> responseType,
+                                         final long timeout) {
+
+        final ConversationUID uid = client.newConversationUID();
+        final PendingRequest<TResponse> request = new PendingRequest<>(responseType, timeout, () -> invalidateConversation(uid));
+        write(packet, target, uid, request);
+        return request;
+    }
+
+    /**
+     * Writes a request whose responses are collected into the returned future, see {@link CollectingRequest}.
+     *
+     * @param packet       the request
+     * @param target       the target
+     * @param responseType the type of the responses
+     * @param maxResponses the number of responses after which the future completes early
+     * @param timeout      the time in milliseconds to collect responses for
+     * @return the future
+     */
+    public <TResponse extends Packet>
+    CompletableFuture<List<TResponse>> requestAll(final @NonNull Packet packet,
+                                                  final @NonNull MessageTarget target,
+                                                  final @NonNull Class<TResponse> responseType,
+                                                  final int maxResponses,
+                                                  final long timeout) {
+
+        final ConversationUID uid = client.newConversationUID();
+        final CollectingRequest<TResponse> request = new CollectingRequest<>(responseType, timeout, maxResponses, () -> invalidateConversation(uid));
+        write(packet, target, uid, request);
+        return request;
+    }
+
+    private void write(final Packet packet, final MessageTarget target, final ConversationUID uid, final @Nullable ResponseObserver observer) {
+        final boolean channelActive = channel != null && channel.isActive();
         final JRPCMessage message = JRPCMessageBuilder.builder()
                 .source(client)
                 .target(target.target())
                 .targetType(target.type())
                 .conversationUid(uid)
-                .data(PacketDataSerializer.serialize(packet))
+                .routingKey(target.routingKey())
+                .responseExpected(observer != null)
+                // queued messages may be sent after the server has reassigned packet type ids
+                .packet(packet, channelActive ? client.getPacketTypes() : null)
                 .build();
 
-        final boolean channelActive = channel != null && channel.isActive();
-        final Conversation<TRequest, TResponse> conversation = newConversation(packet, message.conversationId(), expectedResponse, channelActive);
         if(channelActive) {
-            channel.writeAndFlush(message);
-            logPacketDispatch(packet, target, uid, message);
+            // the observer has to be registered before the response can possibly arrive
+            if(observer != null) conversationObservers.put(uid.uid(), observer);
+            channel.writeAndFlush(client.getConfig().isEncodeOnCallerThread() ? encode(message) : message);
+            logPacketDispatch(packet, target, uid);
+        } else if(client.getConfig().isQueueMessages()) {
+            queueMessage(observer, packet, message);
         } else {
-            queueMessage(conversation, message);
+            client.getLogger().debugFiner("Message for request {} with conversation id {} has been dropped because the channel is inactive.", packet.getClass(), uid);
+            if(observer != null) observer.notifyUndelivered(new UndeliveredRequestException("The channel is inactive and queue-messages is disabled"));
         }
-        return conversation;
     }
 
-    private <TRequest extends Packet, TResponse extends Packet>
-    Conversation<TRequest, TResponse> newConversation(final @NonNull TRequest request,
-                                                      final @NonNull ConversationUID uid,
-                                                      final @Nullable Class<? extends Packet> expectedResponse,
-                                                      final boolean registerConversation) {
+    /**
+     * Writes the given packets to the same target in as few frames as possible, each of them
+     * in its own conversation. The packets are split into several batches if the predicted
+     * size of a batch would exceed half the maximum frame length. Packets are written one by
+     * one if the channel is inactive, so that they can be queued.
+     *
+     * @param packets          the packets
+     * @param target           the target of every packet
+     * @param expectedResponse the expected response to each packet
+     * @return the conversation of each packet, in the order of the given packets
+     */
+    public <TRequest extends Packet, TResponse extends Packet>
+    List<Conversation<TRequest, TResponse>> writeBatch(final @NonNull Collection<? extends TRequest> packets,
+                                                       final @NonNull MessageTarget target,
+                                                       final @Nullable Class<TResponse> expectedResponse) {
 
-        if(expectedResponse == null) {
-            return Conversation.empty();
+        final List<Conversation<TRequest, TResponse>> conversations = new ArrayList<>(packets.size());
+        if(channel == null || !channel.isActive()) {
+            for (final TRequest packet : packets) {
+                conversations.add(write(packet, target, expectedResponse, null));
+            }
+            return conversations;
         }
 
-        Conversation<TRequest, TResponse> conversation = new Conversation<>(client, request, uid, expectedResponse);
-        if(registerConversation) conversationObservers.put(uid, conversation);
-        return conversation;
+        final List<JRPCMessage> entries = new ArrayList<>();
+        int batchLength = 0;
+        for (final TRequest packet : packets) {
+            final JRPCMessage message = JRPCMessageBuilder.builder()
+                    .source(client)
+                    .target(target.target())
+                    .targetType(target.type())
+                    .conversationUid(client.newConversationUID())
+                    .routingKey(target.routingKey())
+                    .responseExpected(expectedResponse != null)
+                    .packet(packet, client.getPacketTypes())
+                    .build();
+
+            final int entryLength = EnvelopeCodec.estimatePayloadLength(message);
+            if(!entries.isEmpty() && batchLength + entryLength > Message.MAX_PACKET_LENGTH / 2) {
+                writeBatch(entries);
+                entries.clear();
+                batchLength = 0;
+            }
+            entries.add(message);
+            batchLength += entryLength;
+            if(expectedResponse == null) {
+                conversations.add(Conversation.empty());
+            }else {
+                final Conversation<TRequest, TResponse> conversation = new Conversation<>(client, packet, message.conversationId(), expectedResponse);
+                conversationObservers.put(message.conversationId().uid(), conversation);
+                conversations.add(conversation);
+            }
+        }
+        if(!entries.isEmpty()) {
+            writeBatch(entries);
+        }
+        channel.flush();
+
+        client.getLogger().debugFiner("Sent batch of {} packet(s) to target {}. [Target Type: {}]", packets.size(), target.target(), target.type());
+        return conversations;
+    }
+
+    /**
+     * Writes a message stream, the header packet followed by the body split into chunks, see
+     * {@link ChunkedInputStreamWriter}. Streams are not queued whilst the channel is inactive.
+     *
+     * @param header the packet handed to the handlers of the receiving client(s) along with the stream
+     * @param body   the body, closed once it has been read
+     * @param target the target of the stream
+     * @return a future completed once the whole stream has been written
+     * @throws IllegalArgumentException if the stream targets the server or is load balanced without a routing key
+     */
+    public CompletableFuture<Void> writeStream(final @NonNull Packet header,
+                                               final @NonNull InputStream body,
+                                               final @NonNull MessageTarget target) {
+
+        checkStreamTarget(target);
+        if(channel == null || !channel.isActive()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Message streams cannot be sent whilst the channel is inactive"));
+        }
+        return new ChunkedInputStreamWriter(client, channel, target, client.newConversationUID(), body).start(header);
+    }
+
+    /**
+     * Writes the content of a file as a message stream with a {@link FileTransferHeader}, see
+     * {@link ChunkedFileWriter}. Streams are not queued whilst the channel is inactive.
+     *
+     * @param file   the file
+     * @param target the target of the stream
+     * @return a future completed once the whole file has been written
+     * @throws IllegalArgumentException if the stream targets the server or is load balanced without a routing key
+     */
+    public CompletableFuture<Void> writeFile(final @NonNull Path file, final @NonNull MessageTarget target) {
+        checkStreamTarget(target);
+        if(channel == null || !channel.isActive()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Message streams cannot be sent whilst the channel is inactive"));
+        }
+
+        final long size;
+        try {
+            size = Files.size(file);
+        }catch(final IOException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+        final FileTransferHeader header = new FileTransferHeader(file.getFileName().toString(), size);
+        return new ChunkedFileWriter(client, channel, target, client.newConversationUID(), file.toFile(), size).start(header);
+    }
+
+    private void checkStreamTarget(final MessageTarget target) {
+        if(target.type() == Message.TargetType.SERVER) {
+            throw new IllegalArgumentException("The server does not accept message streams");
+        }
+        if(target.type() == Message.TargetType.LOAD_BALANCED && target.routingKey() == null) {
+            // every chunk is routed on its own, only a routing key guarantees they all reach the same client
+            throw new IllegalArgumentException("Load balanced message streams require a routing key");
+        }
+    }
+
+    private void writeBatch(final List<JRPCMessage> entries) {
+        final JRPCBatchMessage batch = JRPCBatchMessage.of(entries);
+        channel.write(client.getConfig().isEncodeOnCallerThread() ? encode(batch) : batch);
+    }
+
+    /**
+     * Encodes the message on the calling thread, only the finished frame is handed to the event loop.
+     */
+    private ByteBuf encode(final JRPCMessage message) {
+        final ByteBuf frame = channel.alloc().ioBuffer(EnvelopeCodec.estimateLength(message));
+        try {
+            EnvelopeCodec.write(frame, message, JRPCClient.PROTOCOL_VERSION.getVersionNumber());
+            return frame;
+        } catch(final RuntimeException exception) {
+            frame.release();
+            throw exception;
+        }
     }
 
     private <TRequest extends Packet>
     void logPacketDispatch(final TRequest packet,
                            final MessageTarget target,
-                           final ConversationUID uid,
-                           final JRPCMessage message) {
+                           final ConversationUID uid) {
         
         client.getLogger().debugFiner(
-                "Sent packet {} to target {}. [Conversation UID: {}] [Target Type: {}] [Content Length. {}]",
-                packet.getClass(), target.target(), uid.uid(), target.type().toString(), message.data().length
+                "Sent packet {} to target {}. [Conversation UID: {}] [Target Type: {}]",
+                packet.getClass(), target.target(), uid.uid(), target.type().toString()
         );
     }
 
     private void pollQueue() {
-        queuedMessages.forEach((conversation, message) -> {
-            conversationObservers.put(conversation.getConversationUID(), conversation);
-            channel.writeAndFlush(message);
-            client.getLogger().debugFiner("Sent queued message for {} with conversation id {}", conversation.getRequest().getClass(), conversation.getConversationUID());
+        queuedMessages.forEach((observer, message) -> {
+            if(observer != null) conversationObservers.put(message.conversationId().uid(), observer);
+            channel.write(message);
+            client.getLogger().debugFiner("Sent queued message with conversation id {}", message.conversationId());
         });
+        channel.flush();
     }
 
-    private void queueMessage(final Conversation<? extends Packet, ? extends Packet> conversation, final JRPCMessage message) {
-        message.setQueueTimeout(client.getConfig().getQueuedMessageTimeout() * 1000L);
-        queuedMessages.enqueue(conversation, message);
-        client.getLogger().debugFiner("Message for request {} with conversation id {} has been queued because the channel is inactive.", conversation.getRequest().getClass(), conversation.getConversationUID());
+    private void queueMessage(final @Nullable ResponseObserver observer, final Packet packet, final JRPCMessage message) {
+        final int queueTimeout = client.getConfig().getQueuedMessageTimeout();
+        message.setQueueTimeout(queueTimeout > 0 ? queueTimeout * 1000L : Long.MAX_VALUE);
+        queuedMessages.enqueue(observer, message);
+        client.getLogger().debugFiner("Message for request {} with conversation id {} has been queued because the channel is inactive.", packet.getClass(), message.conversationId());
         client.getLogger().debugFinest("Current message queue: {}", queuedMessages);
     }
 
+    private void onQueuedMessageExpired(final @Nullable ResponseObserver observer, final JRPCMessage message) {
+        client.getLogger().debugFiner("Queued message with conversation id {} has expired before the connection has been re-established.", message.conversationId());
+        if(observer != null) observer.notifyUndelivered(new UndeliveredRequestException(String.format("The channel has not become active within %d ms", message.timeout())));
+    }
+
     public boolean isObserverPresent(final ConversationUID uid) {
-        return getObserver(uid) != null;
+        return conversationObservers.get(uid.uid()) != null;
     }
 
+    /**
+     * Gets the conversation registered under the given uid.
+     *
+     * @param uid the uid
+     * @return the conversation or null if there is none or the request has been sent through {@link #request}
+     */
     @Nullable
+    @SuppressWarnings("unchecked")
     public <TRequest extends Packet, TResponse extends Packet> Conversation<TRequest, TResponse> getObserver(final ConversationUID uid) {
-        return (Conversation<TRequest, TResponse>) conversationObservers.get(uid);
+        return conversationObservers.get(uid.uid()) instanceof Conversation<?, ?> conversation ? (Conversation<TRequest, TResponse>) conversation : null;
+    }
+
+    /**
+     * Looks up the observer of the conversation a received message responds to and unregisters it in the
+     * same step, unless it processes concurrent responses. A message sent by this client itself only responds
+     * to an observer expecting exactly its type, otherwise it is a request of ours routed back to us.
+     *
+     * @param uid        the conversation uid of the message
+     * @param source     the source of the message
+     * @param packetType the type of the message's packet
+     * @return the observer or null if the message does not respond to any
+     */
+    @Nullable
+    public ResponseObserver pollObserver(final @NonNull ConversationUID uid,
+                                         final @NonNull String source,
+                                         final @NonNull Class<? extends Packet> packetType) {
+
+        final ResponseObserver observer = conversationObservers.getAndRemoveIf(uid.uid(), registered ->
+                !registered.isConcurrentResponseProcessing() && isResponse(registered, source, packetType));
+        return observer != null && isResponse(observer, source, packetType) ? observer : null;
+    }
+
+    private boolean isResponse(final ResponseObserver observer, final String source, final Class<? extends Packet> packetType) {
+        return !source.equals(client.getSource()) || observer.getExpectedResponse() == packetType;
     }
 
     public void invalidateConversation(final @NonNull ConversationUID id) {
-        conversationObservers.remove(id);
+        conversationObservers.remove(id.uid());
     }
 
     private long waitingSince;
@@ -8,6 +8,7 @@ import lombok.NonNull;
 import net.sxlver.jrpc.client.JRPCClient;
 import net.sxlver.jrpc.client.protocol.codec.JRPCClientMessageEncoder;
 import net.sxlver.jrpc.core.protocol.MessageType;
+import net.sxlver.jrpc.core.protocol.codec.FrameCompressionCodec;
 import net.sxlver.jrpc.core.protocol.impl.JRPCClientHandshakeMessage;
 import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
 import net.sxlver.jrpc.core.protocol.packet.HandshakeStatusPacket;
@@ -30,7 +31,7 @@ public class JRPCClientHandshakeHandler extends SimpleChannelInboundHandler<JRPC
     protected void channelRead0(final ChannelHandlerContext context, final JRPCMessage message) {
         try {
             final byte[] data = message.data();
-            final HandshakeStatusPacket packet = PacketDataSerializer.deserialize(data, HandshakeStatusPacket.class);
+            final HandshakeStatusPacket packet = PacketDataSerializer.deserializePacket(data);
             client.getNetHandler().setHandshaked(true);
             if (!packet.isSuccess()) {
                 client.getLogger().fatal("Error authenticating with the server. Error: '{}' [Auth key: {}]", packet.getErrorMessage(), StringUtil.cypherString(client.getConfig().getAuthenticationToken()));
@@ -38,6 +39,11 @@ public class JRPCClientHandshakeHandler extends SimpleChannelInboundHandler<JRPC
                 return;
             }
 
+            client.getPacketTypes().applyAssignments(packet.getPacketTypeIds(), true);
+            ((FrameCompressionCodec) context.pipeline().get("compression_codec")).setEnabled(packet.isCompression());
+            if(packet.getConversationEpoch() > 0) {
+                client.getConversationUIDs().setEpoch(packet.getConversationEpoch());
+            }
             client.getLogger().info("Successfully authenticated with the server.");
             finish();
         } catch (final Exception exception) {
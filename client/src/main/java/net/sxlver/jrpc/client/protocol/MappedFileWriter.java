@@ -0,0 +1,94 @@
+package net.sxlver.jrpc.client.protocol;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Writes the chunks of a message stream into a memory-mapped file of a known size. The file
+ * is mapped in windows of at most {@link #MAX_WINDOW_LENGTH} bytes, so files of any size can
+ * be received. The file is deleted if the stream is aborted or its size does not match.
+ */
+class MappedFileWriter implements ChunkListener {
+    private static final int MAX_WINDOW_LENGTH = 64 * 1024 * 1024;
+
+    private final Path file;
+    private final long size;
+    private final FileChannel channel;
+    private final CompletableFuture<Path> future = new CompletableFuture<>();
+
+    private MappedByteBuffer window;
+    private long windowPosition;
+
+    MappedFileWriter(final @NonNull Path file, final long size) throws IOException {
+        this.file = file;
+        this.size = size;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    CompletableFuture<Path> getFuture() {
+        return future;
+    }
+
+    @Override
+    public void onChunk(final byte[] chunk) {
+        if(future.isDone()) return;
+        try {
+            int offset = 0;
+            while(offset < chunk.length) {
+                if(window == null || !window.hasRemaining()) {
+                    mapNextWindow();
+                }
+                final int length = Math.min(chunk.length - offset, window.remaining());
+                window.put(chunk, offset, length);
+                offset += length;
+            }
+        }catch(final IOException exception) {
+            onAbort(exception);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        if(future.isDone()) return;
+        final long written = window == null ? 0 : windowPosition + window.position();
+        if(written != size) {
+            onAbort(new IOException(String.format("Received %d of %d announced byte(s)", written, size)));
+            return;
+        }
+        try {
+            channel.close();
+            future.complete(file);
+        }catch(final IOException exception) {
+            onAbort(exception);
+        }
+    }
+
+    @Override
+    public void onAbort(final @NonNull IOException cause) {
+        if(future.isDone()) return;
+        window = null;
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        }catch(final IOException exception) {
+            cause.addSuppressed(exception);
+        }
+        future.completeExceptionally(cause);
+    }
+
+    private void mapNextWindow() throws IOException {
+        final long position = window == null ? 0 : windowPosition + window.capacity();
+        if(position >= size) {
+            throw new IOException(String.format("Received more than the announced %d byte(s)", size));
+        }
+        windowPosition = position;
+        window = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(MAX_WINDOW_LENGTH, size - position));
+    }
+}
@@ -25,6 +25,7 @@ public class MessageContext<T extends Packet> {
 
     private final T request;
     private final @Nullable Packet response;
+    private final @Nullable MessageStream stream;
 
     private boolean responseContext;
 
@@ -51,7 +52,32 @@ public class MessageContext<T extends Packet> {
                           final @NonNull Message.TargetType targetType,
                           final @NonNull ConversationUID conversationUID) {
 
+        this(client, request, response, source, target, targetType, conversationUID, null);
+    }
+
+    /**
+     * Instantiates a new Message context for a packet that may be the header of a message stream.
+     *
+     * @param client          the client
+     * @param request         the request
+     * @param response        the response or null
+     * @param source          the source
+     * @param target          the target
+     * @param targetType      the target type
+     * @param conversationUID the conversation uid
+     * @param stream          the stream the packet is the header of or null
+     */
+    public MessageContext(final @NonNull JRPCClient client,
+                          final @NonNull T request,
+                          final @Nullable Packet response,
+                          final @NonNull String source,
+                          final @NonNull String target,
+                          final @NonNull Message.TargetType targetType,
+                          final @NonNull ConversationUID conversationUID,
+                          final @Nullable MessageStream stream) {
+
         this.client = client;
+        this.stream = stream;
         this.request = request;
         this.response = response;
         this.source = source;
@@ -155,6 +181,17 @@ public class MessageContext<T extends Packet> {
         return conversationUID;
     }
 
+    /**
+     * The data following the packet being handled if it is the header of a message stream.
+     * The stream has to be claimed before the handler returns, see {@link MessageStream}.
+     *
+     * @return the stream or null if the packet has been sent on its own
+     */
+    @Nullable
+    public MessageStream getStream() {
+        return stream;
+    }
+
     /**
      * @return whether this object represents a request or response handling context
      */
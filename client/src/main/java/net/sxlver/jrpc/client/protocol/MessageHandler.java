@@ -3,6 +3,9 @@ package net.sxlver.jrpc.client.protocol;
 import lombok.NonNull;
 import net.sxlver.jrpc.core.protocol.Packet;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * The interface Message handler.
  */
@@ -15,7 +18,19 @@ public interface MessageHandler<T extends Packet> {
     void onReceive(final @NonNull MessageContext<T> context);
 
     /**
-     * Whether the packet type should be accepted or not.
+     * The packet types this handler receives, subtypes included. Handlers are only
+     * consulted through {@link #shouldAccept(Packet)} for packets of one of these types.
+     * The types must not change once the handler has been registered.
+     *
+     * @return the packet types
+     */
+    default Collection<Class<? extends Packet>> getPacketTypes() {
+        return List.of(Packet.class);
+    }
+
+    /**
+     * Whether the packet should be accepted or not, called for packets of one of the
+     * {@link #getPacketTypes() declared types} only.
      *
      * @param packet the packet
      * @return the boolean
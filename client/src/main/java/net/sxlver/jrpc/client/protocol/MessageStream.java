@@ -0,0 +1,282 @@
+package net.sxlver.jrpc.client.protocol;
+
+import io.netty.util.concurrent.EventExecutor;
+import lombok.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The data following the header packet of a message stream, received chunk by chunk.
+ *
+ * <p>A handler has to claim the stream whilst it handles the header packet, either by
+ * {@link #subscribe(ChunkListener) subscribing} to it or by opening its {@link #getInputStream() input stream}.
+ * The input stream may be read from any thread but the event loop of the connection, which
+ * is the thread that receives the chunks, e.g. from an executor the handler hands it to.
+ * A stream no handler claimed is discarded.
+ *
+ * <p>Chunks are buffered until they are read. Once too many bytes are buffered, the connection
+ * stops reading until the reader has caught up, which also holds back any other message. The
+ * stream is aborted if the reader does not catch up within the stream idle timeout.
+ */
+public class MessageStream {
+    private final Deque<byte[]> chunks = new ArrayDeque<>();
+    private final int maxBufferedBytes;
+    private final Runnable onDrained;
+    private final EventExecutor eventLoop;
+
+    private int bufferedBytes;
+    private long receivedBytes;
+    private boolean saturated;
+
+    private ChunkListener listener;
+    private InputStream inputStream;
+    private boolean discarded;
+
+    private boolean complete;
+    private IOException abortCause;
+
+    /**
+     * @param maxBufferedBytes the number of buffered bytes above which the stream is saturated
+     * @param onDrained        run once a saturated stream has been drained to half of that
+     * @param eventLoop        the event loop of the connection the stream is received on
+     */
+    MessageStream(final int maxBufferedBytes, final @NonNull Runnable onDrained, final @NonNull EventExecutor eventLoop) {
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.onDrained = onDrained;
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * Claims the stream, passing every chunk to the given listener. Chunks received before are
+     * passed to the listener right away.
+     *
+     * @param listener the listener
+     * @throws IllegalStateException if the stream has already been claimed
+     */
+    public synchronized void subscribe(final @NonNull ChunkListener listener) {
+        claim();
+        this.listener = listener;
+        byte[] chunk;
+        while((chunk = chunks.poll()) != null) {
+            listener.onChunk(chunk);
+        }
+        release(bufferedBytes);
+        if(abortCause != null) {
+            listener.onAbort(abortCause);
+        }else if(complete) {
+            listener.onComplete();
+        }
+    }
+
+    /**
+     * Claims the stream, returning an input stream of its data. Reads block until the next
+     * chunk has been received and throw an {@link IOException} if the stream has been aborted.
+     * Reads on the event loop of the connection throw an {@link IllegalStateException}, they
+     * would block the thread the chunks are received on.
+     *
+     * @return the input stream
+     * @throws IllegalStateException if the stream has already been claimed
+     */
+    public synchronized InputStream getInputStream() {
+        claim();
+        return inputStream = new ChunkInputStream();
+    }
+
+    /**
+     * Claims the stream, writing its data into the given file, which is memory-mapped.
+     * The file is replaced if it exists and deleted again if the stream is aborted.
+     *
+     * @param file the file
+     * @param size the size of the data announced by the sender, e.g. {@link net.sxlver.jrpc.core.protocol.packet.FileTransferHeader#getSize()}
+     * @return a future completed with the file once all data has been written, or exceptionally
+     *         if the stream has been aborted or its data does not match the announced size
+     * @throws IllegalStateException if the stream has already been claimed
+     */
+    public synchronized CompletableFuture<Path> transferTo(final @NonNull Path file, final long size) {
+        final MappedFileWriter writer;
+        try {
+            writer = new MappedFileWriter(file, size);
+        }catch(final IOException exception) {
+            // claim the stream anyway, so the data is not buffered
+            subscribe(new ChunkListener() {
+                @Override
+                public void onChunk(final byte[] chunk) {
+                }
+            });
+            return CompletableFuture.failedFuture(exception);
+        }
+        subscribe(writer);
+        return writer.getFuture();
+    }
+
+    /**
+     * @return whether a handler claimed the stream
+     */
+    public synchronized boolean isClaimed() {
+        return listener != null || inputStream != null;
+    }
+
+    /**
+     * @return whether the last chunk has been received
+     */
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return the reason the stream was aborted or null if it has not been aborted
+     */
+    @Nullable
+    public synchronized IOException getAbortCause() {
+        return abortCause;
+    }
+
+    /**
+     * @return the number of bytes received so far
+     */
+    public synchronized long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    private void claim() {
+        if(isClaimed()) {
+            throw new IllegalStateException("The stream has already been claimed");
+        }
+        if(discarded) {
+            throw new IllegalStateException("The stream has been discarded, it has to be claimed whilst handling its header");
+        }
+    }
+
+    /**
+     * Adds a chunk to the stream.
+     *
+     * @param chunk the chunk
+     * @return true if the stream became saturated by this chunk
+     */
+    synchronized boolean offer(final byte[] chunk) {
+        receivedBytes += chunk.length;
+        if(discarded || chunk.length == 0) {
+            return false;
+        }
+        if(listener != null) {
+            listener.onChunk(chunk);
+            return false;
+        }
+
+        chunks.add(chunk);
+        bufferedBytes += chunk.length;
+        notifyAll();
+        if(!saturated && bufferedBytes > maxBufferedBytes) {
+            saturated = true;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void complete() {
+        if(complete || abortCause != null) return;
+        complete = true;
+        notifyAll();
+        if(listener != null) {
+            listener.onComplete();
+        }
+    }
+
+    synchronized void abort(final @NonNull IOException cause) {
+        if(complete || abortCause != null) return;
+        abortCause = cause;
+        notifyAll();
+        if(listener != null) {
+            listener.onAbort(cause);
+        }
+    }
+
+    /**
+     * Drops all buffered and future chunks.
+     */
+    synchronized void discard() {
+        discarded = true;
+        chunks.clear();
+        release(bufferedBytes);
+        notifyAll();
+    }
+
+    private void release(final int length) {
+        bufferedBytes -= length;
+        if(saturated && bufferedBytes <= maxBufferedBytes / 2) {
+            saturated = false;
+            onDrained.run();
+        }
+    }
+
+    private class ChunkInputStream extends InputStream {
+        private byte[] current;
+        private int position;
+        private boolean closed;
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            if(length == 0) return 0;
+            if(eventLoop.inEventLoop()) {
+                throw new IllegalStateException("Message streams must not be read on the event loop of their connection");
+            }
+            synchronized(MessageStream.this) {
+                if(closed) {
+                    throw new IOException("Stream closed");
+                }
+                while(current == null || position == current.length) {
+                    current = chunks.poll();
+                    position = 0;
+                    if(current != null) {
+                        release(current.length);
+                        continue;
+                    }
+                    if(abortCause != null) {
+                        throw new IOException(abortCause.getMessage(), abortCause);
+                    }
+                    if(complete || discarded) {
+                        return -1;
+                    }
+                    try {
+                        MessageStream.this.wait();
+                    }catch(final InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted whilst waiting for the next chunk", exception);
+                    }
+                }
+
+                final int read = Math.min(length, current.length - position);
+                System.arraycopy(current, position, buffer, offset, read);
+                position += read;
+                return read;
+            }
+        }
+
+        @Override
+        public int available() {
+            synchronized(MessageStream.this) {
+                return current == null ? 0 : current.length - position;
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized(MessageStream.this) {
+                closed = true;
+                discard();
+            }
+        }
+    }
+}
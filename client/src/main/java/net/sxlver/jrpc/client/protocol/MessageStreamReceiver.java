@@ -0,0 +1,169 @@
+package net.sxlver.jrpc.client.protocol;
+
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.NonNull;
+import net.sxlver.jrpc.client.JRPCClient;
+import net.sxlver.jrpc.core.protocol.impl.JRPCChunkMessage;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the message streams received on a channel and feeds their chunks into the
+ * {@link MessageStream}s handed to the handlers. Only ever accessed on the event loop of the channel.
+ *
+ * <p>The channel stops reading while any stream is saturated, so a single reader that does not
+ * keep up holds back every message of the connection. Streams that have been saturated for
+ * longer than the stream idle timeout are therefore aborted, as are streams that did not receive
+ * a chunk within the timeout whilst the channel was reading.
+ */
+class MessageStreamReceiver {
+    // 4 MiB
+    private static final int MAX_BUFFERED_BYTES = 64 * JRPCChunkMessage.MAX_CHUNK_LENGTH;
+
+    private final JRPCClient client;
+    private final Map<StreamKey, IncomingStream> streams = new HashMap<>();
+    private final Set<IncomingStream> saturated = new HashSet<>();
+
+    private Channel channel;
+    private ScheduledFuture<?> idleCheck;
+
+    MessageStreamReceiver(final @NonNull JRPCClient client) {
+        this.client = client;
+    }
+
+    void open(final @NonNull Channel channel) {
+        this.channel = channel;
+        final long timeout = TimeUnit.SECONDS.toMillis(Math.max(1, client.getConfig().getStreamIdleTimeout()));
+        this.idleCheck = channel.eventLoop().scheduleAtFixedRate(() -> abortIdle(timeout), timeout, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    void close() {
+        if(idleCheck != null) {
+            idleCheck.cancel(false);
+            idleCheck = null;
+        }
+        for (final IncomingStream incoming : streams.values()) {
+            incoming.stream.abort(new IOException("The connection has been closed"));
+        }
+        streams.clear();
+        saturated.clear();
+    }
+
+    void accept(final @NonNull JRPCChunkMessage chunk) {
+        final StreamKey key = new StreamKey(chunk.source(), chunk.conversationId().uid());
+        if(chunk.isHeader()) {
+            final IncomingStream previous = streams.remove(key);
+            if(previous != null) {
+                client.getLogger().warn("Received a new header for an open message stream from {}. [Conversation ID: {}]", chunk.source(), chunk.conversationId());
+                finish(previous, new IOException("The stream has been restarted by its sender"));
+            }
+
+            final MessageStream stream = new MessageStream(MAX_BUFFERED_BYTES, () -> channel.eventLoop().execute(() -> resume(key)), channel.eventLoop());
+            final IncomingStream incoming = new IncomingStream(stream);
+            streams.put(key, incoming);
+            client.publishStreamToHandlers(chunk, stream);
+            if(!stream.isClaimed()) {
+                client.getLogger().debugFine("Discarding message stream from {} as no handler claimed it. [Conversation ID: {}]", chunk.source(), chunk.conversationId());
+                stream.discard();
+            }
+            if(chunk.isLast()) {
+                streams.remove(key);
+                finish(incoming, chunk.isAborted() ? new IOException("The stream has been aborted by its sender") : null);
+            }
+            return;
+        }
+
+        final IncomingStream incoming = streams.get(key);
+        if(incoming == null) {
+            client.getLogger().debugFinest("Dropping chunk {} of unknown message stream from {}. [Conversation ID: {}]", chunk.getSequence(), chunk.source(), chunk.conversationId());
+            return;
+        }
+        if(chunk.getSequence() != incoming.nextSequence) {
+            client.getLogger().warn("Chunk {} of message stream from {} is missing, aborting stream. [Conversation ID: {}]", incoming.nextSequence, chunk.source(), chunk.conversationId());
+            streams.remove(key);
+            finish(incoming, new IOException(String.format("Expected chunk %d but received chunk %d", incoming.nextSequence, chunk.getSequence())));
+            return;
+        }
+
+        incoming.nextSequence++;
+        incoming.lastReceived = System.currentTimeMillis();
+        if(incoming.stream.offer(chunk.data()) && saturated.add(incoming)) {
+            incoming.saturatedSince = incoming.lastReceived;
+            channel.config().setAutoRead(false);
+        }
+        if(chunk.isLast()) {
+            streams.remove(key);
+            finish(incoming, chunk.isAborted() ? new IOException("The stream has been aborted by its sender") : null);
+        }
+    }
+
+    private void finish(final IncomingStream incoming, final IOException abortCause) {
+        if(abortCause != null) {
+            incoming.stream.abort(abortCause);
+        }else {
+            incoming.stream.complete();
+        }
+        // no further chunk is read on behalf of a finished stream
+        unsaturate(incoming);
+    }
+
+    private void resume(final StreamKey key) {
+        final IncomingStream incoming = streams.get(key);
+        if(incoming != null) {
+            unsaturate(incoming);
+        }
+    }
+
+    private void unsaturate(final IncomingStream incoming) {
+        if(!saturated.remove(incoming) || !saturated.isEmpty() || !channel.isActive()) return;
+        channel.config().setAutoRead(true);
+        // no stream could receive a chunk whilst the channel was not reading
+        final long now = System.currentTimeMillis();
+        for (final IncomingStream stream : streams.values()) {
+            stream.lastReceived = now;
+        }
+    }
+
+    private void abortIdle(final long timeout) {
+        final long deadline = System.currentTimeMillis() - timeout;
+        final boolean reading = saturated.isEmpty();
+        final Iterator<Map.Entry<StreamKey, IncomingStream>> iterator = streams.entrySet().iterator();
+        while(iterator.hasNext()) {
+            final Map.Entry<StreamKey, IncomingStream> entry = iterator.next();
+            final IncomingStream incoming = entry.getValue();
+            final IOException cause;
+            if(saturated.contains(incoming)) {
+                if(incoming.saturatedSince >= deadline) continue;
+                client.getLogger().warn("Message stream from {} has not been read from within {}ms, aborting it to resume reading the connection. [Conversation ID: {}]", entry.getKey().source(), timeout, entry.getKey().uid());
+                cause = new IOException("The stream has not been read from within " + timeout + "ms");
+            }else {
+                if(!reading || incoming.lastReceived >= deadline) continue;
+                client.getLogger().warn("Message stream from {} timed out. [Conversation ID: {}]", entry.getKey().source(), entry.getKey().uid());
+                cause = new IOException("No chunk has been received within " + timeout + "ms");
+            }
+            iterator.remove();
+            finish(incoming, cause);
+        }
+    }
+
+    private record StreamKey(String source, long uid) {
+    }
+
+    private static final class IncomingStream {
+        private final MessageStream stream;
+        private int nextSequence = 1;
+        private long lastReceived = System.currentTimeMillis();
+        private long saturatedSince;
+
+        private IncomingStream(final MessageStream stream) {
+            this.stream = stream;
+        }
+    }
+}
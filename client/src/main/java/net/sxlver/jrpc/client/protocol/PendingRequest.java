@@ -0,0 +1,80 @@
+package net.sxlver.jrpc.client.protocol;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.client.protocol.exception.ErrorResponseException;
+import net.sxlver.jrpc.client.protocol.exception.UndeliveredRequestException;
+import net.sxlver.jrpc.core.protocol.ErrorInformationHolder;
+import net.sxlver.jrpc.core.protocol.Packet;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A request awaiting a single response, the future itself is registered as its observer. It completes
+ * with the response, exceptionally with an {@link ErrorResponseException} if the other end responded
+ * with an error, with a {@link TimeoutException} if no response arrived in time or with an
+ * {@link UndeliveredRequestException} if the request could not be sent. Cancelling the future
+ * unregisters the request, responses received afterwards are passed to the handlers instead.
+ *
+ * @param <TResponse> the type of the response
+ */
+final class PendingRequest<TResponse extends Packet> extends CompletableFuture<TResponse> implements ResponseFuture {
+    private final Class<TResponse> responseType;
+    private final long timeout;
+    private final Runnable onCancel;
+
+    /**
+     * @param responseType the type of the response
+     * @param timeout      the time in milliseconds to wait for the response
+     * @param onCancel     action run once the future has been cancelled
+     */
+    PendingRequest(final @NonNull Class<TResponse> responseType, final long timeout, final @NonNull Runnable onCancel) {
+        this.responseType = responseType;
+        this.timeout = timeout;
+        this.onCancel = onCancel;
+    }
+
+    @Override
+    public boolean accept(final @NonNull Packet response) {
+        if(responseType.isInstance(response)) {
+            complete(responseType.cast(response));
+        }else if(response instanceof ErrorInformationHolder errorInformation) {
+            completeExceptionally(new ErrorResponseException(errorInformation));
+        }else {
+            completeExceptionally(new IllegalStateException(String.format("Received invalid response. [Expected: %s] [Received: %s]", responseType, response.getClass())));
+        }
+        return true;
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if(cancelled) onCancel.run();
+        return cancelled;
+    }
+
+    @Override
+    public Class<? extends Packet> getExpectedResponse() {
+        return responseType;
+    }
+
+    @Override
+    public boolean isConcurrentResponseProcessing() {
+        return false;
+    }
+
+    @Override
+    public long timeout() {
+        return timeout;
+    }
+
+    @Override
+    public void notifyExpired() {
+        completeExceptionally(new TimeoutException(String.format("No %s received within %d ms", responseType.getSimpleName(), timeout)));
+    }
+
+    @Override
+    public void notifyUndelivered(final @NonNull Throwable cause) {
+        completeExceptionally(cause);
+    }
+}
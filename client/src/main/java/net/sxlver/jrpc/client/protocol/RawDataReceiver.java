@@ -6,4 +6,11 @@ import net.sxlver.jrpc.core.protocol.Message;
 
 public interface RawDataReceiver {
     void onReceive(final @NonNull String source, final @NonNull String target, final @NonNull Message.TargetType targetType, final @NonNull ConversationUID conversationUID, final byte[] data);
+
+    /**
+     * Called for the header of a message stream. The stream is discarded unless it is claimed
+     * before this method returns, see {@link MessageStream}.
+     */
+    default void onReceiveStream(final @NonNull String source, final @NonNull String target, final @NonNull Message.TargetType targetType, final @NonNull ConversationUID conversationUID, final byte[] header, final @NonNull MessageStream stream) {
+    }
 }
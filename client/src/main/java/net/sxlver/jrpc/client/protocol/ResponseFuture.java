@@ -0,0 +1,18 @@
+package net.sxlver.jrpc.client.protocol;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.Packet;
+
+/**
+ * A {@link ResponseObserver} completing a future with the response(s) instead of invoking handlers,
+ * responses it observes are not passed to the registered {@link MessageHandler}s.
+ */
+interface ResponseFuture extends ResponseObserver {
+    /**
+     * Accepts a response, called on the I/O thread that received it.
+     *
+     * @param response the response
+     * @return true if no more responses are expected and the observer can be unregistered
+     */
+    boolean accept(final @NonNull Packet response);
+}
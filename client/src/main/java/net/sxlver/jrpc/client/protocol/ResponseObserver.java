@@ -0,0 +1,35 @@
+package net.sxlver.jrpc.client.protocol;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.util.TimedCache;
+
+/**
+ * Observes the responses to a request, registered under the conversation uid of the request
+ * until it expires or has received its response.
+ */
+public interface ResponseObserver extends TimedCache.NotifyOnExpire {
+    /**
+     * Returns what type of response this observer expects
+     *
+     * @return the type of response that is expected
+     */
+    Class<? extends Packet> getExpectedResponse();
+
+    /**
+     * Whether the observer stays registered after a response has been received.
+     *
+     * @return true if more than one response is expected
+     */
+    boolean isConcurrentResponseProcessing();
+
+    /**
+     * Called instead of being registered if the request could not be sent at all. Treated as if
+     * no response had arrived in time by default.
+     *
+     * @param cause why the request has not been sent
+     */
+    default void notifyUndelivered(final @NonNull Throwable cause) {
+        notifyExpired();
+    }
+}
@@ -0,0 +1,22 @@
+package net.sxlver.jrpc.client.protocol.exception;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.ErrorInformationHolder;
+
+/**
+ * Thrown when the other end responds to a request with an {@link ErrorInformationHolder}.
+ */
+public class ErrorResponseException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final transient ErrorInformationHolder errorInformation;
+
+    public ErrorResponseException(final @NonNull ErrorInformationHolder errorInformation) {
+        super(errorInformation.getErrorDescription(), errorInformation.getCause());
+        this.errorInformation = errorInformation;
+    }
+
+    public ErrorInformationHolder getErrorInformation() {
+        return errorInformation;
+    }
+}
@@ -0,0 +1,14 @@
+package net.sxlver.jrpc.client.protocol.exception;
+
+/**
+ * Thrown when a request could not be sent because the channel was inactive, either because
+ * messages are not queued or because the request expired in the queue before the connection
+ * had been re-established.
+ */
+public class UndeliveredRequestException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public UndeliveredRequestException(final String message) {
+        super(message);
+    }
+}
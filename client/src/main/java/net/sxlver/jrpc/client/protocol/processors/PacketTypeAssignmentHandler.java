@@ -0,0 +1,34 @@
+package net.sxlver.jrpc.client.protocol.processors;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.client.JRPCClient;
+import net.sxlver.jrpc.client.protocol.MessageContext;
+import net.sxlver.jrpc.client.protocol.MessageHandler;
+import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.protocol.packet.PacketTypeAssignmentPacket;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Applies packet type ids the server has assigned after this client authenticated.
+ */
+public class PacketTypeAssignmentHandler implements MessageHandler<PacketTypeAssignmentPacket> {
+    private final JRPCClient client;
+
+    public PacketTypeAssignmentHandler(final @NonNull JRPCClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public void onReceive(final @NonNull MessageContext<PacketTypeAssignmentPacket> context) {
+        final PacketTypeAssignmentPacket packet = context.getRequest();
+        client.getPacketTypes().applyAssignments(packet.getPacketTypeIds(), false);
+        client.getLogger().debugFine("Applied {} packet type id(s) assigned by the server.", packet.getPacketTypeIds().size());
+    }
+
+    @Override
+    public Collection<Class<? extends Packet>> getPacketTypes() {
+        return List.of(PacketTypeAssignmentPacket.class);
+    }
+}
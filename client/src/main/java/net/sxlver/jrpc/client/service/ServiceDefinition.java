@@ -1,7 +1,5 @@
 package net.sxlver.jrpc.client.service;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import lombok.NonNull;
 import lombok.SneakyThrows;
 import net.sxlver.jrpc.client.JRPCClient;
@@ -14,12 +12,15 @@ import net.sxlver.jrpc.core.protocol.packet.ErrorInformationResponse;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
-@SuppressWarnings("UnstableApiUsage")
 public abstract class ServiceDefinition implements MessageHandler<Packet> {
-    private Cache<Class<? extends Packet>, Procedure> procedures = CacheBuilder.newBuilder().build();
+    // filled once in the constructor and only read afterwards
+    private final Map<Class<? extends Packet>, Procedure> procedures = new HashMap<>();
 
     private final JRPCClient client;
 
@@ -73,10 +74,19 @@ public abstract class ServiceDefinition implements MessageHandler<Packet> {
 
             final Procedure procedure = procedureType.parse(this, method);
             procedures.put(procedure.getRequestType(), procedure);
+            client.getPacketTypes().register(procedure.getRequestType());
+            if(procedure.getResponseType() != null) {
+                client.getPacketTypes().register(procedure.getResponseType());
+            }
             client.getLogger().debugFine("Registered procedure implementation {} in service {}", method.getName(), getClass().getSimpleName());
         }
     }
 
+    @Override
+    public Collection<Class<? extends Packet>> getPacketTypes() {
+        return procedures.keySet();
+    }
+
     @Override
     public boolean shouldAccept(@NonNull Packet packet) {
         return getProcedure(packet.getClass()) != null;
@@ -84,7 +94,7 @@ public abstract class ServiceDefinition implements MessageHandler<Packet> {
 
     @Nullable
     public Procedure getProcedure(Class<? extends Packet> cls) {
-        return procedures.getIfPresent(cls);
+        return procedures.get(cls);
     }
 
     public JRPCClient getClient() {
@@ -0,0 +1,205 @@
+package net.sxlver.jrpc.client.protocol;
+
+import net.sxlver.jrpc.core.protocol.Packet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversationPublisherTest {
+
+    @Test
+    void deliveryStopsWhenDemandRunsOut() {
+        final ConversationPublisher<Integer> publisher = new ConversationPublisher<>(() -> {});
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        publisher.subscribe(subscriber);
+
+        for (int i = 0; i < 5; i++) {
+            publisher.offer(i);
+        }
+        publisher.finish(null);
+        subscriber.subscription.request(2);
+        assertEquals(List.of(0, 1), subscriber.received);
+
+        subscriber.subscription.request(1);
+        assertEquals(List.of(0, 1, 2), subscriber.received);
+        assertFalse(subscriber.completed, "completed before every element was delivered");
+
+        subscriber.subscription.request(10);
+        assertEquals(List.of(0, 1, 2, 3, 4), subscriber.received);
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void requestingZeroFails() {
+        assertRequestFails(0);
+    }
+
+    @Test
+    void requestingNegativeFails() {
+        assertRequestFails(-1);
+    }
+
+    @Test
+    void cancelClearsQueueAndRunsOnCancel() {
+        final AtomicInteger cancelled = new AtomicInteger();
+        final ConversationPublisher<Integer> publisher = new ConversationPublisher<>(cancelled::incrementAndGet);
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        publisher.offer(1);
+        publisher.offer(2);
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.cancel();
+        subscriber.subscription.cancel();
+        publisher.offer(3);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(1, cancelled.get());
+        assertTrue(subscriber.received.isEmpty());
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void secondSubscriberFails() {
+        final ConversationPublisher<Integer> publisher = new ConversationPublisher<>(() -> {});
+        final RecordingSubscriber<Integer> first = new RecordingSubscriber<>();
+        final RecordingSubscriber<Integer> second = new RecordingSubscriber<>();
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+
+        assertNotNull(second.subscription);
+        assertInstanceOf(IllegalStateException.class, second.error);
+
+        publisher.offer(1);
+        first.subscription.request(1);
+        assertEquals(List.of(1), first.received);
+        assertTrue(second.received.isEmpty());
+    }
+
+    @Test
+    void emptyConversationCompletesImmediately() {
+        final RecordingSubscriber<MessageContext<Packet>> subscriber = new RecordingSubscriber<>();
+        Conversation.<Packet, Packet>empty().asPublisher().subscribe(subscriber);
+
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+        // every call returns a publisher of its own
+        final RecordingSubscriber<MessageContext<Packet>> other = new RecordingSubscriber<>();
+        Conversation.<Packet, Packet>empty().asPublisher().subscribe(other);
+        assertTrue(other.completed);
+    }
+
+    @Test
+    void cancelInvalidatesConversation() throws Exception {
+        try (final TestClient test = TestClient.connected()) {
+            final Conversation<Ping, Pong> conversation = test.client().publish(new Ping(), test.peer(), Pong.class);
+            assertTrue(test.client().getNetHandler().isObserverPresent(conversation.getConversationUID()));
+
+            final RecordingSubscriber<MessageContext<Pong>> subscriber = new RecordingSubscriber<>();
+            conversation.asPublisher().subscribe(subscriber);
+            subscriber.subscription.cancel();
+
+            assertFalse(test.client().getNetHandler().isObserverPresent(conversation.getConversationUID()));
+            test.respond(conversation.getConversationUID(), new Pong(1));
+            assertTrue(subscriber.received.isEmpty());
+        }
+    }
+
+    @Test
+    void responsesBeforeSubscribeAreDeliveredAndDropped() throws Exception {
+        try (final TestClient test = TestClient.connected()) {
+            final AtomicReference<Set<MessageContext<Pong>>> kept = new AtomicReference<>();
+            final Conversation<Ping, Pong> conversation = test.client().publish(new Ping(), test.peer(), Pong.class)
+                    .enableConcurrentResponseProcessing()
+                    .alwaysNotifyTimeout()
+                    .onTimeout((request, responses) -> kept.set(Set.copyOf(responses)));
+            test.respond(conversation.getConversationUID(), new Pong(1));
+            test.respond(conversation.getConversationUID(), new Pong(2));
+
+            final RecordingSubscriber<MessageContext<Pong>> subscriber = new RecordingSubscriber<>();
+            conversation.asPublisher().subscribe(subscriber);
+            subscriber.subscription.request(Long.MAX_VALUE);
+            assertEquals(List.of(1, 2), sequences(subscriber.received));
+
+            test.respond(conversation.getConversationUID(), new Pong(3));
+            assertEquals(List.of(1, 2, 3), sequences(subscriber.received));
+
+            conversation.notifyExpired();
+            assertTrue(subscriber.completed);
+            assertEquals(Set.of(), kept.get());
+        }
+    }
+
+    private static void assertRequestFails(final long n) {
+        final AtomicInteger cancelled = new AtomicInteger();
+        final ConversationPublisher<Integer> publisher = new ConversationPublisher<>(cancelled::incrementAndGet);
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        publisher.subscribe(subscriber);
+        publisher.offer(1);
+
+        subscriber.subscription.request(n);
+
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+        assertTrue(subscriber.received.isEmpty());
+        assertEquals(1, cancelled.get());
+        // no signals after the error
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.received.isEmpty());
+        assertFalse(subscriber.completed);
+    }
+
+    private static List<Integer> sequences(final List<MessageContext<Pong>> contexts) {
+        final List<Integer> sequences = new ArrayList<>();
+        for (final MessageContext<Pong> context : contexts) {
+            final Pong response = context.getResponse();
+            sequences.add(response.sequence);
+        }
+        return sequences;
+    }
+
+    static final class Ping extends Packet {
+    }
+
+    static final class Pong extends Packet {
+        int sequence;
+
+        Pong(final int sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        private final List<T> received = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final T item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package net.sxlver.jrpc.client.protocol;
+
+import io.netty.util.concurrent.GlobalEventExecutor;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.Message;
+import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.protocol.ProtocolVersion;
+import net.sxlver.jrpc.core.protocol.impl.JRPCChunkMessage;
+import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageStreamTest {
+    private static final int CHUNK_LENGTH = JRPCChunkMessage.MAX_CHUNK_LENGTH;
+    // chunks of the maximum length buffered until the stream is saturated, 4 MiB
+    private static final int SATURATING_CHUNKS = 64;
+
+    @Test
+    void outOfOrderChunkAbortsStream() throws Exception {
+        try (final TestClient test = TestClient.connected()) {
+            final RecordingListener listener = new RecordingListener();
+            final ConversationUID uid = new ConversationUID(1L);
+            claimStreams(test, stream -> stream.subscribe(listener));
+
+            test.channel().writeInbound(header(test, uid));
+            test.channel().writeInbound(chunk(test, uid, 1, 0, new byte[]{1}));
+            test.channel().writeInbound(chunk(test, uid, 3, 0, new byte[]{3}));
+            test.channel().writeInbound(chunk(test, uid, 2, 0, new byte[]{2}));
+
+            assertEquals(1, listener.chunks.size());
+            assertNotNull(listener.abortCause);
+            assertFalse(listener.completed);
+        }
+    }
+
+    @Test
+    void completedStreamPassesEveryChunk() throws Exception {
+        try (final TestClient test = TestClient.connected()) {
+            final RecordingListener listener = new RecordingListener();
+            final ConversationUID uid = new ConversationUID(1L);
+            claimStreams(test, stream -> stream.subscribe(listener));
+
+            test.channel().writeInbound(header(test, uid));
+            test.channel().writeInbound(chunk(test, uid, 1, 0, new byte[]{1}));
+            test.channel().writeInbound(chunk(test, uid, 2, JRPCChunkMessage.FLAG_LAST, new byte[]{2}));
+
+            assertEquals(2, listener.chunks.size());
+            assertTrue(listener.completed);
+            assertNull(listener.abortCause);
+        }
+    }
+
+    @Test
+    void unclaimedStreamIsDiscarded() throws Exception {
+        try (final TestClient test = TestClient.connected()) {
+            final ConversationUID uid = new ConversationUID(1L);
+            final AtomicReference<MessageStream> received = claimStreams(test, stream -> {});
+
+            test.channel().writeInbound(header(test, uid));
+            for (int sequence = 1; sequence <= SATURATING_CHUNKS + 1; sequence++) {
+                test.channel().writeInbound(chunk(test, uid, sequence, 0, new byte[CHUNK_LENGTH]));
+            }
+
+            final MessageStream stream = received.get();
+            assertFalse(stream.isClaimed());
+            assertThrows(IllegalStateException.class, stream::getInputStream);
+            // nothing is buffered on behalf of a discarded stream
+            assertTrue(test.channel().config().isAutoRead());
+            assertEquals((SATURATING_CHUNKS + 1L) * CHUNK_LENGTH, stream.getReceivedBytes());
+        }
+    }
+
+    @Test
+    void saturatedStreamPausesReadingUntilDrained() throws Exception {
+        try (final TestClient test = TestClient.connected()) {
+            final ConversationUID uid = new ConversationUID(1L);
+            final AtomicReference<InputStream> input = new AtomicReference<>();
+            claimStreams(test, stream -> input.set(stream.getInputStream()));
+
+            test.channel().writeInbound(header(test, uid));
+            for (int sequence = 1; sequence <= SATURATING_CHUNKS; sequence++) {
+                test.channel().writeInbound(chunk(test, uid, sequence, 0, new byte[CHUNK_LENGTH]));
+            }
+            assertTrue(test.channel().config().isAutoRead());
+            test.channel().writeInbound(chunk(test, uid, SATURATING_CHUNKS + 1, 0, new byte[1]));
+            assertFalse(test.channel().config().isAutoRead());
+
+            input.get().close();
+            test.channel().runPendingTasks();
+            assertTrue(test.channel().config().isAutoRead());
+        }
+    }
+
+    @Test
+    void drainedToHalfResumes() throws Exception {
+        final AtomicInteger drained = new AtomicInteger();
+        final MessageStream stream = new MessageStream(4 * CHUNK_LENGTH, drained::incrementAndGet, GlobalEventExecutor.INSTANCE);
+        final InputStream input = stream.getInputStream();
+        for (int i = 0; i < 4; i++) {
+            assertFalse(stream.offer(new byte[CHUNK_LENGTH]));
+        }
+        assertTrue(stream.offer(new byte[1]));
+        assertFalse(stream.offer(new byte[1]), "saturated only once until drained");
+
+        final byte[] buffer = new byte[CHUNK_LENGTH];
+        input.readNBytes(buffer, 0, CHUNK_LENGTH);
+        input.readNBytes(buffer, 0, CHUNK_LENGTH);
+        // 2 chunks and 2 bytes are still buffered, more than half the limit
+        assertEquals(0, drained.get());
+        input.readNBytes(buffer, 0, 1);
+        assertEquals(1, drained.get());
+
+        // the stream saturates again once the limit is exceeded anew
+        for (int i = 0; i < 2; i++) {
+            assertFalse(stream.offer(new byte[CHUNK_LENGTH]));
+        }
+        assertTrue(stream.offer(new byte[CHUNK_LENGTH]));
+    }
+
+    @Test
+    void stalledReaderIsAborted() throws Exception {
+        try (final TestClient test = TestClient.connected()) {
+            final ConversationUID uid = new ConversationUID(1L);
+            final AtomicReference<MessageStream> received = claimStreams(test, MessageStream::getInputStream);
+
+            test.channel().writeInbound(header(test, uid));
+            for (int sequence = 1; sequence <= SATURATING_CHUNKS + 1; sequence++) {
+                test.channel().writeInbound(chunk(test, uid, sequence, 0, new byte[CHUNK_LENGTH]));
+            }
+            assertFalse(test.channel().config().isAutoRead());
+
+            // the stream idle timeout of the test client is a second
+            Thread.sleep(1100);
+            test.channel().runScheduledPendingTasks();
+            test.channel().runPendingTasks();
+
+            assertInstanceOf(IOException.class, received.get().getAbortCause());
+            assertTrue(test.channel().config().isAutoRead());
+        }
+    }
+
+    private static AtomicReference<MessageStream> claimStreams(final TestClient test, final Consumer<MessageStream> claim) {
+        final AtomicReference<MessageStream> received = new AtomicReference<>();
+        test.processor().registerHandler(new MessageHandler<Header>() {
+            @Override
+            public void onReceive(final MessageContext<Header> context) {
+                received.set(context.getStream());
+                claim.accept(context.getStream());
+            }
+        });
+        return received;
+    }
+
+    private static JRPCChunkMessage header(final TestClient test, final ConversationUID uid) {
+        return chunk(test, uid, 0, 0, PacketDataSerializer.serialize(new Header(), test.client().getPacketTypes()));
+    }
+
+    private static JRPCChunkMessage chunk(final TestClient test, final ConversationUID uid, final int sequence, final int flags, final byte[] data) {
+        return new JRPCChunkMessage(test.client().getSource(), Message.TargetType.DIRECT, TestClient.PEER, uid, null,
+                sequence, flags, data, ProtocolVersion.LATEST.getVersionNumber());
+    }
+
+    static final class Header extends Packet {
+    }
+
+    private static final class RecordingListener implements ChunkListener {
+        private final List<byte[]> chunks = new ArrayList<>();
+        private IOException abortCause;
+        private boolean completed;
+
+        @Override
+        public void onChunk(final byte[] chunk) {
+            chunks.add(chunk);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        @Override
+        public void onAbort(final IOException cause) {
+            abortCause = cause;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package net.sxlver.jrpc.client.protocol;
+
+import net.sxlver.jrpc.client.protocol.exception.ErrorResponseException;
+import net.sxlver.jrpc.client.protocol.exception.UndeliveredRequestException;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.Errors;
+import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.protocol.packet.ErrorInformationResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseFutureTest {
+
+    @Test
+    void requestCompletesWithResponse() throws Exception {
+        try (final TestClient test = TestClient.connected()) {
+            final CompletableFuture<Pong> future = test.client().request(new Ping(), test.peer(), Pong.class, 10, TimeUnit.SECONDS);
+            final ConversationUID uid = lastConversation(test);
+
+            test.respond(uid, new Pong(7));
+
+            assertEquals(7, future.get(1, TimeUnit.SECONDS).sequence);
+            assertFalse(test.client().getNetHandler().isObserverPresent(uid));
+        }
+    }
+
+    @Test
+    void errorResponseFailsRequest() throws Exception {
+        try (final TestClient test = TestClient.connected()) {
+            final CompletableFuture<Pong> future = test.client().request(new Ping(), test.peer(), Pong.class, 10, TimeUnit.SECONDS);
+
+            test.respond(lastConversation(test), new ErrorInformationResponse(Errors.ERR_NO_TARGET_FOUND, "No suitable target found."));
+
+            final ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+            final ErrorResponseException cause = assertInstanceOf(ErrorResponseException.class, exception.getCause());
+            assertEquals("No suitable target found.", cause.getErrorInformation().getErrorDescription());
+        }
+    }
+
+    @Test
+    void expiredRequestTimesOut() throws Exception {
+        try (final TestClient test = TestClient.connected()) {
+            final CompletableFuture<Pong> future = test.client().request(new Ping(), test.peer(), Pong.class, 50, TimeUnit.MILLISECONDS);
+            final ConversationUID uid = lastConversation(test);
+
+            final ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(TimeoutException.class, exception.getCause());
+            assertFalse(test.client().getNetHandler().isObserverPresent(uid));
+        }
+    }
+
+    @Test
+    void undeliveredRequestFails() throws Exception {
+        try (final TestClient test = TestClient.disconnected()) {
+            final CompletableFuture<Pong> single = test.client().request(new Ping(), test.peer(), Pong.class, 10, TimeUnit.SECONDS);
+            final CompletableFuture<List<Pong>> all = test.client().requestAll(new Ping(), test.peer(), Pong.class, 2, 10, TimeUnit.SECONDS);
+
+            assertInstanceOf(UndeliveredRequestException.class, assertThrows(ExecutionException.class, single::get).getCause());
+            assertInstanceOf(UndeliveredRequestException.class, assertThrows(ExecutionException.class, all::get).getCause());
+        }
+    }
+
+    @Test
+    void requestAllStopsAtMaxResponses() throws Exception {
+        try (final TestClient test = TestClient.connected()) {
+            final CompletableFuture<List<Pong>> future = test.client().requestAll(new Ping(), test.peer(), Pong.class, 2, 10, TimeUnit.SECONDS);
+            final ConversationUID uid = lastConversation(test);
+
+            test.respond(uid, new Pong(1));
+            assertFalse(future.isDone());
+            assertTrue(test.client().getNetHandler().isObserverPresent(uid));
+            test.respond(uid, new Pong(2));
+            test.respond(uid, new Pong(3));
+
+            final List<Pong> responses = future.get(1, TimeUnit.SECONDS);
+            assertEquals(2, responses.size());
+            assertEquals(1, responses.get(0).sequence);
+            assertEquals(2, responses.get(1).sequence);
+            assertFalse(test.client().getNetHandler().isObserverPresent(uid));
+        }
+    }
+
+    @Test
+    void requestAllCompletesWithCollectedResponsesOnExpiry() throws Exception {
+        try (final TestClient test = TestClient.connected()) {
+            final CompletableFuture<List<Pong>> future = test.client().requestAll(new Ping(), test.peer(), Pong.class, 5, 50, TimeUnit.MILLISECONDS);
+
+            test.respond(lastConversation(test), new Pong(1));
+
+            assertEquals(1, future.get(5, TimeUnit.SECONDS).size());
+        }
+    }
+
+    @Test
+    void cancelUnregistersRequest() throws Exception {
+        try (final TestClient test = TestClient.connected()) {
+            final CompletableFuture<Pong> single = test.client().request(new Ping(), test.peer(), Pong.class, 10, TimeUnit.SECONDS);
+            final ConversationUID singleUid = lastConversation(test);
+            final CompletableFuture<List<Pong>> all = test.client().requestAll(new Ping(), test.peer(), Pong.class, 2, 10, TimeUnit.SECONDS);
+            final ConversationUID allUid = lastConversation(test);
+
+            assertTrue(single.cancel(false));
+            assertTrue(all.cancel(false));
+
+            assertFalse(test.client().getNetHandler().isObserverPresent(singleUid));
+            assertFalse(test.client().getNetHandler().isObserverPresent(allUid));
+        }
+    }
+
+    private static ConversationUID lastConversation(final TestClient test) {
+        return test.lastWritten().conversationId();
+    }
+
+    static final class Ping extends Packet {
+    }
+
+    static final class Pong extends Packet {
+        int sequence;
+
+        Pong(final int sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
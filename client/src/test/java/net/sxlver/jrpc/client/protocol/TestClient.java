@@ -0,0 +1,107 @@
+package net.sxlver.jrpc.client.protocol;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import net.sxlver.configlib.configs.yaml.YamlConfiguration;
+import net.sxlver.jrpc.client.JRPCClient;
+import net.sxlver.jrpc.client.config.JRPCDefaultConfiguration;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.Message;
+import net.sxlver.jrpc.core.protocol.MessageTarget;
+import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCMessageBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A client whose net handler is connected to an {@link EmbeddedChannel} instead of a server,
+ * responses are fed to it as if they were received from another client.
+ */
+final class TestClient implements AutoCloseable {
+    static final String PEER = "peer";
+
+    private final Path dataFolder;
+    private final JRPCClient client;
+    private final DefaultMessageProcessor processor;
+    private final EmbeddedChannel channel;
+
+    private TestClient(final boolean connected) throws IOException {
+        this.dataFolder = Files.createTempDirectory("jrpc-client");
+        final JRPCDefaultConfiguration config = new JRPCDefaultConfiguration(dataFolder.resolve("config.yml"), YamlConfiguration.YamlProperties.builder().build());
+        config.setUniqueId("test-client");
+        config.setAutoReconnect(false);
+        config.setQueueMessages(false);
+        // the shortest timeout possible, for tests of stalled streams not to take too long
+        config.setStreamIdleTimeout(1);
+        this.client = new JRPCClient(config, dataFolder.toString(), false);
+        this.processor = new DefaultMessageProcessor(client);
+        this.client.registerMessageReceiver(processor);
+        this.channel = connected ? new EmbeddedChannel(client.getNetHandler()) : null;
+    }
+
+    static TestClient connected() throws IOException {
+        return new TestClient(true);
+    }
+
+    static TestClient disconnected() throws IOException {
+        return new TestClient(false);
+    }
+
+    JRPCClient client() {
+        return client;
+    }
+
+    DefaultMessageProcessor processor() {
+        return processor;
+    }
+
+    EmbeddedChannel channel() {
+        return channel;
+    }
+
+    MessageTarget peer() {
+        return new MessageTarget(Message.TargetType.DIRECT, PEER);
+    }
+
+    /**
+     * @return the message written last, the messages written before are discarded
+     */
+    JRPCMessage lastWritten() {
+        JRPCMessage last = null;
+        for (Object message; (message = channel.readOutbound()) != null; ) {
+            last = (JRPCMessage) message;
+        }
+        return last;
+    }
+
+    void respond(final ConversationUID uid, final Packet response) {
+        channel.writeInbound(JRPCMessageBuilder.builder()
+                .source(() -> PEER)
+                .target(client.getSource())
+                .targetType(Message.TargetType.DIRECT)
+                .conversationUid(uid)
+                .packet(response, client.getPacketTypes())
+                .build());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(channel != null) {
+            channel.finishAndReleaseAll();
+        }
+        try (final Stream<Path> files = Files.walk(dataFolder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                }catch(final IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        }
+    }
+}
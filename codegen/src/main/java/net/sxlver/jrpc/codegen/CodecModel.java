@@ -0,0 +1,43 @@
+package net.sxlver.jrpc.codegen;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import java.util.List;
+
+/**
+ * Describes how the codec of a type reads and writes its fields.
+ *
+ * @param type              the encoded type
+ * @param packageName       the package of the type and its codec, empty for the unnamed package
+ * @param codecSimpleName   the simple name of the codec
+ * @param properties        the serialized fields, superclass fields first, in declaration order
+ * @param constructorFields the fields passed to the constructor in that order, empty if the
+ *                          no-args constructor is used
+ */
+record CodecModel(TypeElement type,
+                  String packageName,
+                  String codecSimpleName,
+                  List<Property> properties,
+                  List<VariableElement> constructorFields) {
+
+    String codecQualifiedName() {
+        return packageName.isEmpty() ? codecSimpleName : packageName + "." + codecSimpleName;
+    }
+
+    /**
+     * @param field      the field
+     * @param type       the type of the field as a member of the encoded type
+     * @param declared   whether the field is declared by the encoded type itself
+     * @param accessible whether the codec can access the field directly
+     * @param getter     the name of the getter, if the field is not accessible
+     * @param setter     the name of the setter, if the field is not accessible and has one
+     */
+    record Property(VariableElement field,
+                    TypeMirror type,
+                    boolean declared,
+                    boolean accessible,
+                    String getter,
+                    String setter) {
+    }
+}
@@ -0,0 +1,332 @@
+package net.sxlver.jrpc.codegen;
+
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Renders the source of a generated codec.
+ */
+final class CodecSource {
+    private static final String CODEC_IO = "net.sxlver.jrpc.core.serialization.codec.CodecIO";
+    private static final String PACKET_CODEC = "net.sxlver.jrpc.core.serialization.codec.PacketCodec";
+    private static final String BINARY_ATTACHMENT = "net.sxlver.jrpc.core.protocol.BinaryAttachment";
+    private static final String TYPE_TOKEN = "com.google.gson.reflect.TypeToken";
+    private static final Set<String> LIST_TYPES = Set.of("java.util.List", "java.util.ArrayList", "java.util.Collection");
+
+    private final PacketCodecProcessor processor;
+    private final CodecModel model;
+
+    // initializer -> name of the static field holding it
+    private final Map<String, String> constants = new LinkedHashMap<>();
+    private final Map<String, String> constantTypes = new LinkedHashMap<>();
+    private final Set<TypeElement> referencedTypes = new LinkedHashSet<>();
+
+    CodecSource(final PacketCodecProcessor processor, final CodecModel model) {
+        this.processor = processor;
+        this.model = model;
+    }
+
+    /**
+     * @return the types whose codecs are used by the rendered codec
+     */
+    Set<TypeElement> getReferencedTypes() {
+        return referencedTypes;
+    }
+
+    String render() {
+        final String type = typeName(model.type().asType());
+        final List<CodecModel.Property> properties = model.properties();
+
+        final StringBuilder write = new StringBuilder();
+        final StringBuilder read = new StringBuilder();
+        final Map<VariableElement, String> locals = new LinkedHashMap<>();
+        for (int i = 0; i < properties.size(); i++) {
+            final CodecModel.Property property = properties.get(i);
+            final ValueCodec codec = codec(property.type(), 1);
+            final String getter = property.accessible()
+                    ? "value." + property.field().getSimpleName()
+                    : "value." + property.getter() + "()";
+            write.append("        ").append(codec.write("out", getter)).append(";\n");
+
+            final String local = "field" + i;
+            locals.put(property.field(), local);
+            read.append("        final ").append(typeName(property.type())).append(' ').append(local)
+                    .append(" = ").append(codec.read("in")).append(";\n");
+        }
+
+        final StringJoiner arguments = new StringJoiner(", ");
+        for (final VariableElement field : model.constructorFields()) {
+            final String local = locals.get(field);
+            arguments.add(local != null ? local : defaultValue(field.asType()));
+        }
+        read.append("        final ").append(type).append(" value = new ").append(type).append('(').append(arguments).append(");\n");
+        for (final CodecModel.Property property : properties) {
+            if(model.constructorFields().contains(property.field())) continue;
+            final String local = locals.get(property.field());
+            if(property.accessible()) {
+                read.append("        value.").append(property.field().getSimpleName()).append(" = ").append(local).append(";\n");
+            }else {
+                read.append("        value.").append(property.setter()).append('(').append(local).append(");\n");
+            }
+        }
+        read.append("        return value;\n");
+
+        final StringBuilder source = new StringBuilder();
+        if(!model.packageName().isEmpty()) {
+            source.append("package ").append(model.packageName()).append(";\n\n");
+        }
+        source.append("import io.netty.buffer.ByteBuf;\n\n");
+        source.append("/**\n * Binary codec of {@link ").append(type).append("}, generated by {@code ")
+                .append(PacketCodecProcessor.class.getSimpleName()).append("}.\n */\n");
+        source.append('@').append(PacketCodecProcessor.GENERATED).append("(\"").append(PacketCodecProcessor.class.getName()).append("\")\n");
+        source.append("public final class ").append(model.codecSimpleName()).append(" implements ").append(PACKET_CODEC).append('<').append(type).append("> {\n");
+        source.append("    public static final ").append(model.codecSimpleName()).append(" INSTANCE = new ").append(model.codecSimpleName()).append("();\n");
+        for (final Map.Entry<String, String> constant : constants.entrySet()) {
+            source.append("    private static final ").append(constantTypes.get(constant.getValue())).append(' ')
+                    .append(constant.getValue()).append(" = ").append(constant.getKey()).append(";\n");
+        }
+        source.append('\n');
+        source.append("    @Override\n");
+        source.append("    public Class<").append(type).append("> getType() {\n");
+        source.append("        return ").append(type).append(".class;\n");
+        source.append("    }\n\n");
+        source.append("    @Override\n");
+        source.append("    public void write(final ByteBuf out, final ").append(type).append(" value) {\n");
+        source.append(write);
+        source.append("    }\n\n");
+        source.append("    @Override\n");
+        source.append("    public ").append(type).append(" read(final ByteBuf in) {\n");
+        source.append(read);
+        source.append("    }\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private interface ValueCodec {
+        String write(final String out, final String value);
+
+        String read(final String in);
+    }
+
+    private ValueCodec codec(final TypeMirror type, final int depth) {
+        switch (type.getKind()) {
+            case BOOLEAN: return buffer("Boolean");
+            case BYTE: return buffer("Byte");
+            case SHORT: return buffer("Short");
+            case CHAR: return buffer("Char");
+            case INT: return buffer("Int");
+            case LONG: return buffer("Long");
+            case FLOAT: return buffer("Float");
+            case DOUBLE: return buffer("Double");
+            case ARRAY:
+                if(((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE) {
+                    return helper("ByteArray");
+                }
+                return json(type);
+            case DECLARED:
+                return declared((DeclaredType) type, depth);
+            default:
+                return json(type);
+        }
+    }
+
+    private ValueCodec declared(final DeclaredType type, final int depth) {
+        final TypeElement element = (TypeElement) type.asElement();
+        final String name = element.getQualifiedName().toString();
+        final String typeName = typeName(type);
+
+        final PrimitiveType unboxed = unboxed(type);
+        if(unboxed != null) {
+            final String suffix = bufferSuffix(unboxed.getKind());
+            return new ValueCodec() {
+                @Override
+                public String write(final String out, final String value) {
+                    return CODEC_IO + ".<" + typeName + ">writeNullable(" + out + ", " + value + ", ByteBuf::write" + suffix + ")";
+                }
+
+                @Override
+                public String read(final String in) {
+                    return CODEC_IO + ".<" + typeName + ">readNullable(" + in + ", ByteBuf::read" + suffix + ")";
+                }
+            };
+        }
+        if(name.equals("java.lang.String")) return helper("String");
+        if(name.equals("java.util.UUID")) return helper("UUID");
+        if(name.equals("java.nio.ByteBuffer")) return helper("ByteBuffer");
+        if(name.equals(BINARY_ATTACHMENT)) return helper("Attachment");
+
+        if(element.getKind() == ElementKind.ENUM) {
+            return new ValueCodec() {
+                @Override
+                public String write(final String out, final String value) {
+                    return CODEC_IO + ".writeEnum(" + out + ", " + value + ")";
+                }
+
+                @Override
+                public String read(final String in) {
+                    return CODEC_IO + ".readEnum(" + in + ", " + typeName + ".class)";
+                }
+            };
+        }
+
+        if(LIST_TYPES.contains(name) && type.getTypeArguments().size() == 1) {
+            final TypeMirror elementType = type.getTypeArguments().get(0);
+            if(elementType.getKind() == TypeKind.DECLARED || elementType.getKind() == TypeKind.ARRAY) {
+                final ValueCodec elementCodec = codec(elementType, depth + 1);
+                final String elementName = typeName(elementType);
+                return new ValueCodec() {
+                    @Override
+                    public String write(final String out, final String value) {
+                        final String buffer = "o" + depth, element = "e" + depth;
+                        return CODEC_IO + ".<" + elementName + ">writeCollection(" + out + ", " + value + ", (" + buffer + ", " + element + ") -> "
+                                + elementCodec.write(buffer, element) + ")";
+                    }
+
+                    @Override
+                    public String read(final String in) {
+                        final String buffer = "i" + depth;
+                        return CODEC_IO + ".<" + elementName + ">readList(" + in + ", " + buffer + " -> " + elementCodec.read(buffer) + ")";
+                    }
+                };
+            }
+        }
+
+        if(type.getTypeArguments().isEmpty() && processor.hasCodec(element)) {
+            referencedTypes.add(element);
+            final String codec = processor.codecQualifiedName(element) + ".INSTANCE";
+            return new ValueCodec() {
+                @Override
+                public String write(final String out, final String value) {
+                    return CODEC_IO + ".<" + typeName + ">writeNullable(" + out + ", " + value + ", " + codec + ")";
+                }
+
+                @Override
+                public String read(final String in) {
+                    return CODEC_IO + ".<" + typeName + ">readNullable(" + in + ", " + codec + ")";
+                }
+            };
+        }
+        return json(type);
+    }
+
+    // anything without a binary representation is written as json
+    private ValueCodec json(final TypeMirror type) {
+        final String typeName = typeName(type);
+        final boolean parameterized = typeName.indexOf('<') >= 0;
+        final String token = constant(TYPE_TOKEN + "<" + typeName + ">", "TYPE", parameterized
+                ? "new " + TYPE_TOKEN + "<" + typeName + ">() {}"
+                : TYPE_TOKEN + ".get(" + typeName + ".class)");
+        return new ValueCodec() {
+            @Override
+            public String write(final String out, final String value) {
+                return CODEC_IO + ".writeJson(" + out + ", " + value + ", " + token + ")";
+            }
+
+            @Override
+            public String read(final String in) {
+                return CODEC_IO + ".readJson(" + in + ", " + token + ")";
+            }
+        };
+    }
+
+    private static ValueCodec buffer(final String suffix) {
+        return new ValueCodec() {
+            @Override
+            public String write(final String out, final String value) {
+                return out + ".write" + suffix + "(" + value + ")";
+            }
+
+            @Override
+            public String read(final String in) {
+                return in + ".read" + suffix + "()";
+            }
+        };
+    }
+
+    private static ValueCodec helper(final String suffix) {
+        return new ValueCodec() {
+            @Override
+            public String write(final String out, final String value) {
+                return CODEC_IO + ".write" + suffix + "(" + out + ", " + value + ")";
+            }
+
+            @Override
+            public String read(final String in) {
+                return CODEC_IO + ".read" + suffix + "(" + in + ")";
+            }
+        };
+    }
+
+    private String constant(final String type, final String prefix, final String initializer) {
+        return constants.computeIfAbsent(initializer, ignored -> {
+            final String name = prefix + "_" + constants.size();
+            constantTypes.put(name, type);
+            return name;
+        });
+    }
+
+    private PrimitiveType unboxed(final DeclaredType type) {
+        try {
+            return processor.getTypes().unboxedType(type);
+        } catch(final IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
+    private static String bufferSuffix(final TypeKind kind) {
+        final String name = kind.name().toLowerCase();
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String defaultValue(final TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN: return "false";
+            case BYTE: return "(byte) 0";
+            case SHORT: return "(short) 0";
+            case CHAR: return "(char) 0";
+            case INT: return "0";
+            case LONG: return "0L";
+            case FLOAT: return "0F";
+            case DOUBLE: return "0D";
+            default: return "(" + typeName(type) + ") null";
+        }
+    }
+
+    /**
+     * Returns the source representation of the given type, leaving out type annotations.
+     */
+    static String typeName(final TypeMirror type) {
+        switch (type.getKind()) {
+            case ARRAY:
+                return typeName(((ArrayType) type).getComponentType()) + "[]";
+            case DECLARED:
+                final DeclaredType declared = (DeclaredType) type;
+                final String name = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+                if(declared.getTypeArguments().isEmpty()) return name;
+                final List<String> arguments = new ArrayList<>();
+                declared.getTypeArguments().forEach(argument -> arguments.add(typeName(argument)));
+                return name + "<" + String.join(", ", arguments) + ">";
+            case WILDCARD:
+                final WildcardType wildcard = (WildcardType) type;
+                if(wildcard.getExtendsBound() != null) return "? extends " + typeName(wildcard.getExtendsBound());
+                if(wildcard.getSuperBound() != null) return "? super " + typeName(wildcard.getSuperBound());
+                return "?";
+            default:
+                return type.getKind().isPrimitive() ? type.getKind().name().toLowerCase() : type.toString();
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package net.sxlver.jrpc.codegen;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Generates a {@code PacketCodec} for every concrete {@code Packet} subclass of the compilation,
+ * as well as for the classes their fields refer to.
+ *
+ * <p>A codec is generated into the package of its type, named after the binary name of the type
+ * with every {@code $} replaced by {@code _}, followed by {@code Codec}. It accesses fields
+ * directly, through their accessors or through the constructor, never through reflection.
+ * Types the codec cannot be generated for are reported as a note and keep being serialized as json.
+ *
+ * <p>Packets are found through {@code GenerateCodec}, which every packet inherits. javac only
+ * hands annotations to the processors supporting them as long as no other processor claimed
+ * them, lombok for one claims its own annotations. The processor claims {@code GenerateCodec}
+ * as well as the {@code Generated} annotation of the codecs it generates.
+ */
+@SupportedAnnotationTypes({PacketCodecProcessor.GENERATE_CODEC, PacketCodecProcessor.GENERATED})
+public class PacketCodecProcessor extends AbstractProcessor {
+    static final String PACKET = "net.sxlver.jrpc.core.protocol.Packet";
+    static final String GENERATE_CODEC = "net.sxlver.jrpc.core.serialization.codec.GenerateCodec";
+    static final String GENERATED = "javax.annotation.processing.Generated";
+    static final String JSON_IGNORE = "net.sxlver.jrpc.core.serialization.JsonIgnore";
+
+    private static final Set<String> LOMBOK_CONSTRUCTORS = Set.of(
+            "lombok.AllArgsConstructor", "lombok.RequiredArgsConstructor", "lombok.NoArgsConstructor",
+            "lombok.Data", "lombok.Value", "lombok.Builder"
+    );
+
+    // qualified names of every type compiled in any round so far
+    private final Set<String> sourceTypes = new HashSet<>();
+    private final Map<String, Optional<CodecModel>> models = new HashMap<>();
+    private final Set<String> generated = new HashSet<>();
+
+    private Elements elements;
+    private Types types;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        final TypeElement packet = elements.getTypeElement(PACKET);
+        final TypeElement generateCodec = elements.getTypeElement(GENERATE_CODEC);
+        if(packet == null || generateCodec == null) {
+            return false;
+        }
+
+        final List<TypeElement> roundTypes = new ArrayList<>();
+        for (final Element root : roundEnv.getRootElements()) {
+            collectTypes(root, roundTypes);
+        }
+        roundTypes.forEach(type -> sourceTypes.add(type.getQualifiedName().toString()));
+
+        final TypeMirror packetType = types.erasure(packet.asType());
+        for (final TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(generateCodec))) {
+            if(type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) continue;
+            if(!types.isSubtype(types.erasure(type.asType()), packetType)) continue;
+            generate(type);
+        }
+        return true;
+    }
+
+    private void collectTypes(final Element element, final List<TypeElement> out) {
+        if(!(element instanceof TypeElement type)) return;
+        out.add(type);
+        for (final Element enclosed : type.getEnclosedElements()) {
+            collectTypes(enclosed, out);
+        }
+    }
+
+    /**
+     * Generates the codec of the given type and of every type it refers to, unless
+     * it has been generated before.
+     */
+    private void generate(final TypeElement type) {
+        final String name = type.getQualifiedName().toString();
+        if(!generated.add(name)) return;
+
+        final CodecModel model = model(type);
+        if(model == null) return;
+
+        final CodecSource source = new CodecSource(this, model);
+        final String content = source.render();
+        try {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(model.codecQualifiedName(), type);
+            try (final Writer writer = file.openWriter()) {
+                writer.write(content);
+            }
+        } catch(final IOException exception) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write codec: " + exception.getMessage(), type);
+            return;
+        }
+        source.getReferencedTypes().forEach(this::generate);
+    }
+
+    /**
+     * Whether a codec exists, or is going to be generated, for the given type.
+     */
+    boolean hasCodec(final TypeElement type) {
+        final String name = type.getQualifiedName().toString();
+        if(sourceTypes.contains(name)) {
+            return model(type) != null;
+        }
+        return elements.getTypeElement(codecQualifiedName(type)) != null;
+    }
+
+    Types getTypes() {
+        return types;
+    }
+
+    private CodecModel model(final TypeElement type) {
+        return models.computeIfAbsent(type.getQualifiedName().toString(), name -> {
+            final List<String> problems = new ArrayList<>();
+            final CodecModel model = analyze(type, problems);
+            if(model == null && isPacket(type)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                        "No codec generated for " + name + ", it is serialized as json: " + String.join(", ", problems), type);
+            }
+            return Optional.ofNullable(model);
+        }).orElse(null);
+    }
+
+    private boolean isPacket(final TypeElement type) {
+        final TypeElement packet = elements.getTypeElement(PACKET);
+        return types.isSubtype(types.erasure(type.asType()), types.erasure(packet.asType()));
+    }
+
+    private CodecModel analyze(final TypeElement type, final List<String> problems) {
+        if(type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            problems.add("not a concrete class");
+            return null;
+        }
+        if(!type.getTypeParameters().isEmpty()) {
+            problems.add("generic classes are not supported");
+            return null;
+        }
+        if(hasAnnotation(type, JSON_IGNORE)) {
+            problems.add("annotated with @JsonIgnore");
+            return null;
+        }
+        for (Element current = type; current instanceof TypeElement nested; current = current.getEnclosingElement()) {
+            final NestingKind nesting = nested.getNestingKind();
+            if(nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS) {
+                problems.add("local and anonymous classes are not supported");
+                return null;
+            }
+            if(nested.getModifiers().contains(Modifier.PRIVATE) || (nesting == NestingKind.MEMBER && !nested.getModifiers().contains(Modifier.STATIC))) {
+                problems.add("the class is private or an inner class");
+                return null;
+            }
+        }
+
+        final PackageElement pkg = elements.getPackageOf(type);
+        final DeclaredType declared = (DeclaredType) type.asType();
+
+        // superclass fields first, in declaration order
+        final List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement current = type; current != null && !isRoot(current); current = superclass(current)) {
+            hierarchy.add(0, current);
+        }
+
+        final List<CodecModel.Property> properties = new ArrayList<>();
+        for (final TypeElement owner : hierarchy) {
+            for (final VariableElement field : ElementFilter.fieldsIn(owner.getEnclosedElements())) {
+                if(!isPersisted(field)) continue;
+                final TypeMirror fieldType = types.asMemberOf(declared, field);
+                if(containsTypeVariable(fieldType)) {
+                    problems.add("field " + field.getSimpleName() + " has a type variable as its type");
+                    return null;
+                }
+                if(!isAccessible(fieldType, pkg)) {
+                    problems.add("the type of field " + field.getSimpleName() + " is not accessible");
+                    return null;
+                }
+                final boolean accessible = isAccessible(field, pkg);
+                final String getter = accessible ? null : accessor(owner, field, fieldType, pkg, true);
+                final String setter = accessible ? null : accessor(owner, field, fieldType, pkg, false);
+                if(!accessible && getter == null) {
+                    problems.add("field " + field.getSimpleName() + " is neither accessible nor has a getter");
+                    return null;
+                }
+                properties.add(new CodecModel.Property(field, fieldType, owner == type, accessible, getter, setter));
+            }
+        }
+
+        final List<VariableElement> constructorFields = constructorFields(type, pkg, problems);
+        if(constructorFields == null) {
+            return null;
+        }
+        for (final CodecModel.Property property : properties) {
+            final boolean viaConstructor = constructorFields.contains(property.field());
+            if(!viaConstructor && !property.accessible() && property.setter() == null) {
+                problems.add("field " + property.field().getSimpleName() + " can neither be set through a constructor, directly nor through a setter");
+                return null;
+            }
+        }
+        return new CodecModel(type, pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString(), codecSimpleName(type), properties, constructorFields);
+    }
+
+    /**
+     * Returns the fields to pass to the constructor the codec creates instances with, an empty
+     * list if it uses the no-args constructor or null if there is no usable constructor.
+     */
+    private List<VariableElement> constructorFields(final TypeElement type, final PackageElement pkg, final List<String> problems) {
+        final List<VariableElement> fields = new ArrayList<>();
+        for (final VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if(!field.getModifiers().contains(Modifier.STATIC)) fields.add(field);
+        }
+
+        final AnnotationMirror noArgs = annotation(type, "lombok.NoArgsConstructor");
+        if(noArgs != null && isAccessible(noArgs) && annotationValue(noArgs, "staticName") == null) {
+            return List.of();
+        }
+
+        final List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+        // lombok generates a no-args constructor if no field has to be initialized through it,
+        // @Data only if there is no explicit constructor
+        final AnnotationMirror requiredArgs = annotation(type, "lombok.RequiredArgsConstructor");
+        final AnnotationMirror data = annotation(type, "lombok.Data");
+        final boolean noArgsRequiredArgs = (requiredArgs != null && isAccessible(requiredArgs) && annotationValue(requiredArgs, "staticName") == null)
+                || (data != null && annotationValue(data, "staticConstructor") == null
+                    && constructors.stream().allMatch(constructor -> elements.getOrigin(constructor) == Elements.Origin.MANDATED));
+        if(noArgsRequiredArgs && fields.stream().noneMatch(this::isRequiredArgument)) {
+            return List.of();
+        }
+
+        boolean lombokConstructor = false;
+        for (final AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            lombokConstructor |= LOMBOK_CONSTRUCTORS.contains(((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString());
+        }
+        for (final ExecutableElement constructor : constructors) {
+            if(!constructor.getParameters().isEmpty() || !isAccessible(constructor, pkg)) continue;
+            // the default constructor disappears once lombok generated one
+            if(elements.getOrigin(constructor) != Elements.Origin.MANDATED || !lombokConstructor) {
+                return List.of();
+            }
+        }
+
+        final AnnotationMirror allArgs = annotation(type, "lombok.AllArgsConstructor");
+        if(allArgs != null && isAccessible(allArgs) && annotationValue(allArgs, "staticName") == null) {
+            // lombok leaves out initialized final fields, which cannot be told apart from the others here
+            if(fields.stream().noneMatch(field -> field.getModifiers().contains(Modifier.FINAL))) {
+                return fields;
+            }
+        }
+
+        for (final ExecutableElement constructor : constructors) {
+            if(!isAccessible(constructor, pkg) || constructor.getParameters().size() != fields.size() || fields.isEmpty()) continue;
+            boolean matches = true;
+            for (int i = 0; i < fields.size() && matches; i++) {
+                matches = types.isSameType(constructor.getParameters().get(i).asType(), fields.get(i).asType());
+            }
+            if(matches) {
+                return fields;
+            }
+        }
+        problems.add("there is neither an accessible no-args constructor nor one taking all fields in declaration order");
+        return null;
+    }
+
+    private String accessor(final TypeElement owner, final VariableElement field, final TypeMirror fieldType, final PackageElement pkg, final boolean getter) {
+        final String fieldName = field.getSimpleName().toString();
+        final boolean isBoolean = fieldType.getKind() == TypeKind.BOOLEAN;
+        // lombok names the accessors of a boolean field called isFoo isFoo() and setFoo()
+        final String property = isBoolean && fieldName.length() > 2 && fieldName.startsWith("is") && Character.isUpperCase(fieldName.charAt(2))
+                ? fieldName.substring(2)
+                : capitalize(fieldName);
+        final String name = getter ? (isBoolean ? "is" : "get") + property : "set" + property;
+
+        for (final ExecutableElement method : ElementFilter.methodsIn(owner.getEnclosedElements())) {
+            if(!method.getSimpleName().contentEquals(name) || method.getModifiers().contains(Modifier.STATIC) || !isAccessible(method, pkg)) continue;
+            if(getter && method.getParameters().isEmpty() && types.isSameType(method.getReturnType(), field.asType())) {
+                return name;
+            }
+            if(!getter && method.getParameters().size() == 1 && types.isSameType(method.getParameters().get(0).asType(), field.asType())) {
+                return name;
+            }
+        }
+
+        // lombok might not have run yet
+        final String annotation = getter ? "lombok.Getter" : "lombok.Setter";
+        AnnotationMirror mirror = annotation(field, annotation);
+        if(mirror == null) mirror = annotation(owner, annotation);
+        if(mirror == null) mirror = annotation(owner, "lombok.Data");
+        if(mirror == null && getter) mirror = annotation(owner, "lombok.Value");
+        if(mirror == null || !isAccessible(mirror) || (!getter && field.getModifiers().contains(Modifier.FINAL))) {
+            return null;
+        }
+        // accessors of a superclass in another package have to be public
+        if(!elements.getPackageOf(owner).equals(pkg) && !"PUBLIC".equals(accessLevel(mirror))) {
+            return null;
+        }
+        return name;
+    }
+
+    // fields lombok passes to a @RequiredArgsConstructor, regardless of whether they are initialized
+    private boolean isRequiredArgument(final VariableElement field) {
+        if(field.getModifiers().contains(Modifier.FINAL)) return true;
+        for (final AnnotationMirror mirror : field.getAnnotationMirrors()) {
+            if(mirror.getAnnotationType().asElement().getSimpleName().toString().equalsIgnoreCase("NonNull")) return true;
+        }
+        return false;
+    }
+
+    private boolean isPersisted(final VariableElement field) {
+        final Set<Modifier> modifiers = field.getModifiers();
+        if(modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT) || modifiers.contains(Modifier.FINAL)) {
+            return false;
+        }
+        if(hasAnnotation(field, JSON_IGNORE)) {
+            return false;
+        }
+        final Element typeElement = types.asElement(field.asType());
+        return typeElement == null || !hasAnnotation(typeElement, JSON_IGNORE);
+    }
+
+    private boolean isAccessible(final Element member, final PackageElement pkg) {
+        final Set<Modifier> modifiers = member.getModifiers();
+        if(modifiers.contains(Modifier.PRIVATE)) return false;
+        return modifiers.contains(Modifier.PUBLIC) || elements.getPackageOf(member).equals(pkg);
+    }
+
+    private boolean isAccessible(final TypeMirror type, final PackageElement pkg) {
+        switch (type.getKind()) {
+            case ARRAY:
+                return isAccessible(((ArrayType) type).getComponentType(), pkg);
+            case WILDCARD:
+                final WildcardType wildcard = (WildcardType) type;
+                return (wildcard.getExtendsBound() == null || isAccessible(wildcard.getExtendsBound(), pkg))
+                        && (wildcard.getSuperBound() == null || isAccessible(wildcard.getSuperBound(), pkg));
+            case DECLARED:
+                for (Element current = types.asElement(type); current instanceof TypeElement; current = current.getEnclosingElement()) {
+                    if(!isAccessible(current, pkg)) return false;
+                }
+                for (final TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+                    if(!isAccessible(argument, pkg)) return false;
+                }
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    // lombok annotations are only usable if their access level is not PRIVATE or NONE
+    private boolean isAccessible(final AnnotationMirror lombokAnnotation) {
+        final String level = accessLevel(lombokAnnotation);
+        return !"PRIVATE".equals(level) && !"NONE".equals(level);
+    }
+
+    private String accessLevel(final AnnotationMirror lombokAnnotation) {
+        Object value = annotationValue(lombokAnnotation, "value");
+        if(value == null) value = annotationValue(lombokAnnotation, "access");
+        return value == null ? "PUBLIC" : ((VariableElement) value).getSimpleName().toString();
+    }
+
+    private Object annotationValue(final AnnotationMirror mirror, final String name) {
+        for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if(!entry.getKey().getSimpleName().contentEquals(name)) continue;
+            final Object value = entry.getValue().getValue();
+            return "".equals(value) ? null : value;
+        }
+        return null;
+    }
+
+    private AnnotationMirror annotation(final Element element, final String name) {
+        for (final AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if(((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasAnnotation(final Element element, final String name) {
+        return annotation(element, name) != null;
+    }
+
+    private boolean isRoot(final TypeElement type) {
+        final String name = type.getQualifiedName().toString();
+        return name.equals(PACKET) || name.equals(Object.class.getName());
+    }
+
+    private TypeElement superclass(final TypeElement type) {
+        final TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) types.asElement(superclass) : null;
+    }
+
+    private boolean containsTypeVariable(final TypeMirror type) {
+        switch (type.getKind()) {
+            case TYPEVAR:
+                return true;
+            case ARRAY:
+                return containsTypeVariable(((ArrayType) type).getComponentType());
+            case DECLARED:
+                for (final TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+                    if(containsTypeVariable(argument)) return true;
+                }
+                return false;
+            case WILDCARD:
+                final WildcardType wildcard = (WildcardType) type;
+                return (wildcard.getExtendsBound() != null && containsTypeVariable(wildcard.getExtendsBound()))
+                        || (wildcard.getSuperBound() != null && containsTypeVariable(wildcard.getSuperBound()));
+            default:
+                return false;
+        }
+    }
+
+    String codecQualifiedName(final TypeElement type) {
+        final PackageElement pkg = elements.getPackageOf(type);
+        return pkg.isUnnamed() ? codecSimpleName(type) : pkg.getQualifiedName() + "." + codecSimpleName(type);
+    }
+
+    private String codecSimpleName(final TypeElement type) {
+        final String binaryName = elements.getBinaryName(type).toString();
+        final PackageElement pkg = elements.getPackageOf(type);
+        final String simpleBinaryName = pkg.isUnnamed() ? binaryName : binaryName.substring(pkg.getQualifiedName().length() + 1);
+        return simpleBinaryName.replace('$', '_') + "Codec";
+    }
+
+    private static String capitalize(final String value) {
+        return Character.toUpperCase(value.charAt(0)) + value.substring(1);
+    }
+}
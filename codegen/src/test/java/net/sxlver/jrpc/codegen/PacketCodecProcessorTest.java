@@ -0,0 +1,319 @@
+package net.sxlver.jrpc.codegen;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
+import net.sxlver.jrpc.core.serialization.PacketTypeRegistry;
+import net.sxlver.jrpc.core.serialization.codec.CodecIO;
+import net.sxlver.jrpc.core.serialization.codec.PacketCodec;
+import net.sxlver.jrpc.core.serialization.exception.DeserializationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PacketCodecProcessorTest {
+    private static final String PLAIN = """
+            package sample;
+
+            import java.util.List;
+            import java.util.UUID;
+
+            public class PlainPacket extends net.sxlver.jrpc.core.protocol.Packet {
+                public String text;
+                public int number;
+                public Long boxed;
+                public byte[] bytes;
+                public UUID id;
+                public Kind kind;
+                public List<String> names;
+                public Nested nested;
+
+                public enum Kind { FIRST, SECOND }
+
+                public static class Nested {
+                    public String value;
+                }
+            }
+            """;
+
+    private static final String LOMBOK = """
+            package sample;
+
+            @lombok.Data
+            @lombok.EqualsAndHashCode(callSuper = false)
+            public class LombokPacket extends net.sxlver.jrpc.core.protocol.Packet {
+                private String name;
+                private int count;
+                private PlainPacket.Kind kind;
+            }
+            """;
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("codegen-test");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void roundTripsPlainPacket() throws Exception {
+        final Compilation compilation = compile(Map.of("sample/PlainPacket.java", PLAIN), new PacketCodecProcessor());
+        assertTrue(compilation.generated("sample/PlainPacketCodec.java"));
+        assertTrue(compilation.generated("sample/PlainPacket_NestedCodec.java"));
+
+        try (final URLClassLoader loader = compilation.loader()) {
+            final Class<?> type = loader.loadClass("sample.PlainPacket");
+            final Object packet = type.getDeclaredConstructor().newInstance();
+            set(packet, "text", "text");
+            set(packet, "number", 42);
+            set(packet, "boxed", 7L);
+            set(packet, "bytes", new byte[]{1, 2, 3});
+            set(packet, "id", new UUID(1, 2));
+            set(packet, "kind", enumConstant(loader, "sample.PlainPacket$Kind", "SECOND"));
+            set(packet, "names", List.of("a", "b"));
+            final Object nested = loader.loadClass("sample.PlainPacket$Nested").getDeclaredConstructor().newInstance();
+            set(nested, "value", "nested");
+            set(packet, "nested", nested);
+
+            final Object read = roundTrip(codec(loader, "sample.PlainPacketCodec"), packet);
+            assertEquals("text", get(read, "text"));
+            assertEquals(42, get(read, "number"));
+            assertEquals(7L, get(read, "boxed"));
+            assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) get(read, "bytes"));
+            assertEquals(new UUID(1, 2), get(read, "id"));
+            assertEquals(get(packet, "kind"), get(read, "kind"));
+            assertEquals(List.of("a", "b"), get(read, "names"));
+            assertEquals("nested", get(get(read, "nested"), "value"));
+        }
+    }
+
+    @Test
+    void roundTripsNullFields() throws Exception {
+        final Compilation compilation = compile(Map.of("sample/PlainPacket.java", PLAIN), new PacketCodecProcessor());
+        try (final URLClassLoader loader = compilation.loader()) {
+            final Object packet = loader.loadClass("sample.PlainPacket").getDeclaredConstructor().newInstance();
+            final Object read = roundTrip(codec(loader, "sample.PlainPacketCodec"), packet);
+            for (final String name : List.of("text", "boxed", "bytes", "id", "kind", "names", "nested")) {
+                assertNull(get(read, name), name);
+            }
+        }
+    }
+
+    @Test
+    void writesEnumsByName() throws Exception {
+        final Compilation compilation = compile(Map.of("sample/PlainPacket.java", PLAIN), new PacketCodecProcessor());
+        try (final URLClassLoader loader = compilation.loader()) {
+            final Object packet = loader.loadClass("sample.PlainPacket").getDeclaredConstructor().newInstance();
+            set(packet, "kind", enumConstant(loader, "sample.PlainPacket$Kind", "SECOND"));
+            final PacketCodec<Object> codec = codec(loader, "sample.PlainPacketCodec");
+
+            final ByteBuf out = Unpooled.buffer();
+            codec.write(out, packet);
+            // text, number, boxed, bytes and id, all of them absent but the number
+            final int enumIndex = 1 + 4 + 1 + 1 + 1;
+            out.skipBytes(enumIndex);
+            assertEquals("SECOND", CodecIO.readString(out));
+
+            // a constant the reading side does not know
+            final ByteBuf renamed = Unpooled.buffer().writeBytes(out, 0, enumIndex);
+            CodecIO.writeString(renamed, "REMOVED");
+            renamed.writeBytes(out);
+            assertThrows(DeserializationException.class, () -> codec.read(renamed));
+        }
+    }
+
+    @Test
+    void generatesCodecsWhenLombokClaimsAnnotationsFirst() throws Exception {
+        final List<Processor> processors = new ArrayList<>(lombokProcessors());
+        processors.add(new PacketCodecProcessor());
+        assertLombokPacketRoundTrips(processors);
+    }
+
+    @Test
+    void generatesCodecsBeforeLombokRan() throws Exception {
+        final List<Processor> processors = new ArrayList<>();
+        processors.add(new PacketCodecProcessor());
+        processors.addAll(lombokProcessors());
+        assertLombokPacketRoundTrips(processors);
+    }
+
+    private void assertLombokPacketRoundTrips(final List<Processor> processors) throws Exception {
+        final Compilation compilation = compile(Map.of("sample/PlainPacket.java", PLAIN, "sample/LombokPacket.java", LOMBOK),
+                processors.toArray(Processor[]::new));
+        assertTrue(compilation.generated("sample/LombokPacketCodec.java"), compilation.diagnostics().toString());
+
+        try (final URLClassLoader loader = compilation.loader()) {
+            final Class<?> type = loader.loadClass("sample.LombokPacket");
+            final Object packet = type.getDeclaredConstructor().newInstance();
+            type.getMethod("setName", String.class).invoke(packet, "lombok");
+            type.getMethod("setCount", int.class).invoke(packet, 3);
+
+            assertEquals(packet, roundTrip(codec(loader, "sample.LombokPacketCodec"), packet));
+        }
+    }
+
+    @Test
+    void serializerUsesGeneratedCodec() throws Exception {
+        final Compilation compilation = compile(Map.of("sample/PlainPacket.java", PLAIN), new PacketCodecProcessor());
+        try (final URLClassLoader loader = compilation.loader()) {
+            @SuppressWarnings("unchecked")
+            final Class<? extends Packet> type = (Class<? extends Packet>) loader.loadClass("sample.PlainPacket");
+            new PacketTypeRegistry().register(type);
+            final Packet packet = type.getDeclaredConstructor().newInstance();
+            set(packet, "text", "serialized");
+
+            final byte[] data = PacketDataSerializer.serialize(packet);
+            final int nameLength = type.getName().getBytes(StandardCharsets.UTF_8).length;
+            assertEquals(PacketDataSerializer.FORMAT_BINARY, data[2 + 2 + nameLength]);
+            final Object read = PacketDataSerializer.deserializePacket(data);
+            assertEquals(type, read.getClass());
+            assertEquals("serialized", get(read, "text"));
+        }
+    }
+
+    @Test
+    void claimsAnnotationsOfGeneratedCodecs() throws Exception {
+        final Compilation compilation = compile(Map.of("sample/PlainPacket.java", PLAIN), new PacketCodecProcessor());
+        for (final Diagnostic<? extends JavaFileObject> diagnostic : compilation.diagnostics()) {
+            assertNotEquals(Diagnostic.Kind.WARNING, diagnostic.getKind(), diagnostic.toString());
+        }
+    }
+
+    @Test
+    void skipsUnsupportedPackets() throws Exception {
+        final Compilation compilation = compile(Map.of(
+                "sample/GenericPacket.java", """
+                        package sample;
+
+                        public class GenericPacket<T> extends net.sxlver.jrpc.core.protocol.Packet {
+                            public T value;
+                        }
+                        """,
+                "sample/AbstractPacket.java", """
+                        package sample;
+
+                        public abstract class AbstractPacket extends net.sxlver.jrpc.core.protocol.Packet {
+                            public String value;
+                        }
+                        """,
+                "sample/PrivateConstructorPacket.java", """
+                        package sample;
+
+                        public class PrivateConstructorPacket extends net.sxlver.jrpc.core.protocol.Packet {
+                            public String value;
+
+                            private PrivateConstructorPacket() {
+                            }
+                        }
+                        """), new PacketCodecProcessor());
+
+        assertFalse(compilation.generated("sample/GenericPacketCodec.java"));
+        assertFalse(compilation.generated("sample/AbstractPacketCodec.java"));
+        assertFalse(compilation.generated("sample/PrivateConstructorPacketCodec.java"));
+        assertTrue(compilation.diagnostics().stream().anyMatch(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.NOTE
+                && diagnostic.getMessage(null).contains("sample.GenericPacket")));
+    }
+
+    private Compilation compile(final Map<String, String> sources, final Processor... processors) throws IOException {
+        final Path root = Files.createTempDirectory(directory, "compilation");
+        final Path sourceDirectory = Files.createDirectories(root.resolve("src"));
+        final Path generatedDirectory = Files.createDirectories(root.resolve("generated"));
+        final Path classDirectory = Files.createDirectories(root.resolve("classes"));
+        final List<Path> files = new ArrayList<>();
+        for (final Map.Entry<String, String> source : sources.entrySet()) {
+            final Path file = sourceDirectory.resolve(source.getKey());
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, source.getValue());
+            files.add(file);
+        }
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (final StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    List.of("-Xlint:processing", "-classpath", System.getProperty("java.class.path"),
+                            "-s", generatedDirectory.toString(), "-d", classDirectory.toString()),
+                    null, fileManager.getJavaFileObjectsFromPaths(files));
+            task.setProcessors(List.of(processors));
+            assertTrue(task.call(), diagnostics.getDiagnostics().toString());
+        }
+        return new Compilation(generatedDirectory, classDirectory, diagnostics.getDiagnostics());
+    }
+
+    private static List<Processor> lombokProcessors() throws ReflectiveOperationException {
+        final List<Processor> processors = new ArrayList<>();
+        for (final String name : List.of("lombok.launch.AnnotationProcessorHider$AnnotationProcessor", "lombok.launch.AnnotationProcessorHider$ClaimingProcessor")) {
+            processors.add((Processor) Class.forName(name).getDeclaredConstructor().newInstance());
+        }
+        return processors;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PacketCodec<Object> codec(final ClassLoader loader, final String name) throws ReflectiveOperationException {
+        return (PacketCodec<Object>) loader.loadClass(name).getField("INSTANCE").get(null);
+    }
+
+    private static Object roundTrip(final PacketCodec<Object> codec, final Object packet) {
+        final ByteBuf out = Unpooled.buffer();
+        codec.write(out, packet);
+        final Object read = codec.read(out);
+        assertFalse(out.isReadable(), "the codec must read everything it wrote");
+        return read;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumConstant(final ClassLoader loader, final String type, final String name) throws ClassNotFoundException {
+        return Enum.valueOf((Class) loader.loadClass(type), name);
+    }
+
+    private static void set(final Object target, final String name, final Object value) throws ReflectiveOperationException {
+        final Field field = target.getClass().getField(name);
+        field.set(target, value);
+    }
+
+    private static Object get(final Object target, final String name) throws ReflectiveOperationException {
+        return target.getClass().getField(name).get(target);
+    }
+
+    private record Compilation(Path generatedDirectory, Path classDirectory, List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+
+        boolean generated(final String path) {
+            return Files.exists(generatedDirectory.resolve(path));
+        }
+
+        URLClassLoader loader() throws IOException {
+            return new URLClassLoader(new URL[]{classDirectory.toUri().toURL()}, PacketCodecProcessorTest.class.getClassLoader());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package net.sxlver.jrpc.core.benchmark;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Entry point of the benchmark harnesses, run through {@code ./gradlew :core:benchmark --args="<name> [options]"}.
+ * Running it without arguments lists the benchmarks.
+ *
+ * <p>These are plain loops timed with {@link System#nanoTime()}, not JMH benchmarks. They repeat a
+ * warmup before every measured round and report each round, so that the spread between rounds is
+ * visible. Numbers are only comparable between runs on the same machine.
+ */
+public enum Benchmarks {
+    ENVELOPE_DECODE("Single-threaded decode of a TYPE message with a 114 byte payload", EnvelopeDecodeBenchmark::run),
+    GSON_CONTENTION("Many threads serializing a small packet through CentralGson", GsonContentionBenchmark::run),
+    TIMED_CACHE("Adding and completing requests in a timed cache with a fixed number in flight", TimedCacheBenchmark::run),
+    CONVERSATION_HEAP("Heap retained per in-flight conversation by the conversation maps", ConversationHeapBenchmark::run);
+
+    private final String description;
+    private final Harness harness;
+
+    Benchmarks(final String description, final Harness harness) {
+        this.description = description;
+        this.harness = harness;
+    }
+
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if(args.length > 0) {
+            for (final Benchmarks benchmark : values()) {
+                if(benchmark.getName().equals(args[0])) {
+                    benchmark.harness.run(Arrays.copyOfRange(args, 1, args.length));
+                    return;
+                }
+            }
+            System.out.println("Unknown benchmark " + args[0]);
+        }
+        System.out.println("Usage: benchmark <name> [options]");
+        for (final Benchmarks benchmark : values()) {
+            System.out.printf("  %-24s %s%n", benchmark.getName(), benchmark.description);
+        }
+    }
+
+    @FunctionalInterface
+    interface Harness {
+        void run(String[] args) throws Exception;
+    }
+}
@@ -0,0 +1,97 @@
+package net.sxlver.jrpc.core.benchmark;
+
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.util.ConcurrentLongMap;
+import net.sxlver.jrpc.core.util.TimedCache;
+import net.sxlver.jrpc.core.util.TimedLongCache;
+
+import java.lang.ref.Reference;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Fills a map with in-flight conversations and reports the heap retained per conversation after a
+ * full GC. Every entry shares the same value, so only the key and the structure are counted.
+ *
+ * <p>Modes:
+ * <ul>
+ *     <li>{@code map}: a {@link ConcurrentHashMap} keyed by {@link ConversationUID}</li>
+ *     <li>{@code long-map}: a {@link ConcurrentLongMap}</li>
+ *     <li>{@code cache}: a {@link TimedCache} keyed by {@link ConversationUID}</li>
+ *     <li>{@code long-cache}: a {@link TimedLongCache}, as the client tracks its conversations</li>
+ * </ul>
+ *
+ * <p>Options: {@code [mode, default long-cache] [conversations, default 1000000]}
+ */
+final class ConversationHeapBenchmark {
+    private static final Request VALUE = new Request();
+
+    private ConversationHeapBenchmark() {
+    }
+
+    static void run(final String[] args) throws Exception {
+        final String mode = args.length > 0 ? args[0].toLowerCase(Locale.ROOT) : "long-cache";
+        final int conversations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        final long before = usedHeap();
+        final Object retained;
+        final LongConsumer put;
+        switch (mode) {
+            case "map" -> {
+                final Map<ConversationUID, Request> map = new ConcurrentHashMap<>();
+                put = uid -> map.put(new ConversationUID(uid), VALUE);
+                retained = map;
+            }
+            case "long-map" -> {
+                final ConcurrentLongMap<Request> map = new ConcurrentLongMap<>();
+                put = uid -> map.put(uid, VALUE);
+                retained = map;
+            }
+            case "cache" -> {
+                final TimedCache<ConversationUID, Request> cache = new TimedCache<>();
+                put = uid -> cache.put(new ConversationUID(uid), VALUE);
+                retained = cache;
+            }
+            case "long-cache" -> {
+                final TimedLongCache<Request> cache = new TimedLongCache<>();
+                put = uid -> cache.put(uid, VALUE);
+                retained = cache;
+            }
+            default -> throw new IllegalArgumentException("Unknown mode " + mode + ", expected map, long-map, cache or long-cache");
+        }
+        for (long uid = 0; uid < conversations; uid++) {
+            put.accept(uid);
+        }
+        final long after = usedHeap();
+        System.out.printf("%s, %,d conversations: %,.1f bytes per conversation%n", mode, conversations, (after - before) / (double) conversations);
+        // keeps the map reachable until the heap has been measured
+        Reference.reachabilityFence(retained);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // repeated until the heap stops shrinking, a single System.gc() is only a hint
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(50);
+            final long current = runtime.totalMemory() - runtime.freeMemory();
+            if(current >= used) break;
+            used = current;
+        }
+        return used;
+    }
+
+    private static final class Request implements TimedCache.NotifyOnExpire {
+        @Override
+        public void notifyExpired() {
+        }
+
+        @Override
+        public long timeout() {
+            return 60_000;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package net.sxlver.jrpc.core.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.Message;
+import net.sxlver.jrpc.core.protocol.MessageType;
+import net.sxlver.jrpc.core.protocol.ProtocolVersion;
+import net.sxlver.jrpc.core.protocol.codec.EnvelopeCodec;
+import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
+
+import java.util.Arrays;
+
+/**
+ * Decodes the same frame over and over, the steps {@link net.sxlver.jrpc.core.protocol.codec.JRPCMessageDecoder}
+ * takes for a TYPE message: peeking and resolving the protocol version, then reading the envelope.
+ *
+ * <p>Options: {@code [iterations per round, default 2000000]}
+ */
+final class EnvelopeDecodeBenchmark {
+    private static final int PAYLOAD_LENGTH = 114;
+
+    private EnvelopeDecodeBenchmark() {
+    }
+
+    static void run(final String[] args) throws Exception {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        final int version = ProtocolVersion.LATEST.getVersionNumber();
+
+        final byte[] payload = new byte[PAYLOAD_LENGTH];
+        Arrays.fill(payload, (byte) 'x');
+        final JRPCMessage message = new JRPCMessage("lobby", Message.TargetType.TYPE, "proxy-1", new ConversationUID(42L), payload, version, MessageType.MESSAGE.getId());
+        final ByteBuf frame = Unpooled.buffer();
+        EnvelopeCodec.write(frame, message, version);
+        final int envelopeIndex = EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH;
+        System.out.printf("frame length %d bytes%n", frame.readableBytes());
+
+        final long[] sink = new long[1];
+        Rounds.measure("decode", iterations, iteration -> {
+            frame.readerIndex(envelopeIndex);
+            if(ProtocolVersion.getByVersionNumber(EnvelopeCodec.peekVersion(frame)) == null) {
+                throw new IllegalStateException("Unknown protocol version");
+            }
+            final JRPCMessage decoded = EnvelopeCodec.read(frame);
+            sink[0] += decoded.data().length + decoded.conversationId().uid();
+        });
+        frame.release();
+        System.out.println("checksum " + sink[0]);
+    }
+}
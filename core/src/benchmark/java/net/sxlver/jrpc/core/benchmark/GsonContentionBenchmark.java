@@ -0,0 +1,125 @@
+package net.sxlver.jrpc.core.benchmark;
+
+import com.google.gson.Gson;
+import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.serialization.CentralGson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes a small packet from many threads at once for a fixed time and reports the total throughput.
+ *
+ * <p>Modes:
+ * <ul>
+ *     <li>{@code locked}: every call takes a shared monitor before serializing through
+ *     {@link CentralGson#getGson()}, like every call did before the configuration was published as a snapshot</li>
+ *     <li>{@code snapshot}: {@link CentralGson#toJson(Object)}, which reads the snapshot without locking</li>
+ *     <li>{@code rebuild}: as {@code snapshot}, whilst another thread calls {@link CentralGson#rebuild()} every 10 ms</li>
+ * </ul>
+ *
+ * <p>Options: {@code [mode, default snapshot] [threads, default 32] [seconds, default 3]}
+ */
+final class GsonContentionBenchmark {
+    private static final Object LOCK = new Object();
+
+    private GsonContentionBenchmark() {
+    }
+
+    static void run(final String[] args) throws Exception {
+        final String mode = args.length > 0 ? args[0].toLowerCase(Locale.ROOT) : "snapshot";
+        final int threads = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        final long seconds = args.length > 2 ? Long.parseLong(args[2]) : 3;
+        final Serializer serializer = switch (mode) {
+            case "locked" -> packet -> {
+                synchronized (LOCK) {
+                    final Gson gson = CentralGson.PROTOCOL_INSTANCE.getGson();
+                    return gson.toJson(packet);
+                }
+            };
+            case "snapshot", "rebuild" -> CentralGson.PROTOCOL_INSTANCE::toJson;
+            default -> throw new IllegalArgumentException("Unknown mode " + mode + ", expected locked, snapshot or rebuild");
+        };
+
+        // warmup
+        measure(serializer, threads, TimeUnit.SECONDS.toNanos(1), false);
+        final double opsPerSecond = measure(serializer, threads, TimeUnit.SECONDS.toNanos(seconds), mode.equals("rebuild"));
+        System.out.printf("%s, %d thread(s), %ds: %,.0f ops/s%n", mode, threads, seconds, opsPerSecond);
+    }
+
+    private static double measure(final Serializer serializer, final int threads, final long nanos, final boolean rebuild) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final long[] counts = new long[threads];
+        final List<Thread> workers = new ArrayList<>();
+        final long[] deadline = new long[1];
+        for (int i = 0; i < threads; i++) {
+            final int index = i;
+            final Thread worker = new Thread(() -> {
+                final Chat packet = new Chat("player-" + index, "hello world");
+                long count = 0;
+                try {
+                    start.await();
+                    final long end = deadline[0];
+                    while(System.nanoTime() < end) {
+                        if(serializer.serialize(packet).length() < 2) {
+                            throw new IllegalStateException("Invalid json");
+                        }
+                        count++;
+                    }
+                }catch(final Exception exception) {
+                    throw new IllegalStateException(exception);
+                }
+                counts[index] = count;
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        final Thread rebuilder = rebuild ? new Thread(() -> {
+            try {
+                start.await();
+                while(System.nanoTime() < deadline[0]) {
+                    CentralGson.PROTOCOL_INSTANCE.rebuild();
+                    Thread.sleep(10);
+                }
+            }catch(final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }) : null;
+        if(rebuilder != null) rebuilder.start();
+
+        final long begin = System.nanoTime();
+        deadline[0] = begin + nanos;
+        start.countDown();
+        for (final Thread worker : workers) {
+            worker.join();
+        }
+        if(rebuilder != null) rebuilder.join();
+        final long elapsed = System.nanoTime() - begin;
+
+        long total = 0;
+        for (final long count : counts) {
+            total += count;
+        }
+        return total * 1e9 / elapsed;
+    }
+
+    @FunctionalInterface
+    private interface Serializer {
+        String serialize(Packet packet) throws Exception;
+    }
+
+    // final fields are not serialized
+    static final class Chat extends Packet {
+        private String sender;
+        private String message;
+
+        Chat(final String sender, final String message) {
+            this.sender = sender;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package net.sxlver.jrpc.core.benchmark;
+
+/**
+ * Runs an operation in timed rounds, each preceded by a warmup of the same length.
+ */
+final class Rounds {
+    private static final int ROUNDS = 5;
+
+    private Rounds() {
+    }
+
+    /**
+     * Runs the operation {@code iterations} times per round and prints the time per operation of each round.
+     *
+     * @param label      printed in front of every round
+     * @param iterations the number of operations per round
+     * @param operation  the operation, passed the index of the current iteration
+     * @return the time per operation in nanoseconds of the fastest round
+     */
+    static double measure(final String label, final int iterations, final Operation operation) throws Exception {
+        double best = Double.MAX_VALUE;
+        for (int round = 1; round <= ROUNDS; round++) {
+            for (int i = 0; i < iterations; i++) {
+                operation.run(i);
+            }
+            final long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                operation.run(i);
+            }
+            final double nanosPerOp = (System.nanoTime() - start) / (double) iterations;
+            best = Math.min(best, nanosPerOp);
+            System.out.printf("%s round %d: %,.1f ns/op (%,.0f ops/s)%n", label, round, nanosPerOp, 1e9 / nanosPerOp);
+        }
+        return best;
+    }
+
+    @FunctionalInterface
+    interface Operation {
+        void run(int iteration) throws Exception;
+    }
+}
@@ -0,0 +1,139 @@
+package net.sxlver.jrpc.core.benchmark;
+
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.util.TimedCache;
+import net.sxlver.jrpc.core.util.TimedLongCache;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puts and removes entries the way the client tracks conversations: every request adds an entry and
+ * completes the request added {@code in-flight} requests earlier. Reports the CPU time per request of
+ * the calling thread and of the whole process, the latter including the expiry timer thread.
+ *
+ * <p>Modes:
+ * <ul>
+ *     <li>{@code scheduled}: a map and a single-threaded scheduled executor per cache, as {@link TimedCache}
+ *     expired entries before it moved to the shared wheel timer. Removing an entry does not cancel its expiry</li>
+ *     <li>{@code cache}: a {@link TimedCache} keyed by {@link ConversationUID}</li>
+ *     <li>{@code long-cache}: a {@link TimedLongCache} keyed by the uid's long value</li>
+ * </ul>
+ *
+ * <p>Options: {@code [mode, default long-cache] [in-flight, default 1000] [requests per round, default 1000000]}
+ */
+final class TimedCacheBenchmark {
+    private static final int ROUNDS = 5;
+    private static final long READ_TIMEOUT = 5;
+
+    private TimedCacheBenchmark() {
+    }
+
+    static void run(final String[] args) throws Exception {
+        final String mode = args.length > 0 ? args[0].toLowerCase(Locale.ROOT) : "long-cache";
+        final int inFlight = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        final int requests = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+        final Requests cache = switch (mode) {
+            case "scheduled" -> new Requests() {
+                private final Map<ConversationUID, Request> cache = new ConcurrentHashMap<>();
+                private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+                @Override
+                public void put(final long uid) {
+                    final ConversationUID key = new ConversationUID(uid);
+                    final Request value = new Request();
+                    cache.put(key, value);
+                    scheduler.schedule(() -> scheduler.schedule(() -> {
+                        final Request expired = cache.remove(key);
+                        if(expired != null) {
+                            expired.notifyExpired();
+                        }
+                    }, value.timeout() - READ_TIMEOUT, TimeUnit.MILLISECONDS), READ_TIMEOUT, TimeUnit.MILLISECONDS);
+                }
+
+                @Override
+                public void remove(final long uid) {
+                    cache.remove(new ConversationUID(uid));
+                }
+
+                @Override
+                public void close() {
+                    scheduler.shutdownNow();
+                }
+            };
+            case "cache" -> new Requests() {
+                private final TimedCache<ConversationUID, Request> cache = new TimedCache<>();
+
+                @Override
+                public void put(final long uid) {
+                    cache.put(new ConversationUID(uid), new Request());
+                }
+
+                @Override
+                public void remove(final long uid) {
+                    cache.remove(new ConversationUID(uid));
+                }
+            };
+            case "long-cache" -> new Requests() {
+                private final TimedLongCache<Request> cache = new TimedLongCache<>();
+
+                @Override
+                public void put(final long uid) {
+                    cache.put(uid, new Request());
+                }
+
+                @Override
+                public void remove(final long uid) {
+                    cache.remove(uid);
+                }
+            };
+            default -> throw new IllegalArgumentException("Unknown mode " + mode + ", expected scheduled, cache or long-cache");
+        };
+
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final com.sun.management.OperatingSystemMXBean os = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long uid = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            final long callerStart = threads.getCurrentThreadCpuTime();
+            final long processStart = os.getProcessCpuTime();
+            for (int i = 0; i < requests; i++) {
+                cache.put(uid);
+                cache.remove(uid - inFlight);
+                uid++;
+            }
+            final double callerNanos = (threads.getCurrentThreadCpuTime() - callerStart) / (double) requests;
+            final double processNanos = (os.getProcessCpuTime() - processStart) / (double) requests;
+            // the first round warms up
+            if(round > 0) {
+                System.out.printf("%s round %d: %,.1f ns/request on the caller, %,.1f ns/request process CPU%n", mode, round, callerNanos, processNanos);
+            }
+        }
+        cache.close();
+    }
+
+    private interface Requests {
+        void put(long uid);
+
+        void remove(long uid);
+
+        default void close() {
+        }
+    }
+
+    private static final class Request implements TimedCache.NotifyOnExpire {
+        @Override
+        public void notifyExpired() {
+        }
+
+        @Override
+        public long timeout() {
+            return 10_000;
+        }
+    }
+}
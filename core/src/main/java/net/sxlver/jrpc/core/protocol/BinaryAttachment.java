@@ -0,0 +1,71 @@
+package net.sxlver.jrpc.core.protocol;
+
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary blob carried by a packet.
+ *
+ * <p>Attachments, as well as {@code byte[]} and {@link ByteBuffer} fields, are not embedded in
+ * the structured part of a payload but travel as raw length prefixed segments behind it. A
+ * received attachment is a view of the payload it arrived in rather than a copy.
+ */
+public final class BinaryAttachment {
+    private final ByteBuffer buffer;
+
+    private BinaryAttachment(final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public static BinaryAttachment wrap(final @NonNull byte[] data) {
+        return new BinaryAttachment(ByteBuffer.wrap(data));
+    }
+
+    public static BinaryAttachment wrap(final @NonNull byte[] data, final int offset, final int length) {
+        return new BinaryAttachment(ByteBuffer.wrap(data, offset, length).slice());
+    }
+
+    /**
+     * Wraps the remaining bytes of the given buffer without copying them, later changes to
+     * its content are visible through the attachment.
+     *
+     * @param buffer the buffer
+     * @return the attachment
+     */
+    public static BinaryAttachment wrap(final @NonNull ByteBuffer buffer) {
+        return new BinaryAttachment(buffer.slice());
+    }
+
+    public int length() {
+        return buffer.remaining();
+    }
+
+    /**
+     * @return a read-only view of the attachment, with its own position and limit
+     */
+    public ByteBuffer asByteBuffer() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    public byte[] toByteArray() {
+        final byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return data;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof BinaryAttachment attachment && buffer.equals(attachment.buffer);
+    }
+
+    @Override
+    public int hashCode() {
+        return buffer.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "BinaryAttachment{length=" + length() + "}";
+    }
+}
@@ -2,12 +2,13 @@ package net.sxlver.jrpc.core.protocol;
 
 import lombok.NoArgsConstructor;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 @NoArgsConstructor
 public class ConversationUID {
 
-    private static final Random rand = new Random();
+    // set on random uids only, so that they never collide with uids of a ConversationUIDSequence
+    private static final long RANDOM_FLAG = Long.MIN_VALUE;
 
     private long uid;
 
@@ -39,9 +40,15 @@ public class ConversationUID {
         return (int) (uid ^ (uid >>> 32));
     }
 
+    /**
+     * Creates a random uid, peers generate their uids through a {@link ConversationUIDSequence} instead
+     * once they have been assigned a conversation epoch.
+     *
+     * @return the uid
+     */
     public static ConversationUID newUid() {
-        return new ConversationUID(rand.nextLong());
+        return new ConversationUID(next());
     }
 
-    public static long next() { return rand.nextLong(); }
+    public static long next() { return ThreadLocalRandom.current().nextLong() | RANDOM_FLAG; }
 }
@@ -0,0 +1,62 @@
+package net.sxlver.jrpc.core.protocol;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the conversation uids of one peer, its conversation epoch in bits 32 to 62 combined with
+ * a sequence in the low 32 bits. The server uses {@link #SERVER_EPOCH} and assigns every client a
+ * distinct epoch with its handshake, so uids are unique across the network without coordinating
+ * single uids. Until an epoch has been assigned the uids are random, see {@link ConversationUID#newUid()}.
+ */
+public class ConversationUIDSequence {
+    public static final int SERVER_EPOCH = 0;
+
+    private static final int UNASSIGNED = -1;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile int epoch;
+
+    /**
+     * Instantiates a new sequence generating random uids until an epoch is assigned.
+     */
+    public ConversationUIDSequence() {
+        this.epoch = UNASSIGNED;
+    }
+
+    /**
+     * Instantiates a new sequence.
+     *
+     * @param epoch the epoch
+     */
+    public ConversationUIDSequence(final int epoch) {
+        setEpoch(epoch);
+    }
+
+    /**
+     * Sets the epoch of all uids generated from now on, the sequence itself continues.
+     *
+     * @param epoch the epoch, not negative
+     */
+    public void setEpoch(final int epoch) {
+        if(epoch < 0) {
+            throw new IllegalArgumentException(String.format("Invalid conversation epoch %d", epoch));
+        }
+        this.epoch = epoch;
+    }
+
+    public boolean isEpochAssigned() {
+        return epoch != UNASSIGNED;
+    }
+
+    public long nextUid() {
+        final int epoch = this.epoch;
+        if(epoch == UNASSIGNED) {
+            return ConversationUID.next();
+        }
+        return ((long) epoch << 32) | (sequence.getAndIncrement() & 0xFFFFFFFFL);
+    }
+
+    public ConversationUID next() {
+        return new ConversationUID(nextUid());
+    }
+}
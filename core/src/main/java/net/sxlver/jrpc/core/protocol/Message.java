@@ -1,6 +1,7 @@
 package net.sxlver.jrpc.core.protocol;
 
 import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
 
@@ -18,6 +19,31 @@ public interface Message {
 
     byte[] data();
 
+    /**
+     * @return the key used to pick the target of a {@link TargetType#LOAD_BALANCED} message
+     *         consistently, or null if the target may be picked freely
+     */
+    @Nullable
+    default String routingKey() {
+        return null;
+    }
+
+    /**
+     * @return whether the sender awaits a response to this message, which is carried by the
+     *         {@link net.sxlver.jrpc.core.protocol.codec.EnvelopeCodec#RESPONSE_EXPECTED_FLAG}
+     */
+    default boolean isResponseExpected() {
+        return false;
+    }
+
+    /**
+     * @return the length of the payload in bytes
+     */
+    default int dataLength() {
+        final byte[] data = data();
+        return data == null ? 0 : data.length;
+    }
+
     enum TargetType {
         /**
          * Message is meant for a client of the given type and will be
@@ -48,6 +74,21 @@ public interface Message {
          */
         SERVER;
 
+        private static final TargetType[] VALUES = values();
+
+        /**
+         * Looks up the target type by its ordinal without copying the {@link #values()} array.
+         *
+         * @param ordinal the ordinal
+         * @return the target type or null if there is none with the given ordinal
+         */
+        @Nullable
+        public static TargetType fromOrdinal(final int ordinal) {
+            if(ordinal < 0 || ordinal >= VALUES.length) {
+                return null;
+            }
+            return VALUES[ordinal];
+        }
 
         public static TargetType fromString(final String type) {
             return Arrays.stream(values()).filter(targetType -> targetType.toString().equalsIgnoreCase(type)).findFirst().orElse(null);
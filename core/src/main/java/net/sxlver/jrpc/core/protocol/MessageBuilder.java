@@ -2,6 +2,9 @@ package net.sxlver.jrpc.core.protocol;
 
 import lombok.NonNull;
 import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
+import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
+import net.sxlver.jrpc.core.serialization.PacketTypeRegistry;
+import org.jetbrains.annotations.Nullable;
 
 public interface MessageBuilder<T extends Message> {
     MessageBuilder<T> target(final @NonNull String target);
@@ -14,5 +17,38 @@ public interface MessageBuilder<T extends Message> {
 
     MessageBuilder<T> data(final byte[] data);
 
+    /**
+     * Sets the packet to send instead of its serialized data. The packet is serialized straight
+     * into the outgoing frame once the message is encoded, it must not be modified afterwards.
+     * Only built-in packets are written with their type id, any other packet with its class name.
+     *
+     * @param packet the packet
+     * @return this builder
+     */
+    default MessageBuilder<T> packet(final @NonNull Packet packet) {
+        return packet(packet, null);
+    }
+
+    /**
+     * Sets the packet to send, see {@link #packet(Packet)}.
+     *
+     * @param packet      the packet
+     * @param packetTypes the ids assigned by the server the message is sent to, null if the class
+     *                    name is written instead of the type id,
+     *                    see {@link PacketDataSerializer#serialize(Packet, PacketTypeRegistry)}
+     * @return this builder
+     */
+    MessageBuilder<T> packet(final @NonNull Packet packet, final @Nullable PacketTypeRegistry packetTypes);
+
+    MessageBuilder<T> routingKey(final @Nullable String routingKey);
+
+    /**
+     * Sets whether the sender awaits a response to the message, see {@link Message#isResponseExpected()}.
+     *
+     * @param responseExpected true if a response is awaited
+     * @return this builder
+     */
+    MessageBuilder<T> responseExpected(final boolean responseExpected);
+
     T build();
 }
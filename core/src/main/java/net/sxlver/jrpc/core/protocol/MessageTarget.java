@@ -1,19 +1,33 @@
 package net.sxlver.jrpc.core.protocol;
 
 import net.sxlver.jrpc.core.protocol.model.JRPCClientInformation;
+import org.jetbrains.annotations.Nullable;
 
 public class MessageTarget {
 
     private final Message.TargetType targetType;
     private final String target;
+    private final String routingKey;
 
     public MessageTarget(Message.TargetType targetType) {
         this(targetType, "");
     }
 
     public MessageTarget(Message.TargetType targetType, String target) {
+        this(targetType, target, null);
+    }
+
+    /**
+     * @param targetType the target type
+     * @param target     the target
+     * @param routingKey key used by the server to consistently pick the same client for
+     *                   {@link Message.TargetType#LOAD_BALANCED} messages, e.g. a player's UUID.
+     *                   Ignored for any other target type.
+     */
+    public MessageTarget(Message.TargetType targetType, String target, @Nullable String routingKey) {
         this.targetType = targetType;
         this.target = target;
+        this.routingKey = routingKey;
     }
 
     public String target() {
@@ -24,7 +38,24 @@ public class MessageTarget {
         return targetType;
     }
 
+    @Nullable
+    public String routingKey() {
+        return routingKey;
+    }
+
     public static MessageTarget of(final JRPCClientInformation client) {
         return new MessageTarget(Message.TargetType.DIRECT, client.getUniqueId());
     }
+
+    /**
+     * Targets a client of the given type. Messages carrying the same routing key are
+     * forwarded to the same client as long as the members of the type do not change.
+     *
+     * @param type       the client type
+     * @param routingKey the routing key
+     * @return the message target
+     */
+    public static MessageTarget keyed(final String type, final String routingKey) {
+        return new MessageTarget(Message.TargetType.LOAD_BALANCED, type, routingKey);
+    }
 }
@@ -6,7 +6,26 @@ import java.util.Arrays;
 
 public enum MessageType {
     HANDSHAKE(1),
-    MESSAGE(2);
+    MESSAGE(2),
+    /**
+     * Several messages to the same target sharing one envelope, see {@link net.sxlver.jrpc.core.protocol.impl.JRPCBatchMessage}.
+     */
+    BATCH(3),
+    /**
+     * One part of a message stream, see {@link net.sxlver.jrpc.core.protocol.impl.JRPCChunkMessage}.
+     */
+    CHUNK(4);
+
+    private static final MessageType[] BY_ID;
+
+    static {
+        final MessageType[] types = values();
+        final int maxId = Arrays.stream(types).mapToInt(MessageType::getId).max().orElse(0);
+        BY_ID = new MessageType[maxId + 1];
+        for (final MessageType type : types) {
+            BY_ID[type.id] = type;
+        }
+    }
 
     private final int id;
 
@@ -20,6 +39,9 @@ public enum MessageType {
 
     @Nullable
     public static MessageType of(final int id) {
-        return Arrays.stream(values()).filter(messageType -> messageType.getId() == id).findFirst().orElse(null);
+        if(id < 0 || id >= BY_ID.length) {
+            return null;
+        }
+        return BY_ID[id];
     }
 }
@@ -1,12 +1,13 @@
 package net.sxlver.jrpc.core.protocol;
 
+import net.sxlver.jrpc.core.serialization.codec.GenerateCodec;
+
+/**
+ * Base class of every message payload. The type of a packet is written in front of its
+ * serialized form, see {@link net.sxlver.jrpc.core.serialization.PacketTypeRegistry}.
+ */
+@GenerateCodec
 public abstract class Packet {
-    /**
-     * will be extracted from json string in order to deserialize the packet
-     * without providing its class path
-     */
-    private String packetCls;
     protected Packet() {
-        this.packetCls = getClass().getName();
     }
 }
@@ -5,7 +5,28 @@ import org.jetbrains.annotations.Nullable;
 import java.util.Arrays;
 
 public enum ProtocolVersion {
-    V0_1(1);
+    /**
+     * Base64 encoded json envelope.
+     */
+    V0_1(1),
+
+    /**
+     * Binary envelope, see {@link net.sxlver.jrpc.core.protocol.codec.EnvelopeCodec}.
+     */
+    V0_2(2);
+
+    public static final ProtocolVersion LATEST = V0_2;
+
+    private static final ProtocolVersion[] BY_VERSION_NUMBER;
+
+    static {
+        final ProtocolVersion[] versions = values();
+        final int maxVersionNumber = Arrays.stream(versions).mapToInt(ProtocolVersion::getVersionNumber).max().orElse(0);
+        BY_VERSION_NUMBER = new ProtocolVersion[maxVersionNumber + 1];
+        for (final ProtocolVersion version : versions) {
+            BY_VERSION_NUMBER[version.versionNumber] = version;
+        }
+    }
 
     private final int versionNumber;
 
@@ -19,9 +40,9 @@ public enum ProtocolVersion {
 
     @Nullable
     public static ProtocolVersion getByVersionNumber(final int versionNumber) {
-        return Arrays.stream(values())
-                .filter(protocolVersion -> protocolVersion.getVersionNumber() == versionNumber)
-                .findFirst()
-                .orElse(null);
+        if(versionNumber < 0 || versionNumber >= BY_VERSION_NUMBER.length) {
+            return null;
+        }
+        return BY_VERSION_NUMBER[versionNumber];
     }
 }
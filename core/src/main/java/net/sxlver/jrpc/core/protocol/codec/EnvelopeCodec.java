@@ -0,0 +1,484 @@
+package net.sxlver.jrpc.core.protocol.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.EncoderException;
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.Message;
+import net.sxlver.jrpc.core.protocol.MessageType;
+import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.protocol.impl.JRPCBatchMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCChunkMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCClientHandshakeMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCRawMessage;
+import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
+import net.sxlver.jrpc.core.serialization.PayloadSizePredictor;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes the binary envelope every {@link JRPCMessage} is wrapped in on the wire.
+ *
+ * <p>All values are written big-endian and directly follow the 4 byte frame length
+ * that is stripped by the frame decoder:
+ * <pre>
+ * byte   protocol version
+ * byte   message type, see {@link #RESPONSE_EXPECTED_FLAG}
+ * byte   target type (ordinal of {@link Message.TargetType})
+ * long   conversation uid
+ * short  target length, followed by the UTF-8 encoded target
+ * short  source length, followed by the UTF-8 encoded source
+ * short  routing key length, followed by the UTF-8 encoded routing key (empty if there is none)
+ * int    payload length, followed by the raw payload
+ * </pre>
+ *
+ * <p>Packets that have not been serialized yet are serialized straight into the frame.
+ *
+ * <p>The payload of a {@link MessageType#BATCH} envelope holds the entries of a
+ * {@link JRPCBatchMessage}, which share the routing information of the envelope:
+ * <pre>
+ * int    entry count
+ * long   conversation uid of the entry
+ * int    payload length, followed by the raw payload of the entry (repeated)
+ * </pre>
+ *
+ * <p>The payload of a {@link MessageType#CHUNK} envelope holds a single {@link JRPCChunkMessage}:
+ * <pre>
+ * int    sequence number, 0 for the header chunk
+ * byte   flags
+ * byte[] the chunk, filling the remainder of the payload
+ * </pre>
+ *
+ * <p>The message type of frames compressed by {@link FrameCompressionCodec} carries the
+ * {@link #COMPRESSED_FLAG}, such frames are inflated before this codec gets to read them.
+ *
+ * <p>Handshake messages carry no routing information, their target is empty, the target
+ * type is {@link Message.TargetType#SERVER} and the conversation uid is always 0.
+ */
+public final class EnvelopeCodec {
+
+    /**
+     * Length of the frame length prefix preceding every envelope.
+     */
+    public static final int FRAME_LENGTH_FIELD_LENGTH = 4;
+
+    /**
+     * Size of the fixed width part of the envelope (version, message type, target type and conversation uid).
+     */
+    public static final int FIXED_HEADER_LENGTH = 1 + 1 + 1 + 8;
+
+    /**
+     * Size of the smallest possible envelope, an empty target, source, routing key and payload.
+     */
+    public static final int MIN_ENVELOPE_LENGTH = FIXED_HEADER_LENGTH + 2 + 2 + 2 + 4;
+
+    /**
+     * Bit set on the message type of compressed frames.
+     */
+    public static final int COMPRESSED_FLAG = 0x80;
+
+    /**
+     * Bit set on the message type of messages whose sender awaits a response, see {@link Message#isResponseExpected()}.
+     */
+    public static final int RESPONSE_EXPECTED_FLAG = 0x40;
+
+    private static final int MAX_STRING_LENGTH = 0xFFFF;
+
+    // sequence number and flags
+    private static final int CHUNK_HEADER_LENGTH = 4 + 1;
+
+    private EnvelopeCodec() {
+    }
+
+    /**
+     * Writes the length prefixed envelope of the given message to the buffer.
+     *
+     * @param out           the buffer to write to
+     * @param message       the message to encode
+     * @param versionNumber the protocol version the envelope is written in
+     */
+    public static void write(final @NonNull ByteBuf out, final @NonNull JRPCMessage message, final int versionNumber) {
+        final int lengthIndex = out.writerIndex();
+        out.writeInt(0); // frame length, set once the envelope has been written
+        writeHeader(out, message, versionNumber);
+
+        if(message instanceof JRPCBatchMessage batch) {
+            final int payloadLengthIndex = out.writerIndex();
+            out.writeInt(0); // payload length, set once all entries have been written
+            out.writeInt(batch.getEntries().size());
+            for (final JRPCMessage entry : batch.getEntries()) {
+                out.writeLong(entry.conversationId().uid());
+                writePayload(out, entry);
+            }
+            out.setInt(payloadLengthIndex, out.writerIndex() - payloadLengthIndex - 4);
+        }else if(message instanceof JRPCChunkMessage chunk) {
+            final byte[] data = chunk.data();
+            final int dataLength = data == null ? 0 : data.length;
+            out.writeInt(CHUNK_HEADER_LENGTH + dataLength);
+            out.writeInt(chunk.getSequence());
+            out.writeByte(chunk.getFlags());
+            if(data != null) {
+                out.writeBytes(data);
+            }
+        }else {
+            writePayload(out, message);
+        }
+
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - FRAME_LENGTH_FIELD_LENGTH);
+    }
+
+    /**
+     * Writes the length prefixed envelope of a chunk without its data. The data is written
+     * to the channel on its own right after the returned frame, e.g. as a {@link io.netty.channel.FileRegion},
+     * the frame length already includes it.
+     *
+     * @param out           the buffer to write to
+     * @param chunk         the chunk to encode
+     * @param dataLength    the length of the data following the buffer
+     * @param versionNumber the protocol version the envelope is written in
+     */
+    public static void writeChunkPrefix(final @NonNull ByteBuf out, final @NonNull JRPCChunkMessage chunk, final int dataLength, final int versionNumber) {
+        final int lengthIndex = out.writerIndex();
+        out.writeInt(0); // frame length, set once the envelope has been written
+        writeHeader(out, chunk, versionNumber);
+        out.writeInt(CHUNK_HEADER_LENGTH + dataLength);
+        out.writeInt(chunk.getSequence());
+        out.writeByte(chunk.getFlags());
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - FRAME_LENGTH_FIELD_LENGTH + dataLength);
+    }
+
+    private static void writeHeader(final ByteBuf out, final JRPCMessage message, final int versionNumber) {
+        out.writeByte(versionNumber);
+        out.writeByte(message.getMessageType() | (message.isResponseExpected() ? RESPONSE_EXPECTED_FLAG : 0));
+        if(message.getMessageType() == MessageType.HANDSHAKE.getId()) {
+            out.writeByte(Message.TargetType.SERVER.ordinal());
+            out.writeLong(0L);
+            writeString(out, "");
+        }else {
+            out.writeByte(message.targetType().ordinal());
+            out.writeLong(message.conversationId().uid());
+            writeString(out, message.target());
+        }
+        writeString(out, message.source());
+        final String routingKey = message.routingKey();
+        writeString(out, routingKey == null ? "" : routingKey);
+    }
+
+    private static void writePayload(final ByteBuf out, final JRPCMessage message) {
+        final Packet packet = message.pendingPacket();
+        if(packet != null) {
+            final int payloadLengthIndex = out.writerIndex();
+            out.writeInt(0); // payload length, set once the packet has been serialized
+            out.setInt(payloadLengthIndex, PacketDataSerializer.serialize(packet, message.packetTypes(), out));
+            return;
+        }
+
+        final byte[] data = message.data();
+        if(data == null) {
+            out.writeInt(0);
+        }else {
+            out.writeInt(data.length).writeBytes(data);
+        }
+    }
+
+    /**
+     * Estimates the length of the length prefixed envelope of the given message. The payload
+     * of a packet that has not been serialized yet is predicted by {@link PayloadSizePredictor}.
+     *
+     * @param message the message to encode
+     * @return the estimated length in bytes
+     */
+    public static int estimateLength(final @NonNull JRPCMessage message) {
+        int payloadLength;
+        if(message instanceof JRPCBatchMessage batch) {
+            payloadLength = 4;
+            for (final JRPCMessage entry : batch.getEntries()) {
+                payloadLength += 8 + 4 + estimatePayloadLength(entry);
+            }
+        }else {
+            payloadLength = estimatePayloadLength(message);
+        }
+        return FRAME_LENGTH_FIELD_LENGTH + MIN_ENVELOPE_LENGTH + length(message.target()) + length(message.source()) + length(message.routingKey()) + payloadLength;
+    }
+
+    /**
+     * Estimates the length of the payload of the given message, without its length prefix.
+     *
+     * @param message the message
+     * @return the estimated length in bytes
+     */
+    public static int estimatePayloadLength(final @NonNull JRPCMessage message) {
+        if(message instanceof JRPCChunkMessage) {
+            return CHUNK_HEADER_LENGTH + message.dataLength();
+        }
+        final Packet packet = message.pendingPacket();
+        return packet != null ? PayloadSizePredictor.INSTANCE.predict(packet.getClass()) : message.dataLength();
+    }
+
+    /**
+     * Returns the protocol version of the envelope at the current reader index without
+     * consuming it.
+     *
+     * @param in the frame
+     * @return the protocol version number
+     */
+    public static int peekVersion(final @NonNull ByteBuf in) {
+        return in.getUnsignedByte(in.readerIndex());
+    }
+
+    /**
+     * Returns the message type of the envelope at the current reader index without consuming it.
+     *
+     * @param in the frame
+     * @return the message type or null if it is unknown
+     */
+    @Nullable
+    public static MessageType peekMessageType(final @NonNull ByteBuf in) {
+        return MessageType.of(in.getUnsignedByte(in.readerIndex() + 1) & ~RESPONSE_EXPECTED_FLAG);
+    }
+
+    /**
+     * Returns the target type of the envelope at the current reader index without consuming it.
+     *
+     * @param in the frame
+     * @return the target type or null if it is unknown
+     */
+    @Nullable
+    public static Message.TargetType peekTargetType(final @NonNull ByteBuf in) {
+        return Message.TargetType.fromOrdinal(in.getUnsignedByte(in.readerIndex() + 2));
+    }
+
+    /**
+     * Reads only the routing fields of a {@link MessageType#MESSAGE}, {@link MessageType#BATCH} or {@link MessageType#CHUNK} envelope and skips the
+     * payload. The returned message keeps a retained slice of the whole frame, starting at
+     * {@code frameIndex}, which has to include the length prefix.
+     *
+     * @param in         the frame, its reader index pointing at the version byte
+     * @param frameIndex the index of the length prefix in the given buffer
+     * @return the routing-only message
+     * @throws CorruptedFrameException if the frame is truncated or contains an unknown target type
+     */
+    public static JRPCRawMessage readRouting(final @NonNull ByteBuf in, final int frameIndex) {
+        final int versionNumber = in.readUnsignedByte();
+        // message type, checked by the caller
+        final boolean responseExpected = (in.readUnsignedByte() & RESPONSE_EXPECTED_FLAG) != 0;
+        final Message.TargetType targetType = Message.TargetType.fromOrdinal(in.readUnsignedByte());
+        final long uid = in.readLong();
+        final String target = readString(in);
+        final String source = readString(in);
+        final String routingKey = readString(in);
+
+        ensureReadable(in, 4);
+        final int length = in.readInt();
+        ensureReadable(in, length);
+        if(targetType == null) {
+            throw new CorruptedFrameException("Unknown target type");
+        }
+
+        final int payloadIndex = in.readerIndex() - frameIndex;
+        final ByteBuf frame = in.retainedSlice(frameIndex, in.readerIndex() + length - frameIndex);
+        in.skipBytes(length);
+        return new JRPCRawMessage(frame, versionNumber, target, targetType, source, new ConversationUID(uid), emptyToNull(routingKey), responseExpected, payloadIndex, length);
+    }
+
+    /**
+     * Reads the whole envelope, header and payload, in a single pass.
+     *
+     * <p>Callers are expected to have checked that at least {@link #MIN_ENVELOPE_LENGTH}
+     * bytes are readable, only the variable length sections are bounds-checked here.
+     *
+     * @param in the frame
+     * @return the decoded message
+     * @throws CorruptedFrameException if the frame is truncated or contains an unknown message or target type
+     */
+    public static JRPCMessage read(final @NonNull ByteBuf in) {
+        final int versionNumber = in.readUnsignedByte();
+        final int messageTypeFlags = in.readUnsignedByte();
+        final MessageType messageType = MessageType.of(messageTypeFlags & ~RESPONSE_EXPECTED_FLAG);
+        final Message.TargetType targetType = Message.TargetType.fromOrdinal(in.readUnsignedByte());
+        final long uid = in.readLong();
+        final String target = readString(in);
+        final String source = readString(in);
+        final String routingKey = readString(in);
+
+        ensureReadable(in, 4);
+        final int length = in.readInt();
+        ensureReadable(in, length);
+        final byte[] data = new byte[length];
+        in.readBytes(data);
+
+        if(messageType == MessageType.HANDSHAKE) {
+            return new JRPCClientHandshakeMessage(source, data, versionNumber);
+        }
+        if(messageType != MessageType.MESSAGE) {
+            throw new CorruptedFrameException("Unknown message type");
+        }
+        if(targetType == null) {
+            throw new CorruptedFrameException("Unknown target type");
+        }
+        final JRPCMessage message = new JRPCMessage(target, targetType, source, new ConversationUID(uid), data, versionNumber, messageType.getId());
+        message.setRoutingKey(emptyToNull(routingKey));
+        message.setResponseExpected((messageTypeFlags & RESPONSE_EXPECTED_FLAG) != 0);
+        return message;
+    }
+
+    /**
+     * Reads a {@link MessageType#BATCH} envelope and returns its entries as individual
+     * {@link MessageType#MESSAGE messages}, each of them sharing the routing information
+     * of the envelope and whether a response is expected.
+     *
+     * <p>Callers are expected to have checked that at least {@link #MIN_ENVELOPE_LENGTH}
+     * bytes are readable, only the variable length sections are bounds-checked here.
+     *
+     * @param in the frame
+     * @return the entries of the batch
+     * @throws CorruptedFrameException if the frame is truncated or contains an unknown target type
+     */
+    public static List<JRPCMessage> readBatch(final @NonNull ByteBuf in) {
+        final int versionNumber = in.readUnsignedByte();
+        // message type, checked by the caller
+        final boolean responseExpected = (in.readUnsignedByte() & RESPONSE_EXPECTED_FLAG) != 0;
+        final Message.TargetType targetType = Message.TargetType.fromOrdinal(in.readUnsignedByte());
+        in.skipBytes(8); // conversation uid of the first entry
+        final String target = readString(in);
+        final String source = readString(in);
+        final String routingKey = emptyToNull(readString(in));
+
+        ensureReadable(in, 4);
+        final int length = in.readInt();
+        ensureReadable(in, length);
+        if(targetType == null) {
+            throw new CorruptedFrameException("Unknown target type");
+        }
+
+        final ByteBuf payload = in.readSlice(length);
+        ensureReadable(payload, 4);
+        final int count = payload.readInt();
+        if(count < 0 || count > payload.readableBytes() / (8 + 4)) {
+            throw new CorruptedFrameException(String.format("Batch of %d entries exceeds its payload of %d byte(s)", count, payload.readableBytes()));
+        }
+
+        final List<JRPCMessage> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ensureReadable(payload, 8 + 4);
+            final long uid = payload.readLong();
+            final int entryLength = payload.readInt();
+            ensureReadable(payload, entryLength);
+            final byte[] data = new byte[entryLength];
+            payload.readBytes(data);
+
+            final JRPCMessage entry = new JRPCMessage(target, targetType, source, new ConversationUID(uid), data, versionNumber, MessageType.MESSAGE.getId());
+            entry.setRoutingKey(routingKey);
+            entry.setResponseExpected(responseExpected);
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the conversation uids of the entries of a batch that has only been decoded as far
+     * as required for routing, see {@link #readRouting(ByteBuf, int)}. The frame is not modified.
+     *
+     * @param message the routing-only message
+     * @return the uids of the entries in order or null if the message is not a batch
+     */
+    @Nullable
+    public static long[] readBatchUids(final @NonNull JRPCRawMessage message) {
+        final ByteBuf frame = message.content();
+        final int frameIndex = frame.readerIndex();
+        if(MessageType.of(frame.getUnsignedByte(frameIndex + FRAME_LENGTH_FIELD_LENGTH + 1) & ~RESPONSE_EXPECTED_FLAG) != MessageType.BATCH) {
+            return null;
+        }
+
+        int index = frameIndex + message.getPayloadIndex();
+        final int end = index + message.dataLength();
+        if(end - index < 4) {
+            return new long[0];
+        }
+        final int count = frame.getInt(index);
+        index += 4;
+        final long[] uids = new long[Math.max(0, Math.min(count, (end - index) / (8 + 4)))];
+        int read = 0;
+        while(read < uids.length && end - index >= 8 + 4) {
+            final int entryLength = frame.getInt(index + 8);
+            if(entryLength < 0) break;
+            uids[read++] = frame.getLong(index);
+            index += 8 + 4 + entryLength;
+        }
+        return read == uids.length ? uids : Arrays.copyOf(uids, read);
+    }
+
+    /**
+     * Reads a {@link MessageType#CHUNK} envelope.
+     *
+     * <p>Callers are expected to have checked that at least {@link #MIN_ENVELOPE_LENGTH}
+     * bytes are readable, only the variable length sections are bounds-checked here.
+     *
+     * @param in the frame
+     * @return the chunk
+     * @throws CorruptedFrameException if the frame is truncated or contains an unknown target type
+     */
+    public static JRPCChunkMessage readChunk(final @NonNull ByteBuf in) {
+        final int versionNumber = in.readUnsignedByte();
+        in.skipBytes(1); // message type, checked by the caller
+        final Message.TargetType targetType = Message.TargetType.fromOrdinal(in.readUnsignedByte());
+        final long uid = in.readLong();
+        final String target = readString(in);
+        final String source = readString(in);
+        final String routingKey = readString(in);
+
+        ensureReadable(in, 4);
+        final int length = in.readInt();
+        ensureReadable(in, length);
+        if(targetType == null) {
+            throw new CorruptedFrameException("Unknown target type");
+        }
+        if(length < CHUNK_HEADER_LENGTH) {
+            throw new CorruptedFrameException(String.format("Chunk payload of %d byte(s) is shorter than the chunk header", length));
+        }
+
+        final int sequence = in.readInt();
+        final int flags = in.readUnsignedByte();
+        final byte[] data = new byte[length - CHUNK_HEADER_LENGTH];
+        in.readBytes(data);
+        return new JRPCChunkMessage(target, targetType, source, new ConversationUID(uid), emptyToNull(routingKey), sequence, flags, data, versionNumber);
+    }
+
+    private static void writeString(final ByteBuf out, final String value) {
+        final int lengthIndex = out.writerIndex();
+        out.writeShort(0);
+        final int written = out.writeCharSequence(value, StandardCharsets.UTF_8);
+        if(written > MAX_STRING_LENGTH) {
+            throw new EncoderException(String.format("String exceeds the maximum length of %d bytes: %d", MAX_STRING_LENGTH, written));
+        }
+        out.setShort(lengthIndex, written);
+    }
+
+    private static String readString(final ByteBuf in) {
+        ensureReadable(in, 2);
+        final int length = in.readUnsignedShort();
+        ensureReadable(in, length);
+        return in.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+
+    // exact for ASCII, a guess for anything else
+    private static int length(final String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static String emptyToNull(final String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void ensureReadable(final ByteBuf in, final int length) {
+        if(length < 0 || in.readableBytes() < length) {
+            throw new CorruptedFrameException(String.format("Truncated frame, expected %d more byte(s) but only %d are readable", length, in.readableBytes()));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package net.sxlver.jrpc.core.protocol.codec;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces flushes so that a burst of small messages ends up in as few syscalls as possible.
+ *
+ * <p>A flush is passed on once {@code maxPendingFlushes} flushes are pending, once the current
+ * read completes if it was requested while reading, or otherwise by a task submitted to the
+ * event loop. Without a delay that task runs as soon as the event loop has processed the writes
+ * submitted before it, with a delay it runs after at most {@code maxDelayMicros} microseconds,
+ * which bounds the latency added to any message. Pending flushes are passed on before the
+ * channel is closed or becomes unwritable.
+ *
+ * <p>The handler should be placed first in the pipeline. Each channel needs its own instance.
+ */
+public class FlushCoalescingHandler extends ChannelDuplexHandler {
+    private final int maxPendingFlushes;
+    private final long maxDelayNanos;
+
+    private ChannelHandlerContext context;
+    private int pendingFlushes;
+    private boolean readInProgress;
+    private boolean flushScheduled;
+
+    private final Runnable flushTask = () -> {
+        flushScheduled = false;
+        flushIfPending(context);
+    };
+
+    /**
+     * @param maxPendingFlushes the number of flushes after which a flush is passed on immediately,
+     *                          1 passes on every flush
+     * @param maxDelayMicros    the maximum time in microseconds a flush may be delayed, 0 to only
+     *                          delay it until the writes pending on the event loop are processed
+     */
+    public FlushCoalescingHandler(final int maxPendingFlushes, final long maxDelayMicros) {
+        if(maxPendingFlushes < 1) {
+            throw new IllegalArgumentException("maxPendingFlushes must be positive: " + maxPendingFlushes);
+        }
+        if(maxDelayMicros < 0) {
+            throw new IllegalArgumentException("maxDelayMicros must not be negative: " + maxDelayMicros);
+        }
+        this.maxPendingFlushes = maxPendingFlushes;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+    }
+
+    @Override
+    public void handlerAdded(final ChannelHandlerContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public void flush(final ChannelHandlerContext context) {
+        if(++pendingFlushes >= maxPendingFlushes) {
+            flushNow(context);
+            return;
+        }
+        // flushed once the read completes
+        if(readInProgress) return;
+
+        if(!flushScheduled) {
+            flushScheduled = true;
+            if(maxDelayNanos == 0) {
+                context.executor().execute(flushTask);
+            }else {
+                context.executor().schedule(flushTask, maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void channelRead(final ChannelHandlerContext context, final Object message) {
+        readInProgress = true;
+        context.fireChannelRead(message);
+    }
+
+    @Override
+    public void channelReadComplete(final ChannelHandlerContext context) {
+        readInProgress = false;
+        flushIfPending(context);
+        context.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelWritabilityChanged(final ChannelHandlerContext context) {
+        if(!context.channel().isWritable()) {
+            flushIfPending(context);
+        }
+        context.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void exceptionCaught(final ChannelHandlerContext context, final Throwable cause) {
+        flushIfPending(context);
+        context.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void disconnect(final ChannelHandlerContext context, final ChannelPromise promise) {
+        flushIfPending(context);
+        context.disconnect(promise);
+    }
+
+    @Override
+    public void close(final ChannelHandlerContext context, final ChannelPromise promise) {
+        flushIfPending(context);
+        context.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(final ChannelHandlerContext context) {
+        flushIfPending(context);
+    }
+
+    private void flushIfPending(final ChannelHandlerContext context) {
+        if(pendingFlushes > 0) {
+            flushNow(context);
+        }
+    }
+
+    private void flushNow(final ChannelHandlerContext context) {
+        pendingFlushes = 0;
+        context.flush();
+    }
+}
@@ -0,0 +1,189 @@
+package net.sxlver.jrpc.core.protocol.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.util.concurrent.FastThreadLocal;
+import net.sxlver.jrpc.core.protocol.Message;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflates outgoing frames above a size threshold and inflates incoming compressed frames.
+ *
+ * <p>The version and message type of a compressed frame are left as they are, except for the
+ * {@link EnvelopeCodec#COMPRESSED_FLAG} set on the message type. They are followed by the int
+ * length of the uncompressed remainder of the envelope and the deflated remainder itself.
+ *
+ * <p>Incoming frames are always inflated, outgoing frames are only compressed once the peer
+ * confirmed during the handshake that it is able to inflate them, see {@link #setEnabled(boolean)}.
+ * Frames that would not get any smaller are sent as they are, as well as frames whose data is written
+ * to the channel separately, see {@link EnvelopeCodec#writeChunkPrefix}. Each channel needs its own instance,
+ * frames broadcast to many channels can be compressed once up front through {@link #compress}.
+ */
+public class FrameCompressionCodec extends MessageToMessageCodec<ByteBuf, ByteBuf> {
+    // version and message type
+    private static final int UNCOMPRESSED_PREFIX_LENGTH = 2;
+
+    // used by #compress, a deflater is not thread safe
+    private static final FastThreadLocal<Deflater> SHARED_DEFLATER = new FastThreadLocal<>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.DEFAULT_COMPRESSION);
+        }
+
+        @Override
+        protected void onRemoval(final Deflater deflater) {
+            deflater.end();
+        }
+    };
+
+    private final int threshold;
+    private final boolean inboundLengthPrefixed;
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final Inflater inflater = new Inflater();
+
+    private volatile boolean enabled;
+
+    /**
+     * @param threshold             the minimum envelope length compressed, negative to never compress
+     * @param inboundLengthPrefixed whether incoming frames still start with their length prefix
+     */
+    public FrameCompressionCodec(final int threshold, final boolean inboundLengthPrefixed) {
+        this.threshold = threshold;
+        this.inboundLengthPrefixed = inboundLengthPrefixed;
+    }
+
+    /**
+     * Sets whether outgoing frames are compressed, which must only be enabled once the peer
+     * confirmed to support compression.
+     *
+     * @param enabled true to compress frames above the threshold
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled && threshold >= 0;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    protected void encode(final ChannelHandlerContext context, final ByteBuf frame, final List<Object> out) {
+        // frames compressed once for many channels, see #compress, are sent as they are
+        final ByteBuf compressed = enabled && !isCompressed(frame) ? deflate(context.alloc(), frame, threshold, deflater) : null;
+        out.add(compressed != null ? compressed : frame.retain());
+    }
+
+    /**
+     * Compresses a frame independently of any channel, so that a frame written to many channels
+     * is only deflated once. Channels whose codec has compression enabled send the returned
+     * frame as it is, it must not be written to any other channel.
+     *
+     * @param alloc     the allocator of the compressed frame
+     * @param frame     the length prefixed frame, left untouched
+     * @param threshold the minimum envelope length compressed, negative to never compress
+     * @return the compressed frame, or null if the frame is below the threshold or would not get any smaller
+     */
+    public static ByteBuf compress(final ByteBufAllocator alloc, final ByteBuf frame, final int threshold) {
+        return threshold >= 0 && !isCompressed(frame) ? deflate(alloc, frame, threshold, SHARED_DEFLATER.get()) : null;
+    }
+
+    private static boolean isCompressed(final ByteBuf frame) {
+        return frame.readableBytes() > EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH + 1
+                && (frame.getUnsignedByte(frame.readerIndex() + EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH + 1) & EnvelopeCodec.COMPRESSED_FLAG) != 0;
+    }
+
+    private static ByteBuf deflate(final ByteBufAllocator alloc, final ByteBuf frame, final int threshold, final Deflater deflater) {
+        final int envelopeLength = frame.readableBytes() - EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH;
+        if(envelopeLength < threshold || envelopeLength <= UNCOMPRESSED_PREFIX_LENGTH
+                || frame.getInt(frame.readerIndex()) != envelopeLength) {
+            return null;
+        }
+
+        final int prefixIndex = frame.readerIndex() + EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH;
+        final int remainderLength = envelopeLength - UNCOMPRESSED_PREFIX_LENGTH;
+        final ByteBuf compressed = alloc.ioBuffer(frame.readableBytes());
+        compressed.writeInt(0);
+        compressed.writeByte(frame.getUnsignedByte(prefixIndex));
+        compressed.writeByte(frame.getUnsignedByte(prefixIndex + 1) | EnvelopeCodec.COMPRESSED_FLAG);
+        compressed.writeInt(remainderLength);
+
+        deflater.setInput(frame.nioBuffer(prefixIndex + UNCOMPRESSED_PREFIX_LENGTH, remainderLength));
+        deflater.finish();
+        // give up as soon as the compressed frame is not smaller than the original one
+        while(!deflater.finished() && compressed.writerIndex() < frame.readableBytes()) {
+            compressed.ensureWritable(Math.min(remainderLength, 8192));
+            final ByteBuffer target = compressed.nioBuffer(compressed.writerIndex(), compressed.writableBytes());
+            compressed.writerIndex(compressed.writerIndex() + deflater.deflate(target));
+        }
+        final boolean smaller = deflater.finished() && compressed.writerIndex() < frame.readableBytes();
+        deflater.reset();
+
+        if(!smaller) {
+            compressed.release();
+            return null;
+        }
+        compressed.setInt(0, compressed.writerIndex() - EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH);
+        return compressed;
+    }
+
+    @Override
+    protected void decode(final ChannelHandlerContext context, final ByteBuf frame, final List<Object> out) throws DataFormatException {
+        final int prefixIndex = frame.readerIndex() + (inboundLengthPrefixed ? EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH : 0);
+        if(frame.writerIndex() < prefixIndex + UNCOMPRESSED_PREFIX_LENGTH
+                || (frame.getUnsignedByte(prefixIndex + 1) & EnvelopeCodec.COMPRESSED_FLAG) == 0) {
+            out.add(frame.retain());
+            return;
+        }
+
+        if(frame.writerIndex() < prefixIndex + UNCOMPRESSED_PREFIX_LENGTH + 4) {
+            throw new CorruptedFrameException("Truncated compressed frame");
+        }
+        final int remainderLength = frame.getInt(prefixIndex + UNCOMPRESSED_PREFIX_LENGTH);
+        if(remainderLength < 0 || remainderLength > Message.MAX_PACKET_LENGTH) {
+            throw new CorruptedFrameException(String.format("Uncompressed length of %d bytes exceeds the maximum of %d bytes", remainderLength, Message.MAX_PACKET_LENGTH));
+        }
+
+        final int dataIndex = prefixIndex + UNCOMPRESSED_PREFIX_LENGTH + 4;
+        final int prefixLength = inboundLengthPrefixed ? EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH : 0;
+        final ByteBuf inflated = context.alloc().buffer(prefixLength + UNCOMPRESSED_PREFIX_LENGTH + remainderLength);
+        try {
+            if(inboundLengthPrefixed) {
+                inflated.writeInt(UNCOMPRESSED_PREFIX_LENGTH + remainderLength);
+            }
+            inflated.writeByte(frame.getUnsignedByte(prefixIndex));
+            inflated.writeByte(frame.getUnsignedByte(prefixIndex + 1) & ~EnvelopeCodec.COMPRESSED_FLAG);
+
+            inflater.setInput(frame.nioBuffer(dataIndex, frame.writerIndex() - dataIndex));
+            final ByteBuffer target = inflated.nioBuffer(inflated.writerIndex(), remainderLength);
+            while(target.hasRemaining() && !inflater.finished()) {
+                if(inflater.inflate(target) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+            }
+            if(target.hasRemaining() || !inflater.finished()) {
+                throw new CorruptedFrameException("Compressed frame does not match its uncompressed length");
+            }
+            inflated.writerIndex(inflated.writerIndex() + remainderLength);
+            out.add(inflated.retain());
+        } finally {
+            inflated.release();
+            inflater.reset();
+        }
+    }
+
+    @Override
+    public void handlerRemoved(final ChannelHandlerContext context) throws Exception {
+        deflater.end();
+        inflater.end();
+        super.handlerRemoved(context);
+    }
+}
@@ -3,15 +3,12 @@ package net.sxlver.jrpc.core.protocol.codec;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
-import net.sxlver.jrpc.core.protocol.MessageType;
 import net.sxlver.jrpc.core.protocol.impl.JRPCClientHandshakeMessage;
-import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
 
 public abstract class JRPCHandshakeEncoder extends MessageToByteEncoder<JRPCClientHandshakeMessage> {
     @Override
     protected void encode(final ChannelHandlerContext context, final JRPCClientHandshakeMessage message, ByteBuf out) throws Exception {
-        final byte[] data = PacketDataSerializer.serialize(message);
-        out.writeInt(data.length).writeBytes(data);
+        EnvelopeCodec.write(out, message, getVersionNumber());
     }
 
     protected abstract int getVersionNumber();
@@ -3,14 +3,11 @@ package net.sxlver.jrpc.core.protocol.codec;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
 import net.sxlver.jrpc.core.LogProvider;
 import net.sxlver.jrpc.core.protocol.MessageType;
-import net.sxlver.jrpc.core.protocol.impl.HeaderData;
-import net.sxlver.jrpc.core.protocol.impl.JRPCClientHandshakeMessage;
-import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
 import net.sxlver.jrpc.core.protocol.ProtocolInformationProvider;
 import net.sxlver.jrpc.core.protocol.ProtocolVersion;
-import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
 
 import java.util.List;
 
@@ -23,46 +20,59 @@ public class JRPCMessageDecoder<T extends ProtocolInformationProvider & LogProvi
 
     @Override
     protected void decode(final ChannelHandlerContext context, final ByteBuf in, final List<Object> out) {
-        final int length = in.readableBytes();
-
-        if(!(length > 0)) {
+        if(in.readableBytes() < EnvelopeCodec.MIN_ENVELOPE_LENGTH) {
             provider.getLogger().fatal("Malformed packet received from {}. Closing connection.", context.channel().remoteAddress());
+            in.skipBytes(in.readableBytes());
             context.close();
             return;
         }
 
-        final byte[] data = new byte[length];
-        in.readBytes(data);
-
-        final HeaderData header = PacketDataSerializer.deserialize(data, HeaderData.class);
-        if(header == null) {
-            provider.getLogger().warn("Error whilst deserializing header. Closing connection to {}.", context.channel().remoteAddress());
+        final int versionNumber = EnvelopeCodec.peekVersion(in);
+        final ProtocolVersion version = ProtocolVersion.getByVersionNumber(versionNumber);
+        if(version == null) {
+            provider.getLogger().warn("Received message with unknown protocol version {}. Closing connection to {}.", versionNumber, context.channel().remoteAddress());
+            in.skipBytes(in.readableBytes());
+            context.close();
             return;
         }
 
-        final int versionNumber = header.getProtocolVersion();
-        final ProtocolVersion version = ProtocolVersion.getByVersionNumber(versionNumber);
         if(version != provider.getProtocolVersion()) {
             final String message = "Message Protocol version mismatch! Received: {} Current Version: {}";
             if(!provider.isAllowVersionMismatch()) {
                 provider.getLogger().warn(message, version, provider.getProtocolVersion());
-                in.resetReaderIndex();
+                in.skipBytes(in.readableBytes());
                 return;
             }else {
                 provider.getLogger().debugFine(message, version, provider.getProtocolVersion());
             }
         }
 
-        final JRPCMessage message;
-        if(header.getMessageType() == MessageType.HANDSHAKE.getId()) {
-            message = PacketDataSerializer.deserialize(data, JRPCClientHandshakeMessage.class);
-        }else if (header.getMessageType() == MessageType.MESSAGE.getId()) {
-            message = PacketDataSerializer.deserialize(data, JRPCMessage.class);
-        }else {
-            provider.getLogger().warn("Invalid message format. Closing connection to {}", context.channel().remoteAddress());
+        try {
+            decodeEnvelope(context, in, out);
+        }catch(final CorruptedFrameException exception) {
+            provider.getLogger().warn("Invalid message format ({}). Closing connection to {}", exception.getMessage(), context.channel().remoteAddress());
+            in.skipBytes(in.readableBytes());
             context.close();
-            return;
         }
-        out.add(message);
+    }
+
+    /**
+     * Decodes the envelope once the frame has passed the protocol version checks. A batch
+     * is decoded into its entries, which are passed on one by one.
+     *
+     * @param context the channel handler context
+     * @param in      the frame, its reader index pointing at the version byte
+     * @param out     the list the decoded message(s) are added to
+     * @throws CorruptedFrameException if the frame is malformed
+     */
+    protected void decodeEnvelope(final ChannelHandlerContext context, final ByteBuf in, final List<Object> out) {
+        final MessageType messageType = EnvelopeCodec.peekMessageType(in);
+        if(messageType == MessageType.BATCH) {
+            out.addAll(EnvelopeCodec.readBatch(in));
+        }else if(messageType == MessageType.CHUNK) {
+            out.add(EnvelopeCodec.readChunk(in));
+        }else {
+            out.add(EnvelopeCodec.read(in));
+        }
     }
 }
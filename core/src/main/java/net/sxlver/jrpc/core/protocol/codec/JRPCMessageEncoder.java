@@ -3,16 +3,23 @@ package net.sxlver.jrpc.core.protocol.codec;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
-import net.sxlver.jrpc.core.protocol.MessageType;
 import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
-import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
 
 public abstract class JRPCMessageEncoder extends MessageToByteEncoder<JRPCMessage> {
 
     @Override
     protected void encode(final ChannelHandlerContext context, final JRPCMessage message, ByteBuf out) throws Exception {
-        final byte[] data = PacketDataSerializer.serialize(message);
-        out.writeInt(data.length).writeBytes(data);
+        EnvelopeCodec.write(out, message, getVersionNumber());
+    }
+
+    /**
+     * Allocates the frame with the estimated length of the message, so that it does not
+     * have to grow while the payload is serialized into it.
+     */
+    @Override
+    protected ByteBuf allocateBuffer(final ChannelHandlerContext context, final JRPCMessage message, final boolean preferDirect) {
+        final int initialCapacity = EnvelopeCodec.estimateLength(message);
+        return preferDirect ? context.alloc().ioBuffer(initialCapacity) : context.alloc().heapBuffer(initialCapacity);
     }
 
     protected abstract int getVersionNumber();
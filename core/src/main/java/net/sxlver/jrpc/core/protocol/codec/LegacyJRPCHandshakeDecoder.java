@@ -10,6 +10,7 @@ import net.sxlver.jrpc.core.protocol.ProtocolVersion;
 import net.sxlver.jrpc.core.protocol.impl.JRPCClientHandshakeMessage;
 import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
 
+import java.util.Base64;
 import java.util.List;
 
 public class LegacyJRPCHandshakeDecoder<T extends ProtocolInformationProvider & LogProvider> extends ByteToMessageDecoder {
@@ -44,7 +45,7 @@ public class LegacyJRPCHandshakeDecoder<T extends ProtocolInformationProvider &
         final byte[] data = new byte[length];
         in.readBytes(data);
 
-        final JRPCClientHandshakeMessage message = PacketDataSerializer.deserialize(data, JRPCClientHandshakeMessage.class);
+        final JRPCClientHandshakeMessage message = PacketDataSerializer.deserialize(Base64.getDecoder().decode(data), JRPCClientHandshakeMessage.class);
         out.add(message);
     }
 }
@@ -7,10 +7,13 @@ import net.sxlver.jrpc.core.protocol.MessageType;
 import net.sxlver.jrpc.core.protocol.impl.JRPCClientHandshakeMessage;
 import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
 
+import java.util.Base64;
+
 public abstract class LegacyJRPCHandshakeEncoder extends MessageToByteEncoder<JRPCClientHandshakeMessage> {
     @Override
     protected void encode(final ChannelHandlerContext context, final JRPCClientHandshakeMessage message, ByteBuf out) throws Exception {
-        final byte[] data = PacketDataSerializer.serialize(message);
+        // the legacy envelope is Base64 encoded json
+        final byte[] data = Base64.getEncoder().encode(PacketDataSerializer.serialize(message));
         out.writeInt(MessageType.HANDSHAKE.getId())
                 .writeInt(getVersionNumber())
                 .writeInt(data.length)
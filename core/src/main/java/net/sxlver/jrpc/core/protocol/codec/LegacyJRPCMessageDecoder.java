@@ -10,6 +10,7 @@ import net.sxlver.jrpc.core.protocol.ProtocolInformationProvider;
 import net.sxlver.jrpc.core.protocol.ProtocolVersion;
 import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
 
+import java.util.Base64;
 import java.util.List;
 
 
@@ -44,7 +45,7 @@ public class LegacyJRPCMessageDecoder <T extends ProtocolInformationProvider & L
         final byte[] data = new byte[length];
         in.readBytes(data);
 
-        final JRPCMessage message = PacketDataSerializer.deserialize(data, JRPCMessage.class);
+        final JRPCMessage message = PacketDataSerializer.deserialize(Base64.getDecoder().decode(data), JRPCMessage.class);
         out.add(message);
     }
 }
@@ -7,10 +7,14 @@ import net.sxlver.jrpc.core.protocol.MessageType;
 import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
 import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
 
+import java.util.Base64;
+
 public abstract class LegacyJRPCMessageEncoder extends MessageToByteEncoder<JRPCMessage> {
     @Override
     protected void encode(final ChannelHandlerContext context, final JRPCMessage message, ByteBuf out) throws Exception {
-        final byte[] data = PacketDataSerializer.serialize(message);
+        message.data(); // a pending packet has to be serialized before the message itself
+        // the legacy envelope is Base64 encoded json
+        final byte[] data = Base64.getEncoder().encode(PacketDataSerializer.serialize(message));
         out.writeInt(MessageType.MESSAGE.getId())
                 .writeInt(getVersionNumber())
                 .writeInt(data.length)
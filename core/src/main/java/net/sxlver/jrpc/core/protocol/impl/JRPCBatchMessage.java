@@ -0,0 +1,52 @@
+package net.sxlver.jrpc.core.protocol.impl;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.MessageType;
+import net.sxlver.jrpc.core.protocol.ProtocolVersion;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Several messages to the same target sent in a single frame. Every entry keeps its own
+ * conversation uid and payload, the envelope carries the routing information shared by all
+ * entries and the conversation uid of the first one. The server routes a batch as a unit,
+ * the receiving client decodes it into its entries, see {@link net.sxlver.jrpc.core.protocol.codec.EnvelopeCodec}.
+ */
+public class JRPCBatchMessage extends JRPCMessage {
+    private final List<JRPCMessage> entries;
+
+    private JRPCBatchMessage(final @NonNull List<JRPCMessage> entries) {
+        super(entries.get(0).target(), entries.get(0).targetType(), entries.get(0).source(), entries.get(0).conversationId(),
+                null, ProtocolVersion.LATEST.getVersionNumber(), MessageType.BATCH.getId());
+        setRoutingKey(entries.get(0).routingKey());
+        // the envelope carries the conversation uid of the first entry, and so whether it awaits a response
+        setResponseExpected(entries.get(0).isResponseExpected());
+        this.entries = entries;
+    }
+
+    /**
+     * Creates a batch of the given messages.
+     *
+     * @param entries the messages, all of them sharing the same target, target type, source and routing key
+     * @return the batch
+     * @throws IllegalArgumentException if there are no messages or their routing information differs
+     */
+    public static JRPCBatchMessage of(final @NonNull List<JRPCMessage> entries) {
+        if(entries.isEmpty()) {
+            throw new IllegalArgumentException("A batch requires at least one message");
+        }
+        final JRPCMessage first = entries.get(0);
+        for (final JRPCMessage entry : entries) {
+            if(!first.target().equals(entry.target()) || first.targetType() != entry.targetType()
+                    || !first.source().equals(entry.source()) || !Objects.equals(first.routingKey(), entry.routingKey())) {
+                throw new IllegalArgumentException("All messages of a batch must share the same target, source and routing key");
+            }
+        }
+        return new JRPCBatchMessage(List.copyOf(entries));
+    }
+
+    public List<JRPCMessage> getEntries() {
+        return entries;
+    }
+}
@@ -0,0 +1,75 @@
+package net.sxlver.jrpc.core.protocol.impl;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.MessageType;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * One part of a message stream. A stream is identified by its source and conversation uid
+ * and consists of a header chunk, sequence number 0, carrying a serialized packet, followed
+ * by any number of chunks of raw data. The last chunk of a stream carries the {@link #FLAG_LAST}
+ * flag, a stream the sender gave up on is terminated with the {@link #FLAG_ABORTED} flag.
+ *
+ * <p>Every chunk is routed on its own, so chunks of large streams interleave with other
+ * messages on the same connection. The server forwards chunks without reassembling them.
+ */
+public class JRPCChunkMessage extends JRPCMessage {
+
+    /**
+     * Maximum number of data bytes in a single chunk.
+     */
+    public static final int MAX_CHUNK_LENGTH = 64 * 1024;
+
+    /**
+     * Set on the last chunk of a stream.
+     */
+    public static final int FLAG_LAST = 0x1;
+
+    /**
+     * Set on the last chunk of a stream the sender failed to complete.
+     */
+    public static final int FLAG_ABORTED = 0x2;
+
+    private final int sequence;
+    private final int flags;
+
+    public JRPCChunkMessage(final @NonNull String target,
+                            final @NonNull TargetType targetType,
+                            final @NonNull String source,
+                            final @NonNull ConversationUID conversationUID,
+                            final @Nullable String routingKey,
+                            final int sequence,
+                            final int flags,
+                            final byte[] data,
+                            final int protocolVersion) {
+
+        super(target, targetType, source, conversationUID, data, protocolVersion, MessageType.CHUNK.getId());
+        setRoutingKey(routingKey);
+        this.sequence = sequence;
+        this.flags = flags;
+    }
+
+    /**
+     * @return the position of this chunk in its stream, 0 for the header
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public boolean isHeader() {
+        return sequence == 0;
+    }
+
+    public boolean isLast() {
+        return (flags & (FLAG_LAST | FLAG_ABORTED)) != 0;
+    }
+
+    public boolean isAborted() {
+        return (flags & FLAG_ABORTED) != 0;
+    }
+}
@@ -11,7 +11,11 @@ import net.sxlver.jrpc.core.protocol.ProtocolVersion;
 public class JRPCClientHandshakeMessage extends JRPCMessage {
 
     public JRPCClientHandshakeMessage(final @NonNull String source, final byte[] data) {
-       super("", TargetType.SERVER, source, data, ProtocolVersion.V0_1.getVersionNumber(), MessageType.HANDSHAKE.getId());
+       this(source, data, ProtocolVersion.LATEST.getVersionNumber());
+    }
+
+    public JRPCClientHandshakeMessage(final @NonNull String source, final byte[] data, final int protocolVersion) {
+       super("", TargetType.SERVER, source, data, protocolVersion, MessageType.HANDSHAKE.getId());
     }
 
 
@@ -1,14 +1,34 @@
 package net.sxlver.jrpc.core.protocol.impl;
 
+import java.util.List;
+
 public class JRPCHandshake  {
     private String token;
     private String uniqueId;
     private String type;
+    /**
+     * Class names of the packet types registered on the client
+     */
+    private List<String> packetTypes;
+    /**
+     * Whether the client is able to receive compressed frames, see {@link net.sxlver.jrpc.core.protocol.codec.FrameCompressionCodec}
+     */
+    private boolean supportsCompression;
 
     public JRPCHandshake(String token, String uniqueId, String type) {
+        this(token, uniqueId, type, List.of());
+    }
+
+    public JRPCHandshake(String token, String uniqueId, String type, List<String> packetTypes) {
+        this(token, uniqueId, type, packetTypes, false);
+    }
+
+    public JRPCHandshake(String token, String uniqueId, String type, List<String> packetTypes, boolean supportsCompression) {
         this.token = token;
         this.uniqueId = uniqueId;
         this.type = type;
+        this.packetTypes = packetTypes;
+        this.supportsCompression = supportsCompression;
     }
 
     public String getToken() {
@@ -22,4 +42,12 @@ public class JRPCHandshake  {
     public String getType() {
         return type;
     }
+
+    public List<String> getPacketTypes() {
+        return packetTypes == null ? List.of() : packetTypes;
+    }
+
+    public boolean isSupportsCompression() {
+        return supportsCompression;
+    }
 }
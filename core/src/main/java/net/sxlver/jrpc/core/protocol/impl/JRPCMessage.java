@@ -5,7 +5,10 @@ import lombok.NonNull;
 import net.sxlver.jrpc.core.protocol.ConversationUID;
 import net.sxlver.jrpc.core.protocol.Message;
 import net.sxlver.jrpc.core.protocol.MessageType;
+import net.sxlver.jrpc.core.protocol.Packet;
 import net.sxlver.jrpc.core.protocol.ProtocolVersion;
+import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
+import net.sxlver.jrpc.core.serialization.PacketTypeRegistry;
 import net.sxlver.jrpc.core.util.TimedCache;
 import net.sxlver.jrpc.core.util.TimedQueue;
 import org.jetbrains.annotations.Nullable;
@@ -17,6 +20,12 @@ public class JRPCMessage extends HeaderData implements Message, TimedQueue.Notif
     private String source;
     private ConversationUID conversationUID;
     private byte[] data;
+    private String routingKey;
+    private boolean responseExpected;
+
+    // serialized by the encoder straight into the outgoing frame unless the data is requested earlier
+    private transient Packet packet;
+    private transient PacketTypeRegistry packetTypes;
 
     private long queueTimeout;
 
@@ -30,7 +39,7 @@ public class JRPCMessage extends HeaderData implements Message, TimedQueue.Notif
                 final @NonNull ConversationUID conversationUID,
                 final byte[] data) {
 
-        this(target, targetType, source, conversationUID, data, ProtocolVersion.V0_1.getVersionNumber(), MessageType.MESSAGE.getId()); // TODO: fetch right protocol version number
+        this(target, targetType, source, conversationUID, data, ProtocolVersion.LATEST.getVersionNumber(), MessageType.MESSAGE.getId());
     }
 
     JRPCMessage(final @NonNull String target,
@@ -43,13 +52,13 @@ public class JRPCMessage extends HeaderData implements Message, TimedQueue.Notif
         this(target, targetType, source, ConversationUID.newUid(), data, protocolVersion, messageType);
     }
 
-    JRPCMessage(final @NonNull String target,
-                final @NonNull TargetType targetType,
-                final @NonNull String source,
-                final ConversationUID conversationUID,
-                final byte[] data,
-                final int protocolVersion,
-                final int messageType) {
+    public JRPCMessage(final @NonNull String target,
+                       final @NonNull TargetType targetType,
+                       final @NonNull String source,
+                       final ConversationUID conversationUID,
+                       final byte[] data,
+                       final int protocolVersion,
+                       final int messageType) {
 
         super(protocolVersion, messageType);
         this.source = source;
@@ -79,11 +88,60 @@ public class JRPCMessage extends HeaderData implements Message, TimedQueue.Notif
         return conversationUID;
     }
 
+    /**
+     * Returns the payload, serializing the pending packet first if there is one.
+     *
+     * @return the payload
+     */
     @Override
     public byte[] data() {
+        if(data == null && packet != null) {
+            data = PacketDataSerializer.serialize(packet, packetTypes);
+        }
         return data;
     }
 
+    /**
+     * @return the packet that has yet to be serialized into the payload, null if the payload is already known
+     */
+    @Nullable
+    public Packet pendingPacket() {
+        return data == null ? packet : null;
+    }
+
+    /**
+     * @return the ids the pending packet is written with, null if it is written with its class name
+     *         unless it is a built-in packet
+     */
+    @Nullable
+    public PacketTypeRegistry packetTypes() {
+        return packetTypes;
+    }
+
+    void setPacket(final @NonNull Packet packet, final @Nullable PacketTypeRegistry packetTypes) {
+        this.packet = packet;
+        this.packetTypes = packetTypes;
+    }
+
+    @Override
+    @Nullable
+    public String routingKey() {
+        return routingKey;
+    }
+
+    public void setRoutingKey(final @Nullable String routingKey) {
+        this.routingKey = routingKey;
+    }
+
+    @Override
+    public boolean isResponseExpected() {
+        return responseExpected;
+    }
+
+    public void setResponseExpected(final boolean responseExpected) {
+        this.responseExpected = responseExpected;
+    }
+
     @Override
     public void notifyExpired() {}
 
@@ -5,6 +5,9 @@ import net.sxlver.jrpc.core.protocol.ConversationUID;
 import net.sxlver.jrpc.core.protocol.DataSource;
 import net.sxlver.jrpc.core.protocol.Message;
 import net.sxlver.jrpc.core.protocol.MessageBuilder;
+import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.serialization.PacketTypeRegistry;
+import org.jetbrains.annotations.Nullable;
 
 public class JRPCMessageBuilder implements MessageBuilder<JRPCMessage> {
 
@@ -13,6 +16,10 @@ public class JRPCMessageBuilder implements MessageBuilder<JRPCMessage> {
     private DataSource dataSource;
     private ConversationUID conversationUID;
     private byte[] data;
+    private Packet packet;
+    private PacketTypeRegistry packetTypes;
+    private String routingKey;
+    private boolean responseExpected;
 
     private JRPCMessageBuilder() {}
 
@@ -55,15 +62,42 @@ public class JRPCMessageBuilder implements MessageBuilder<JRPCMessage> {
     @Override
     public MessageBuilder<JRPCMessage> data(final byte[] data) {
         this.data = data;
+        this.packet = null;
+        return this;
+    }
+
+    @Override
+    public MessageBuilder<JRPCMessage> packet(final @NonNull Packet packet, final @Nullable PacketTypeRegistry packetTypes) {
+        this.packet = packet;
+        this.packetTypes = packetTypes;
+        this.data = null;
+        return this;
+    }
+
+    @Override
+    public MessageBuilder<JRPCMessage> routingKey(final @Nullable String routingKey) {
+        this.routingKey = routingKey;
+        return this;
+    }
+
+    @Override
+    public MessageBuilder<JRPCMessage> responseExpected(final boolean responseExpected) {
+        this.responseExpected = responseExpected;
         return this;
     }
 
     public JRPCMessage build() {
         if(!canBuild()) throw new IllegalStateException("Builder incomplete");
-        return new JRPCMessage(target, targetType, dataSource.getSource(), conversationUID, data);
+        final JRPCMessage message = new JRPCMessage(target, targetType, dataSource.getSource(), conversationUID, data);
+        message.setRoutingKey(routingKey);
+        message.setResponseExpected(responseExpected);
+        if(packet != null) {
+            message.setPacket(packet, packetTypes);
+        }
+        return message;
     }
 
     private boolean canBuild() {
-        return data != null && target != null && targetType != null && dataSource != null;
+        return (data != null || packet != null) && target != null && targetType != null && dataSource != null;
     }
 }
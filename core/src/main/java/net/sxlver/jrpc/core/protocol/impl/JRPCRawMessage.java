@@ -0,0 +1,111 @@
+package net.sxlver.jrpc.core.protocol.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.DefaultByteBufHolder;
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.Message;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A message of which only the routing fields have been decoded. The complete frame,
+ * length prefix included, is kept as {@link #content()} so that it can be written to
+ * other channels without encoding the envelope again.
+ *
+ * <p>Instances are reference counted through their content and have to be released
+ * once they are no longer needed.
+ */
+public class JRPCRawMessage extends DefaultByteBufHolder implements Message {
+    private final int protocolVersion;
+    private final String target;
+    private final TargetType targetType;
+    private final String source;
+    private final ConversationUID conversationUID;
+    private final String routingKey;
+    private final boolean responseExpected;
+
+    private final int payloadIndex;
+    private final int payloadLength;
+
+    public JRPCRawMessage(final @NonNull ByteBuf frame,
+                          final int protocolVersion,
+                          final @NonNull String target,
+                          final @NonNull TargetType targetType,
+                          final @NonNull String source,
+                          final @NonNull ConversationUID conversationUID,
+                          final @Nullable String routingKey,
+                          final boolean responseExpected,
+                          final int payloadIndex,
+                          final int payloadLength) {
+
+        super(frame);
+        this.protocolVersion = protocolVersion;
+        this.target = target;
+        this.targetType = targetType;
+        this.source = source;
+        this.conversationUID = conversationUID;
+        this.routingKey = routingKey;
+        this.responseExpected = responseExpected;
+        this.payloadIndex = payloadIndex;
+        this.payloadLength = payloadLength;
+    }
+
+    @Override
+    public String source() {
+        return source;
+    }
+
+    @Override
+    public String target() {
+        return target;
+    }
+
+    @Override
+    public TargetType targetType() {
+        return targetType;
+    }
+
+    @Override
+    public ConversationUID conversationId() {
+        return conversationUID;
+    }
+
+    @Override
+    @Nullable
+    public String routingKey() {
+        return routingKey;
+    }
+
+    @Override
+    public boolean isResponseExpected() {
+        return responseExpected;
+    }
+
+    /**
+     * Copies the payload out of the frame. Prefer {@link #dataLength()} if only the
+     * size of the payload is of interest.
+     *
+     * @return a copy of the payload
+     */
+    @Override
+    public byte[] data() {
+        return ByteBufUtil.getBytes(content(), payloadIndex, payloadLength);
+    }
+
+    @Override
+    public int dataLength() {
+        return payloadLength;
+    }
+
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    /**
+     * @return the index of the payload in {@link #content()}
+     */
+    public int getPayloadIndex() {
+        return payloadIndex;
+    }
+}
@@ -0,0 +1,20 @@
+package net.sxlver.jrpc.core.protocol.packet;
+
+import lombok.Getter;
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.Packet;
+
+/**
+ * Header of a message stream carrying the content of a file. The file name is the one
+ * chosen by the sender and must not be trusted as a path on the receiving side.
+ */
+@Getter
+public class FileTransferHeader extends Packet {
+    private String fileName;
+    private long size;
+
+    public FileTransferHeader(final @NonNull String fileName, final long size) {
+        this.fileName = fileName;
+        this.size = size;
+    }
+}
@@ -1,18 +1,56 @@
 package net.sxlver.jrpc.core.protocol.packet;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NonNull;
 import net.sxlver.jrpc.core.protocol.Packet;
 
+import java.util.Map;
+
 @Getter
-@AllArgsConstructor
 public class HandshakeStatusPacket extends Packet {
     private boolean success;
     private @NonNull String errorMessage;
+    /**
+     * All packet type ids assigned by the server, see {@link net.sxlver.jrpc.core.serialization.PacketTypeRegistry}
+     */
+    private Map<String, Integer> packetTypeIds;
+    /**
+     * Whether the server confirms the support for compressed frames announced in the handshake,
+     * either side then compresses frames above its own threshold
+     */
+    private boolean compression;
+    /**
+     * The conversation epoch assigned to the client, see {@link net.sxlver.jrpc.core.protocol.ConversationUIDSequence},
+     * 0 if none has been assigned
+     */
+    private int conversationEpoch;
 
     public HandshakeStatusPacket(final boolean success) {
+        this(success, "");
+    }
+
+    public HandshakeStatusPacket(final boolean success, final @NonNull String errorMessage) {
+        this(success, errorMessage, Map.of());
+    }
+
+    public HandshakeStatusPacket(final boolean success, final @NonNull String errorMessage, final @NonNull Map<String, Integer> packetTypeIds) {
+        this(success, errorMessage, packetTypeIds, false);
+    }
+
+    public HandshakeStatusPacket(final boolean success, final @NonNull String errorMessage, final @NonNull Map<String, Integer> packetTypeIds, final boolean compression) {
+        this(success, errorMessage, packetTypeIds, compression, 0);
+    }
+
+    public HandshakeStatusPacket(final boolean success,
+                                 final @NonNull String errorMessage,
+                                 final @NonNull Map<String, Integer> packetTypeIds,
+                                 final boolean compression,
+                                 final int conversationEpoch) {
+
         this.success = success;
-        this.errorMessage = "";
+        this.errorMessage = errorMessage;
+        this.packetTypeIds = packetTypeIds;
+        this.compression = compression;
+        this.conversationEpoch = conversationEpoch;
     }
 }
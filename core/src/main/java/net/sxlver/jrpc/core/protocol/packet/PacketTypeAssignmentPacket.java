@@ -0,0 +1,20 @@
+package net.sxlver.jrpc.core.protocol.packet;
+
+import lombok.Getter;
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.Packet;
+
+import java.util.Map;
+
+/**
+ * Sent by the server to every connected client once new packet type ids have been assigned,
+ * see {@link net.sxlver.jrpc.core.serialization.PacketTypeRegistry}.
+ */
+@Getter
+public class PacketTypeAssignmentPacket extends Packet {
+    private Map<String, Integer> packetTypeIds;
+
+    public PacketTypeAssignmentPacket(final @NonNull Map<String, Integer> packetTypeIds) {
+        this.packetTypeIds = packetTypeIds;
+    }
+}
@@ -0,0 +1,112 @@
+package net.sxlver.jrpc.core.serialization;
+
+import io.netty.buffer.ByteBuf;
+import net.sxlver.jrpc.core.serialization.exception.DeserializationException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary segments collected while a packet is written as json, or read back from its payload.
+ *
+ * <p>The segments of the packet currently being (de)serialized are bound to the calling thread,
+ * {@link BinaryAttachmentTypeAdapterFactory} writes the index of a segment in place of its content.
+ * On the wire the segments follow the json:
+ * <pre>
+ * short  segment count
+ * int    segment length, followed by the raw segment (repeated)
+ * </pre>
+ */
+final class AttachmentSegments implements AutoCloseable {
+    private static final ThreadLocal<AttachmentSegments> CURRENT = new ThreadLocal<>();
+    private static final int MAX_SEGMENTS = 0xFFFF;
+
+    private final List<ByteBuffer> segments;
+    private final AttachmentSegments previous;
+
+    private AttachmentSegments(final List<ByteBuffer> segments) {
+        this.segments = segments;
+        this.previous = CURRENT.get();
+        CURRENT.set(this);
+    }
+
+    /**
+     * Binds an empty set of segments to the calling thread until it is closed.
+     */
+    static AttachmentSegments forWriting() {
+        return new AttachmentSegments(new ArrayList<>(0));
+    }
+
+    /**
+     * Reads the segments at the reader index of the given buffer and binds them to the calling
+     * thread until they are closed. The segments are views of the buffer, not copies.
+     *
+     * @param in the payload, its reader index pointing after the json
+     * @throws DeserializationException if the segments are truncated
+     */
+    static AttachmentSegments forReading(final ByteBuf in) {
+        if(!in.isReadable()) {
+            return new AttachmentSegments(List.of());
+        }
+        ensureReadable(in, 2);
+        final int count = in.readUnsignedShort();
+        final List<ByteBuffer> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ensureReadable(in, 4);
+            final int length = in.readInt();
+            ensureReadable(in, length);
+            segments.add(in.nioBuffer(in.readerIndex(), length));
+            in.skipBytes(length);
+        }
+        return new AttachmentSegments(segments);
+    }
+
+    static AttachmentSegments current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Adds a segment, its content is not copied until it is {@link #writeTo(ByteBuf) written}.
+     *
+     * @param segment the segment, from its position to its limit
+     * @return the index of the segment
+     */
+    int add(final ByteBuffer segment) {
+        if(segments.size() == MAX_SEGMENTS) {
+            throw new IllegalStateException("A packet cannot carry more than " + MAX_SEGMENTS + " binary segments");
+        }
+        segments.add(segment.duplicate());
+        return segments.size() - 1;
+    }
+
+    ByteBuffer get(final int index) {
+        if(index < 0 || index >= segments.size()) {
+            throw new DeserializationException(String.format("Unknown binary segment %d, the payload carries %d.", index, segments.size()));
+        }
+        return segments.get(index).duplicate();
+    }
+
+    void writeTo(final ByteBuf out) {
+        if(segments.isEmpty()) return;
+        out.writeShort(segments.size());
+        for (final ByteBuffer segment : segments) {
+            out.writeInt(segment.remaining()).writeBytes(segment);
+        }
+    }
+
+    @Override
+    public void close() {
+        if(previous == null) {
+            CURRENT.remove();
+        }else {
+            CURRENT.set(previous);
+        }
+    }
+
+    private static void ensureReadable(final ByteBuf in, final int length) {
+        if(length < 0 || in.readableBytes() < length) {
+            throw new DeserializationException("Truncated binary segment.");
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package net.sxlver.jrpc.core.serialization;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import net.sxlver.jrpc.core.protocol.BinaryAttachment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Moves {@code byte[]}, {@link ByteBuffer} and {@link BinaryAttachment} values out of the json
+ * into the {@link AttachmentSegments binary segments} of the payload, only the index of the
+ * segment is written to the json.
+ *
+ * <p>Outside of a packet, byte arrays keep their default representation and buffers and
+ * attachments are written as Base64 strings.
+ */
+class BinaryAttachmentTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(final Gson gson, final TypeToken<T> type) {
+        final Class<? super T> raw = type.getRawType();
+        if(raw == byte[].class) {
+            return (TypeAdapter<T>) new SegmentAdapter<>(gson.getDelegateAdapter(this, (TypeToken<byte[]>) type)) {
+                @Override
+                ByteBuffer toSegment(final byte[] value) {
+                    return ByteBuffer.wrap(value);
+                }
+
+                @Override
+                byte[] fromSegment(final ByteBuffer segment) {
+                    final byte[] data = new byte[segment.remaining()];
+                    segment.get(data);
+                    return data;
+                }
+            };
+        }
+        if(ByteBuffer.class.isAssignableFrom(raw)) {
+            return (TypeAdapter<T>) new SegmentAdapter<ByteBuffer>(null) {
+                @Override
+                ByteBuffer toSegment(final ByteBuffer value) {
+                    return value;
+                }
+
+                @Override
+                ByteBuffer fromSegment(final ByteBuffer segment) {
+                    return segment;
+                }
+            };
+        }
+        if(raw == BinaryAttachment.class) {
+            return (TypeAdapter<T>) new SegmentAdapter<BinaryAttachment>(null) {
+                @Override
+                ByteBuffer toSegment(final BinaryAttachment value) {
+                    return value.asByteBuffer();
+                }
+
+                @Override
+                BinaryAttachment fromSegment(final ByteBuffer segment) {
+                    return BinaryAttachment.wrap(segment);
+                }
+            };
+        }
+        return null;
+    }
+
+    private abstract static class SegmentAdapter<T> extends TypeAdapter<T> {
+        // used outside of packets, Base64 strings if there is none
+        private final TypeAdapter<T> fallback;
+
+        SegmentAdapter(final TypeAdapter<T> fallback) {
+            this.fallback = fallback;
+        }
+
+        abstract ByteBuffer toSegment(final T value);
+
+        abstract T fromSegment(final ByteBuffer segment);
+
+        @Override
+        public void write(final JsonWriter out, final T value) throws IOException {
+            if(value == null) {
+                out.nullValue();
+                return;
+            }
+            final AttachmentSegments segments = AttachmentSegments.current();
+            if(segments != null) {
+                out.value(segments.add(toSegment(value)));
+            }else if(fallback != null) {
+                fallback.write(out, value);
+            }else {
+                final ByteBuffer segment = toSegment(value).duplicate();
+                final byte[] data = new byte[segment.remaining()];
+                segment.get(data);
+                out.value(Base64.getEncoder().encodeToString(data));
+            }
+        }
+
+        @Override
+        public T read(final JsonReader in) throws IOException {
+            final JsonToken token = in.peek();
+            if(token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            final AttachmentSegments segments = AttachmentSegments.current();
+            if(token == JsonToken.NUMBER && segments != null) {
+                return fromSegment(segments.get(in.nextInt()));
+            }
+            if(token == JsonToken.STRING) {
+                return fromSegment(ByteBuffer.wrap(Base64.getDecoder().decode(in.nextString())));
+            }
+            if(fallback != null) {
+                return fallback.read(in);
+            }
+            throw new IOException("Expected the index of a binary segment or a Base64 string but was " + token);
+        }
+    }
+}
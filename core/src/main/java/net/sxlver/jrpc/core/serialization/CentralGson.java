@@ -2,19 +2,45 @@ package net.sxlver.jrpc.core.serialization;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
 import com.google.gson.TypeAdapterFactory;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.Packet;
 
 import javax.annotation.concurrent.ThreadSafe;
-import java.lang.reflect.Modifier;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Holds the {@link Gson} instance used to serialize packets.
+ *
+ * <p>The configuration is published as an immutable snapshot through a volatile field, reading
+ * it never blocks. Registering a type adapter or calling {@link #rebuild()} builds a new {@link Gson}
+ * from the {@link #getGsonBuilder() builder} and replaces the snapshot, callers still holding the
+ * previous snapshot finish with the old configuration. Each snapshot caches the {@link TypeAdapter} of every class it
+ * has (de)serialized so far, {@link #registerPacketType(Class[]) registered packet types} are
+ * resolved up front whenever a snapshot is built.
+ */
 @ThreadSafe
 public enum CentralGson {
     PROTOCOL_INSTANCE;
 
+    private volatile Snapshot snapshot;
+
+    // guarded by writeLock
     private final GsonBuilder gsonBuilder;
-    private Gson gson;
 
-    private static final Object lock = new Object();
+    // only guards writers, readers go through the volatile snapshot
+    private final Object writeLock = new Object();
 
     CentralGson() {
         this.gsonBuilder = new GsonBuilder()
@@ -22,32 +48,127 @@ public enum CentralGson {
                 .enableComplexMapKeySerialization()
                 .disableInnerClassSerialization()
                 .disableHtmlEscaping()
-                .setPrettyPrinting()
-                .setObjectToNumberStrategy(CustomToNumberPolicy.INT_LONG_DOUBLE);
-
-        this.gson = gsonBuilder.create();
+                .setObjectToNumberStrategy(CustomToNumberPolicy.INT_LONG_DOUBLE)
+                .registerTypeAdapterFactory(new BinaryAttachmentTypeAdapterFactory());
+        this.snapshot = Snapshot.create(gsonBuilder, Set.of());
     }
 
+    /**
+     * Returns the builder the {@link Gson} instance is created from. Changes made to it take
+     * effect once {@link #rebuild()} is called, the builder itself is not thread safe.
+     *
+     * @return the builder
+     */
     public GsonBuilder getGsonBuilder() {
-        synchronized (lock) {
+        synchronized (writeLock) {
             return gsonBuilder;
         }
     }
 
     public Gson getGson() {
-        synchronized (lock) {
-            return gson;
+        return snapshot.gson;
+    }
+
+    /**
+     * Returns the cached adapter for the given class.
+     *
+     * @param cls the class
+     * @param <T> the type
+     * @return the adapter
+     */
+    public <T> TypeAdapter<T> getAdapter(final @NonNull Class<T> cls) {
+        return snapshot.getAdapter(cls);
+    }
+
+    /**
+     * Serializes the given object with the adapter of its runtime class.
+     *
+     * @param value the object
+     * @return the json
+     */
+    public String toJson(final @NonNull Object value) throws IOException {
+        final StringWriter out = new StringWriter();
+        toJson(value, out);
+        return out.toString();
+    }
+
+    /**
+     * Serializes the given object with the adapter of its runtime class to the given writer.
+     *
+     * @param value the object
+     * @param out   the writer, closed once the json has been written
+     */
+    @SuppressWarnings("unchecked")
+    public void toJson(final @NonNull Object value, final @NonNull Writer out) throws IOException {
+        final Snapshot snapshot = this.snapshot;
+        final TypeAdapter<Object> adapter = (TypeAdapter<Object>) snapshot.getAdapter(value.getClass());
+        try (final JsonWriter writer = snapshot.gson.newJsonWriter(out)) {
+            adapter.write(writer, value);
         }
     }
 
-    public void registerTypeAdapter(final TypeAdapterFactory factory) {
-        synchronized (lock) {
+    public <T> T fromJson(final @NonNull String json, final @NonNull Class<T> cls) throws IOException {
+        return fromJson(new StringReader(json), cls);
+    }
+
+    public <T> T fromJson(final @NonNull Reader in, final @NonNull Class<T> cls) throws IOException {
+        final Snapshot snapshot = this.snapshot;
+        try (final JsonReader reader = snapshot.gson.newJsonReader(in)) {
+            reader.setLenient(true);
+            return snapshot.getAdapter(cls).read(reader);
+        }
+    }
+
+    public void registerTypeAdapter(final @NonNull TypeAdapterFactory factory) {
+        synchronized (writeLock) {
             gsonBuilder.registerTypeAdapterFactory(factory);
-            rebuild();
+            this.snapshot = Snapshot.create(gsonBuilder, snapshot.packetTypes);
+        }
+    }
+
+    /**
+     * Resolves the adapters of the given packet types in advance so that the first packet
+     * of each type does not have to build its adapter.
+     *
+     * @param packetTypes the packet types
+     */
+    @SafeVarargs
+    public final void registerPacketType(final @NonNull Class<? extends Packet>... packetTypes) {
+        synchronized (writeLock) {
+            final Snapshot current = this.snapshot;
+            final Set<Class<? extends Packet>> registered = new LinkedHashSet<>(current.packetTypes);
+            for (final Class<? extends Packet> packetType : packetTypes) {
+                registered.add(packetType);
+                current.getAdapter(packetType);
+            }
+            this.snapshot = new Snapshot(current.gson, Set.copyOf(registered), current.adapters);
         }
     }
 
+    /**
+     * Builds a new {@link Gson} instance from the {@link #getGsonBuilder() builder} and publishes it.
+     */
     public void rebuild() {
-        this.gson = gsonBuilder.create();
+        synchronized (writeLock) {
+            this.snapshot = Snapshot.create(gsonBuilder, snapshot.packetTypes);
+        }
+    }
+
+    private record Snapshot(Gson gson,
+                            Set<Class<? extends Packet>> packetTypes,
+                            Map<Class<?>, TypeAdapter<?>> adapters) {
+
+        static Snapshot create(final GsonBuilder builder, final Set<Class<? extends Packet>> packetTypes) {
+            final Snapshot snapshot = new Snapshot(builder.create(), Set.copyOf(packetTypes), new ConcurrentHashMap<>());
+            packetTypes.forEach(snapshot::getAdapter);
+            return snapshot;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> TypeAdapter<T> getAdapter(final Class<T> cls) {
+            final TypeAdapter<?> adapter = adapters.get(cls);
+            if(adapter != null) return (TypeAdapter<T>) adapter;
+            return (TypeAdapter<T>) adapters.computeIfAbsent(cls, gson::getAdapter);
+        }
     }
 }
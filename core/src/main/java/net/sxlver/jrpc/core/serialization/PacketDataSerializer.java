@@ -1,86 +1,265 @@
 package net.sxlver.jrpc.core.serialization;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.BinaryAttachment;
 import net.sxlver.jrpc.core.protocol.Packet;
-import net.sxlver.jrpc.core.protocol.impl.HeaderData;
-import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
+import net.sxlver.jrpc.core.serialization.codec.PacketCodec;
+import net.sxlver.jrpc.core.serialization.codec.PacketCodecRegistry;
 import net.sxlver.jrpc.core.serialization.exception.DeserializationException;
+import org.jetbrains.annotations.Nullable;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Base64;
 
+/**
+ * Serializes objects to the payload of a message.
+ *
+ * <p>Packets are prefixed with the unsigned short id of their type, see {@link PacketTypeRegistry}.
+ * If the type has not been assigned an id, {@link PacketTypeRegistry#UNASSIGNED} is written,
+ * followed by the unsigned short length of the UTF-8 encoded class name and the name itself.
+ * A single byte states the format of the rest of the payload: {@link #FORMAT_BINARY} if the
+ * packet was written by the {@link PacketCodec} generated for its type, {@link #FORMAT_JSON}
+ * if it is the int length prefixed, UTF-8 encoded json of the packet. Binary fields of json
+ * packets ({@code byte[]}, {@link java.nio.ByteBuffer} and {@link BinaryAttachment}) are not
+ * part of the json, they follow it as raw segments, see {@link AttachmentSegments}.
+ *
+ * <p>Packets are written straight into the buffer of the outgoing frame and read straight from
+ * the payload, the json is never materialized as a {@link String}.
+ */
 public class PacketDataSerializer {
+    private static final int MAX_CLASS_NAME_LENGTH = 0xFFFF;
+
+    public static final int FORMAT_JSON = 0;
+    public static final int FORMAT_BINARY = 1;
+
     public static byte[] serialize(final Object toSerialize) {
+        final ByteBuf out = ByteBufAllocator.DEFAULT.heapBuffer(PayloadSizePredictor.INSTANCE.predict(toSerialize.getClass()));
         try {
-            final Gson gson = CentralGson.PROTOCOL_INSTANCE.getGson();
-            final String json = gson.toJson(toSerialize);
-            return Base64.getEncoder().encode(json.getBytes(StandardCharsets.UTF_8));
+            CentralGson.PROTOCOL_INSTANCE.toJson(toSerialize, new Utf8ByteBufWriter(out));
+            PayloadSizePredictor.INSTANCE.record(toSerialize.getClass(), out.readableBytes());
+            return ByteBufUtil.getBytes(out);
         } catch(final Exception exception) {
             exception.printStackTrace();
+        } finally {
+            out.release();
         }
         return new byte[0];
     }
 
-    public static <T> T deserialize(final JsonObject jsonObject, final Class<T> cls) {
+    /**
+     * Serializes a packet, prefixed with the fixed id of its type if it is a built-in packet
+     * or with its class name otherwise.
+     *
+     * @param packet the packet
+     * @return the payload
+     */
+    public static byte[] serialize(final Packet packet) {
+        return serialize(packet, (PacketTypeRegistry) null);
+    }
+
+    /**
+     * Serializes a packet.
+     *
+     * @param packet      the packet
+     * @param packetTypes the ids assigned by the server the payload is sent to, null if the class
+     *                    name should be written for all but built-in packets, which is required
+     *                    for payloads that might outlive the current connection as ids are
+     *                    reassigned by the server after it restarted
+     * @return the payload
+     */
+    public static byte[] serialize(final Packet packet, final @Nullable PacketTypeRegistry packetTypes) {
+        final ByteBuf out = ByteBufAllocator.DEFAULT.heapBuffer(PayloadSizePredictor.INSTANCE.predict(packet.getClass()));
         try {
-            final Gson gson = CentralGson.PROTOCOL_INSTANCE.getGson();
-            final String json = jsonObject.toString();
-            return gson.fromJson(json, cls);
-        }catch(final Exception exception) {
+            serialize(packet, packetTypes, out);
+            return ByteBufUtil.getBytes(out);
+        } finally {
+            out.release();
+        }
+    }
+
+    /**
+     * Serializes a packet into the given buffer, starting at its writer index. Nothing is
+     * written if the packet could not be serialized.
+     *
+     * @param packet      the packet
+     * @param packetTypes the ids assigned by the server the payload is sent to,
+     *                    see {@link #serialize(Packet, PacketTypeRegistry)}
+     * @param out         the buffer
+     * @return the number of bytes written
+     */
+    @SuppressWarnings("unchecked")
+    public static int serialize(final @NonNull Packet packet, final @Nullable PacketTypeRegistry packetTypes, final @NonNull ByteBuf out) {
+        final int startIndex = out.writerIndex();
+        try {
+            final int typeId = packetTypes == null ? PacketTypeRegistry.getBuiltInId(packet.getClass()) : packetTypes.getId(packet.getClass());
+            out.writeShort(typeId);
+            if(typeId == PacketTypeRegistry.UNASSIGNED) {
+                final byte[] name = packet.getClass().getName().getBytes(StandardCharsets.UTF_8);
+                if(name.length > MAX_CLASS_NAME_LENGTH) {
+                    throw new IllegalArgumentException("Class name of " + packet.getClass() + " is too long");
+                }
+                out.writeShort(name.length).writeBytes(name);
+            }
+
+            final PacketCodec<Packet> codec = PacketCodecRegistry.INSTANCE.get((Class<Packet>) packet.getClass());
+            if(codec != null) {
+                out.writeByte(FORMAT_BINARY);
+                codec.write(out, packet);
+            }else {
+                out.writeByte(FORMAT_JSON);
+                final int lengthIndex = out.writerIndex();
+                out.writeInt(0); // json length, set once the json has been written
+                try (final AttachmentSegments segments = AttachmentSegments.forWriting()) {
+                    CentralGson.PROTOCOL_INSTANCE.toJson(packet, new Utf8ByteBufWriter(out));
+                    out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+                    segments.writeTo(out);
+                }
+            }
+
+            final int written = out.writerIndex() - startIndex;
+            PayloadSizePredictor.INSTANCE.record(packet.getClass(), written);
+            return written;
+        } catch(final Exception exception) {
             exception.printStackTrace();
         }
-        return null;
+        out.writerIndex(startIndex);
+        return 0;
     }
 
-    public static <T> T deserialize(final byte[] data, final Class<T> cls) {
+    public static <T> T deserialize(final JsonObject jsonObject, final Class<T> cls) {
         try {
-            final Gson gson = CentralGson.PROTOCOL_INSTANCE.getGson();
-            final String json = new String(Base64.getDecoder().decode(data), StandardCharsets.UTF_8);
-            return gson.fromJson(json, cls);
+            final String json = jsonObject.toString();
+            return CentralGson.PROTOCOL_INSTANCE.fromJson(json, cls);
         }catch(final Exception exception) {
             exception.printStackTrace();
         }
         return null;
     }
 
-    public static <T> T deserializePacket(final byte[] data) {
+    public static <T> T deserialize(final byte[] data, final Class<T> cls) {
         try {
-            final Gson gson = CentralGson.PROTOCOL_INSTANCE.getGson();
-            final JsonObject json = deserializeJson(data);
-            final Class<? extends Packet> packetCls = extractClass(json);
-            return (T) gson.fromJson(json.toString(), packetCls);
+            return CentralGson.PROTOCOL_INSTANCE.fromJson(new Utf8ByteBufReader(Unpooled.wrappedBuffer(data)), cls);
         }catch(final Exception exception) {
             exception.printStackTrace();
         }
         return null;
     }
 
-    public static String extractClassPath(final byte[] data) {
-        return deserializeJson(data).get("packetCls").getAsString();
+    /**
+     * Deserializes a packet written by {@link #serialize(Packet)}. The type is looked up by
+     * its id, the packet is then read by the codec of its type or parsed from json.
+     *
+     * @param data the payload
+     * @param <T>  the packet type
+     * @return the packet or null if it could not be deserialized
+     */
+    public static <T> T deserializePacket(final byte[] data) {
+        return deserializePacket(data, null);
     }
 
-    public static String extractClassPath(final JsonObject json) {
-        return json.get("packetCls").getAsString();
+    /**
+     * Deserializes a packet written by {@link #serialize(Packet, PacketTypeRegistry)}.
+     *
+     * @param data        the payload
+     * @param packetTypes the ids assigned by the server the payload was received from, null
+     *                    if only built-in ids are known
+     * @param <T>         the packet type
+     * @return the packet or null if it could not be deserialized
+     */
+    public static <T> T deserializePacket(final byte[] data, final @Nullable PacketTypeRegistry packetTypes) {
+        return deserializePacket(Unpooled.wrappedBuffer(data), packetTypes);
     }
 
+    /**
+     * Deserializes a packet from the readable bytes of the given buffer, see {@link #deserializePacket(byte[], PacketTypeRegistry)}.
+     * {@link java.nio.ByteBuffer} and {@link BinaryAttachment} fields of the packet are views of
+     * the buffer, it must therefore not be released or reused as long as they are accessed.
+     *
+     * @param in          the payload
+     * @param packetTypes the ids assigned by the server the payload was received from, null
+     *                    if only built-in ids are known
+     * @param <T>         the packet type
+     * @return the packet or null if it could not be deserialized
+     */
     @SuppressWarnings("unchecked")
-    public static Class<? extends Packet> extractClass(final JsonObject json) {
-        final String packetCls = json.get("packetCls").getAsString();
+    public static <T> T deserializePacket(final @NonNull ByteBuf in, final @Nullable PacketTypeRegistry packetTypes) {
         try {
-            return (Class<? extends Packet>) Class.forName(json.get("packetCls").getAsString());
-        } catch (final ClassNotFoundException exception) {
-            throw new DeserializationException(String.format("Cannot deserialize packet because the class at path '%s' could not be found.", packetCls));
+            final Class<? extends Packet> packetCls = readType(in, packetTypes);
+            if(!in.isReadable()) {
+                throw new DeserializationException("Packet payload is too short.");
+            }
+            final int format = in.readByte();
+            if(format == FORMAT_BINARY) {
+                final PacketCodec<? extends Packet> codec = PacketCodecRegistry.INSTANCE.get(packetCls);
+                if(codec == null) {
+                    throw new DeserializationException(String.format("Cannot deserialize packet because no codec has been generated for %s.", packetCls.getName()));
+                }
+                return (T) codec.read(in);
+            }
+            if(format != FORMAT_JSON) {
+                throw new DeserializationException(String.format("Unknown payload format %d.", format));
+            }
+            if(in.readableBytes() < 4) {
+                throw new DeserializationException("Packet payload is too short.");
+            }
+            final int length = in.readInt();
+            if(length < 0 || length > in.readableBytes()) {
+                throw new DeserializationException(String.format("Json length %d exceeds the %d remaining byte(s).", length, in.readableBytes()));
+            }
+            final ByteBuf json = in.readSlice(length);
+            // binary fields are resolved from the segments while the json is parsed
+            final AttachmentSegments segments = AttachmentSegments.forReading(in);
+            try {
+                return (T) CentralGson.PROTOCOL_INSTANCE.fromJson(new Utf8ByteBufReader(json), packetCls);
+            } finally {
+                segments.close();
+            }
+        }catch(final Exception exception) {
+            exception.printStackTrace();
         }
+        return null;
     }
 
+    /**
+     * Reads the type of a packet written by {@link #serialize(Packet)} without deserializing it.
+     *
+     * @param data the payload
+     * @return the packet type
+     * @throws DeserializationException if the type is unknown
+     */
     public static Class<? extends Packet> extractClass(final byte[] data) {
-        return extractClass(deserializeJson(data));
+        return readType(Unpooled.wrappedBuffer(data), null);
     }
 
     public static JsonObject deserializeJson(final byte[] data) {
-        final String json = new String(Base64.getDecoder().decode(data), StandardCharsets.UTF_8);
-        return JsonParser.parseString(json).getAsJsonObject();
+        return JsonParser.parseReader(new Utf8ByteBufReader(Unpooled.wrappedBuffer(data))).getAsJsonObject();
+    }
+
+    private static Class<? extends Packet> readType(final ByteBuf in, final @Nullable PacketTypeRegistry packetTypes) {
+        if(in.readableBytes() < 2) {
+            throw new DeserializationException("Packet payload is too short.");
+        }
+        final int typeId = in.readUnsignedShort();
+        if(typeId != PacketTypeRegistry.UNASSIGNED) {
+            final Class<? extends Packet> type = packetTypes == null ? PacketTypeRegistry.getBuiltInType(typeId) : packetTypes.getType(typeId);
+            if(type == null) {
+                throw new DeserializationException(String.format("Cannot deserialize packet because no type is known for id %d.", typeId));
+            }
+            return type;
+        }
+
+        if(in.readableBytes() < 2) {
+            throw new DeserializationException("Packet payload is too short.");
+        }
+        final int length = in.readUnsignedShort();
+        if(length > in.readableBytes()) {
+            throw new DeserializationException(String.format("Class name length %d exceeds the %d remaining byte(s).", length, in.readableBytes()));
+        }
+        return PacketTypeRegistry.resolve(in.readCharSequence(length, StandardCharsets.UTF_8).toString());
     }
 }
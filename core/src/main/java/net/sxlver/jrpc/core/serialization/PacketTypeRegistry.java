@@ -0,0 +1,251 @@
+package net.sxlver.jrpc.core.serialization;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.protocol.packet.ClusterInformationConversation;
+import net.sxlver.jrpc.core.protocol.packet.ErrorInformationResponse;
+import net.sxlver.jrpc.core.protocol.packet.FileTransferHeader;
+import net.sxlver.jrpc.core.protocol.packet.HandshakeStatusPacket;
+import net.sxlver.jrpc.core.protocol.packet.PacketTypeAssignmentPacket;
+import net.sxlver.jrpc.core.serialization.exception.DeserializationException;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps packet classes to the numeric ids written in front of every serialized packet.
+ *
+ * <p>The packets shipped with jRPC have fixed ids. Ids of any other packet type are assigned
+ * by the server: clients list the packet types they {@link #register(Class) registered}
+ * in their handshake, the server assigns an id to every type it has not seen before and
+ * sends the complete table back. Types assigned later on are announced to every connected
+ * client through a {@link PacketTypeAssignmentPacket}. Packets of a type without an id are
+ * written with their class name instead.
+ *
+ * <p>Assigned ids are only valid for the connection to the server that assigned them, every
+ * client and server therefore owns its own registry. Built-in ids and the lookup of classes
+ * by name are shared by all of them.
+ */
+@ThreadSafe
+public class PacketTypeRegistry {
+
+    /**
+     * Id written for packets whose type has not been assigned an id, the class name follows.
+     */
+    public static final int UNASSIGNED = 0;
+
+    /**
+     * Lowest id assigned by the server, anything below is reserved for built-in packets.
+     */
+    public static final int FIRST_ASSIGNED_ID = 256;
+
+    public static final int MAX_ID = 0xFFFF;
+
+    // indexed by id - 1
+    private static final List<Class<? extends Packet>> BUILT_IN_TYPES = List.of(
+            HandshakeStatusPacket.class,
+            ErrorInformationResponse.class,
+            ClusterInformationConversation.Request.class,
+            ClusterInformationConversation.Response.class,
+            PacketTypeAssignmentPacket.class,
+            FileTransferHeader.class
+    );
+    private static final Map<String, Class<? extends Packet>> CLASSES_BY_NAME = new ConcurrentHashMap<>();
+
+    static {
+        for (final Class<? extends Packet> type : BUILT_IN_TYPES) {
+            CLASSES_BY_NAME.put(type.getName(), type);
+        }
+    }
+
+    private final Set<Class<? extends Packet>> localTypes = ConcurrentHashMap.newKeySet();
+    private final Map<Class<?>, Integer> idsByClass = new ConcurrentHashMap<>();
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+
+    // indexed by id, replaced as a whole whenever an id is bound
+    private volatile Class<? extends Packet>[] typesById = newTypeTable(FIRST_ASSIGNED_ID);
+
+    private int nextId = FIRST_ASSIGNED_ID;
+
+    public PacketTypeRegistry() {
+        for (int i = 0; i < BUILT_IN_TYPES.size(); i++) {
+            bind(i + 1, BUILT_IN_TYPES.get(i));
+        }
+    }
+
+    /**
+     * Registers a packet type this side is able to handle. Its name is sent to the server
+     * during the handshake and its adapter is resolved in advance.
+     *
+     * @param type the packet type
+     */
+    public void register(final @NonNull Class<? extends Packet> type) {
+        localTypes.add(type);
+        CLASSES_BY_NAME.put(type.getName(), type);
+        final Integer id = idsByName.get(type.getName());
+        if(id != null) {
+            synchronized (this) {
+                bind(id, type);
+            }
+        }
+        CentralGson.PROTOCOL_INSTANCE.registerPacketType(type);
+    }
+    /**
+     * @return the class names of all packet types registered on this side
+     */
+    public List<String> getLocalTypeNames() {
+        final List<String> names = new ArrayList<>(localTypes.size());
+        for (final Class<? extends Packet> type : localTypes) {
+            names.add(type.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Assigns an id to every given type name that does not have one yet. Only called on
+     * the server.
+     *
+     * @param typeNames the type names
+     * @return the newly assigned ids
+     */
+    public synchronized Map<String, Integer> assignIds(final @NonNull Collection<String> typeNames) {
+        final Map<String, Integer> assigned = new HashMap<>();
+        for (final String name : typeNames) {
+            if(name == null || idsByName.containsKey(name) || nextId > MAX_ID) continue;
+            final int id = nextId++;
+            idsByName.put(name, id);
+            bind(id, resolveNoExcept(name));
+            assigned.put(name, id);
+        }
+        return assigned;
+    }
+
+    /**
+     * @return a copy of all ids assigned by the server
+     */
+    public Map<String, Integer> getAssignedIds() {
+        return new HashMap<>(idsByName);
+    }
+
+    /**
+     * Applies ids assigned by the server.
+     *
+     * @param assignedIds the ids
+     * @param replace     whether previously assigned ids should be dropped, as is the case
+     *                    for the complete table received with every handshake
+     */
+    public synchronized void applyAssignments(final @NonNull Map<String, Integer> assignedIds, final boolean replace) {
+        if(replace) {
+            for (final Map.Entry<String, Integer> entry : idsByName.entrySet()) {
+                unbind(entry.getValue(), entry.getKey());
+            }
+            idsByName.clear();
+        }
+        for (final Map.Entry<String, Integer> entry : assignedIds.entrySet()) {
+            final int id = entry.getValue();
+            if(id < FIRST_ASSIGNED_ID || id > MAX_ID) continue;
+            idsByName.put(entry.getKey(), id);
+            bind(id, resolveNoExcept(entry.getKey()));
+            nextId = Math.max(nextId, id + 1);
+        }
+    }
+
+    /**
+     * @param type the packet type
+     * @return the id of the type or {@link #UNASSIGNED}
+     */
+    public int getId(final @NonNull Class<?> type) {
+        final Integer id = idsByClass.get(type);
+        return id == null ? UNASSIGNED : id;
+    }
+
+    /**
+     * @param id the id
+     * @return the packet type bound to the id or null if it is unknown on this side
+     */
+    @Nullable
+    public Class<? extends Packet> getType(final int id) {
+        final Class<? extends Packet>[] types = typesById;
+        return id >= 0 && id < types.length ? types[id] : null;
+    }
+
+    /**
+     * Resolves a packet type by its class name, the class is only looked up once.
+     *
+     * @param name the class name
+     * @return the packet type
+     * @throws DeserializationException if the class cannot be found or is no packet
+     */
+    @SuppressWarnings("unchecked")
+    public static Class<? extends Packet> resolve(final @NonNull String name) {
+        final Class<? extends Packet> known = CLASSES_BY_NAME.get(name);
+        if(known != null) return known;
+        try {
+            final Class<?> cls = Class.forName(name);
+            if(!Packet.class.isAssignableFrom(cls)) {
+                throw new DeserializationException(String.format("Class '%s' is not a packet.", name));
+            }
+            CLASSES_BY_NAME.put(name, (Class<? extends Packet>) cls);
+            return (Class<? extends Packet>) cls;
+        } catch (final ClassNotFoundException exception) {
+            throw new DeserializationException(String.format("Cannot deserialize packet because the class at path '%s' could not be found.", name));
+        }
+    }
+
+    /**
+     * @param type the packet type
+     * @return the fixed id of the built-in type or {@link #UNASSIGNED}
+     */
+    public static int getBuiltInId(final @NonNull Class<?> type) {
+        return BUILT_IN_TYPES.indexOf(type) + 1;
+    }
+
+    /**
+     * @param id the id
+     * @return the built-in packet type with the given fixed id or null
+     */
+    @Nullable
+    public static Class<? extends Packet> getBuiltInType(final int id) {
+        return id > 0 && id <= BUILT_IN_TYPES.size() ? BUILT_IN_TYPES.get(id - 1) : null;
+    }
+
+    @Nullable
+    private static Class<? extends Packet> resolveNoExcept(final String name) {
+        try {
+            return resolve(name);
+        } catch (final DeserializationException exception) {
+            // the type is unknown on this side, packets of it cannot be decoded here
+            return null;
+        }
+    }
+
+    private void bind(final int id, final @Nullable Class<? extends Packet> type) {
+        if(type == null) return;
+        Class<? extends Packet>[] types = typesById;
+        types = Arrays.copyOf(types, Math.max(types.length, id + 1));
+        types[id] = type;
+        typesById = types;
+        idsByClass.put(type, id);
+    }
+
+    private void unbind(final int id, final String name) {
+        final Class<? extends Packet>[] types = Arrays.copyOf(typesById, typesById.length);
+        if(id < types.length) types[id] = null;
+        typesById = types;
+        final Class<? extends Packet> type = CLASSES_BY_NAME.get(name);
+        if(type != null) idsByClass.remove(type, id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Packet>[] newTypeTable(final int length) {
+        return (Class<? extends Packet>[]) new Class<?>[length];
+    }
+}
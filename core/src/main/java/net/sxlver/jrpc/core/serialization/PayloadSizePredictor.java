@@ -0,0 +1,52 @@
+package net.sxlver.jrpc.core.serialization;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.Message;
+
+/**
+ * Predicts the serialized size of a packet from the sizes recently written for its type, so
+ * that the buffer it is serialized into can be allocated large enough up front.
+ *
+ * <p>Every type keeps an exponential moving average in which each new size is weighted with
+ * 1/8. Concurrent updates may overwrite each other, which only loses a sample.
+ */
+public enum PayloadSizePredictor {
+    INSTANCE;
+
+    private static final int INITIAL_ESTIMATE = 256;
+    private static final int WEIGHT_SHIFT = 3;
+
+    private final ClassValue<Estimate> estimates = new ClassValue<>() {
+        @Override
+        protected Estimate computeValue(final @NonNull Class<?> type) {
+            return new Estimate();
+        }
+    };
+
+    /**
+     * Returns the predicted payload size of the given type, including a quarter of headroom.
+     *
+     * @param type the packet type
+     * @return the predicted size in bytes
+     */
+    public int predict(final @NonNull Class<?> type) {
+        final int average = estimates.get(type).average;
+        return Math.min(average + (average >> 2), Message.MAX_PACKET_LENGTH);
+    }
+
+    /**
+     * Records the size a packet of the given type has been serialized to.
+     *
+     * @param type the packet type
+     * @param size the size in bytes
+     */
+    public void record(final @NonNull Class<?> type, final int size) {
+        final Estimate estimate = estimates.get(type);
+        final int average = estimate.average;
+        estimate.average = Math.max(average + ((size - average) >> WEIGHT_SHIFT), 1);
+    }
+
+    private static final class Estimate {
+        private volatile int average = INITIAL_ESTIMATE;
+    }
+}
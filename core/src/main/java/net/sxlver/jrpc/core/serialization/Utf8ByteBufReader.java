@@ -0,0 +1,104 @@
+package net.sxlver.jrpc.core.serialization;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+
+import java.io.Reader;
+import java.util.Objects;
+
+/**
+ * Decodes the readable bytes of a {@link ByteBuf} as UTF-8, advancing its reader index.
+ *
+ * <p>Unlike an {@link java.io.InputStreamReader} over a {@link io.netty.buffer.ByteBufInputStream}
+ * no intermediate byte buffer is allocated per reader. Malformed sequences are read as {@code U+FFFD}.
+ */
+final class Utf8ByteBufReader extends Reader {
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final ByteBuf in;
+    private char lowSurrogate;
+
+    Utf8ByteBufReader(final @NonNull ByteBuf in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read(final char @NonNull [] chars, final int offset, final int length) {
+        Objects.checkFromIndexSize(offset, length, chars.length);
+        if(length == 0) return 0;
+
+        int count = 0;
+        if(lowSurrogate != 0) {
+            chars[offset + count++] = lowSurrogate;
+            lowSurrogate = 0;
+        }
+        while(count < length && in.isReadable()) {
+            final byte b = in.readByte();
+            if(b >= 0) {
+                chars[offset + count++] = (char) b;
+                continue;
+            }
+
+            final int codePoint = decode(b & 0xFF);
+            if(codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                chars[offset + count++] = (char) codePoint;
+                continue;
+            }
+            chars[offset + count++] = Character.highSurrogate(codePoint);
+            if(count < length) {
+                chars[offset + count++] = Character.lowSurrogate(codePoint);
+            }else {
+                lowSurrogate = Character.lowSurrogate(codePoint);
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public boolean ready() {
+        return lowSurrogate != 0 || in.isReadable();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Decodes the sequence started by the given lead byte, its continuation bytes are only
+     * consumed if the sequence is well-formed.
+     */
+    private int decode(final int lead) {
+        final int continuationBytes;
+        final int minimum;
+        int codePoint;
+        if(lead >= 0xC2 && lead <= 0xDF) {
+            continuationBytes = 1;
+            minimum = 0x80;
+            codePoint = lead & 0x1F;
+        }else if(lead >= 0xE0 && lead <= 0xEF) {
+            continuationBytes = 2;
+            minimum = 0x800;
+            codePoint = lead & 0x0F;
+        }else if(lead >= 0xF0 && lead <= 0xF4) {
+            continuationBytes = 3;
+            minimum = Character.MIN_SUPPLEMENTARY_CODE_POINT;
+            codePoint = lead & 0x07;
+        }else {
+            return REPLACEMENT;
+        }
+
+        if(in.readableBytes() < continuationBytes) return REPLACEMENT;
+        final int index = in.readerIndex();
+        for (int i = 0; i < continuationBytes; i++) {
+            final int b = in.getUnsignedByte(index + i);
+            if((b & 0xC0) != 0x80) return REPLACEMENT;
+            codePoint = codePoint << 6 | b & 0x3F;
+        }
+        if(codePoint < minimum || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            return REPLACEMENT;
+        }
+        in.skipBytes(continuationBytes);
+        return codePoint;
+    }
+}
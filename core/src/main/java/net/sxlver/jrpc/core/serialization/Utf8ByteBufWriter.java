@@ -0,0 +1,88 @@
+package net.sxlver.jrpc.core.serialization;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+
+import java.io.Writer;
+import java.util.Objects;
+
+/**
+ * Encodes characters as UTF-8 straight into a {@link ByteBuf}.
+ *
+ * <p>Unlike an {@link java.io.OutputStreamWriter} over a {@link io.netty.buffer.ByteBufOutputStream}
+ * no intermediate byte buffer is allocated per writer. Unpaired surrogates are written as {@code ?}.
+ */
+final class Utf8ByteBufWriter extends Writer {
+    private final ByteBuf out;
+    private char highSurrogate;
+
+    Utf8ByteBufWriter(final @NonNull ByteBuf out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(final int c) {
+        encode((char) c);
+    }
+
+    @Override
+    public void write(final char @NonNull [] chars, final int offset, final int length) {
+        Objects.checkFromIndexSize(offset, length, chars.length);
+        out.ensureWritable(length);
+        for (int i = offset; i < offset + length; i++) {
+            encode(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(final @NonNull String string, final int offset, final int length) {
+        Objects.checkFromIndexSize(offset, length, string.length());
+        out.ensureWritable(length);
+        for (int i = offset; i < offset + length; i++) {
+            encode(string.charAt(i));
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        if(highSurrogate != 0) {
+            highSurrogate = 0;
+            out.writeByte('?');
+        }
+    }
+
+    private void encode(final char c) {
+        if(highSurrogate != 0) {
+            final char high = highSurrogate;
+            highSurrogate = 0;
+            if(Character.isLowSurrogate(c)) {
+                final int codePoint = Character.toCodePoint(high, c);
+                out.writeByte(0xF0 | codePoint >> 18);
+                out.writeByte(0x80 | codePoint >> 12 & 0x3F);
+                out.writeByte(0x80 | codePoint >> 6 & 0x3F);
+                out.writeByte(0x80 | codePoint & 0x3F);
+                return;
+            }
+            out.writeByte('?');
+        }
+
+        if(c < 0x80) {
+            out.writeByte(c);
+        }else if(c < 0x800) {
+            out.writeByte(0xC0 | c >> 6);
+            out.writeByte(0x80 | c & 0x3F);
+        }else if(Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        }else if(Character.isLowSurrogate(c)) {
+            out.writeByte('?');
+        }else {
+            out.writeByte(0xE0 | c >> 12);
+            out.writeByte(0x80 | c >> 6 & 0x3F);
+            out.writeByte(0x80 | c & 0x3F);
+        }
+    }
+}
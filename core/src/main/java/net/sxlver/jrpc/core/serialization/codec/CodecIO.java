@@ -0,0 +1,219 @@
+package net.sxlver.jrpc.core.serialization.codec;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import net.sxlver.jrpc.core.protocol.BinaryAttachment;
+import net.sxlver.jrpc.core.serialization.CentralGson;
+import net.sxlver.jrpc.core.serialization.exception.DeserializationException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Primitives used by generated {@link PacketCodec codecs}.
+ *
+ * <p>Lengths and sizes are written as unsigned varints. Nullable values are written with
+ * their length or size incremented by one, 0 standing for null, other nullable values are
+ * preceded by a presence flag.
+ */
+public final class CodecIO {
+
+    private CodecIO() {
+    }
+
+    @FunctionalInterface
+    public interface Writer<T> {
+        void write(final ByteBuf out, final T value);
+    }
+
+    @FunctionalInterface
+    public interface Reader<T> {
+        T read(final ByteBuf in);
+    }
+
+    public static void writeVarInt(final ByteBuf out, int value) {
+        while((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(final ByteBuf in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new DeserializationException("VarInt is too long.");
+    }
+
+    public static void writeString(final ByteBuf out, final String value) {
+        if(value == null) {
+            out.writeByte(0);
+            return;
+        }
+        writeVarInt(out, ByteBufUtil.utf8Bytes(value) + 1);
+        out.writeCharSequence(value, StandardCharsets.UTF_8);
+    }
+
+    public static String readString(final ByteBuf in) {
+        final int length = readLength(in);
+        return length < 0 ? null : in.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+
+    public static void writeByteArray(final ByteBuf out, final byte[] value) {
+        if(value == null) {
+            out.writeByte(0);
+            return;
+        }
+        writeVarInt(out, value.length + 1);
+        out.writeBytes(value);
+    }
+
+    public static byte[] readByteArray(final ByteBuf in) {
+        final int length = readLength(in);
+        if(length < 0) return null;
+        final byte[] value = new byte[length];
+        in.readBytes(value);
+        return value;
+    }
+
+    /**
+     * Writes the remaining bytes of the given buffer without changing its position.
+     */
+    public static void writeByteBuffer(final ByteBuf out, final ByteBuffer value) {
+        if(value == null) {
+            out.writeByte(0);
+            return;
+        }
+        writeVarInt(out, value.remaining() + 1);
+        out.writeBytes(value.duplicate());
+    }
+
+    /**
+     * Reads a buffer written by {@link #writeByteBuffer(ByteBuf, ByteBuffer)} as a view of the
+     * given buffer, its content is not copied unless the buffer is not backed by a single array.
+     */
+    public static ByteBuffer readByteBuffer(final ByteBuf in) {
+        final int length = readLength(in);
+        if(length < 0) return null;
+        final ByteBuffer value = in.nioBuffer(in.readerIndex(), length);
+        in.skipBytes(length);
+        return value;
+    }
+
+    public static void writeAttachment(final ByteBuf out, final BinaryAttachment value) {
+        writeByteBuffer(out, value == null ? null : value.asByteBuffer());
+    }
+
+    public static BinaryAttachment readAttachment(final ByteBuf in) {
+        final ByteBuffer value = readByteBuffer(in);
+        return value == null ? null : BinaryAttachment.wrap(value);
+    }
+
+    public static void writeUUID(final ByteBuf out, final UUID value) {
+        out.writeBoolean(value != null);
+        if(value != null) {
+            out.writeLong(value.getMostSignificantBits()).writeLong(value.getLeastSignificantBits());
+        }
+    }
+
+    public static UUID readUUID(final ByteBuf in) {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    /**
+     * Writes the name of the constant, so that constants can be added and reordered without
+     * breaking peers compiled against another version of the enum.
+     */
+    public static void writeEnum(final ByteBuf out, final Enum<?> value) {
+        writeString(out, value == null ? null : value.name());
+    }
+
+    public static <E extends Enum<E>> E readEnum(final ByteBuf in, final Class<E> type) {
+        final String name = readString(in);
+        if(name == null) return null;
+        try {
+            return Enum.valueOf(type, name);
+        } catch(final IllegalArgumentException exception) {
+            throw new DeserializationException(String.format("Unknown constant %s of %s.", name, type.getName()));
+        }
+    }
+
+    public static <T> void writeNullable(final ByteBuf out, final T value, final Writer<? super T> writer) {
+        out.writeBoolean(value != null);
+        if(value != null) {
+            writer.write(out, value);
+        }
+    }
+
+    public static <T> T readNullable(final ByteBuf in, final Reader<? extends T> reader) {
+        return in.readBoolean() ? reader.read(in) : null;
+    }
+
+    public static <T> void writeCollection(final ByteBuf out, final Collection<? extends T> value, final Writer<? super T> writer) {
+        if(value == null) {
+            out.writeByte(0);
+            return;
+        }
+        writeVarInt(out, value.size() + 1);
+        for (final T element : value) {
+            writer.write(out, element);
+        }
+    }
+
+    public static <T> ArrayList<T> readList(final ByteBuf in, final Reader<? extends T> reader) {
+        final int size = readLength(in);
+        if(size < 0) return null;
+        // every element takes at least one byte, don't trust the size any further than that
+        final ArrayList<T> value = new ArrayList<>(Math.min(size, in.readableBytes()));
+        for (int i = 0; i < size; i++) {
+            value.add(reader.read(in));
+        }
+        return value;
+    }
+
+    /**
+     * Writes a value the codec generator has no binary representation for as json, using
+     * the adapter {@link CentralGson} resolves for the given type.
+     *
+     * @param out   the buffer to write to
+     * @param value the value
+     * @param type  the declared type of the value
+     */
+    public static <T> void writeJson(final ByteBuf out, final T value, final TypeToken<T> type) {
+        writeString(out, value == null ? null : getAdapter(type).toJson(value));
+    }
+
+    public static <T> T readJson(final ByteBuf in, final TypeToken<T> type) {
+        final String json = readString(in);
+        if(json == null) return null;
+        try {
+            return getAdapter(type).fromJson(json);
+        } catch(final IOException exception) {
+            throw new DeserializationException(exception);
+        }
+    }
+
+    private static <T> TypeAdapter<T> getAdapter(final TypeToken<T> type) {
+        return CentralGson.PROTOCOL_INSTANCE.getGson().getAdapter(type);
+    }
+
+    private static int readLength(final ByteBuf in) {
+        final int length = readVarInt(in) - 1;
+        if(length > in.readableBytes()) {
+            throw new DeserializationException(String.format("Length %d exceeds the %d readable byte(s).", length, in.readableBytes()));
+        }
+        return length;
+    }
+}
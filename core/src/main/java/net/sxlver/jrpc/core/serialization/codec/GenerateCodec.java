@@ -0,0 +1,20 @@
+package net.sxlver.jrpc.core.serialization.codec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the classes the codec generator of the {@code codegen} module generates a {@link PacketCodec}
+ * for. {@link net.sxlver.jrpc.core.protocol.Packet} carries it, every packet inherits it.
+ *
+ * <p>The generator is triggered by this annotation rather than by any annotation, so that it runs
+ * even if other processors, such as lombok's, claim every annotation present on a packet.
+ */
+@Inherited
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface GenerateCodec {
+}
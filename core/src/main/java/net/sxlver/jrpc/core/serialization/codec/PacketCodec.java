@@ -0,0 +1,38 @@
+package net.sxlver.jrpc.core.serialization.codec;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Reflection-free binary codec of a packet, or of a type nested in one.
+ *
+ * <p>Implementations are generated at compile time by the {@code codegen} annotation processor
+ * and picked up by {@link PacketCodecRegistry}. Fields are written in declaration order
+ * without any names or tags, both sides therefore have to share the same version of the class.
+ *
+ * @param <T> the encoded type
+ */
+public interface PacketCodec<T> extends CodecIO.Writer<T>, CodecIO.Reader<T> {
+
+    /**
+     * @return the type this codec encodes
+     */
+    Class<T> getType();
+
+    /**
+     * Writes the fields of the given value.
+     *
+     * @param out   the buffer to write to
+     * @param value the value, never null
+     */
+    @Override
+    void write(final ByteBuf out, final T value);
+
+    /**
+     * Reads a value written by {@link #write(ByteBuf, Object)}.
+     *
+     * @param in the buffer to read from
+     * @return the value
+     */
+    @Override
+    T read(final ByteBuf in);
+}
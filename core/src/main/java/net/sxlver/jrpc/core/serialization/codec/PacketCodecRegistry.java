@@ -0,0 +1,84 @@
+package net.sxlver.jrpc.core.serialization.codec;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Looks up the {@link PacketCodec} of a type.
+ *
+ * <p>Codecs generated by the {@code codegen} annotation processor are found by their name,
+ * see {@link #getCodecName(Class)}, and loaded through the class loader of the encoded type
+ * the first time it is serialized. Types without a codec are serialized as json.
+ */
+@ThreadSafe
+public enum PacketCodecRegistry {
+    INSTANCE;
+
+    private final Map<Class<?>, PacketCodec<?>> registered = new ConcurrentHashMap<>();
+
+    private final ClassValue<Optional<PacketCodec<?>>> codecs = new ClassValue<>() {
+        @Override
+        protected Optional<PacketCodec<?>> computeValue(final Class<?> type) {
+            final PacketCodec<?> codec = registered.get(type);
+            return Optional.ofNullable(codec != null ? codec : load(type));
+        }
+    };
+
+    /**
+     * Registers a codec, replacing the generated one if there is any.
+     *
+     * @param codec the codec
+     */
+    public void register(final @NonNull PacketCodec<?> codec) {
+        registered.put(codec.getType(), codec);
+        codecs.remove(codec.getType());
+    }
+
+    /**
+     * Returns the codec of the given type.
+     *
+     * @param type the type
+     * @param <T>  the type
+     * @return the codec or null if the type is serialized as json
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> PacketCodec<T> get(final @NonNull Class<T> type) {
+        return (PacketCodec<T>) codecs.get(type).orElse(null);
+    }
+
+    /**
+     * Returns the fully qualified name of the codec generated for the given type, its binary
+     * name with every {@code $} replaced by {@code _}, followed by {@code Codec}.
+     *
+     * @param type the type
+     * @return the name of the generated codec
+     */
+    public static String getCodecName(final @NonNull Class<?> type) {
+        return type.getName().replace('$', '_') + "Codec";
+    }
+
+    private static PacketCodec<?> load(final Class<?> type) {
+        if(type.isPrimitive() || type.isArray()) {
+            return null;
+        }
+        try {
+            final Class<?> codecCls = Class.forName(getCodecName(type), true, type.getClassLoader());
+            if(!PacketCodec.class.isAssignableFrom(codecCls)) {
+                return null;
+            }
+            final PacketCodec<?> codec = (PacketCodec<?>) codecCls.getDeclaredConstructor().newInstance();
+            return codec.getType() == type ? codec : null;
+        } catch(final ClassNotFoundException | LinkageError exception) {
+            return null;
+        } catch(final ReflectiveOperationException exception) {
+            exception.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package net.sxlver.jrpc.core.util;
+
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * A concurrent hash map keyed by primitive longs, so neither keys nor their wrappers are
+ * allocated per entry. The map is split into segments locked independently, each of which
+ * is an open addressing table with linear probing holding its keys and values in two
+ * parallel arrays. Values must not be null.
+ *
+ * @param <V> the type of the values
+ */
+public class ConcurrentLongMap<V> {
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+
+    /**
+     * Instantiates a new map with four segments per available processor, at most 64.
+     */
+    public ConcurrentLongMap() {
+        this(Math.min(64, Runtime.getRuntime().availableProcessors() * 4));
+    }
+
+    /**
+     * Instantiates a new map.
+     *
+     * @param concurrency the expected number of threads writing concurrently, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongMap(final int concurrency) {
+        final int segmentCount = Math.max(2, Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1);
+        this.segments = (Segment<V>[]) new Segment<?>[segmentCount];
+        this.segmentShift = Long.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    public V get(final long key) {
+        final long hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public boolean containsKey(final long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the key to the given value.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the value previously mapped to the key or null
+     */
+    public V put(final long key, final V value) {
+        if(value == null) {
+            throw new NullPointerException("value");
+        }
+        final long hash = hash(key);
+        return segmentFor(hash).put(key, hash, value);
+    }
+
+    /**
+     * Removes the mapping of the key.
+     *
+     * @param key the key
+     * @return the value that has been removed or null
+     */
+    public V remove(final long key) {
+        final long hash = hash(key);
+        return segmentFor(hash).remove(key, hash, null);
+    }
+
+    /**
+     * Removes the mapping of the key if it is still mapped to the given value.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return true if the mapping has been removed
+     */
+    public boolean remove(final long key, final V value) {
+        final long hash = hash(key);
+        return segmentFor(hash).remove(key, hash, value) != null;
+    }
+
+    /**
+     * Looks up the value of the key and removes its mapping in the same step if the value
+     * matches the predicate. The predicate is evaluated while the segment is locked.
+     *
+     * @param key       the key
+     * @param predicate whether the value should be removed
+     * @return the value mapped to the key, whether it has been removed or not, or null
+     */
+    public V getAndRemoveIf(final long key, final Predicate<? super V> predicate) {
+        final long hash = hash(key);
+        return segmentFor(hash).getAndRemoveIf(key, hash, predicate);
+    }
+
+    public int size() {
+        int size = 0;
+        for (final Segment<V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (final Segment<V> segment : segments) {
+            if(segment.size() > 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Performs the action for a snapshot of each segment's mappings, mappings changed
+     * concurrently may or may not be seen.
+     *
+     * @param action the action
+     */
+    public void forEach(final BiConsumer<Long, ? super V> action) {
+        for (final Segment<V> segment : segments) {
+            segment.forEach(action);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> {
+            if(builder.length() > 1) builder.append(", ");
+            builder.append(key).append('=').append(value);
+        });
+        return builder.append('}').toString();
+    }
+
+    private Segment<V> segmentFor(final long hash) {
+        return segments[(int) (hash >>> segmentShift)];
+    }
+
+    private static long hash(final long key) {
+        return key * GOLDEN_RATIO;
+    }
+
+    private static int indexFor(final long hash, final int mask) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static final class Segment<V> {
+        // a slot is empty if its value is null, so that 0 remains a valid key
+        private long[] keys = new long[MIN_SEGMENT_CAPACITY];
+        private Object[] values = new Object[MIN_SEGMENT_CAPACITY];
+        private int size;
+
+        synchronized V get(final long key, final long hash) {
+            final int index = find(key, hash);
+            return index < 0 ? null : value(index);
+        }
+
+        synchronized V put(final long key, final long hash, final V value) {
+            final int index = find(key, hash);
+            if(index >= 0) {
+                final V previous = value(index);
+                values[index] = value;
+                return previous;
+            }
+
+            if((size + 1) * 4L > keys.length * 3L) {
+                resize(keys.length << 1);
+            }
+            insert(key, hash, value);
+            size++;
+            return null;
+        }
+
+        synchronized V remove(final long key, final long hash, final Object expected) {
+            final int index = find(key, hash);
+            if(index < 0 || (expected != null && values[index] != expected)) {
+                return null;
+            }
+            final V previous = value(index);
+            removeAt(index);
+            return previous;
+        }
+
+        synchronized V getAndRemoveIf(final long key, final long hash, final Predicate<? super V> predicate) {
+            final int index = find(key, hash);
+            if(index < 0) {
+                return null;
+            }
+            final V value = value(index);
+            if(predicate.test(value)) {
+                removeAt(index);
+            }
+            return value;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        void forEach(final BiConsumer<Long, ? super V> action) {
+            final long[] keys;
+            final Object[] values;
+            synchronized (this) {
+                if(size == 0) return;
+                keys = this.keys.clone();
+                values = this.values.clone();
+            }
+            for (int i = 0; i < values.length; i++) {
+                if(values[i] != null) {
+                    action.accept(keys[i], cast(values[i]));
+                }
+            }
+        }
+
+        private int find(final long key, final long hash) {
+            final int mask = keys.length - 1;
+            for (int index = indexFor(hash, mask); values[index] != null; index = (index + 1) & mask) {
+                if(keys[index] == key) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        private void insert(final long key, final long hash, final Object value) {
+            final int mask = keys.length - 1;
+            int index = indexFor(hash, mask);
+            while(values[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = value;
+        }
+
+        // shifts the following entries of the probe sequence back instead of leaving a tombstone
+        private void removeAt(final int index) {
+            final int mask = keys.length - 1;
+            int gap = index;
+            for (int next = (index + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+                final int ideal = indexFor(hash(keys[next]), mask);
+                if(((next - ideal) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = 0;
+            values[gap] = null;
+            size--;
+
+            if(keys.length > MIN_SEGMENT_CAPACITY && size * 8L < keys.length) {
+                resize(keys.length >> 1);
+            }
+        }
+
+        private void resize(final int capacity) {
+            final long[] oldKeys = keys;
+            final Object[] oldValues = values;
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            for (int i = 0; i < oldValues.length; i++) {
+                if(oldValues[i] != null) {
+                    insert(oldKeys[i], hash(oldKeys[i]), oldValues[i]);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private V value(final int index) {
+            return (V) values[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> V cast(final Object value) {
+            return (V) value;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package net.sxlver.jrpc.core.util;
+
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An entry of a timed collection scheduled on the {@link ExpiryTimer}. It fires once after
+ * the read delay of its collection, reads its timeout and re-arms itself for the rest of it,
+ * as timeouts may be set after an entry has been added.
+ */
+abstract class ExpiringEntry implements TimerTask {
+    private final long createdAt = System.nanoTime();
+
+    private volatile Timeout timeout;
+    private volatile boolean cancelled;
+    private boolean timeoutRead;
+
+    void schedule(final long millis) {
+        this.timeout = ExpiryTimer.INSTANCE.newTimeout(this, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the expiry, called once the entry has been removed from its collection.
+     */
+    void cancel() {
+        cancelled = true;
+        final Timeout timeout = this.timeout;
+        if(timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    @Override
+    public final void run(final Timeout timeout) {
+        if(cancelled) return;
+
+        if(!timeoutRead) {
+            timeoutRead = true;
+            final long remaining = timeout() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - createdAt);
+            if(remaining > 0) {
+                schedule(remaining);
+                // cancelled while rescheduling, which may have cancelled the previous timeout only
+                if(cancelled) {
+                    cancel();
+                }
+                return;
+            }
+        }
+        expire();
+    }
+
+    /**
+     * @return the timeout of the entry in milliseconds
+     */
+    abstract long timeout();
+
+    /**
+     * Removes the entry from its collection and notifies its value, unless it has been removed in the meantime.
+     */
+    abstract void expire();
+}
@@ -0,0 +1,21 @@
+package net.sxlver.jrpc.core.util;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hashed wheel timer shared by {@link TimedCache} and {@link TimedQueue}. Scheduling and
+ * cancelling a timeout are O(1), timeouts fire with a precision of one tick.
+ */
+final class ExpiryTimer {
+    static final long TICK_MILLIS = 5;
+
+    // one rotation covers 2.56 seconds, longer timeouts just stay in their bucket for more rounds
+    static final Timer INSTANCE = new HashedWheelTimer(new DefaultThreadFactory("jrpc-expiry", true), TICK_MILLIS, TimeUnit.MILLISECONDS, 512);
+
+    private ExpiryTimer() {
+    }
+}
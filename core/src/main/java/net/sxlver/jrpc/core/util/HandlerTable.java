@@ -0,0 +1,112 @@
+package net.sxlver.jrpc.core.util;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.IntFunction;
+
+/**
+ * A copy-on-write table of handlers in registration order, at most one per handler class.
+ * The handlers matching a packet class are resolved once per class and cached until the
+ * next handler is (un)registered, so lookups on the receiving path neither lock nor allocate.
+ *
+ * @param <H> the handler type
+ */
+public class HandlerTable<H> {
+    private final IntFunction<H[]> arrayFactory;
+    private final BiPredicate<H, Class<?>> matcher;
+    private final H[] empty;
+
+    private volatile H[] handlers;
+    // replaced as a whole whenever the handlers change
+    private volatile Map<Class<?>, H[]> handlersByType = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new, empty HandlerTable.
+     *
+     * @param arrayFactory creates handler arrays of the given length
+     * @param matcher      whether a handler receives packets of the given class
+     */
+    public HandlerTable(final @NonNull IntFunction<H[]> arrayFactory, final @NonNull BiPredicate<H, Class<?>> matcher) {
+        this.arrayFactory = arrayFactory;
+        this.matcher = matcher;
+        this.empty = arrayFactory.apply(0);
+        this.handlers = empty;
+    }
+
+    /**
+     * Registers a handler, replacing a registered handler of the same class in place.
+     *
+     * @param handler the handler
+     */
+    public synchronized void register(final @NonNull H handler) {
+        final H[] current = handlers;
+        for (int i = 0; i < current.length; i++) {
+            if(current[i].getClass() == handler.getClass()) {
+                final H[] updated = current.clone();
+                updated[i] = handler;
+                setHandlers(updated);
+                return;
+            }
+        }
+        final H[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = handler;
+        setHandlers(updated);
+    }
+
+    /**
+     * Unregisters the handler of the given class.
+     *
+     * @param handlerCls the handler class
+     */
+    public synchronized void unregister(final @NonNull Class<?> handlerCls) {
+        final List<H> remaining = new ArrayList<>(handlers.length);
+        for (final H handler : handlers) {
+            if(handler.getClass() != handlerCls) {
+                remaining.add(handler);
+            }
+        }
+        setHandlers(remaining.toArray(arrayFactory.apply(remaining.size())));
+    }
+
+    /**
+     * Gets the handlers matching the given packet class. The returned array is shared and must not be modified.
+     *
+     * @param packetType the packet class
+     * @return the matching handlers in registration order
+     */
+    public H[] get(final @NonNull Class<?> packetType) {
+        final Map<Class<?>, H[]> handlersByType = this.handlersByType;
+        final H[] resolved = handlersByType.get(packetType);
+        return resolved != null ? resolved : handlersByType.computeIfAbsent(packetType, this::resolve);
+    }
+
+    /**
+     * Gets all registered handlers.
+     *
+     * @return the handlers in registration order
+     */
+    public List<H> getAll() {
+        return List.of(handlers);
+    }
+
+    private void setHandlers(final H[] handlers) {
+        this.handlers = handlers;
+        this.handlersByType = new ConcurrentHashMap<>();
+    }
+
+    private H[] resolve(final Class<?> packetType) {
+        final List<H> matching = new ArrayList<>();
+        for (final H handler : handlers) {
+            if(matcher.test(handler, packetType)) {
+                matching.add(handler);
+            }
+        }
+        return matching.isEmpty() ? empty : matching.toArray(arrayFactory.apply(matching.size()));
+    }
+}
@@ -1,22 +1,19 @@
 package net.sxlver.jrpc.core.util;
 
-import org.jetbrains.annotations.NotNull;
-
-import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
-import java.util.function.Consumer;
 
+/**
+ * A map whose entries expire once their {@link NotifyOnExpire#timeout()} has passed, the
+ * expiry of an entry is cancelled as soon as it is removed. Expiries are scheduled on a
+ * hashed wheel timer shared by all instances.
+ */
 public class TimedCache<K, V extends TimedCache.NotifyOnExpire>  {
-    private final Map<K, V> cache = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final Map<K, Expiry> cache = new ConcurrentHashMap<>();
 
     /**
-     * how many milliseconds to wait before scheduling expiration.
+     * how many milliseconds to wait before reading the timeout of the {@link V}.
      * this is important if the timeout value of the {@link V} is
      * being set after it's cached.
      */
@@ -30,33 +27,37 @@ public class TimedCache<K, V extends TimedCache.NotifyOnExpire>  {
     }
 
     public void put(K key, V value) {
-        cache.put(key, value);
+        final Expiry expiry = new Expiry(key, value);
+        final Expiry previous = cache.put(key, expiry);
+        if(previous != null) {
+            previous.cancel();
+        }
 
         // wait for timeout value to be set after caching
-        scheduler.schedule(() -> expireAfter(key, value.timeout()), expiryReadTimeout, TimeUnit.MILLISECONDS);
-    }
-
-    void expireAfter(K key, long millis) {
-        scheduler.schedule(() -> {
-            final V val = cache.remove(key);
-            val.notifyExpired();
-        }, millis - expiryReadTimeout, TimeUnit.MILLISECONDS);
+        expiry.schedule(expiryReadTimeout);
     }
 
     public V get(K key) {
-        return cache.get(key);
+        final Expiry expiry = cache.get(key);
+        return expiry != null ? expiry.value : null;
     }
 
     public void remove(K key) {
-        cache.remove(key);
+        final Expiry expiry = cache.remove(key);
+        if(expiry != null) {
+            expiry.cancel();
+        }
     }
 
     public int size() {
         return cache.size();
     }
 
+    /**
+     * Cancels the expiry of every entry, the entries themselves are kept.
+     */
     public void shutdown() {
-        scheduler.shutdown();
+        cache.values().forEach(Expiry::cancel);
     }
 
     @Override
@@ -65,7 +66,7 @@ public class TimedCache<K, V extends TimedCache.NotifyOnExpire>  {
     }
 
     public void forEach(BiConsumer<? super K, ? super V> action) {
-        cache.forEach(action);
+        cache.forEach((key, expiry) -> action.accept(key, expiry.value));
     }
 
     public interface NotifyOnExpire {
@@ -73,4 +74,32 @@ public class TimedCache<K, V extends TimedCache.NotifyOnExpire>  {
 
         long timeout();
     }
+
+    private final class Expiry extends ExpiringEntry {
+        private final K key;
+        private final V value;
+
+        Expiry(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        long timeout() {
+            return value.timeout();
+        }
+
+        @Override
+        void expire() {
+            // an entry replaced or removed in the meantime must not be expired
+            if(cache.remove(key, this)) {
+                value.notifyExpired();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
 }
@@ -0,0 +1,124 @@
+package net.sxlver.jrpc.core.util;
+
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * A {@link TimedCache} keyed by primitive longs, backed by a {@link ConcurrentLongMap}.
+ */
+public class TimedLongCache<V extends TimedCache.NotifyOnExpire> {
+    private final ConcurrentLongMap<Expiry> cache = new ConcurrentLongMap<>();
+
+    /**
+     * how many milliseconds to wait before reading the timeout of the {@link V}.
+     * this is important if the timeout value of the {@link V} is
+     * being set after it's cached.
+     */
+    private int expiryReadTimeout = 5;
+
+    public TimedLongCache() {
+    }
+
+    public TimedLongCache(final int expiryReadTimeout) {
+        this.expiryReadTimeout = expiryReadTimeout;
+    }
+
+    public void put(final long key, final V value) {
+        final Expiry expiry = new Expiry(key, value);
+        final Expiry previous = cache.put(key, expiry);
+        if(previous != null) {
+            previous.cancel();
+        }
+
+        // wait for timeout value to be set after caching
+        expiry.schedule(expiryReadTimeout);
+    }
+
+    public V get(final long key) {
+        final Expiry expiry = cache.get(key);
+        return expiry != null ? expiry.value : null;
+    }
+
+    /**
+     * Removes the entry of the key and cancels its expiry.
+     *
+     * @param key the key
+     * @return the value that has been removed or null
+     */
+    public V remove(final long key) {
+        final Expiry expiry = cache.remove(key);
+        if(expiry == null) {
+            return null;
+        }
+        expiry.cancel();
+        return expiry.value;
+    }
+
+    /**
+     * Looks up the value of the key and removes its entry in the same step if the value
+     * matches the predicate, see {@link ConcurrentLongMap#getAndRemoveIf(long, Predicate)}.
+     *
+     * @param key       the key
+     * @param predicate whether the value should be removed
+     * @return the value of the key, whether it has been removed or not, or null
+     */
+    public V getAndRemoveIf(final long key, final Predicate<? super V> predicate) {
+        final Expiry expiry = cache.getAndRemoveIf(key, entry -> {
+            if(!predicate.test(entry.value)) {
+                return false;
+            }
+            // the entry is removed right after, cancelling does not block
+            entry.cancel();
+            return true;
+        });
+        return expiry != null ? expiry.value : null;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Cancels the expiry of every entry, the entries themselves are kept.
+     */
+    public void shutdown() {
+        cache.forEach((key, expiry) -> expiry.cancel());
+    }
+
+    @Override
+    public String toString() {
+        return cache.toString();
+    }
+
+    public void forEach(final BiConsumer<Long, ? super V> action) {
+        cache.forEach((key, expiry) -> action.accept(key, expiry.value));
+    }
+
+    private final class Expiry extends ExpiringEntry {
+        private final long key;
+        private final V value;
+
+        Expiry(final long key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        long timeout() {
+            return value.timeout();
+        }
+
+        @Override
+        void expire() {
+            // an entry replaced or removed in the meantime must not be expired
+            if(cache.remove(key, this)) {
+                value.notifyExpired();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+}
@@ -1,24 +1,26 @@
 package net.sxlver.jrpc.core.util;
 
 
-import java.util.LinkedList;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
+/**
+ * A queue whose entries expire once their {@link NotifyOnExpire#timeout()} has passed, the
+ * expiry of an entry is cancelled as soon as it is dequeued. Expiries are scheduled on a
+ * hashed wheel timer shared by all instances.
+ */
 public class TimedQueue<K, V extends TimedQueue.NotifyOnExpire> {
-    private final Queue<Entry<K, V>> queue = new ConcurrentLinkedQueue<>();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
 
     /**
-     * how many milliseconds to wait before scheduling expiration.
+     * how many milliseconds to wait before reading the timeout of the {@link V}.
      * this is important if the timeout value of the {@link V} is
      * being set after it's enqueued.
      */
     private int expiryReadTimeout = 5;
+    // called with the key and value of each expired entry
+    private BiConsumer<? super K, ? super V> expiryListener = (key, value) -> {};
 
     public TimedQueue() {
     }
@@ -27,33 +29,36 @@ public class TimedQueue<K, V extends TimedQueue.NotifyOnExpire> {
         this.expiryReadTimeout = expiryReadTimeout;
     }
 
+    public TimedQueue(final BiConsumer<? super K, ? super V> expiryListener) {
+        this.expiryListener = expiryListener;
+    }
+
     public void enqueue(K key, V value) {
-        Entry<K, V> entry = new Entry<>(key, value);
+        Entry entry = new Entry(key, value);
         queue.add(entry);
 
         // wait for timeout value to be set after enqueuing
-        scheduler.schedule(() -> expireAfter(entry), expiryReadTimeout, TimeUnit.MILLISECONDS);
-    }
-
-    void expireAfter(Entry<K, V> entry) {
-        scheduler.schedule(() -> {
-            if (queue.remove(entry)) {
-                entry.value.notifyExpired();
-            }
-        }, entry.value.timeout() - expiryReadTimeout, TimeUnit.MILLISECONDS);
+        entry.schedule(expiryReadTimeout);
     }
 
     public V dequeue() {
-        Entry<K, V> entry = queue.poll();
-        return entry != null ? entry.value : null;
+        Entry entry = queue.poll();
+        if(entry == null) {
+            return null;
+        }
+        entry.cancel();
+        return entry.value;
     }
 
     public int size() {
         return queue.size();
     }
 
+    /**
+     * Cancels the expiry of every entry, the entries themselves are kept.
+     */
     public void shutdown() {
-        scheduler.shutdown();
+        queue.forEach(Entry::cancel);
     }
 
     @Override
@@ -62,8 +67,9 @@ public class TimedQueue<K, V extends TimedQueue.NotifyOnExpire> {
     }
 
     public void forEach(BiConsumer<? super K, ? super V> action) {
-        while(!queue.isEmpty()) {
-            final Entry<K, V> entry = queue.poll();
+        Entry entry;
+        while((entry = queue.poll()) != null) {
+            entry.cancel();
             action.accept(entry.key, entry.value);
         }
     }
@@ -74,7 +80,7 @@ public class TimedQueue<K, V extends TimedQueue.NotifyOnExpire> {
         long timeout();
     }
 
-    private static class Entry<K, V> {
+    private final class Entry extends ExpiringEntry {
         private final K key;
         private final V value;
 
@@ -82,5 +88,23 @@ public class TimedQueue<K, V extends TimedQueue.NotifyOnExpire> {
             this.key = key;
             this.value = value;
         }
+
+        @Override
+        long timeout() {
+            return value.timeout();
+        }
+
+        @Override
+        void expire() {
+            if(queue.remove(this)) {
+                value.notifyExpired();
+                expiryListener.accept(key, value);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
     }
 }
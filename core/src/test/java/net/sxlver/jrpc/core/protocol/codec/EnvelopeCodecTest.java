@@ -0,0 +1,309 @@
+package net.sxlver.jrpc.core.protocol.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.CorruptedFrameException;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.Message;
+import net.sxlver.jrpc.core.protocol.MessageType;
+import net.sxlver.jrpc.core.protocol.ProtocolVersion;
+import net.sxlver.jrpc.core.protocol.impl.JRPCBatchMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCChunkMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCClientHandshakeMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCRawMessage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnvelopeCodecTest {
+    private static final int VERSION = ProtocolVersion.LATEST.getVersionNumber();
+
+    @Test
+    void messageRoundTrip() {
+        final JRPCMessage message = message("lobby-1", Message.TargetType.DIRECT, 42L, bytes("payload"));
+        message.setRoutingKey("player:ünïcödé");
+
+        final JRPCMessage decoded = EnvelopeCodec.read(envelope(message));
+
+        assertEquals("lobby-1", decoded.target());
+        assertEquals(Message.TargetType.DIRECT, decoded.targetType());
+        assertEquals("source", decoded.source());
+        assertEquals(42L, decoded.conversationId().uid());
+        assertEquals("player:ünïcödé", decoded.routingKey());
+        assertEquals(VERSION, decoded.getProtocolVersion());
+        assertEquals(MessageType.MESSAGE.getId(), decoded.getMessageType());
+        assertArrayEquals(bytes("payload"), decoded.data());
+    }
+
+    @Test
+    void emptyFieldsRoundTrip() {
+        final JRPCMessage decoded = EnvelopeCodec.read(envelope(message("", Message.TargetType.ALL, 0L, null)));
+
+        assertEquals("", decoded.target());
+        assertNull(decoded.routingKey());
+        assertArrayEquals(new byte[0], decoded.data());
+    }
+
+    @Test
+    void frameLengthMatchesEnvelope() {
+        final ByteBuf frame = Unpooled.buffer();
+        EnvelopeCodec.write(frame, message("target", Message.TargetType.TYPE, 1L, bytes("abc")), VERSION);
+
+        assertEquals(frame.readableBytes() - EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH, frame.getInt(0));
+        assertEquals(EnvelopeCodec.MIN_ENVELOPE_LENGTH + "target".length() + "source".length() + 3, frame.getInt(0));
+    }
+
+    @Test
+    void responseExpectedFlagRoundTrip() {
+        final JRPCMessage request = message("lobby", Message.TargetType.LOAD_BALANCED, 5L, bytes("request"));
+        request.setResponseExpected(true);
+
+        final ByteBuf in = envelope(request);
+        assertNotEquals(0, in.getUnsignedByte(1) & EnvelopeCodec.RESPONSE_EXPECTED_FLAG);
+        assertEquals(MessageType.MESSAGE, EnvelopeCodec.peekMessageType(in));
+        final JRPCMessage decoded = EnvelopeCodec.read(in.duplicate());
+        assertTrue(decoded.isResponseExpected());
+        assertEquals(MessageType.MESSAGE.getId(), decoded.getMessageType());
+
+        final ByteBuf frame = Unpooled.buffer().writeInt(in.readableBytes()).writeBytes(in);
+        frame.skipBytes(EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH);
+        final JRPCRawMessage raw = EnvelopeCodec.readRouting(frame, 0);
+        assertTrue(raw.isResponseExpected());
+        raw.release();
+
+        assertFalse(EnvelopeCodec.read(envelope(message("lobby", Message.TargetType.LOAD_BALANCED, 6L, bytes("notification")))).isResponseExpected());
+    }
+
+    @Test
+    void batchExpectsResponseOfFirstEntry() {
+        final JRPCMessage first = message("type", Message.TargetType.LOAD_BALANCED, 1L, bytes("first"));
+        first.setResponseExpected(true);
+        final ByteBuf in = envelope(JRPCBatchMessage.of(List.of(first, message("type", Message.TargetType.LOAD_BALANCED, 2L, bytes("second")))));
+
+        assertEquals(MessageType.BATCH, EnvelopeCodec.peekMessageType(in));
+        assertNotEquals(0, in.getUnsignedByte(1) & EnvelopeCodec.RESPONSE_EXPECTED_FLAG);
+        assertEquals(2, EnvelopeCodec.readBatch(in).size());
+    }
+
+    @Test
+    void handshakeCarriesNoRouting() {
+        final ByteBuf in = envelope(new JRPCClientHandshakeMessage("client-1", bytes("hello"), VERSION));
+
+        assertEquals(MessageType.HANDSHAKE, EnvelopeCodec.peekMessageType(in));
+        assertEquals(Message.TargetType.SERVER, EnvelopeCodec.peekTargetType(in));
+        final JRPCMessage decoded = EnvelopeCodec.read(in);
+        assertInstanceOf(JRPCClientHandshakeMessage.class, decoded);
+        assertEquals("client-1", decoded.source());
+        assertArrayEquals(bytes("hello"), decoded.data());
+    }
+
+    @Test
+    void readRoutingKeepsRawFrame() {
+        final JRPCMessage message = message("proxy", Message.TargetType.LOAD_BALANCED, 7L, bytes("routed"));
+        message.setRoutingKey("key");
+        final ByteBuf frame = Unpooled.buffer();
+        EnvelopeCodec.write(frame, message, VERSION);
+        final ByteBuf original = frame.copy();
+
+        frame.skipBytes(EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH);
+        final JRPCRawMessage raw = EnvelopeCodec.readRouting(frame, 0);
+        try {
+            assertFalse(frame.isReadable());
+            assertEquals("proxy", raw.target());
+            assertEquals(Message.TargetType.LOAD_BALANCED, raw.targetType());
+            assertEquals(7L, raw.conversationId().uid());
+            assertEquals("key", raw.routingKey());
+            assertArrayEquals(bytes("routed"), raw.data());
+            assertEquals(original, raw.content());
+        }finally {
+            raw.release();
+            frame.release();
+        }
+    }
+
+    @Test
+    void batchRoundTrip() {
+        final JRPCMessage first = message("type", Message.TargetType.TYPE, 1L, bytes("first"));
+        final JRPCMessage second = message("type", Message.TargetType.TYPE, 2L, null);
+        final JRPCMessage third = message("type", Message.TargetType.TYPE, 3L, bytes("third"));
+
+        final ByteBuf in = envelope(JRPCBatchMessage.of(List.of(first, second, third)));
+        assertEquals(MessageType.BATCH, EnvelopeCodec.peekMessageType(in));
+        final List<JRPCMessage> entries = EnvelopeCodec.readBatch(in);
+
+        assertEquals(3, entries.size());
+        assertEquals(List.of(1L, 2L, 3L), entries.stream().map(entry -> entry.conversationId().uid()).toList());
+        assertArrayEquals(bytes("first"), entries.get(0).data());
+        assertArrayEquals(new byte[0], entries.get(1).data());
+        assertArrayEquals(bytes("third"), entries.get(2).data());
+        for (final JRPCMessage entry : entries) {
+            assertEquals("type", entry.target());
+            assertEquals(Message.TargetType.TYPE, entry.targetType());
+            assertEquals(MessageType.MESSAGE.getId(), entry.getMessageType());
+        }
+    }
+
+    @Test
+    void batchEntriesKeepResponseExpectedFlag() {
+        final List<JRPCMessage> messages = List.of(
+                message("lb", Message.TargetType.LOAD_BALANCED, 1L, bytes("first")),
+                message("lb", Message.TargetType.LOAD_BALANCED, 2L, bytes("second")));
+        for (final JRPCMessage message : messages) {
+            message.setResponseExpected(true);
+        }
+
+        final List<JRPCMessage> entries = EnvelopeCodec.readBatch(envelope(JRPCBatchMessage.of(messages)));
+        assertEquals(2, entries.size());
+        assertTrue(entries.stream().allMatch(JRPCMessage::isResponseExpected));
+
+        for (final JRPCMessage message : messages) {
+            message.setResponseExpected(false);
+        }
+        assertTrue(EnvelopeCodec.readBatch(envelope(JRPCBatchMessage.of(messages))).stream().noneMatch(JRPCMessage::isResponseExpected));
+    }
+
+    @Test
+    void readBatchUidsOfRawFrame() {
+        final ByteBuf frame = Unpooled.buffer();
+        EnvelopeCodec.write(frame, JRPCBatchMessage.of(List.of(
+                message("lb", Message.TargetType.LOAD_BALANCED, 5L, bytes("first")),
+                message("lb", Message.TargetType.LOAD_BALANCED, 6L, null),
+                message("lb", Message.TargetType.LOAD_BALANCED, 7L, bytes("third")))), VERSION);
+        frame.skipBytes(EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH);
+        final JRPCRawMessage batch = EnvelopeCodec.readRouting(frame, 0);
+
+        final ByteBuf single = Unpooled.buffer();
+        EnvelopeCodec.write(single, message("lb", Message.TargetType.LOAD_BALANCED, 8L, bytes("single")), VERSION);
+        single.skipBytes(EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH);
+        final JRPCRawMessage message = EnvelopeCodec.readRouting(single, 0);
+        try {
+            assertArrayEquals(new long[]{5L, 6L, 7L}, EnvelopeCodec.readBatchUids(batch));
+            assertNull(EnvelopeCodec.readBatchUids(message));
+        }finally {
+            batch.release();
+            message.release();
+            frame.release();
+            single.release();
+        }
+    }
+
+    @Test
+    void batchCountExceedingPayloadIsRejected() {
+        final ByteBuf in = envelope(JRPCBatchMessage.of(List.of(message("type", Message.TargetType.TYPE, 1L, bytes("x")))));
+        // the entry count directly follows the payload length at the end of the header
+        final int countIndex = in.writerIndex() - (4 + 8 + 4 + 1);
+        assertEquals(1, in.getInt(countIndex));
+        in.setInt(countIndex, 1000);
+
+        assertThrows(CorruptedFrameException.class, () -> EnvelopeCodec.readBatch(in));
+    }
+
+    @Test
+    void chunkRoundTrip() {
+        final JRPCChunkMessage chunk = new JRPCChunkMessage("client", Message.TargetType.DIRECT, "source", new ConversationUID(9L),
+                "key", 3, JRPCChunkMessage.FLAG_LAST, bytes("chunk data"), VERSION);
+
+        final ByteBuf in = envelope(chunk);
+        assertEquals(MessageType.CHUNK, EnvelopeCodec.peekMessageType(in));
+        final JRPCChunkMessage decoded = EnvelopeCodec.readChunk(in);
+
+        assertEquals(3, decoded.getSequence());
+        assertTrue(decoded.isLast());
+        assertFalse(decoded.isAborted());
+        assertEquals(9L, decoded.conversationId().uid());
+        assertEquals("key", decoded.routingKey());
+        assertArrayEquals(bytes("chunk data"), decoded.data());
+    }
+
+    @Test
+    void chunkPrefixMatchesFullChunk() {
+        final byte[] data = bytes("separately written data");
+        final JRPCChunkMessage chunk = new JRPCChunkMessage("client", Message.TargetType.DIRECT, "source", new ConversationUID(1L),
+                null, 1, 0, data, VERSION);
+
+        final ByteBuf full = Unpooled.buffer();
+        EnvelopeCodec.write(full, chunk, VERSION);
+        final ByteBuf prefixed = Unpooled.buffer();
+        EnvelopeCodec.writeChunkPrefix(prefixed, chunk, data.length, VERSION);
+        prefixed.writeBytes(data);
+
+        assertEquals(full, prefixed);
+    }
+
+    @Test
+    void truncatedMessageIsRejected() {
+        final JRPCMessage message = message("target", Message.TargetType.DIRECT, 1L, bytes("payload"));
+        message.setRoutingKey("key");
+        assertRejectsTruncation(message, EnvelopeCodec::read);
+    }
+
+    @Test
+    void truncatedBatchIsRejected() {
+        final JRPCBatchMessage batch = JRPCBatchMessage.of(List.of(
+                message("type", Message.TargetType.TYPE, 1L, bytes("first")),
+                message("type", Message.TargetType.TYPE, 2L, bytes("second"))));
+        assertRejectsTruncation(batch, EnvelopeCodec::readBatch);
+    }
+
+    @Test
+    void truncatedChunkIsRejected() {
+        final JRPCChunkMessage chunk = new JRPCChunkMessage("client", Message.TargetType.DIRECT, "source", new ConversationUID(1L),
+                null, 1, 0, bytes("data"), VERSION);
+        assertRejectsTruncation(chunk, EnvelopeCodec::readChunk);
+    }
+
+    @Test
+    void truncatedRoutingIsRejected() {
+        assertRejectsTruncation(message("target", Message.TargetType.DIRECT, 1L, bytes("payload")), in -> EnvelopeCodec.readRouting(in, 0).release());
+    }
+
+    @Test
+    void unknownMessageTypeIsRejected() {
+        final ByteBuf in = envelope(message("target", Message.TargetType.DIRECT, 1L, bytes("payload")));
+        in.setByte(1, 0x7F);
+
+        assertNull(EnvelopeCodec.peekMessageType(in));
+        assertThrows(CorruptedFrameException.class, () -> EnvelopeCodec.read(in));
+    }
+
+    @Test
+    void unknownTargetTypeIsRejected() {
+        final ByteBuf in = envelope(message("target", Message.TargetType.DIRECT, 1L, bytes("payload")));
+        in.setByte(2, 0x7F);
+
+        assertThrows(CorruptedFrameException.class, () -> EnvelopeCodec.read(in.duplicate()));
+        assertThrows(CorruptedFrameException.class, () -> EnvelopeCodec.readRouting(in.duplicate(), 0));
+    }
+
+    /**
+     * Decodes every prefix of the envelope at least {@link EnvelopeCodec#MIN_ENVELOPE_LENGTH}
+     * bytes long, as the decoders expect callers to have checked that much.
+     */
+    private static void assertRejectsTruncation(final JRPCMessage message, final Consumer<ByteBuf> decoder) {
+        final ByteBuf in = envelope(message);
+        for (int length = EnvelopeCodec.MIN_ENVELOPE_LENGTH; length < in.readableBytes(); length++) {
+            final ByteBuf truncated = in.copy(0, length);
+            assertThrows(CorruptedFrameException.class, () -> decoder.accept(truncated), "truncated to " + length + " byte(s)");
+        }
+    }
+
+    // the envelope without its length prefix, as passed on by the frame decoder
+    private static ByteBuf envelope(final JRPCMessage message) {
+        final ByteBuf frame = Unpooled.buffer();
+        EnvelopeCodec.write(frame, message, VERSION);
+        return frame.skipBytes(EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH).discardReadBytes();
+    }
+
+    private static JRPCMessage message(final String target, final Message.TargetType targetType, final long uid, final byte[] data) {
+        return new JRPCMessage(target, targetType, "source", new ConversationUID(uid), data, VERSION, MessageType.MESSAGE.getId());
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
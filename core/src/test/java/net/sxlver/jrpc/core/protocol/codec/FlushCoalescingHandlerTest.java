@@ -0,0 +1,134 @@
+package net.sxlver.jrpc.core.protocol.codec;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlushCoalescingHandlerTest {
+    // long enough for the flush task to never fire whilst the time of the channel is frozen
+    private static final long LONG_DELAY_MICROS = TimeUnit.SECONDS.toMicros(10);
+
+    @Test
+    void countThresholdFlushes() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new FlushCoalescingHandler(3, LONG_DELAY_MICROS));
+        channel.freezeTime();
+        writeAndFlush(channel, 1);
+        writeAndFlush(channel, 2);
+        assertEquals(0, channel.outboundMessages().size());
+
+        writeAndFlush(channel, 3);
+        assertEquals(3, channel.outboundMessages().size());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    void singleFlushThresholdPassesEveryFlush() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new FlushCoalescingHandler(1, 1000));
+        writeAndFlush(channel, 1);
+        assertEquals(1, channel.outboundMessages().size());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    void flushDuringReadGoesOutOnReadComplete() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new FlushCoalescingHandler(100, 0), new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(final ChannelHandlerContext context, final Object message) {
+                context.writeAndFlush(message);
+            }
+        });
+
+        channel.writeOneInbound(1);
+        channel.writeOneInbound(2);
+        channel.runPendingTasks();
+        assertEquals(0, channel.outboundMessages().size());
+
+        channel.pipeline().fireChannelReadComplete();
+        assertEquals(2, channel.outboundMessages().size());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    void flushTaskRunsAfterPendingTasks() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new FlushCoalescingHandler(100, 0));
+        // an embedded channel runs the pending tasks after every write, so both are written first
+        channel.write(1);
+        channel.write(2);
+        channel.pipeline().flush();
+        channel.pipeline().flush();
+        assertEquals(0, channel.outboundMessages().size());
+
+        channel.runPendingTasks();
+        assertEquals(2, channel.outboundMessages().size());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    void delayedFlushTaskFires() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new FlushCoalescingHandler(100, 500));
+        channel.freezeTime();
+        writeAndFlush(channel, 1);
+        channel.advanceTimeBy(499, TimeUnit.MICROSECONDS);
+        channel.runPendingTasks();
+        assertEquals(0, channel.outboundMessages().size());
+
+        // later flushes are covered by the task scheduled already
+        writeAndFlush(channel, 2);
+        channel.advanceTimeBy(1, TimeUnit.MICROSECONDS);
+        channel.runPendingTasks();
+        assertEquals(2, channel.outboundMessages().size());
+
+        // a new task is scheduled for the next flush
+        writeAndFlush(channel, 3);
+        channel.advanceTimeBy(500, TimeUnit.MICROSECONDS);
+        channel.runPendingTasks();
+        assertEquals(3, channel.outboundMessages().size());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    void closeFlushesPending() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new FlushCoalescingHandler(100, LONG_DELAY_MICROS));
+        channel.freezeTime();
+        writeAndFlush(channel, 1);
+        assertEquals(0, channel.outboundMessages().size());
+
+        channel.close();
+        assertEquals(1, channel.outboundMessages().size());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    void losingWritabilityFlushesPending() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new FlushCoalescingHandler(100, LONG_DELAY_MICROS));
+        channel.freezeTime();
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(1024, 2048));
+        channel.write(Unpooled.wrappedBuffer(new byte[1000]));
+        channel.pipeline().flush();
+        assertEquals(0, channel.outboundMessages().size());
+        assertTrue(channel.isWritable());
+
+        // exceeds the high water mark, the channel becomes unwritable until the flush wrote both
+        channel.write(Unpooled.wrappedBuffer(new byte[1000]));
+        assertEquals(2, channel.outboundMessages().size());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    void invalidArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new FlushCoalescingHandler(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new FlushCoalescingHandler(1, -1));
+    }
+
+    private static void writeAndFlush(final EmbeddedChannel channel, final Object message) {
+        channel.write(message);
+        channel.pipeline().flush();
+    }
+}
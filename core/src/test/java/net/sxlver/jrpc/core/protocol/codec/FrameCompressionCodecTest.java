@@ -0,0 +1,148 @@
+package net.sxlver.jrpc.core.protocol.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.Message;
+import net.sxlver.jrpc.core.protocol.MessageType;
+import net.sxlver.jrpc.core.protocol.ProtocolVersion;
+import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameCompressionCodecTest {
+    private static final int VERSION = ProtocolVersion.LATEST.getVersionNumber();
+
+    @Test
+    void compressesAndInflatesFrame() {
+        final ByteBuf frame = frame("abcdefgh".repeat(1024).getBytes(StandardCharsets.UTF_8));
+        final ByteBuf compressed = encode(new FrameCompressionCodec(64, true), frame.copy());
+
+        assertTrue(compressed.readableBytes() < frame.readableBytes());
+        assertEquals(compressed.readableBytes() - EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH, compressed.getInt(0));
+        assertNotEquals(0, compressed.getUnsignedByte(EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH + 1) & EnvelopeCodec.COMPRESSED_FLAG);
+
+        assertEquals(frame, decode(new FrameCompressionCodec(64, true), compressed));
+    }
+
+    @Test
+    void inflatesFrameWithoutLengthPrefix() {
+        final ByteBuf frame = frame("abcdefgh".repeat(1024).getBytes(StandardCharsets.UTF_8));
+        final ByteBuf compressed = encode(new FrameCompressionCodec(64, true), frame.copy());
+
+        final ByteBuf inflated = decode(new FrameCompressionCodec(64, false), compressed.skipBytes(EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH));
+        assertEquals(frame.skipBytes(EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH), inflated);
+    }
+
+    @Test
+    void leavesFramesBelowThresholdAlone() {
+        final ByteBuf frame = frame("small".getBytes(StandardCharsets.UTF_8));
+        assertEquals(frame, encode(new FrameCompressionCodec(1024, true), frame.copy()));
+    }
+
+    @Test
+    void leavesIncompressibleFramesAlone() {
+        final byte[] random = new byte[4096];
+        new Random(1).nextBytes(random);
+        final ByteBuf frame = frame(random);
+        assertEquals(frame, encode(new FrameCompressionCodec(64, true), frame.copy()));
+    }
+
+    @Test
+    void compressesOnlyOnceEnabled() {
+        final ByteBuf frame = frame("abcdefgh".repeat(1024).getBytes(StandardCharsets.UTF_8));
+        final EmbeddedChannel channel = new EmbeddedChannel(new FrameCompressionCodec(64, true));
+        assertTrue(channel.writeOutbound(frame.copy()));
+        assertEquals(frame, channel.readOutbound());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void compressesOnceForManyChannels() {
+        final ByteBuf frame = frame("abcdefgh".repeat(1024).getBytes(StandardCharsets.UTF_8));
+        final ByteBuf compressed = FrameCompressionCodec.compress(UnpooledByteBufAllocator.DEFAULT, frame, 64);
+        assertNotNull(compressed);
+        assertEquals(encode(new FrameCompressionCodec(64, true), frame.copy()), compressed);
+
+        // channels with compression enabled send it as it is instead of compressing it again
+        assertEquals(compressed, encode(new FrameCompressionCodec(64, true), compressed.copy()));
+        assertEquals(frame, decode(new FrameCompressionCodec(64, true), compressed));
+    }
+
+    @Test
+    void compressesOnceOnlyAboveThreshold() {
+        final ByteBuf frame = frame("abcdefgh".repeat(1024).getBytes(StandardCharsets.UTF_8));
+        assertNull(FrameCompressionCodec.compress(UnpooledByteBufAllocator.DEFAULT, frame, frame.readableBytes()));
+        assertNull(FrameCompressionCodec.compress(UnpooledByteBufAllocator.DEFAULT, frame, -1));
+
+        final byte[] random = new byte[4096];
+        new Random(1).nextBytes(random);
+        assertNull(FrameCompressionCodec.compress(UnpooledByteBufAllocator.DEFAULT, frame(random), 64));
+    }
+
+    @Test
+    void rejectsMismatchingUncompressedLength() {
+        final ByteBuf compressed = encode(new FrameCompressionCodec(64, true), frame("abcdefgh".repeat(1024).getBytes(StandardCharsets.UTF_8)));
+        final int lengthIndex = EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH + 2;
+        compressed.setInt(lengthIndex, compressed.getInt(lengthIndex) + 1);
+
+        assertThrows(DecoderException.class, () -> decode(new FrameCompressionCodec(64, true), compressed));
+    }
+
+    @Test
+    void rejectsTruncatedCompressedFrame() {
+        final ByteBuf compressed = encode(new FrameCompressionCodec(64, true), frame("abcdefgh".repeat(1024).getBytes(StandardCharsets.UTF_8)));
+        compressed.writerIndex(compressed.writerIndex() - 8);
+
+        assertThrows(DecoderException.class, () -> decode(new FrameCompressionCodec(64, true), compressed));
+    }
+
+    @Test
+    void rejectsOversizedUncompressedLength() {
+        final ByteBuf compressed = encode(new FrameCompressionCodec(64, true), frame("abcdefgh".repeat(1024).getBytes(StandardCharsets.UTF_8)));
+        compressed.setInt(EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH + 2, Integer.MAX_VALUE);
+
+        assertThrows(DecoderException.class, () -> decode(new FrameCompressionCodec(64, true), compressed));
+    }
+
+    private static ByteBuf encode(final FrameCompressionCodec codec, final ByteBuf frame) {
+        codec.setEnabled(true);
+        final EmbeddedChannel channel = new EmbeddedChannel(codec);
+        try {
+            assertTrue(channel.writeOutbound(frame));
+            final ByteBuf encoded = channel.readOutbound();
+            final ByteBuf copy = Unpooled.copiedBuffer(encoded);
+            encoded.release();
+            return copy;
+        }finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private static ByteBuf decode(final FrameCompressionCodec codec, final ByteBuf frame) {
+        final EmbeddedChannel channel = new EmbeddedChannel(codec);
+        try {
+            assertTrue(channel.writeInbound(frame));
+            final ByteBuf decoded = channel.readInbound();
+            final ByteBuf copy = Unpooled.copiedBuffer(decoded);
+            decoded.release();
+            return copy;
+        }finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private static ByteBuf frame(final byte[] data) {
+        final ByteBuf frame = Unpooled.buffer();
+        EnvelopeCodec.write(frame, new JRPCMessage("target", Message.TargetType.DIRECT, "source", new ConversationUID(1L),
+                data, VERSION, MessageType.MESSAGE.getId()), VERSION);
+        return frame;
+    }
+}
@@ -0,0 +1,146 @@
+package net.sxlver.jrpc.core.serialization;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import net.sxlver.jrpc.core.protocol.Packet;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CentralGsonTest {
+    private static final CentralGson GSON = CentralGson.PROTOCOL_INSTANCE;
+
+    @Test
+    void builderChangesApplyOnRebuild() throws IOException {
+        final BuilderValue value = new BuilderValue();
+        assertEquals("{\"value\":1}", GSON.toJson(value));
+
+        GSON.getGsonBuilder().registerTypeAdapter(BuilderValue.class, new FixedAdapter<BuilderValue>("builder"));
+        assertEquals("{\"value\":1}", GSON.toJson(value), "changes to the builder must not apply before rebuild()");
+
+        GSON.rebuild();
+        assertEquals("\"builder\"", GSON.toJson(value));
+    }
+
+    @Test
+    void registeredFactoriesSurviveRebuild() throws IOException {
+        GSON.registerTypeAdapter(factory(FactoryValue.class, "factory"));
+        assertEquals("\"factory\"", GSON.toJson(new FactoryValue()));
+
+        GSON.rebuild();
+        assertEquals("\"factory\"", GSON.toJson(new FactoryValue()));
+    }
+
+    @Test
+    void registeredPacketTypesRoundTrip() throws IOException {
+        GSON.registerPacketType(TestPacket.class);
+        final TestPacket packet = GSON.fromJson(GSON.toJson(new TestPacket("value", 7)), TestPacket.class);
+        assertEquals("value", packet.text);
+        assertEquals(7, packet.number);
+    }
+
+    @Test
+    void readersSeeConsistentSnapshotsWhileWritersRegister() throws Exception {
+        final int readers = 32;
+        final ExecutorService executor = Executors.newFixedThreadPool(readers);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final CountDownLatch started = new CountDownLatch(readers);
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                results.add(executor.submit(() -> {
+                    started.countDown();
+                    int serialized = 0;
+                    while(running.get()) {
+                        final TestPacket packet = GSON.fromJson(GSON.toJson(new TestPacket("concurrent", serialized)), TestPacket.class);
+                        assertEquals(serialized, packet.number);
+                        serialized++;
+                    }
+                    return serialized;
+                }));
+            }
+
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 100; i++) {
+                GSON.registerTypeAdapter(factory(WriterValue.class, "writer"));
+                GSON.registerPacketType(TestPacket.class);
+                GSON.rebuild();
+            }
+            running.set(false);
+
+            for (final Future<Integer> result : results) {
+                assertTrue(result.get(10, TimeUnit.SECONDS) > 0);
+            }
+        }finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+        assertEquals("\"writer\"", GSON.toJson(new WriterValue()));
+    }
+
+    private static <T> TypeAdapterFactory factory(final Class<T> type, final String json) {
+        return new TypeAdapterFactory() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <R> TypeAdapter<R> create(final Gson gson, final TypeToken<R> token) {
+                return token.getRawType() == type ? (TypeAdapter<R>) new FixedAdapter<T>(json) : null;
+            }
+        };
+    }
+
+    private static final class FixedAdapter<T> extends TypeAdapter<T> {
+        private final String json;
+
+        FixedAdapter(final String json) {
+            this.json = json;
+        }
+
+        @Override
+        public void write(final JsonWriter out, final T value) throws IOException {
+            out.value(json);
+        }
+
+        @Override
+        public T read(final JsonReader in) throws IOException {
+            in.skipValue();
+            return null;
+        }
+    }
+
+    static class TestPacket extends Packet {
+        String text;
+        int number;
+
+        TestPacket() {
+        }
+
+        TestPacket(final String text, final int number) {
+            this.text = text;
+            this.number = number;
+        }
+    }
+
+    static class BuilderValue {
+        int value = 1;
+    }
+
+    static class FactoryValue {
+    }
+
+    static class WriterValue {
+    }
+}
@@ -0,0 +1,94 @@
+package net.sxlver.jrpc.core.serialization;
+
+import net.sxlver.jrpc.core.protocol.Packet;
+import net.sxlver.jrpc.core.protocol.packet.HandshakeStatusPacket;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PacketTypeRegistryTest {
+
+    @Test
+    void assignedIdsAreScopedToTheirRegistry() {
+        final PacketTypeRegistry first = new PacketTypeRegistry();
+        final PacketTypeRegistry second = new PacketTypeRegistry();
+        first.register(FirstPacket.class);
+        second.register(FirstPacket.class);
+        second.register(SecondPacket.class);
+
+        first.applyAssignments(Map.of(FirstPacket.class.getName(), 300), true);
+        second.applyAssignments(Map.of(SecondPacket.class.getName(), 300, FirstPacket.class.getName(), 301), true);
+
+        assertEquals(300, first.getId(FirstPacket.class));
+        assertEquals(PacketTypeRegistry.UNASSIGNED, first.getId(SecondPacket.class));
+        assertEquals(FirstPacket.class, first.getType(300));
+        assertEquals(301, second.getId(FirstPacket.class));
+        assertEquals(SecondPacket.class, second.getType(300));
+
+        final FirstPacket packet = PacketDataSerializer.deserializePacket(PacketDataSerializer.serialize(new FirstPacket("value"), first), first);
+        assertEquals("value", packet.value);
+        final Object misread = PacketDataSerializer.deserializePacket(PacketDataSerializer.serialize(new FirstPacket("value"), first), second);
+        assertInstanceOf(SecondPacket.class, misread);
+    }
+
+    @Test
+    void builtInIdsAreSharedByAllRegistries() {
+        final PacketTypeRegistry registry = new PacketTypeRegistry();
+        final int id = PacketTypeRegistry.getBuiltInId(HandshakeStatusPacket.class);
+        assertNotEquals(PacketTypeRegistry.UNASSIGNED, id);
+        assertEquals(id, registry.getId(HandshakeStatusPacket.class));
+        assertEquals(HandshakeStatusPacket.class, PacketTypeRegistry.getBuiltInType(id));
+        assertEquals(PacketTypeRegistry.UNASSIGNED, PacketTypeRegistry.getBuiltInId(FirstPacket.class));
+    }
+
+    @Test
+    void packetsWithoutRegistryAreWrittenByName() {
+        final byte[] data = PacketDataSerializer.serialize(new FirstPacket("value"));
+        final PacketTypeRegistry registry = new PacketTypeRegistry();
+        registry.applyAssignments(Map.of(SecondPacket.class.getName(), 300), true);
+
+        final FirstPacket packet = PacketDataSerializer.deserializePacket(data, registry);
+        assertEquals("value", packet.value);
+        assertEquals(FirstPacket.class, PacketDataSerializer.extractClass(data));
+    }
+
+    @Test
+    void handshakeTableReplacesPreviousAssignments() {
+        final PacketTypeRegistry registry = new PacketTypeRegistry();
+        registry.register(FirstPacket.class);
+        registry.applyAssignments(Map.of(FirstPacket.class.getName(), 300), true);
+        registry.applyAssignments(Map.of(FirstPacket.class.getName(), 400), true);
+
+        assertEquals(400, registry.getId(FirstPacket.class));
+        assertNull(registry.getType(300));
+        assertEquals(List.of(FirstPacket.class.getName()), registry.getLocalTypeNames());
+    }
+
+    @Test
+    void serverAssignsIdsOnce() {
+        final PacketTypeRegistry registry = new PacketTypeRegistry();
+        final Map<String, Integer> assigned = registry.assignIds(List.of(FirstPacket.class.getName(), SecondPacket.class.getName()));
+        assertEquals(2, assigned.size());
+        assertTrue(registry.assignIds(List.of(FirstPacket.class.getName())).isEmpty());
+        assertEquals(assigned, registry.getAssignedIds());
+        assertEquals(FirstPacket.class, registry.getType(assigned.get(FirstPacket.class.getName())));
+    }
+
+    static class FirstPacket extends Packet {
+        String value;
+
+        FirstPacket() {
+        }
+
+        FirstPacket(final String value) {
+            this.value = value;
+        }
+    }
+
+    static class SecondPacket extends Packet {
+        String value;
+    }
+}
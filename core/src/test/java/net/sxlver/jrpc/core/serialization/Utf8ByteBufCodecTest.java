@@ -0,0 +1,94 @@
+package net.sxlver.jrpc.core.serialization;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Utf8ByteBufCodecTest {
+    private static final String MIXED = "ascii, ünïcödé, €, 中文, 😀 and 𐀀 􏿿";
+
+    @Test
+    void writerMatchesJdkEncoding() throws IOException {
+        assertArrayEquals(MIXED.getBytes(StandardCharsets.UTF_8), write(MIXED));
+    }
+
+    @Test
+    void writerReplacesUnpairedSurrogates() throws IOException {
+        assertEquals("a?b?c", new String(write("a\uD83Db\uDE00c"), StandardCharsets.UTF_8));
+        assertEquals("end?", new String(write("end\uD83D"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readerMatchesJdkDecoding() throws IOException {
+        assertEquals(MIXED, read(Unpooled.wrappedBuffer(MIXED.getBytes(StandardCharsets.UTF_8)), 1024));
+    }
+
+    @Test
+    void readerSplitsSurrogatePairsAcrossReads() throws IOException {
+        // a buffer of a single char forces the low surrogate to be carried over to the next read
+        assertEquals(MIXED, read(Unpooled.wrappedBuffer(MIXED.getBytes(StandardCharsets.UTF_8)), 1));
+    }
+
+    @Test
+    void readerReplacesMalformedSequences() throws IOException {
+        final byte[] malformed = {
+                'a',
+                (byte) 0xC0, (byte) 0x80,             // overlong encoding of U+0000
+                'b',
+                (byte) 0xE2, (byte) 0x82,             // truncated sequence followed by ASCII
+                'c',
+                (byte) 0xED, (byte) 0xA0, (byte) 0x80, // encoded surrogate
+                'd',
+                (byte) 0xE2, (byte) 0x82              // truncated at the end
+        };
+        final String jdk = new String(malformed, StandardCharsets.UTF_8);
+        final String decoded = read(Unpooled.wrappedBuffer(malformed), 1024);
+
+        assertEquals(jdk.replaceAll("�+", "�"), decoded.replaceAll("�+", "�"));
+        assertTrue(decoded.startsWith("a�"));
+        assertTrue(decoded.contains("b�"));
+        assertTrue(decoded.contains("c�"));
+    }
+
+    @Test
+    void roundTripsEveryCodePoint() throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        for (int codePoint = 0; codePoint <= Character.MAX_CODE_POINT; codePoint += 7) {
+            if(codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) continue;
+            builder.appendCodePoint(codePoint);
+        }
+        final String value = builder.toString();
+        final byte[] encoded = write(value);
+
+        assertArrayEquals(value.getBytes(StandardCharsets.UTF_8), encoded);
+        assertEquals(value, read(Unpooled.wrappedBuffer(encoded), 4096));
+    }
+
+    private static byte[] write(final String value) throws IOException {
+        final ByteBuf out = Unpooled.buffer();
+        try (final Utf8ByteBufWriter writer = new Utf8ByteBufWriter(out)) {
+            writer.write(value);
+        }
+        final byte[] bytes = new byte[out.readableBytes()];
+        out.readBytes(bytes);
+        return bytes;
+    }
+
+    private static String read(final ByteBuf in, final int bufferSize) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        final char[] buffer = new char[bufferSize];
+        try (final Reader reader = new Utf8ByteBufReader(in)) {
+            int read;
+            while((read = reader.read(buffer, 0, buffer.length)) != -1) {
+                builder.append(buffer, 0, read);
+            }
+        }
+        return builder.toString();
+    }
+}
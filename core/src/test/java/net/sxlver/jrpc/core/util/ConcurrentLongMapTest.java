@@ -0,0 +1,122 @@
+package net.sxlver.jrpc.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLongMapTest {
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        // a narrow key range keeps probe sequences long and removals shifting entries back
+        differential(new Random(1), 2, 64, 200_000);
+        differential(new Random(2), 8, 1 << 12, 200_000);
+        differential(new Random(3), 1, Long.MAX_VALUE, 50_000);
+    }
+
+    @Test
+    void growsAndShrinksWithoutLosingEntries() {
+        final ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(2);
+        final Map<Long, Long> expected = new HashMap<>();
+        for (long key = -5_000; key < 5_000; key++) {
+            assertNull(map.put(key * 31, key));
+            expected.put(key * 31, key);
+        }
+        assertEquals(expected, contents(map));
+
+        // removing all but a few entries shrinks the segments down again
+        for (long key = -5_000; key < 5_000; key++) {
+            if(key % 1_000 == 0) continue;
+            assertEquals(key, map.remove(key * 31));
+            expected.remove(key * 31);
+        }
+        assertEquals(expected, contents(map));
+        assertEquals(expected.size(), map.size());
+        for (final Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+
+        // and grow once more
+        for (long key = 0; key < 2_000; key++) {
+            map.put(key, key);
+            expected.put(key, key);
+        }
+        assertEquals(expected, contents(map));
+    }
+
+    @Test
+    void zeroIsAValidKey() {
+        final ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        assertFalse(map.containsKey(0));
+        map.put(0, "zero");
+        assertEquals("zero", map.get(0));
+        assertEquals("zero", map.remove(0));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void removesOnlyExpectedValue() {
+        final ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        map.put(1, "one");
+        assertFalse(map.remove(1, new String("one")));
+        assertEquals("one", map.get(1));
+        assertTrue(map.remove(1, map.get(1)));
+        assertNull(map.get(1));
+    }
+
+    @Test
+    void getAndRemoveIfReturnsValueEitherWay() {
+        final ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        map.put(1, "keep");
+        map.put(2, "drop");
+
+        assertEquals("keep", map.getAndRemoveIf(1, "drop"::equals));
+        assertEquals("drop", map.getAndRemoveIf(2, "drop"::equals));
+        assertNull(map.getAndRemoveIf(3, value -> true));
+
+        assertEquals("keep", map.get(1));
+        assertNull(map.get(2));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void rejectsNullValues() {
+        assertThrows(NullPointerException.class, () -> new ConcurrentLongMap<String>().put(1, null));
+    }
+
+    private static void differential(final Random random, final int concurrency, final long keyRange, final int operations) {
+        final ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(concurrency);
+        final Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < operations; i++) {
+            final long key = keyRange == Long.MAX_VALUE ? random.nextLong() : random.nextLong() % keyRange;
+            final long value = random.nextLong();
+            switch (random.nextInt(5)) {
+                case 0, 1 -> assertEquals(expected.put(key, value), map.put(key, value), "put " + key);
+                case 2 -> assertEquals(expected.remove(key), map.remove(key), "remove " + key);
+                case 3 -> {
+                    final Long removed = map.getAndRemoveIf(key, current -> (current & 1) == 0);
+                    assertEquals(expected.get(key), removed, "getAndRemoveIf " + key);
+                    if(removed != null && (removed & 1) == 0) {
+                        expected.remove(key);
+                    }
+                }
+                default -> assertEquals(expected.get(key), map.get(key), "get " + key);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, contents(map));
+        for (final Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    private static Map<Long, Long> contents(final ConcurrentLongMap<Long> map) {
+        final Map<Long, Long> contents = new HashMap<>();
+        map.forEach((key, value) -> assertNull(contents.put(key, value), "duplicate key " + key));
+        return contents;
+    }
+}
@@ -0,0 +1,73 @@
+package net.sxlver.jrpc.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HandlerTableTest {
+
+    @Test
+    void resolvesMatchingHandlersInRegistrationOrder() {
+        final HandlerTable<Handler> table = table();
+        final Handler numbers = new NumberHandler();
+        final Handler objects = new ObjectHandler();
+        table.register(numbers);
+        table.register(objects);
+
+        assertArrayEquals(new Handler[]{numbers, objects}, table.get(Integer.class));
+        assertArrayEquals(new Handler[]{objects}, table.get(String.class));
+        assertEquals(List.of(numbers, objects), table.getAll());
+    }
+
+    @Test
+    void replacesHandlerOfSameClassInPlace() {
+        final HandlerTable<Handler> table = table();
+        final Handler objects = new ObjectHandler();
+        table.register(new NumberHandler());
+        table.register(objects);
+        final Handler replacement = new NumberHandler();
+        table.register(replacement);
+
+        assertEquals(List.of(replacement, objects), table.getAll());
+        assertArrayEquals(new Handler[]{replacement, objects}, table.get(Long.class));
+    }
+
+    @Test
+    void invalidatesCachedLookupsOnChange() {
+        final HandlerTable<Handler> table = table();
+        assertEquals(0, table.get(Integer.class).length);
+
+        final Handler numbers = new NumberHandler();
+        table.register(numbers);
+        assertArrayEquals(new Handler[]{numbers}, table.get(Integer.class));
+        assertSame(table.get(Integer.class), table.get(Integer.class));
+
+        table.unregister(NumberHandler.class);
+        assertEquals(0, table.get(Integer.class).length);
+        assertTrue(table.getAll().isEmpty());
+    }
+
+    private static HandlerTable<Handler> table() {
+        return new HandlerTable<>(Handler[]::new, (handler, type) -> handler.target().isAssignableFrom(type));
+    }
+
+    private interface Handler {
+        Class<?> target();
+    }
+
+    private static final class NumberHandler implements Handler {
+        @Override
+        public Class<?> target() {
+            return Number.class;
+        }
+    }
+
+    private static final class ObjectHandler implements Handler {
+        @Override
+        public Class<?> target() {
+            return Object.class;
+        }
+    }
+}
@@ -4,11 +4,15 @@ import net.sxlver.jrpc.bukkit.JRPCBukkitService;
 import net.sxlver.jrpc.examplepluginservices.command.GetPlayerCommand;
 import net.sxlver.jrpc.examplepluginservices.command.LocatePlayerCommand;
 import net.sxlver.jrpc.examplepluginservices.command.SavePlayerCommand;
+import net.sxlver.jrpc.examplepluginservices.conversation.model.PlayerDTO;
+import net.sxlver.jrpc.examplepluginservices.conversation.oneway.SavePlayerRequest;
 import net.sxlver.jrpc.examplepluginservices.service.PlayerNetworkService;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.RegisteredServiceProvider;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.List;
+
 public class JRPCServiceExamplePlugin extends JavaPlugin {
 
     private JRPCBukkitService service;
@@ -21,6 +25,14 @@ public class JRPCServiceExamplePlugin extends JavaPlugin {
 
     @Override
     public final void onDisable() {
+        if(service == null) return;
+        // a single frame for every online player instead of one message each
+        final List<SavePlayerRequest> requests = Bukkit.getOnlinePlayers().stream()
+                .map(player -> new SavePlayerRequest(PlayerDTO.fromPlayer(player)))
+                .toList();
+        if(!requests.isEmpty()) {
+            service.broadcastBatch(requests);
+        }
     }
 
     private JRPCBukkitService getJRPCService() {
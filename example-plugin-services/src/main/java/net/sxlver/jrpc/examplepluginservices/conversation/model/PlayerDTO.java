@@ -1,12 +1,18 @@
 package net.sxlver.jrpc.examplepluginservices.conversation.model;
 
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
 import java.util.UUID;
 
+// the generated codec lives in this package and creates instances through the package-private members
 @Getter
+@Setter(AccessLevel.PACKAGE)
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
 public class PlayerDTO {
 
     private UUID uuid;
@@ -12,6 +12,8 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -35,20 +37,24 @@ public class BenchmarkCommand implements CommandExecutor {
 
         final String amount = args[0];
         final String size = args[1];
-        if(!StringUtils.isNumeric(amount)) {
-            sender.sendMessage(String.format("%sAmount arg and payload size must be numeric.", ChatColor.RED));
+        final String threadCount = args.length > 2 ? args[2] : "1";
+        if(!StringUtils.isNumeric(amount) || !StringUtils.isNumeric(size) || !StringUtils.isNumeric(threadCount)) {
+            sender.sendMessage(String.format("%sAmount arg, payload size and thread count must be numeric.", ChatColor.RED));
+            return true;
         }
 
         final int requests = Integer.parseInt(amount);
         final int payloadSize = Integer.parseInt(size);
+        final int threads = Math.max(1, Integer.parseInt(threadCount));
         final long timestamp = System.currentTimeMillis();
         final AtomicInteger sentRequestsAmount = new AtomicInteger();
         final AtomicReference<Long> requestsSentTimestamp = new AtomicReference<>();
 
-        sender.sendMessage(String.format("%sRunning benchmark with %s request(s).", ChatColor.GRAY, requests));
-        sendRequests(requestsSentTimestamp, sentRequestsAmount,requests, payloadSize, sender, this::onResponse).thenRun(() -> {
-            sender.sendMessage(String.format("Sent %d request(s) with a payload size of %d in %d millisecond(s).",
-                    sentRequestsAmount.get(), payloadSize, requestsSentTimestamp.get() - timestamp));
+        sender.sendMessage(String.format("%sRunning benchmark with %s request(s) on %d thread(s).", ChatColor.GRAY, requests, threads));
+        sendRequests(requestsSentTimestamp, sentRequestsAmount, requests, payloadSize, threads, sender, this::onResponse).thenRun(() -> {
+            final long duration = Math.max(1, requestsSentTimestamp.get() - timestamp);
+            sender.sendMessage(String.format("Sent %d request(s) with a payload size of %d in %d millisecond(s) (%d request(s)/s).",
+                    sentRequestsAmount.get(), payloadSize, duration, sentRequestsAmount.get() * 1000L / duration));
         });
         return true;
     }
@@ -70,19 +76,31 @@ public class BenchmarkCommand implements CommandExecutor {
                                                  final AtomicInteger sentRequests,
                                                  final int requests,
                                                  final int payloadSize,
+                                                 final int threads,
                                                  final CommandSender sender,
                                                  final TriConsumer<CommandSender, MessageContext<BenchmarkConversation.Response>, Integer> responseCallback) {
 
-        return CompletableFuture.runAsync(() -> {
-            final BenchmarkConversation.Request request = new BenchmarkConversation.Request(new byte[payloadSize]);
-            for (int i = 0; i < requests; i++) {
-                service.broadcast(request, BenchmarkConversation.Response.class)
-                        .waitFor(20000, TimeUnit.MILLISECONDS)
-                        .onResponse((res,context) -> responseCallback.accept(sender, context, requests));
+        // every thread publishes its share of the requests, with encodeOnCallerThread enabled
+        // the throughput scales with the number of threads instead of being bound by the event loop
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CompletableFuture<?>[] publishers = new CompletableFuture<?>[threads];
+        for (int thread = 0; thread < threads; thread++) {
+            final int share = requests / threads + (thread < requests % threads ? 1 : 0);
+            publishers[thread] = CompletableFuture.runAsync(() -> {
+                final BenchmarkConversation.Request request = new BenchmarkConversation.Request(new byte[payloadSize]);
+                for (int i = 0; i < share; i++) {
+                    service.broadcast(request, BenchmarkConversation.Response.class)
+                            .waitFor(20000, TimeUnit.MILLISECONDS)
+                            .onResponse((res,context) -> responseCallback.accept(sender, context, requests));
+
+                    sentRequests.incrementAndGet();
+                }
+            }, executor);
+        }
 
-                sentRequests.incrementAndGet();
-            }
+        return CompletableFuture.allOf(publishers).whenComplete((result, throwable) -> {
             requestTimestamp.set(System.currentTimeMillis());
+            executor.shutdown();
         });
     }
 }
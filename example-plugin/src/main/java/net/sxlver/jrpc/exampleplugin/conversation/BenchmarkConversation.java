@@ -8,6 +8,9 @@ import net.sxlver.jrpc.client.protocol.MessageHandler;
 import net.sxlver.jrpc.core.protocol.Packet;
 import net.sxlver.jrpc.exampleplugin.JRPCExamplePlugin;
 
+import java.util.Collection;
+import java.util.List;
+
 public class BenchmarkConversation {
     @AllArgsConstructor
     public static class Request extends Packet {
@@ -32,8 +35,8 @@ public class BenchmarkConversation {
         }
 
         @Override
-        public boolean shouldAccept(@NonNull Packet packet) {
-            return packet instanceof Request;
+        public Collection<Class<? extends Packet>> getPacketTypes() {
+            return List.of(Request.class);
         }
     }
 }
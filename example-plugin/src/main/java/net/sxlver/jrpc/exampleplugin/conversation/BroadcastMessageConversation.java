@@ -10,6 +10,9 @@ import net.sxlver.jrpc.exampleplugin.JRPCExamplePlugin;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 
+import java.util.Collection;
+import java.util.List;
+
 public class BroadcastMessageConversation {
     @AllArgsConstructor
     public static class Request extends Packet {
@@ -42,8 +45,8 @@ public class BroadcastMessageConversation {
         }
 
         @Override
-        public boolean shouldAccept(@NonNull Packet packet) {
-            return packet instanceof Request;
+        public Collection<Class<? extends Packet>> getPacketTypes() {
+            return List.of(Request.class);
         }
     }
 }
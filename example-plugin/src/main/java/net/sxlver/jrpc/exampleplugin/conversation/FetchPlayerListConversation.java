@@ -10,6 +10,7 @@ import net.sxlver.jrpc.exampleplugin.JRPCExamplePlugin;
 import net.sxlver.jrpc.exampleplugin.conversation.model.PlayerDTO;
 import org.bukkit.Bukkit;
 
+import java.util.Collection;
 import java.util.List;
 
 public class FetchPlayerListConversation {
@@ -41,8 +42,8 @@ public class FetchPlayerListConversation {
         }
 
         @Override
-        public boolean shouldAccept(@NonNull Packet packet) {
-            return packet instanceof Request;
+        public Collection<Class<? extends Packet>> getPacketTypes() {
+            return List.of(Request.class);
         }
     }
 }
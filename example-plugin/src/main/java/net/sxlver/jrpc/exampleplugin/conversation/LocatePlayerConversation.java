@@ -10,6 +10,8 @@ import net.sxlver.jrpc.exampleplugin.JRPCExamplePlugin;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -46,8 +48,8 @@ public class LocatePlayerConversation {
         }
 
         @Override
-        public boolean shouldAccept(@NonNull Packet packet) {
-            return packet instanceof Request;
+        public Collection<Class<? extends Packet>> getPacketTypes() {
+            return List.of(Request.class);
         }
     }
 }
@@ -1,18 +1,23 @@
 package net.sxlver.jrpc.server;
 
-import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.*;
 import io.netty.channel.epoll.Epoll;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelMatcher;
+import io.netty.channel.group.ChannelMatchers;
+import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import lombok.NonNull;
 import lombok.SneakyThrows;
 import net.sxlver.jrpc.core.InternalLogger;
@@ -20,22 +25,30 @@ import net.sxlver.jrpc.core.LogProvider;
 import net.sxlver.jrpc.core.config.ConfigurationManager;
 import net.sxlver.jrpc.core.config.DataFolderProvider;
 import net.sxlver.jrpc.core.protocol.*;
-import net.sxlver.jrpc.core.protocol.codec.JRPCMessageDecoder;
+import net.sxlver.jrpc.core.protocol.codec.EnvelopeCodec;
+import net.sxlver.jrpc.core.protocol.codec.FlushCoalescingHandler;
+import net.sxlver.jrpc.core.protocol.codec.FrameCompressionCodec;
 import net.sxlver.jrpc.core.protocol.impl.JRPCHandshake;
 import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
 import net.sxlver.jrpc.core.protocol.impl.JRPCMessageBuilder;
+import net.sxlver.jrpc.core.protocol.impl.JRPCRawMessage;
 import net.sxlver.jrpc.core.protocol.model.JRPCClientInformation;
 import net.sxlver.jrpc.core.protocol.packet.ErrorInformationResponse;
 import net.sxlver.jrpc.core.protocol.packet.HandshakeStatusPacket;
+import net.sxlver.jrpc.core.protocol.packet.PacketTypeAssignmentPacket;
 import net.sxlver.jrpc.core.serialization.CentralGson;
-import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
+import net.sxlver.jrpc.core.serialization.PacketTypeRegistry;
+import net.sxlver.jrpc.core.util.HandlerTable;
 import net.sxlver.jrpc.core.util.StringUtil;
 import net.sxlver.jrpc.server.config.JRPCServerConfig;
+import net.sxlver.jrpc.server.model.ClientRegistry;
 import net.sxlver.jrpc.server.model.JRPCClientInstance;
 import net.sxlver.jrpc.server.protocol.*;
+import net.sxlver.jrpc.server.protocol.codec.JRPCServerMessageDecoder;
 import net.sxlver.jrpc.server.protocol.codec.JRPCServerMessageEncoder;
 import net.sxlver.jrpc.server.selector.TargetSelector;
 import net.sxlver.jrpc.server.selector.TargetSelectors;
+import net.sxlver.jrpc.server.selector.loadbalancing.LoadBalancer;
 import net.sxlver.jrpc.server.util.DataFolder;
 import net.sxlver.jrpc.server.util.LazyInitVar;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -44,20 +57,23 @@ import org.jetbrains.annotations.NotNull;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Objects;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class JRPCServer implements DataFolderProvider, ProtocolInformationProvider, LogProvider, DataSource {
     
-    public static final ProtocolVersion PROTOCOL_VERSION = ProtocolVersion.V0_1;
+    public static final ProtocolVersion PROTOCOL_VERSION = ProtocolVersion.V0_2;
     private final InternalLogger logger;
 
-    private final Collection<ServerMessageHandler<Packet>> defaultServerMessageHandler;
+    private final HandlerTable<ServerMessageHandler<?>> messageHandlers = new HandlerTable<>(ServerMessageHandler<?>[]::new,
+            (handler, packetType) -> handler.getTarget().isAssignableFrom(packetType));
 
     private static final LazyInitVar<NioEventLoopGroup> nioLazyVar = new LazyInitVar<>(()
             -> new NioEventLoopGroup(0, (new ThreadFactoryBuilder()).setNameFormat("Netty JRPC IO #%d").setDaemon(true).build()));
@@ -72,7 +88,17 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
     private EventLoopGroup loopGroup;
     private final SocketAddress localAddress;
 
-    private final Set<JRPCClientInstance> connected = Sets.newSetFromMap(new ConcurrentHashMap<>());
+    private final ClientRegistry clientRegistry = new ClientRegistry();
+    private final LoadBalancer loadBalancer;
+    // channels of all connected clients, used to fan out TYPE and ALL messages
+    private final ChannelGroup connectedChannels = new DefaultChannelGroup("jrpc-all", GlobalEventExecutor.INSTANCE);
+    private final Map<String, ChannelGroup> connectedChannelsByType = new ConcurrentHashMap<>();
+
+    private final ConversationUIDSequence conversationUIDs = new ConversationUIDSequence(ConversationUIDSequence.SERVER_EPOCH);
+    // starts at a random epoch, so that clients still connected to a previous instance hardly ever share epochs with new ones
+    private final AtomicInteger conversationEpochs = new AtomicInteger(ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE));
+    // ids assigned by this server, shared by all of its clients
+    private final PacketTypeRegistry packetTypes = new PacketTypeRegistry();
 
     private String dataFolder;
 
@@ -88,10 +114,11 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
         this.config = configurationManager.getConfig(JRPCServerConfig.class, true);
         this.localAddress = new InetSocketAddress("localhost", config.getPort());
         this.centralGson = CentralGson.PROTOCOL_INSTANCE;
+        this.loadBalancer = new LoadBalancer(config, clientRegistry, logger);
         this.logger.setLogLevel(config.getLoggingLevel());
         Runtime.getRuntime().addShutdownHook(new Thread(this::close));
         Thread.currentThread().setUncaughtExceptionHandler((thread, throwable) -> logger.fatal("An unexpected Exception occurred. {}", ExceptionUtils.getStackTrace(throwable)));
-        this.defaultServerMessageHandler = DefaultHandlerRegistry.getMessageHandlers();
+        DefaultHandlerRegistry.getMessageHandlers().forEach(this::registerMessageHandler);
     }
 
     public CompletableFuture<ChannelFuture> runAsync(final long wait, final TimeUnit waitUnit) {
@@ -120,6 +147,7 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
                     .group(this.loopGroup = loopGroup.get()
                     ).localAddress(localAddress).bind().syncUninterruptibly();
 
+            this.loopGroup.scheduleAtFixedRate(this::expireOutstandingRequests, 1, 1, TimeUnit.SECONDS);
             logger.info("Running server on {}", localAddress);
             return listeningChannel.channel().closeFuture();
         }
@@ -129,8 +157,11 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
      * Initiates a shutdown of the server and cleans up resources.
      */
     public void close() {
+        if(listeningChannel == null) return;
         listeningChannel.channel().close().syncUninterruptibly();
-        connected.stream().map(JRPCClientInstance::getNetHandler).forEach(JRPCServerChannelHandler::shutdown);
+        for (final JRPCClientInstance instance : clientRegistry.all()) {
+            instance.getNetHandler().shutdown();
+        }
 
         try {
             logger.info("shutting down event loop group");
@@ -202,7 +233,12 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
      * @return the registered clients
      */
     public Collection<JRPCClientInformation> getRegisteredClients() {
-        return connected.stream().map(JRPCClientInstance::getInformation).collect(Collectors.toList());
+        final JRPCClientInstance[] instances = clientRegistry.all();
+        final List<JRPCClientInformation> information = new ArrayList<>(instances.length);
+        for (final JRPCClientInstance instance : instances) {
+            information.add(instance.getInformation());
+        }
+        return information;
     }
 
     /**
@@ -211,22 +247,106 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
      * @return the registered clients raw
      */
     public Collection<JRPCClientInstance> getRegisteredClientsRaw() {
-        return connected;
+        return List.of(clientRegistry.all());
+    }
+
+    /**
+     * Gets the index of all authenticated clients.
+     *
+     * @return the client registry
+     */
+    public ClientRegistry getClientRegistry() {
+        return clientRegistry;
+    }
+
+    /**
+     * Gets the load balancer picking the targets of load balanced messages.
+     *
+     * @return the load balancer
+     */
+    public LoadBalancer getLoadBalancer() {
+        return loadBalancer;
     }
 
     /**
-     * On receive.
+     * Gets the packet type ids assigned by this server.
+     *
+     * @return the packet type registry
+     */
+    public PacketTypeRegistry getPacketTypes() {
+        return packetTypes;
+    }
+
+    /**
+     * Creates a uid for a conversation started by the server.
+     *
+     * @return the uid
+     */
+    public ConversationUID newConversationUID() {
+        return conversationUIDs.next();
+    }
+
+    private void expireOutstandingRequests() {
+        final long deadline = System.currentTimeMillis() - config.getOutstandingRequestTimeout();
+        for (final JRPCClientInstance instance : clientRegistry.all()) {
+            instance.getOutstandingRequests().expire(deadline);
+        }
+    }
+
+    /**
+     * Passes a packet targeting the server down to the message handlers whose target type it is assignable to.
      *
      * @param source        the source
      * @param sourceMessage the source message
      * @param packet        the packet
      */
+    @SuppressWarnings("unchecked")
     public void onReceive(final JRPCServerChannelHandler source, final JRPCMessage sourceMessage, final Packet packet) {
-        for (final ServerMessageHandler<Packet> handler : defaultServerMessageHandler) {
-            if(!handler.getTarget().isAssignableFrom(packet.getClass())) continue;
-            final ServerMessageContext<Packet> context = new ServerMessageContext<>(packet, source, sourceMessage);
-            handler.handle(this, context);
+        final ServerMessageHandler<?>[] handlers = messageHandlers.get(packet.getClass());
+        if(handlers.length == 0) {
+            logger.debugFine("No server message handler for {} received from {}.", packet.getClass(), sourceMessage.source());
+            return;
         }
+
+        final ServerMessageContext<Packet> context = new ServerMessageContext<>(packet, source, sourceMessage);
+        for (final ServerMessageHandler<?> handler : handlers) {
+            try {
+                ((ServerMessageHandler<Packet>) handler).handle(this, context);
+            }catch(final Exception exception) {
+                logger.fatal("Server message handler {} failed to handle {}. {}", handler.getClass().getSimpleName(), packet.getClass(), ExceptionUtils.getStackTrace(exception));
+            }
+        }
+    }
+
+    /**
+     * Registers a handler for packets targeting the server, replacing a registered handler of the same class.
+     * Embedding servers may use this to add their own handlers next to the {@link DefaultHandlerRegistry default ones}.
+     *
+     * @param <T>     the packet type
+     * @param handler the handler
+     */
+    public <T extends Packet> void registerMessageHandler(final @NonNull ServerMessageHandler<T> handler) {
+        messageHandlers.register(handler);
+        logger.debugFine("Registered server message handler {} for {}", handler.getClass().getSimpleName(), handler.getTarget().getSimpleName());
+    }
+
+    /**
+     * Unregisters the handler of the given class for packets targeting the server.
+     *
+     * @param handlerCls the handler class
+     */
+    public void unregisterMessageHandler(final @NonNull Class<? extends ServerMessageHandler<?>> handlerCls) {
+        messageHandlers.unregister(handlerCls);
+        logger.debugFine("Unregistered server message handler {}", handlerCls.getSimpleName());
+    }
+
+    /**
+     * Gets the handlers registered for packets targeting the server.
+     *
+     * @return the handlers in registration order
+     */
+    public Collection<ServerMessageHandler<?>> getMessageHandlers() {
+        return messageHandlers.getAll();
     }
 
     /**
@@ -253,7 +373,41 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
         }
 
         final boolean success = channelHandler.onHandshakeSuccess(handshake);
-        return new HandshakeStatusPacket(success);
+        if(!success) {
+            return new HandshakeStatusPacket(false);
+        }
+
+        final Map<String, Integer> assigned = packetTypes.assignIds(handshake.getPacketTypes());
+        if(!assigned.isEmpty()) {
+            announcePacketTypes(assigned, channelHandler);
+        }
+        final boolean compression = handshake.isSupportsCompression();
+        ((FrameCompressionCodec) pipeline.get("compression_codec")).setEnabled(compression);
+        return new HandshakeStatusPacket(true, "", packetTypes.getAssignedIds(), compression, nextConversationEpoch());
+    }
+
+    // epochs 1 to Integer.MAX_VALUE, 0 is the server's own
+    private int nextConversationEpoch() {
+        return Math.floorMod(conversationEpochs.getAndIncrement(), Integer.MAX_VALUE) + 1;
+    }
+
+    /**
+     * Sends newly assigned packet type ids to every connected client except the one whose
+     * handshake caused the assignment, it receives the complete table with its handshake response.
+     */
+    private void announcePacketTypes(final Map<String, Integer> assigned, final JRPCServerChannelHandler invoker) {
+        final JRPCMessage announcement = JRPCMessageBuilder.builder()
+                .source(this)
+                .targetType(Message.TargetType.ALL)
+                .target("")
+                .conversationUid(newConversationUID())
+                .packet(new PacketTypeAssignmentPacket(assigned))
+                .build();
+
+        final ByteBuf frame = invoker.getChannel().alloc().ioBuffer(EnvelopeCodec.estimateLength(announcement));
+        EnvelopeCodec.write(frame, announcement, getProtocolVersion().getVersionNumber());
+        connectedChannels.writeAndFlush(frame, ChannelMatchers.isNot(invoker.getChannel()));
+        logger.debugFine("Assigned {} new packet type id(s).", assigned.size());
     }
 
     /**
@@ -263,7 +417,7 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
      * @return true if a client with the given unique id exists
      */
     public boolean clientExists(final String uniqueId) {
-        return !selectDirect(uniqueId).isEmpty();
+        return clientRegistry.contains(uniqueId);
     }
 
     private boolean verifyHandshake(final JRPCHandshake handshake) {
@@ -273,34 +427,52 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
     /**
      * Forwards message to the client(s) matching the message target.
      *
+     * <p>{@link JRPCRawMessage}s are forwarded as the frame they were received in,
+     * any other message is encoded again for each target, unless it is sent to a
+     * {@link Message.TargetType#TYPE} or {@link Message.TargetType#ALL} target, see
+     * {@link #broadcast(Message, JRPCServerChannelHandler)}.
+     *
      * @param message the message
      * @param invoker the invoker
      */
-    public void forward(final @NonNull JRPCMessage message, final @NonNull JRPCServerChannelHandler invoker) {
+    public void forward(final @NonNull Message message, final @NonNull JRPCServerChannelHandler invoker) {
         final Message.TargetType targetType = message.targetType();
+        if(targetType == Message.TargetType.TYPE || targetType == Message.TargetType.ALL) {
+            broadcast(message, invoker);
+            return;
+        }
+
         final TargetSelector targetSelector = TargetSelectors.getByTargetType(targetType);
-        Collection<JRPCClientInstance> sendTo = targetSelector.select(message.target(), getRegisteredClientsRaw());
+        final Collection<JRPCClientInstance> sendTo = targetSelector.select(message, this);
 
-        final String target = (targetType == Message.TargetType.TYPE || targetType == Message.TargetType.ALL) ? "*" : message.target();
-        if(sendTo.isEmpty() || sendTo.stream().noneMatch(Objects::nonNull)) {
+        final String target = message.target();
+        if(sendTo.isEmpty()) {
             final JRPCMessage errorMessage = buildDirectResponse(new ErrorInformationResponse(Errors.ERR_NO_TARGET_FOUND, "No suitable target found."), message.source(), message.conversationId());
             invoker.write(errorMessage);
             logger.info("{} No suitable target found whilst forwarding message. [Type: {}] [Source: {}] [Target: {}]", "[MESSAGE FORWARD]", targetType, message.source(), target);
             return;
         }
 
-        if(!config.isAllowSelfForward()) {
-            sendTo.removeIf(jrpcClientInstance -> jrpcClientInstance.getUniqueId().equals(message.source()));
-            if(targetType == Message.TargetType.DIRECT && sendTo.isEmpty()) {
-                logger.warn("Client {} tried to forward a message to themselves but allow-self-forward is set to false.", target);
-                final JRPCMessage errorMessage = buildDirectResponse(new ErrorInformationResponse(Errors.ERR_SELF_REFERENCE, "Clients are not allowed to directly reference themselves."), message.source(), message.conversationId());
-                invoker.write(errorMessage);
-                return;
+        final boolean allowSelfForward = config.isAllowSelfForward();
+        // only requests awaiting a response are answered, anything else would count as outstanding until it expires
+        final boolean trackOutstanding = targetType == Message.TargetType.LOAD_BALANCED && message.isResponseExpected();
+        for (final JRPCClientInstance instance : sendTo) {
+            if(!allowSelfForward && instance.getUniqueId().equals(message.source())) {
+                if(targetType == Message.TargetType.DIRECT) {
+                    logger.warn("Client {} tried to forward a message to themselves but allow-self-forward is set to false.", target);
+                    final JRPCMessage errorMessage = buildDirectResponse(new ErrorInformationResponse(Errors.ERR_SELF_REFERENCE, "Clients are not allowed to directly reference themselves."), message.source(), message.conversationId());
+                    invoker.write(errorMessage);
+                    return;
+                }
+                continue;
+            }
+            // before writing, as the response may arrive before the write returns
+            if(trackOutstanding) {
+                instance.getOutstandingRequests().begin(message);
             }
+            instance.getNetHandler().forward(message);
         }
-
-        sendTo.stream().filter(Objects::nonNull).forEach(jrpcClientInstance -> jrpcClientInstance.getNetHandler().write(message));
-        logForward(targetType, message.source(), target, message.data().length);
+        logForward(targetType, message.source(), target, message.dataLength());
     }
 
     /**
@@ -310,7 +482,53 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
      * @return the collection
      */
     public Collection<JRPCClientInstance> selectDirect(final String uniqueId) {
-        return TargetSelectors.TARGET_SELECTOR_DIRECT.select(uniqueId, getRegisteredClientsRaw());
+        return TargetSelectors.TARGET_SELECTOR_DIRECT.select(uniqueId, this);
+    }
+
+    /**
+     * Writes a TYPE or ALL message to every channel of the matching channel group. The
+     * envelope is encoded only once and every channel is handed a retained duplicate of
+     * the same frame. Frames above the compression threshold are also compressed only once,
+     * channels with compression enabled are handed the compressed frame.
+     *
+     * @param message the message
+     * @param invoker the invoker
+     */
+    private void broadcast(final @NonNull Message message, final @NonNull JRPCServerChannelHandler invoker) {
+        final Message.TargetType targetType = message.targetType();
+        final ChannelGroup group = targetType == Message.TargetType.ALL ? connectedChannels : connectedChannelsByType.get(message.target());
+        if(group == null || group.isEmpty()) {
+            final JRPCMessage errorMessage = buildDirectResponse(new ErrorInformationResponse(Errors.ERR_NO_TARGET_FOUND, "No suitable target found."), message.source(), message.conversationId());
+            invoker.write(errorMessage);
+            logger.info("{} No suitable target found whilst forwarding message. [Type: {}] [Source: {}] [Target: {}]", "[MESSAGE FORWARD]", targetType, message.source(), "*");
+            return;
+        }
+
+        final ByteBuf frame;
+        if(message instanceof JRPCRawMessage rawMessage) {
+            frame = rawMessage.content().retain();
+        }else {
+            frame = invoker.getChannel().alloc().ioBuffer(EnvelopeCodec.estimateLength((JRPCMessage) message));
+            EnvelopeCodec.write(frame, (JRPCMessage) message, getProtocolVersion().getVersionNumber());
+        }
+
+        final ChannelMatcher matcher = config.isAllowSelfForward() ? ChannelMatchers.all() : ChannelMatchers.isNot(invoker.getChannel());
+        final ByteBuf compressed = group.stream().anyMatch(channel -> matcher.matches(channel) && isCompressing(channel))
+                ? FrameCompressionCodec.compress(invoker.getChannel().alloc(), frame, config.getCompressionThreshold())
+                : null;
+        // the group writes a retained duplicate to every channel and releases the frame afterwards
+        if(compressed == null) {
+            group.writeAndFlush(frame, matcher);
+        }else {
+            group.writeAndFlush(compressed, ChannelMatchers.compose(matcher, JRPCServer::isCompressing));
+            group.writeAndFlush(frame, ChannelMatchers.compose(matcher, channel -> !isCompressing(channel)));
+        }
+        logForward(targetType, message.source(), "*", message.dataLength());
+    }
+
+    private static boolean isCompressing(final Channel channel) {
+        final FrameCompressionCodec codec = (FrameCompressionCodec) channel.pipeline().get("compression_codec");
+        return codec != null && codec.isEnabled();
     }
 
     private void logForward(final Message.TargetType targetType, final String source, final String target, final int dataLen) {
@@ -331,7 +549,7 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
                 .targetType(Message.TargetType.DIRECT)
                 .target(target)
                 .conversationUid(uid)
-                .data(PacketDataSerializer.serialize(packet))
+                .packet(packet, packetTypes)
                 .build();
     }
 
@@ -344,8 +562,11 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
             } catch (ChannelException exception) {
                 logger.fatal("Error whilst setting TCP_NODELAY option: {}", ExceptionUtils.getStackTrace(exception));
             }
-            channel.pipeline().addLast("frame_decoder", new LengthFieldBasedFrameDecoder(Message.MAX_PACKET_LENGTH, 0, 4,0,4));
-            channel.pipeline().addLast("message_decoder", new JRPCMessageDecoder<>(JRPCServer.this));
+            channel.pipeline().addLast("flush_coalescing", new FlushCoalescingHandler(config.getMaxCoalescedFlushes(), config.getMaxFlushDelayMicros()));
+            // the length prefix is kept in order to forward frames unchanged, see JRPCServerMessageDecoder
+            channel.pipeline().addLast("frame_decoder", new LengthFieldBasedFrameDecoder(Message.MAX_PACKET_LENGTH, 0, 4,0,0));
+            channel.pipeline().addLast("compression_codec", new FrameCompressionCodec(config.getCompressionThreshold(), true));
+            channel.pipeline().addLast("message_decoder", new JRPCServerMessageDecoder(JRPCServer.this));
             //channel.pipeline().addLast("timeout_handler", new ReadTimeoutHandler(config.getReadTimeout(), TimeUnit.SECONDS));
             channel.pipeline().addLast("handshake_handler", new JRPCServerHandshakeHandler(JRPCServer.this));
             channel.pipeline().addLast("message_handler", new JRPCServerChannelHandler(JRPCServer.this));
@@ -359,7 +580,14 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
      * @param instance the instance
      */
     public void addConnected(final @NonNull JRPCClientInstance instance) {
-        connected.add(instance);
+        if(!clientRegistry.register(instance)) {
+            logger.warn("Client {} has already been registered by another connection.", instance.getUniqueId());
+            return;
+        }
+        loadBalancer.onJoin(instance);
+        final Channel channel = instance.getNetHandler().getChannel();
+        connectedChannels.add(channel);
+        connectedChannelsByType.computeIfAbsent(instance.getType(), type -> new DefaultChannelGroup("jrpc-" + type, GlobalEventExecutor.INSTANCE)).add(channel);
     }
 
 
@@ -369,14 +597,23 @@ public class JRPCServer implements DataFolderProvider, ProtocolInformationProvid
      * @param instance the instance
      */
     public void removeConnected(final @NonNull JRPCClientInstance instance) {
-        connected.remove(instance);
+        if(!clientRegistry.unregister(instance)) {
+            return;
+        }
+        loadBalancer.onLeave(instance);
+        final Channel channel = instance.getNetHandler().getChannel();
+        connectedChannels.remove(channel);
+        connectedChannelsByType.computeIfPresent(instance.getType(), (type, group) -> {
+            group.remove(channel);
+            return group.isEmpty() ? null : group;
+        });
     }
 
     /**
      * Whether the given client instance exists in the cache
      */
     public boolean isConnected(final @NonNull JRPCClientInstance instance) {
-        return connected.stream().anyMatch(other -> other.getUniqueId().equalsIgnoreCase(instance.getUniqueId()));
+        return clientRegistry.isRegistered(instance);
     }
 
     /**
@@ -9,6 +9,8 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.logging.Level;
 
@@ -41,4 +43,56 @@ public class JRPCServerConfig extends YamlConfiguration {
 
     @Comment("Whether clients should be able to see IP-Addresses from other clients in the network")
     private boolean hideIpsFromClients = false;
+
+    @Comment({
+            "Whether messages between clients are forwarded as they were received.",
+            "Only the routing information is read, the original frame is written to the target(s)",
+            "without decoding and encoding the message again."
+    })
+    private boolean passThroughForwarding = true;
+
+    @Comment({
+            "Load balancing strategy used for LOAD_BALANCED messages if the target type has no",
+            "entry in loadBalancingStrategies. Built-in strategies are LEAST_RECENTLY_WRITTEN,",
+            "ROUND_ROBIN, POWER_OF_TWO_CHOICES, LEAST_OUTSTANDING and WEIGHTED."
+    })
+    private String defaultLoadBalancingStrategy = "LEAST_OUTSTANDING";
+
+    @Comment("Load balancing strategy per client type, e.g. 'lobby: ROUND_ROBIN'")
+    private Map<String, String> loadBalancingStrategies = new HashMap<>();
+
+    @Comment("Weight per client unique id used by the WEIGHTED strategy. Clients without an entry have a weight of 1.")
+    private Map<String, Integer> loadBalancingWeights = new HashMap<>();
+
+    @Comment({
+            "Time in ms after which a load balanced request that has not been answered",
+            "no longer counts towards the outstanding requests of its target."
+    })
+    private long outstandingRequestTimeout = 10000;
+
+    @Comment({
+            "Number of virtual nodes each client is placed on the consistent hash ring with.",
+            "Used to route LOAD_BALANCED messages that carry a routing key. Higher values spread",
+            "keys more evenly at the cost of memory."
+    })
+    private int consistentHashVirtualNodes = 160;
+
+    @Comment({
+            "Frames of at least this many bytes are compressed before they are sent to a client,",
+            "provided the client supports compression. Set to -1 to disable compression."
+    })
+    private int compressionThreshold = 1024;
+
+    @Comment({
+            "Flushes to a client are coalesced until this many messages are pending or the network thread",
+            "has processed all writes submitted so far. Set to 1 to flush every message on its own."
+    })
+    private int maxCoalescedFlushes = 256;
+
+    @Comment({
+            "The maximum time in microseconds a flush may be delayed to wait for further messages.",
+            "0 flushes as soon as the network thread has processed all pending writes, which does not",
+            "add any noticeable latency."
+    })
+    private int maxFlushDelayMicros = 0;
 }
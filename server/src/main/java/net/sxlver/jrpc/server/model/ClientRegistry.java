@@ -0,0 +1,125 @@
+package net.sxlver.jrpc.server.model;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of all authenticated clients, keyed by unique id and by type.
+ *
+ * <p>Lookups never iterate over the registered clients. The members of each type, as well
+ * as all registered clients, are kept as immutable snapshot arrays that are rebuilt whenever
+ * a client joins or leaves. Readers can therefore iterate them without any locking, the
+ * arrays returned by this class must not be modified.
+ */
+public class ClientRegistry {
+    private static final JRPCClientInstance[] EMPTY = new JRPCClientInstance[0];
+
+    private final Map<String, JRPCClientInstance> byUniqueId = new ConcurrentHashMap<>();
+    private final Map<String, JRPCClientInstance[]> byType = new ConcurrentHashMap<>();
+    private volatile JRPCClientInstance[] all = EMPTY;
+
+    /**
+     * Registers the given client.
+     *
+     * @param instance the client
+     * @return false if a client with the same unique id is already registered
+     */
+    public synchronized boolean register(final @NonNull JRPCClientInstance instance) {
+        if(byUniqueId.putIfAbsent(instance.getUniqueId(), instance) != null) {
+            return false;
+        }
+        byType.merge(instance.getType(), new JRPCClientInstance[]{instance}, (members, ignored) -> append(members, instance));
+        all = append(all, instance);
+        return true;
+    }
+
+    /**
+     * Removes the given client. Nothing happens if another instance has been registered
+     * under the same unique id.
+     *
+     * @param instance the client
+     * @return true if the client was registered
+     */
+    public synchronized boolean unregister(final @NonNull JRPCClientInstance instance) {
+        if(!byUniqueId.remove(instance.getUniqueId(), instance)) {
+            return false;
+        }
+        byType.computeIfPresent(instance.getType(), (type, members) -> {
+            final JRPCClientInstance[] remaining = remove(members, instance);
+            return remaining.length == 0 ? null : remaining;
+        });
+        all = remove(all, instance);
+        return true;
+    }
+
+    /**
+     * Returns the client registered under the given unique id.
+     *
+     * @param uniqueId the unique id
+     * @return the client or null if there is none
+     */
+    @Nullable
+    public JRPCClientInstance get(final String uniqueId) {
+        return uniqueId == null ? null : byUniqueId.get(uniqueId);
+    }
+
+    public boolean contains(final String uniqueId) {
+        return get(uniqueId) != null;
+    }
+
+    /**
+     * Whether exactly this instance is the one registered under its unique id.
+     *
+     * @param instance the client
+     * @return true if the instance is registered
+     */
+    public boolean isRegistered(final @NonNull JRPCClientInstance instance) {
+        return byUniqueId.get(instance.getUniqueId()) == instance;
+    }
+
+    /**
+     * Returns the snapshot of all clients of the given type.
+     *
+     * @param type the client type
+     * @return the clients, an empty array if there are none
+     */
+    public JRPCClientInstance[] ofType(final String type) {
+        if(type == null) return EMPTY;
+        final JRPCClientInstance[] members = byType.get(type);
+        return members == null ? EMPTY : members;
+    }
+
+    /**
+     * Returns the snapshot of all registered clients.
+     *
+     * @return the clients
+     */
+    public JRPCClientInstance[] all() {
+        return all;
+    }
+
+    public int size() {
+        return all.length;
+    }
+
+    private static JRPCClientInstance[] append(final JRPCClientInstance[] members, final JRPCClientInstance instance) {
+        final JRPCClientInstance[] result = Arrays.copyOf(members, members.length + 1);
+        result[members.length] = instance;
+        return result;
+    }
+
+    private static JRPCClientInstance[] remove(final JRPCClientInstance[] members, final JRPCClientInstance instance) {
+        for (int i = 0; i < members.length; i++) {
+            if(members[i] != instance) continue;
+            final JRPCClientInstance[] result = new JRPCClientInstance[members.length - 1];
+            System.arraycopy(members, 0, result, 0, i);
+            System.arraycopy(members, i + 1, result, i, members.length - i - 1);
+            return result;
+        }
+        return members;
+    }
+}
@@ -13,6 +13,9 @@ public class JRPCClientInstance {
     @Getter
     private final JRPCClientInformation information;
 
+    @Getter
+    private final OutstandingRequests outstandingRequests = new OutstandingRequests();
+
     public JRPCClientInstance(final @NonNull JRPCServerChannelHandler handler) {
         this.handler = handler;
 
@@ -0,0 +1,83 @@
+package net.sxlver.jrpc.server.model;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.core.protocol.Message;
+import net.sxlver.jrpc.core.protocol.codec.EnvelopeCodec;
+import net.sxlver.jrpc.core.protocol.impl.JRPCBatchMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCRawMessage;
+import net.sxlver.jrpc.core.util.ConcurrentLongMap;
+
+/**
+ * Tracks the conversations that have been forwarded to a client as load balanced requests
+ * awaiting a response and have not been answered yet. A conversation is answered once the
+ * client sends any message carrying the same conversation uid.
+ */
+public class OutstandingRequests {
+    private final ConcurrentLongMap<Long> startedAt = new ConcurrentLongMap<>();
+
+    public void begin(final long conversationUid) {
+        startedAt.put(conversationUid, System.currentTimeMillis());
+    }
+
+    /**
+     * Marks the conversation of the given message, or of each entry of a batch, as outstanding.
+     *
+     * @param message the message
+     */
+    public void begin(final @NonNull Message message) {
+        for (final long conversationUid : conversationUids(message)) {
+            begin(conversationUid);
+        }
+    }
+
+    /**
+     * Marks the given conversation as answered.
+     *
+     * @param conversationUid the conversation uid
+     * @return true if the conversation was outstanding
+     */
+    public boolean complete(final long conversationUid) {
+        return startedAt.remove(conversationUid) != null;
+    }
+
+    /**
+     * Marks the conversation of the given message, or of each entry of a batch, as answered.
+     *
+     * @param message the message
+     */
+    public void complete(final @NonNull Message message) {
+        for (final long conversationUid : conversationUids(message)) {
+            complete(conversationUid);
+        }
+    }
+
+    public int count() {
+        return startedAt.size();
+    }
+
+    // every entry of a batch is a conversation of its own
+    private static long[] conversationUids(final Message message) {
+        if(message instanceof JRPCBatchMessage batch) {
+            return batch.getEntries().stream().mapToLong(entry -> entry.conversationId().uid()).toArray();
+        }
+        if(message instanceof JRPCRawMessage rawMessage) {
+            final long[] uids = EnvelopeCodec.readBatchUids(rawMessage);
+            if(uids != null) return uids;
+        }
+        return new long[]{message.conversationId().uid()};
+    }
+
+    /**
+     * Drops all conversations that have been started before the given point in time.
+     *
+     * @param deadline time in ms since the epoch
+     */
+    public void expire(final long deadline) {
+        startedAt.forEach((conversationUid, started) -> {
+            if(started < deadline) {
+                // skipped if the conversation has been answered or started again in the meantime
+                startedAt.remove(conversationUid, started);
+            }
+        });
+    }
+}
@@ -7,9 +7,11 @@ import io.netty.handler.timeout.ReadTimeoutException;
 import lombok.NonNull;
 import net.sxlver.jrpc.core.protocol.*;
 import net.sxlver.jrpc.core.protocol.Errors;
+import net.sxlver.jrpc.core.protocol.impl.JRPCChunkMessage;
 import net.sxlver.jrpc.core.protocol.impl.JRPCHandshake;
 import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
 import net.sxlver.jrpc.core.protocol.impl.JRPCMessageBuilder;
+import net.sxlver.jrpc.core.protocol.impl.JRPCRawMessage;
 import net.sxlver.jrpc.core.protocol.packet.ErrorInformationResponse;
 import net.sxlver.jrpc.core.serialization.PacketDataSerializer;
 import net.sxlver.jrpc.server.JRPCServer;
@@ -19,7 +21,7 @@ import org.jetbrains.annotations.NotNull;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
 
-public class JRPCServerChannelHandler extends SimpleChannelInboundHandler<JRPCMessage> {
+public class JRPCServerChannelHandler extends SimpleChannelInboundHandler<Message> {
 
     private final JRPCServer server;
     private Channel channel;
@@ -38,7 +40,7 @@ public class JRPCServerChannelHandler extends SimpleChannelInboundHandler<JRPCMe
     }
 
     @Override
-    public void channelRead0(final @NotNull ChannelHandlerContext context, final @NotNull JRPCMessage message) {
+    public void channelRead0(final @NotNull ChannelHandlerContext context, final @NotNull Message message) {
         // has the client authenticated yet?
         if(!handshaked) {
             // Client is not yet authenticated, ignore request and respond with an error
@@ -48,9 +50,18 @@ public class JRPCServerChannelHandler extends SimpleChannelInboundHandler<JRPCMe
             return;
         }
 
+        // any message carrying the uid of a load balanced request answers that request
+        client.getOutstandingRequests().complete(message);
+
         if(message.targetType() == Message.TargetType.SERVER) {
-            final Packet packet = PacketDataSerializer.deserializePacket(message.data());
-            server.onReceive(this, message, packet);
+            if(message instanceof JRPCChunkMessage) {
+                server.getLogger().warn("Client {} has sent a message stream to the server, which does not accept streams. Dropping chunk.", uniqueId);
+                return;
+            }
+            // messages targeting the server are always fully decoded
+            final JRPCMessage serverMessage = (JRPCMessage) message;
+            final Packet packet = PacketDataSerializer.deserializePacket(serverMessage.data(), server.getPacketTypes());
+            server.onReceive(this, serverMessage, packet);
         }
         else {
             // forward message to target client instance(s)
@@ -112,7 +123,7 @@ public class JRPCServerChannelHandler extends SimpleChannelInboundHandler<JRPCMe
     }
 
     public void write(final Packet packet) {
-        write(packet, ConversationUID.newUid());
+        write(packet, server.newConversationUID());
     }
 
     public void write(final Packet packet, final @NonNull ConversationUID sourceConversation) {
@@ -121,7 +132,7 @@ public class JRPCServerChannelHandler extends SimpleChannelInboundHandler<JRPCMe
                 .target(uniqueId)
                 .conversationUid(sourceConversation)
                 .targetType(Message.TargetType.DIRECT)
-                .data(PacketDataSerializer.serialize(packet))
+                .packet(packet, server.getPacketTypes())
                 .build();
 
         write(message);
@@ -132,6 +143,22 @@ public class JRPCServerChannelHandler extends SimpleChannelInboundHandler<JRPCMe
         channel.writeAndFlush(message);
     }
 
+    /**
+     * Writes a message received from another client to this channel. The frame of a
+     * {@link JRPCRawMessage} is written as it is, the caller stays responsible for
+     * releasing the message.
+     *
+     * @param message the message to forward
+     */
+    public void forward(final @NonNull Message message) {
+        if(message instanceof JRPCRawMessage rawMessage) {
+            this.lastWrite = System.currentTimeMillis();
+            channel.writeAndFlush(rawMessage.content().retainedDuplicate());
+        }else {
+            write((JRPCMessage) message);
+        }
+    }
+
     public void shutdown() {
         channel.closeFuture().awaitUninterruptibly();
     }
@@ -140,6 +167,10 @@ public class JRPCServerChannelHandler extends SimpleChannelInboundHandler<JRPCMe
         return server;
     }
 
+    public Channel getChannel() {
+        return channel;
+    }
+
     public InetSocketAddress getRemoteAddress() {
         return (InetSocketAddress) channel.remoteAddress();
     }
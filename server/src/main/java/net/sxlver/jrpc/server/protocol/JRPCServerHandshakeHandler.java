@@ -62,8 +62,8 @@ public class JRPCServerHandshakeHandler extends SimpleChannelInboundHandler<JRPC
                 .target(handshake.getUniqueId())
                 .targetType(Message.TargetType.DIRECT)
                 .source(server)
-                .data(PacketDataSerializer.serialize(response))
-                .conversationUid(ConversationUID.newUid())
+                .packet(response)
+                .conversationUid(server.newConversationUID())
                 .build();
     }
 }
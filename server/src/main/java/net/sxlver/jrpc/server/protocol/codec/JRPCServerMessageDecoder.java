@@ -0,0 +1,72 @@
+package net.sxlver.jrpc.server.protocol.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import net.sxlver.jrpc.core.protocol.Message;
+import net.sxlver.jrpc.core.protocol.MessageType;
+import net.sxlver.jrpc.core.protocol.codec.EnvelopeCodec;
+import net.sxlver.jrpc.core.protocol.codec.JRPCMessageDecoder;
+import net.sxlver.jrpc.core.protocol.impl.JRPCBatchMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
+import net.sxlver.jrpc.server.JRPCServer;
+
+import java.util.List;
+
+/**
+ * Server side message decoder.
+ *
+ * <p>The server's frame decoder keeps the length prefix of every frame. Messages that are
+ * only forwarded to other clients are decoded as far as required for routing and keep the
+ * original frame, so it can be written to the target channels without being encoded again.
+ * Messages targeting the server itself and handshakes are fully decoded.
+ *
+ * <p>Batches are forwarded the same way as a unit, as all of their entries share the same
+ * target. If pass-through forwarding is disabled, they are decoded into a single
+ * {@link JRPCBatchMessage} that is still routed as a unit. Only batches targeting the server
+ * are decoded into their entries.
+ *
+ * <p>Chunks of message streams are forwarded one by one as they arrive, the server never
+ * reassembles a stream.
+ */
+public class JRPCServerMessageDecoder extends JRPCMessageDecoder<JRPCServer> {
+
+    private final JRPCServer server;
+
+    public JRPCServerMessageDecoder(final JRPCServer server) {
+        super(server);
+        this.server = server;
+    }
+
+    @Override
+    protected void decode(final ChannelHandlerContext context, final ByteBuf in, final List<Object> out) {
+        in.skipBytes(EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH);
+        super.decode(context, in, out);
+    }
+
+    @Override
+    protected void decodeEnvelope(final ChannelHandlerContext context, final ByteBuf in, final List<Object> out) {
+        if(!isForwarded(in)) {
+            super.decodeEnvelope(context, in, out);
+            return;
+        }
+        if(!server.getConfig().isPassThroughForwarding()) {
+            if(EnvelopeCodec.peekMessageType(in) == MessageType.BATCH) {
+                final List<JRPCMessage> entries = EnvelopeCodec.readBatch(in);
+                if(!entries.isEmpty()) {
+                    out.add(JRPCBatchMessage.of(entries));
+                }
+            }else {
+                super.decodeEnvelope(context, in, out);
+            }
+            return;
+        }
+        out.add(EnvelopeCodec.readRouting(in, in.readerIndex() - EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH));
+    }
+
+    private boolean isForwarded(final ByteBuf in) {
+        final MessageType messageType = EnvelopeCodec.peekMessageType(in);
+        final Message.TargetType targetType = EnvelopeCodec.peekTargetType(in);
+        return (messageType == MessageType.MESSAGE || messageType == MessageType.BATCH || messageType == MessageType.CHUNK)
+                && targetType != null && targetType != Message.TargetType.SERVER;
+    }
+}
@@ -19,7 +19,7 @@ public class QueryClusterInformationHandler extends ServerMessageHandler<Cluster
             final JRPCServerChannelHandler netHandler = context.getSource();
             final ClusterInformationConversation.Request request = context.getRequest();
             final List<JRPCClientInformation> cherryPicked = TargetSelectors.getByTargetType(request.type)
-                    .select(request.identifier, server.getRegisteredClientsRaw())
+                    .select(request.identifier, server)
                     .stream()
                     .map(JRPCClientInstance::getInformation)
                     .toList();
@@ -1,12 +1,30 @@
 package net.sxlver.jrpc.server.selector;
 
 import net.sxlver.jrpc.core.protocol.Message;
-import net.sxlver.jrpc.core.protocol.MessageTarget;
+import net.sxlver.jrpc.server.JRPCServer;
 import net.sxlver.jrpc.server.model.JRPCClientInstance;
 
 import java.util.Collection;
-import java.util.Collections;
 
 public interface TargetSelector {
-    Collection<JRPCClientInstance> select(final String target, final Collection<JRPCClientInstance> registeredClients);
+    /**
+     * Selects the clients matching the given target. The returned collection may be
+     * immutable and must not be modified by the caller.
+     *
+     * @param target the target
+     * @param server the server holding the registry of all authenticated clients
+     * @return the matching clients
+     */
+    Collection<JRPCClientInstance> select(final String target, final JRPCServer server);
+
+    /**
+     * Selects the clients the given message is forwarded to.
+     *
+     * @param message the message
+     * @param server  the server holding the registry of all authenticated clients
+     * @return the matching clients
+     */
+    default Collection<JRPCClientInstance> select(final Message message, final JRPCServer server) {
+        return select(message.target(), server);
+    }
 }
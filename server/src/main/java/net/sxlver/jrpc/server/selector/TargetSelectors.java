@@ -1,32 +1,45 @@
 package net.sxlver.jrpc.server.selector;
 
-import com.google.common.collect.Lists;
 import net.sxlver.jrpc.core.protocol.Message;
+import net.sxlver.jrpc.server.JRPCServer;
 import net.sxlver.jrpc.server.model.JRPCClientInstance;
-import net.sxlver.jrpc.server.util.Loadbalancer;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.BiFunction;
-import java.util.stream.Collectors;
 
 public enum TargetSelectors implements TargetSelector {
-    TARGET_SELECTOR_ALL(Message.TargetType.TYPE, (target, jrpcClientInstances) -> {
-        return jrpcClientInstances.stream().filter(jrpcClientInstance -> jrpcClientInstance.getType().equals(target)).toList();
-    }),
-    TARGET_SELECTOR_LOAD_BALANCED(Message.TargetType.LOAD_BALANCED, (target, jrpcClientInstances) -> {
-        return Lists.newArrayList(Loadbalancer.pick(jrpcClientInstances, target));
-    }),
-    TARGET_SELECTOR_BROADCAST(Message.TargetType.ALL, (target, jrpcClientInstances) -> new ArrayList<>(jrpcClientInstances)),
-    TARGET_SELECTOR_DIRECT(Message.TargetType.DIRECT, (target, jrpcClientInstances) -> {
-        return jrpcClientInstances.stream().filter(jrpcClientInstance -> jrpcClientInstance.getUniqueId().equals(target)).collect(Collectors.toList());
+    TARGET_SELECTOR_ALL(Message.TargetType.TYPE, (target, server) -> view(server.getClientRegistry().ofType(target))),
+    TARGET_SELECTOR_LOAD_BALANCED(Message.TargetType.LOAD_BALANCED, (target, server) -> {
+        final JRPCClientInstance instance = server.getLoadBalancer().pick(target);
+        return instance == null ? Collections.emptyList() : Collections.singletonList(instance);
+    }) {
+        @Override
+        public Collection<JRPCClientInstance> select(final Message message, final JRPCServer server) {
+            final JRPCClientInstance instance = server.getLoadBalancer().pick(message.target(), message.routingKey());
+            return instance == null ? Collections.emptyList() : Collections.singletonList(instance);
+        }
+    },
+    TARGET_SELECTOR_BROADCAST(Message.TargetType.ALL, (target, server) -> view(server.getClientRegistry().all())),
+    TARGET_SELECTOR_DIRECT(Message.TargetType.DIRECT, (target, server) -> {
+        final JRPCClientInstance instance = server.getClientRegistry().get(target);
+        return instance == null ? Collections.emptyList() : Collections.singletonList(instance);
     });
 
+    private static final TargetSelector[] BY_TARGET_TYPE = new TargetSelector[Message.TargetType.values().length];
+
+    static {
+        for (final TargetSelectors selector : values()) {
+            BY_TARGET_TYPE[selector.type.ordinal()] = selector;
+        }
+    }
+
     private final Message.TargetType type;
-    private final BiFunction<String, Collection<JRPCClientInstance>, Collection<JRPCClientInstance>> filterFunc;
+    private final BiFunction<String, JRPCServer, Collection<JRPCClientInstance>> filterFunc;
 
-    TargetSelectors(final Message.TargetType type, final BiFunction<String, Collection<JRPCClientInstance>, Collection<JRPCClientInstance>> filterFunc) {
+    TargetSelectors(final Message.TargetType type, final BiFunction<String, JRPCServer, Collection<JRPCClientInstance>> filterFunc) {
         this.type = type;
         this.filterFunc = filterFunc;
     }
@@ -36,11 +49,20 @@ public enum TargetSelectors implements TargetSelector {
     }
 
     @Override
-    public Collection<JRPCClientInstance> select(String target, Collection<JRPCClientInstance> registeredClients) {
-        return filterFunc.apply(target, registeredClients);
+    public Collection<JRPCClientInstance> select(String target, JRPCServer server) {
+        return filterFunc.apply(target, server);
+    }
+
+    // wraps the registry snapshot without copying it, the snapshot itself is never modified
+    private static List<JRPCClientInstance> view(final JRPCClientInstance[] snapshot) {
+        return Collections.unmodifiableList(Arrays.asList(snapshot));
     }
 
     public static TargetSelector getByTargetType(final Message.TargetType type) {
-        return Arrays.stream(values()).filter(selector -> selector.type == type).findFirst().orElseThrow(NullPointerException::new);
+        final TargetSelector selector = type == null ? null : BY_TARGET_TYPE[type.ordinal()];
+        if(selector == null) {
+            throw new NullPointerException();
+        }
+        return selector;
     }
 }
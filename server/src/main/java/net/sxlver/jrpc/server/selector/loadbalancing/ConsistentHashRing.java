@@ -0,0 +1,74 @@
+package net.sxlver.jrpc.server.selector.loadbalancing;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.server.model.JRPCClientInstance;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Consistent hash ring mapping routing keys to the clients of one type.
+ *
+ * <p>Every client is placed on the ring with a number of virtual nodes. A key is owned by
+ * the first virtual node following the key's hash. Clients are added and removed one at a
+ * time, so only the keys owned by the joining or leaving client move to another client.
+ */
+public class ConsistentHashRing {
+    private final NavigableMap<Long, JRPCClientInstance> ring = new ConcurrentSkipListMap<>();
+    private final int virtualNodes;
+
+    public ConsistentHashRing(final int virtualNodes) {
+        this.virtualNodes = Math.max(1, virtualNodes);
+    }
+
+    public void add(final @NonNull JRPCClientInstance instance) {
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.put(hash(instance.getUniqueId() + '#' + i), instance);
+        }
+    }
+
+    public void remove(final @NonNull JRPCClientInstance instance) {
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.remove(hash(instance.getUniqueId() + '#' + i), instance);
+        }
+    }
+
+    /**
+     * Returns the client owning the given key.
+     *
+     * @param routingKey the routing key
+     * @return the client or null if the ring is empty
+     */
+    @Nullable
+    public JRPCClientInstance get(final @NonNull String routingKey) {
+        final long hash = hash(routingKey);
+        Map.Entry<Long, JRPCClientInstance> entry = ring.ceilingEntry(hash);
+        if(entry == null) {
+            // wrap around to the start of the ring
+            entry = ring.firstEntry();
+        }
+        return entry == null ? null : entry.getValue();
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    /**
+     * 64 bit FNV-1a of the UTF-8 encoded value, followed by the SplitMix64 finalizer to
+     * spread similar keys across the whole ring.
+     */
+    static long hash(final String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (final byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,33 @@
+package net.sxlver.jrpc.server.selector.loadbalancing;
+
+import net.sxlver.jrpc.server.model.JRPCClientInstance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the candidate with the fewest outstanding requests. The scan starts at a rotating
+ * offset so that ties are resolved round-robin instead of always picking the first client.
+ */
+public class LeastOutstandingStrategy implements LoadBalancingStrategy {
+    private final AtomicInteger offset = new AtomicInteger();
+
+    @Override
+    public JRPCClientInstance pick(final JRPCClientInstance[] candidates) {
+        final int length = candidates.length;
+        if(length == 0) return null;
+
+        final int start = Math.floorMod(offset.getAndIncrement(), length);
+        JRPCClientInstance picked = null;
+        int lowest = Integer.MAX_VALUE;
+        for (int i = 0; i < length; i++) {
+            final JRPCClientInstance candidate = candidates[(start + i) % length];
+            final int outstanding = candidate.getOutstandingRequests().count();
+            if(outstanding < lowest) {
+                picked = candidate;
+                lowest = outstanding;
+                if(outstanding == 0) break;
+            }
+        }
+        return picked;
+    }
+}
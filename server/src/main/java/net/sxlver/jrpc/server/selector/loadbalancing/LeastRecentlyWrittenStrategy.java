@@ -0,0 +1,20 @@
+package net.sxlver.jrpc.server.selector.loadbalancing;
+
+import net.sxlver.jrpc.server.model.JRPCClientInstance;
+
+/**
+ * Picks the client that has been written to least recently.
+ */
+public class LeastRecentlyWrittenStrategy implements LoadBalancingStrategy {
+
+    @Override
+    public JRPCClientInstance pick(final JRPCClientInstance[] candidates) {
+        JRPCClientInstance picked = null;
+        for (final JRPCClientInstance candidate : candidates) {
+            if(picked == null || candidate.getLastWrite() < picked.getLastWrite()) {
+                picked = candidate;
+            }
+        }
+        return picked;
+    }
+}
@@ -0,0 +1,120 @@
+package net.sxlver.jrpc.server.selector.loadbalancing;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.core.InternalLogger;
+import net.sxlver.jrpc.server.config.JRPCServerConfig;
+import net.sxlver.jrpc.server.model.ClientRegistry;
+import net.sxlver.jrpc.server.model.JRPCClientInstance;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Resolves the {@link LoadBalancingStrategy} of each client type and picks the target of
+ * {@link net.sxlver.jrpc.core.protocol.Message.TargetType#LOAD_BALANCED} messages.
+ *
+ * <p>The strategy of a type is looked up in {@link JRPCServerConfig#getLoadBalancingStrategies()},
+ * falling back to {@link JRPCServerConfig#getDefaultLoadBalancingStrategy()}. Next to the
+ * {@link LoadBalancingStrategies built-in strategies} custom ones can be made available
+ * through {@link #registerStrategy(String, Function)}.
+ *
+ * <p>Messages carrying a routing key bypass the strategy and are mapped to a client through
+ * a {@link ConsistentHashRing} per type, which is updated as clients join and leave.
+ */
+public class LoadBalancer {
+    private final JRPCServerConfig config;
+    private final ClientRegistry registry;
+    private final InternalLogger logger;
+
+    private final Map<String, Function<JRPCServerConfig, LoadBalancingStrategy>> factories = new ConcurrentHashMap<>();
+    private final Map<String, LoadBalancingStrategy> strategies = new ConcurrentHashMap<>();
+    private final Map<String, ConsistentHashRing> rings = new ConcurrentHashMap<>();
+
+    public LoadBalancer(final @NonNull JRPCServerConfig config, final @NonNull ClientRegistry registry, final @NonNull InternalLogger logger) {
+        this.config = config;
+        this.registry = registry;
+        this.logger = logger;
+        for (final LoadBalancingStrategies strategy : LoadBalancingStrategies.values()) {
+            factories.put(strategy.name(), strategy.getFactory());
+        }
+    }
+
+    /**
+     * Makes a custom strategy available under the given name. Types that already picked
+     * a target keep their current strategy instance.
+     *
+     * @param name    the name the strategy is referenced by in the configuration
+     * @param factory creates a new strategy instance for a client type
+     */
+    public void registerStrategy(final @NonNull String name, final @NonNull Function<JRPCServerConfig, LoadBalancingStrategy> factory) {
+        factories.put(name.toUpperCase(Locale.ROOT), factory);
+    }
+
+    /**
+     * Picks a connected client of the given type.
+     *
+     * @param type the client type
+     * @return the picked client or null if no client of that type is connected
+     */
+    @Nullable
+    public JRPCClientInstance pick(final String type) {
+        return pick(type, null);
+    }
+
+    /**
+     * Picks a connected client of the given type. If a routing key is given, the same
+     * client is picked for that key for as long as the members of the type do not change.
+     *
+     * @param type       the client type
+     * @param routingKey the routing key or null
+     * @return the picked client or null if no client of that type is connected
+     */
+    @Nullable
+    public JRPCClientInstance pick(final String type, final @Nullable String routingKey) {
+        if(routingKey != null) {
+            final ConsistentHashRing ring = type == null ? null : rings.get(type);
+            return ring == null ? null : ring.get(routingKey);
+        }
+        final JRPCClientInstance[] candidates = registry.ofType(type);
+        if(candidates.length == 0) return null;
+        return strategies.computeIfAbsent(type, this::createStrategy).pick(candidates);
+    }
+
+    /**
+     * Places a client that has joined on the hash ring of its type.
+     *
+     * @param instance the client
+     */
+    public void onJoin(final @NonNull JRPCClientInstance instance) {
+        rings.compute(instance.getType(), (type, ring) -> {
+            if(ring == null) ring = new ConsistentHashRing(config.getConsistentHashVirtualNodes());
+            ring.add(instance);
+            return ring;
+        });
+    }
+
+    /**
+     * Removes a client that has left from the hash ring of its type.
+     *
+     * @param instance the client
+     */
+    public void onLeave(final @NonNull JRPCClientInstance instance) {
+        rings.computeIfPresent(instance.getType(), (type, ring) -> {
+            ring.remove(instance);
+            return ring.isEmpty() ? null : ring;
+        });
+    }
+
+    private LoadBalancingStrategy createStrategy(final String type) {
+        final String name = config.getLoadBalancingStrategies().getOrDefault(type, config.getDefaultLoadBalancingStrategy());
+        final Function<JRPCServerConfig, LoadBalancingStrategy> factory = name == null ? null : factories.get(name.toUpperCase(Locale.ROOT));
+        if(factory == null) {
+            logger.warn("Unknown load balancing strategy '{}' configured for type {}, falling back to {}.", name, type, LoadBalancingStrategies.LEAST_OUTSTANDING);
+            return LoadBalancingStrategies.LEAST_OUTSTANDING.getFactory().apply(config);
+        }
+        return factory.apply(config);
+    }
+}
@@ -0,0 +1,26 @@
+package net.sxlver.jrpc.server.selector.loadbalancing;
+
+import net.sxlver.jrpc.server.config.JRPCServerConfig;
+
+import java.util.function.Function;
+
+/**
+ * The built-in load balancing strategies, referenced by name in the server configuration.
+ */
+public enum LoadBalancingStrategies {
+    LEAST_RECENTLY_WRITTEN(config -> new LeastRecentlyWrittenStrategy()),
+    ROUND_ROBIN(config -> new RoundRobinStrategy()),
+    POWER_OF_TWO_CHOICES(config -> new PowerOfTwoChoicesStrategy()),
+    LEAST_OUTSTANDING(config -> new LeastOutstandingStrategy()),
+    WEIGHTED(config -> new WeightedStrategy(config.getLoadBalancingWeights()));
+
+    private final Function<JRPCServerConfig, LoadBalancingStrategy> factory;
+
+    LoadBalancingStrategies(final Function<JRPCServerConfig, LoadBalancingStrategy> factory) {
+        this.factory = factory;
+    }
+
+    public Function<JRPCServerConfig, LoadBalancingStrategy> getFactory() {
+        return factory;
+    }
+}
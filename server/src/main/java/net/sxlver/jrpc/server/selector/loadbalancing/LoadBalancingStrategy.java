@@ -0,0 +1,24 @@
+package net.sxlver.jrpc.server.selector.loadbalancing;
+
+import net.sxlver.jrpc.server.model.JRPCClientInstance;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Picks the client a {@link net.sxlver.jrpc.core.protocol.Message.TargetType#LOAD_BALANCED}
+ * message is forwarded to.
+ *
+ * <p>One instance is created per client type, implementations may therefore keep state
+ * such as counters across calls. {@link #pick(JRPCClientInstance[])} is called concurrently
+ * from multiple event loop threads.
+ */
+public interface LoadBalancingStrategy {
+
+    /**
+     * Picks one of the given candidates.
+     *
+     * @param candidates the connected clients of the requested type, must not be modified
+     * @return the picked client or null if there are no candidates
+     */
+    @Nullable
+    JRPCClientInstance pick(final JRPCClientInstance[] candidates);
+}
@@ -0,0 +1,27 @@
+package net.sxlver.jrpc.server.selector.loadbalancing;
+
+import net.sxlver.jrpc.server.model.JRPCClientInstance;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks two random candidates and uses the one with fewer outstanding requests.
+ */
+public class PowerOfTwoChoicesStrategy implements LoadBalancingStrategy {
+
+    @Override
+    public JRPCClientInstance pick(final JRPCClientInstance[] candidates) {
+        if(candidates.length == 0) return null;
+        if(candidates.length == 1) return candidates[0];
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(candidates.length);
+        // second index is drawn from the remaining candidates so that both choices differ
+        int second = random.nextInt(candidates.length - 1);
+        if(second >= first) second++;
+
+        final JRPCClientInstance a = candidates[first];
+        final JRPCClientInstance b = candidates[second];
+        return b.getOutstandingRequests().count() < a.getOutstandingRequests().count() ? b : a;
+    }
+}
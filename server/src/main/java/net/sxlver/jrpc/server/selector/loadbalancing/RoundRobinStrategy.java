@@ -0,0 +1,18 @@
+package net.sxlver.jrpc.server.selector.loadbalancing;
+
+import net.sxlver.jrpc.server.model.JRPCClientInstance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the candidates one after another.
+ */
+public class RoundRobinStrategy implements LoadBalancingStrategy {
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public JRPCClientInstance pick(final JRPCClientInstance[] candidates) {
+        if(candidates.length == 0) return null;
+        return candidates[Math.floorMod(next.getAndIncrement(), candidates.length)];
+    }
+}
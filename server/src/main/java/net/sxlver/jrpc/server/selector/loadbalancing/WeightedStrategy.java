@@ -0,0 +1,66 @@
+package net.sxlver.jrpc.server.selector.loadbalancing;
+
+import lombok.NonNull;
+import net.sxlver.jrpc.server.model.JRPCClientInstance;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks a random candidate, the probability of each candidate being proportional to its
+ * configured weight. Clients without a configured weight have a weight of 1, clients with
+ * a weight of 0 or less are never picked unless all candidates are.
+ *
+ * <p>The cumulative weights are computed once per candidate snapshot and reused until the
+ * members of the type change.
+ */
+public class WeightedStrategy implements LoadBalancingStrategy {
+    private final Map<String, Integer> weights;
+    private volatile Snapshot snapshot = new Snapshot(new JRPCClientInstance[0], new long[0]);
+
+    public WeightedStrategy(final @NonNull Map<String, Integer> weights) {
+        this.weights = Map.copyOf(weights);
+    }
+
+    @Override
+    public JRPCClientInstance pick(final JRPCClientInstance[] candidates) {
+        if(candidates.length == 0) return null;
+
+        Snapshot snapshot = this.snapshot;
+        if(snapshot.candidates != candidates) {
+            this.snapshot = snapshot = Snapshot.of(candidates, weights);
+        }
+
+        final long[] cumulative = snapshot.cumulativeWeights;
+        final long total = cumulative[cumulative.length - 1];
+        if(total <= 0) {
+            return candidates[ThreadLocalRandom.current().nextInt(candidates.length)];
+        }
+
+        // first candidate whose cumulative weight exceeds the random point
+        final long point = ThreadLocalRandom.current().nextLong(total);
+        int low = 0;
+        int high = cumulative.length - 1;
+        while(low < high) {
+            final int mid = (low + high) >>> 1;
+            if(cumulative[mid] > point) {
+                high = mid;
+            }else {
+                low = mid + 1;
+            }
+        }
+        return candidates[low];
+    }
+
+    private record Snapshot(JRPCClientInstance[] candidates, long[] cumulativeWeights) {
+        static Snapshot of(final JRPCClientInstance[] candidates, final Map<String, Integer> weights) {
+            final long[] cumulative = new long[candidates.length];
+            long sum = 0;
+            for (int i = 0; i < candidates.length; i++) {
+                sum += Math.max(0, weights.getOrDefault(candidates[i].getUniqueId(), 1));
+                cumulative[i] = sum;
+            }
+            return new Snapshot(candidates, cumulative);
+        }
+    }
+}
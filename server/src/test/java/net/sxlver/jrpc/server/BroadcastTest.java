@@ -0,0 +1,112 @@
+package net.sxlver.jrpc.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.Message;
+import net.sxlver.jrpc.core.protocol.MessageType;
+import net.sxlver.jrpc.core.protocol.ProtocolVersion;
+import net.sxlver.jrpc.core.protocol.codec.EnvelopeCodec;
+import net.sxlver.jrpc.core.protocol.codec.FrameCompressionCodec;
+import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
+import net.sxlver.jrpc.server.model.JRPCClientInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BroadcastTest {
+    private static final int VERSION = ProtocolVersion.LATEST.getVersionNumber();
+
+    private TestServer test;
+    private JRPCClientInstance source;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        test = new TestServer();
+        source = test.connect("source", "proxy");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        test.close();
+    }
+
+    @Test
+    void largeBroadcastIsCompressedOnce() {
+        final EmbeddedChannel first = connect("lobby-1", true);
+        final EmbeddedChannel second = connect("lobby-2", true);
+        final EmbeddedChannel plain = connect("lobby-3", false);
+
+        test.server().forward(message("abcdefgh".repeat(1024)), source.getNetHandler());
+
+        final ByteBuf firstFrame = first.readOutbound();
+        final ByteBuf secondFrame = second.readOutbound();
+        final ByteBuf plainFrame = plain.readOutbound();
+        try {
+            assertTrue(isCompressed(firstFrame));
+            assertFalse(isCompressed(plainFrame));
+            // both are duplicates of the same compressed frame
+            assertNotNull(firstFrame.unwrap());
+            assertSame(firstFrame.unwrap(), secondFrame.unwrap());
+            assertEquals(plainFrame, inflate(firstFrame.copy()));
+        }finally {
+            firstFrame.release();
+            secondFrame.release();
+            plainFrame.release();
+        }
+    }
+
+    @Test
+    void smallBroadcastIsNotCompressed() {
+        final EmbeddedChannel compressing = connect("lobby-1", true);
+        final EmbeddedChannel plain = connect("lobby-2", false);
+
+        test.server().forward(message("small"), source.getNetHandler());
+
+        final ByteBuf compressingFrame = compressing.readOutbound();
+        final ByteBuf plainFrame = plain.readOutbound();
+        try {
+            assertFalse(isCompressed(compressingFrame));
+            assertEquals(plainFrame, compressingFrame);
+        }finally {
+            compressingFrame.release();
+            plainFrame.release();
+        }
+    }
+
+    private EmbeddedChannel connect(final String uniqueId, final boolean compression) {
+        final EmbeddedChannel channel = test.channel(test.connect(uniqueId, "lobby"));
+        final FrameCompressionCodec codec = new FrameCompressionCodec(test.server().getConfig().getCompressionThreshold(), true);
+        codec.setEnabled(compression);
+        channel.pipeline().addFirst("compression_codec", codec);
+        channel.releaseOutbound();
+        return channel;
+    }
+
+    private static JRPCMessage message(final String data) {
+        return new JRPCMessage("lobby", Message.TargetType.TYPE, "source", new ConversationUID(1L),
+                data.getBytes(StandardCharsets.UTF_8), VERSION, MessageType.MESSAGE.getId());
+    }
+
+    private static boolean isCompressed(final ByteBuf frame) {
+        return (frame.getUnsignedByte(frame.readerIndex() + EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH + 1) & EnvelopeCodec.COMPRESSED_FLAG) != 0;
+    }
+
+    private static ByteBuf inflate(final ByteBuf frame) {
+        final EmbeddedChannel channel = new EmbeddedChannel(new FrameCompressionCodec(-1, true));
+        try {
+            assertTrue(channel.writeInbound(frame));
+            final ByteBuf inflated = channel.readInbound();
+            final ByteBuf copy = Unpooled.copiedBuffer(inflated);
+            inflated.release();
+            return copy;
+        }finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+}
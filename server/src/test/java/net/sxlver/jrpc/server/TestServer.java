@@ -0,0 +1,69 @@
+package net.sxlver.jrpc.server;
+
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.embedded.EmbeddedChannel;
+import net.sxlver.jrpc.core.protocol.impl.JRPCHandshake;
+import net.sxlver.jrpc.server.model.JRPCClientInstance;
+import net.sxlver.jrpc.server.protocol.JRPCServerChannelHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A server that is never bound, its clients are connected through {@link EmbeddedChannel}s
+ * and registered the same way as after a successful handshake.
+ */
+public final class TestServer implements AutoCloseable {
+    private final Path dataFolder;
+    private final JRPCServer server;
+    private final List<EmbeddedChannel> channels = new ArrayList<>();
+
+    public TestServer() throws IOException {
+        this.dataFolder = Files.createTempDirectory("jrpc-server");
+        this.server = new JRPCServer(dataFolder.toString());
+        // the address of an embedded channel is no InetSocketAddress
+        server.getConfig().setHideIpsFromClients(true);
+    }
+
+    public JRPCServer server() {
+        return server;
+    }
+
+    public JRPCClientInstance connect(final String uniqueId, final String type) {
+        final JRPCServerChannelHandler handler = new JRPCServerChannelHandler(server);
+        // channel groups tell channels apart by id, every embedded channel has the same one by default
+        channels.add(new EmbeddedChannel(DefaultChannelId.newInstance(), handler));
+        handler.onHandshakeSuccess(new JRPCHandshake(server.getConfig().getAuthenticationToken(), uniqueId, type));
+        return server.getClientRegistry().get(uniqueId);
+    }
+
+    public EmbeddedChannel channel(final JRPCClientInstance instance) {
+        return (EmbeddedChannel) instance.getNetHandler().getChannel();
+    }
+
+    public void disconnect(final JRPCClientInstance instance) {
+        server.removeConnected(instance);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (final EmbeddedChannel channel : channels) {
+            channel.finishAndReleaseAll();
+        }
+        try (final Stream<Path> files = Files.walk(dataFolder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                }catch(final IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package net.sxlver.jrpc.server.model;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.sxlver.jrpc.core.protocol.ConversationUID;
+import net.sxlver.jrpc.core.protocol.Message;
+import net.sxlver.jrpc.core.protocol.MessageType;
+import net.sxlver.jrpc.core.protocol.ProtocolVersion;
+import net.sxlver.jrpc.core.protocol.codec.EnvelopeCodec;
+import net.sxlver.jrpc.core.protocol.impl.JRPCBatchMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCMessage;
+import net.sxlver.jrpc.core.protocol.impl.JRPCRawMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutstandingRequestsTest {
+    private static final int VERSION = ProtocolVersion.LATEST.getVersionNumber();
+
+    @Test
+    void beginAndComplete() {
+        final OutstandingRequests requests = new OutstandingRequests();
+        requests.begin(1L);
+        requests.begin(2L);
+        requests.begin(2L);
+        assertEquals(2, requests.count());
+
+        assertTrue(requests.complete(1L));
+        assertFalse(requests.complete(1L));
+        assertFalse(requests.complete(3L));
+        assertEquals(1, requests.count());
+    }
+
+    @Test
+    void batchCountsEveryEntry() {
+        final OutstandingRequests requests = new OutstandingRequests();
+        final JRPCBatchMessage batch = JRPCBatchMessage.of(List.of(message(1L), message(2L), message(3L)));
+
+        requests.begin(batch);
+        assertEquals(3, requests.count());
+        requests.complete(message(2L));
+        assertEquals(2, requests.count());
+        requests.complete(batch);
+        assertEquals(0, requests.count());
+    }
+
+    @Test
+    void rawBatchCountsEveryEntry() {
+        final ByteBuf frame = Unpooled.buffer();
+        EnvelopeCodec.write(frame, JRPCBatchMessage.of(List.of(message(1L), message(2L))), VERSION);
+        frame.skipBytes(EnvelopeCodec.FRAME_LENGTH_FIELD_LENGTH);
+        final JRPCRawMessage batch = EnvelopeCodec.readRouting(frame, 0);
+        try {
+            final OutstandingRequests requests = new OutstandingRequests();
+            requests.begin(batch);
+            assertEquals(2, requests.count());
+            assertTrue(requests.complete(1L));
+            assertTrue(requests.complete(2L));
+        }finally {
+            batch.release();
+            frame.release();
+        }
+    }
+
+    @Test
+    void expireDropsConversationsStartedBeforeDeadline() {
+        final OutstandingRequests requests = new OutstandingRequests();
+        requests.begin(1L);
+        requests.begin(2L);
+
+        requests.expire(System.currentTimeMillis() - 60_000);
+        assertEquals(2, requests.count());
+
+        requests.expire(System.currentTimeMillis() + 1);
+        assertEquals(0, requests.count());
+        assertFalse(requests.complete(1L));
+    }
+
+    private static JRPCMessage message(final long uid) {
+        return new JRPCMessage("lobby", Message.TargetType.LOAD_BALANCED, "source", new ConversationUID(uid), new byte[]{1}, VERSION, MessageType.MESSAGE.getId());
+    }
+}
@@ -0,0 +1,122 @@
+package net.sxlver.jrpc.server.selector.loadbalancing;
+
+import net.sxlver.jrpc.server.TestServer;
+import net.sxlver.jrpc.server.model.JRPCClientInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+    private static final int VIRTUAL_NODES = 160;
+    private static final int KEYS = 10_000;
+
+    private TestServer test;
+    private List<JRPCClientInstance> clients;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        test = new TestServer();
+        clients = List.of(
+                test.connect("lobby-1", "lobby"),
+                test.connect("lobby-2", "lobby"),
+                test.connect("lobby-3", "lobby"),
+                test.connect("lobby-4", "lobby")
+        );
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        test.close();
+    }
+
+    @Test
+    void sameKeyMapsToSameClient() {
+        final ConsistentHashRing ring = ring(clients);
+        final ConsistentHashRing reversed = ring(List.of(clients.get(3), clients.get(2), clients.get(1), clients.get(0)));
+
+        for (int i = 0; i < KEYS; i++) {
+            final String key = "player:" + i;
+            assertSame(ring.get(key), ring.get(key));
+            // independent of the order the clients joined in
+            assertSame(ring.get(key), reversed.get(key));
+        }
+    }
+
+    @Test
+    void joiningClientOnlyTakesOverKeys() {
+        final ConsistentHashRing ring = ring(clients.subList(0, 3));
+        final Map<String, JRPCClientInstance> before = owners(ring);
+
+        final JRPCClientInstance joined = clients.get(3);
+        ring.add(joined);
+
+        int moved = 0;
+        for (final Map.Entry<String, JRPCClientInstance> entry : owners(ring).entrySet()) {
+            if(entry.getValue() == before.get(entry.getKey())) continue;
+            assertSame(joined, entry.getValue(), "key moved between clients that did not change");
+            moved++;
+        }
+        assertTrue(moved > 0);
+    }
+
+    @Test
+    void leavingClientOnlyReleasesItsKeys() {
+        final ConsistentHashRing ring = ring(clients);
+        final Map<String, JRPCClientInstance> before = owners(ring);
+
+        final JRPCClientInstance left = clients.get(1);
+        ring.remove(left);
+
+        for (final Map.Entry<String, JRPCClientInstance> entry : owners(ring).entrySet()) {
+            assertNotSame(left, entry.getValue());
+            if(entry.getValue() != before.get(entry.getKey())) {
+                assertSame(left, before.get(entry.getKey()), "key moved between clients that did not change");
+            }
+        }
+    }
+
+    @Test
+    void keysSpreadAcrossClients() {
+        final Map<JRPCClientInstance, Integer> counts = new HashMap<>();
+        for (final JRPCClientInstance owner : owners(ring(clients)).values()) {
+            counts.merge(owner, 1, Integer::sum);
+        }
+
+        assertEquals(clients.size(), counts.size());
+        final int expected = KEYS / clients.size();
+        for (final int count : counts.values()) {
+            assertTrue(Math.abs(count - expected) < expected * 0.3, "uneven share of keys: " + counts.values());
+        }
+    }
+
+    @Test
+    void emptyRingHasNoOwner() {
+        final ConsistentHashRing ring = ring(clients.subList(0, 1));
+        assertSame(clients.get(0), ring.get("player:1"));
+
+        ring.remove(clients.get(0));
+
+        assertTrue(ring.isEmpty());
+        assertNull(ring.get("player:1"));
+    }
+
+    private static ConsistentHashRing ring(final List<JRPCClientInstance> clients) {
+        final ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+        clients.forEach(ring::add);
+        return ring;
+    }
+
+    private static Map<String, JRPCClientInstance> owners(final ConsistentHashRing ring) {
+        final Map<String, JRPCClientInstance> owners = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            owners.put("player:" + i, ring.get("player:" + i));
+        }
+        return owners;
+    }
+}
@@ -0,0 +1,84 @@
+package net.sxlver.jrpc.server.selector.loadbalancing;
+
+import net.sxlver.jrpc.server.TestServer;
+import net.sxlver.jrpc.server.model.JRPCClientInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadBalancerTest {
+    private TestServer test;
+    private LoadBalancer loadBalancer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        test = new TestServer();
+        loadBalancer = test.server().getLoadBalancer();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        test.close();
+    }
+
+    @Test
+    void routingKeyPicksSameClient() {
+        test.connect("lobby-1", "lobby");
+        test.connect("lobby-2", "lobby");
+        test.connect("lobby-3", "lobby");
+
+        for (int i = 0; i < 100; i++) {
+            final JRPCClientInstance picked = loadBalancer.pick("lobby", "player:" + i);
+            assertNotNull(picked);
+            assertSame(picked, loadBalancer.pick("lobby", "player:" + i));
+        }
+    }
+
+    @Test
+    void routingKeyOnlyPicksClientsOfType() {
+        final JRPCClientInstance lobby = test.connect("lobby-1", "lobby");
+        test.connect("game-1", "game");
+
+        for (int i = 0; i < 100; i++) {
+            assertSame(lobby, loadBalancer.pick("lobby", "player:" + i));
+        }
+        assertNull(loadBalancer.pick("proxy", "player:1"));
+    }
+
+    @Test
+    void leavingClientMovesOnlyItsKeys() {
+        test.connect("lobby-1", "lobby");
+        final JRPCClientInstance leaving = test.connect("lobby-2", "lobby");
+        test.connect("lobby-3", "lobby");
+        final JRPCClientInstance[] before = new JRPCClientInstance[1000];
+        for (int i = 0; i < before.length; i++) {
+            before[i] = loadBalancer.pick("lobby", "player:" + i);
+        }
+
+        test.disconnect(leaving);
+
+        for (int i = 0; i < before.length; i++) {
+            final JRPCClientInstance picked = loadBalancer.pick("lobby", "player:" + i);
+            assertNotSame(leaving, picked);
+            if(before[i] != leaving) {
+                assertSame(before[i], picked);
+            }
+        }
+    }
+
+    @Test
+    void removingLastClientDropsRing() {
+        final JRPCClientInstance only = test.connect("lobby-1", "lobby");
+        assertSame(only, loadBalancer.pick("lobby", "player:1"));
+
+        test.disconnect(only);
+
+        assertNull(loadBalancer.pick("lobby", "player:1"));
+        assertNull(loadBalancer.pick("lobby"));
+        // the ring is created anew once a client of the type joins again
+        final JRPCClientInstance rejoined = test.connect("lobby-2", "lobby");
+        assertSame(rejoined, loadBalancer.pick("lobby", "player:1"));
+    }
+}
@@ -0,0 +1,134 @@
+package net.sxlver.jrpc.server.selector.loadbalancing;
+
+import net.sxlver.jrpc.server.TestServer;
+import net.sxlver.jrpc.server.model.JRPCClientInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadBalancingStrategyTest {
+    private static final int PICKS = 10_000;
+
+    private TestServer test;
+    private JRPCClientInstance first;
+    private JRPCClientInstance second;
+    private JRPCClientInstance third;
+    private JRPCClientInstance[] candidates;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        test = new TestServer();
+        first = test.connect("lobby-1", "lobby");
+        second = test.connect("lobby-2", "lobby");
+        third = test.connect("lobby-3", "lobby");
+        candidates = new JRPCClientInstance[]{first, second, third};
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        test.close();
+    }
+
+    @Test
+    void weightedWithZeroTotalWeightIsUniform() {
+        final Map<JRPCClientInstance, Integer> counts = picks(new WeightedStrategy(Map.of("lobby-1", 0, "lobby-2", 0, "lobby-3", 0)));
+
+        assertEquals(3, counts.size());
+        for (final int count : counts.values()) {
+            assertTrue(count > PICKS / 4, "uneven picks: " + counts.values());
+        }
+    }
+
+    @Test
+    void weightedPicksOnlyCandidatesWithWeight() {
+        assertEquals(Map.of(first, PICKS), picks(new WeightedStrategy(Map.of("lobby-1", 3, "lobby-2", 0, "lobby-3", 0))));
+        assertEquals(Map.of(second, PICKS), picks(new WeightedStrategy(Map.of("lobby-1", 0, "lobby-2", 3, "lobby-3", 0))));
+        assertEquals(Map.of(third, PICKS), picks(new WeightedStrategy(Map.of("lobby-1", 0, "lobby-2", 0, "lobby-3", 3))));
+
+        final Map<JRPCClientInstance, Integer> counts = picks(new WeightedStrategy(Map.of("lobby-2", 0)));
+        assertEquals(2, counts.size());
+        assertFalse(counts.containsKey(second));
+    }
+
+    @Test
+    void weightedPicksProportionally() {
+        // lobby-3 has the default weight of 1
+        final Map<JRPCClientInstance, Integer> counts = picks(new WeightedStrategy(Map.of("lobby-1", 1, "lobby-2", 2)));
+
+        assertEquals(0.25, share(counts, first), 0.03);
+        assertEquals(0.5, share(counts, second), 0.03);
+        assertEquals(0.25, share(counts, third), 0.03);
+    }
+
+    @Test
+    void weightedRebuildsWeightsForNewCandidates() {
+        final WeightedStrategy strategy = new WeightedStrategy(Map.of("lobby-1", 0, "lobby-2", 0));
+        assertSame(third, strategy.pick(candidates));
+
+        assertSame(first, strategy.pick(new JRPCClientInstance[]{first}));
+        assertNull(strategy.pick(new JRPCClientInstance[0]));
+    }
+
+    @Test
+    void powerOfTwoChoicesComparesTwoDistinctCandidates() {
+        second.getOutstandingRequests().begin(1L);
+        third.getOutstandingRequests().begin(2L);
+        third.getOutstandingRequests().begin(3L);
+
+        final Map<JRPCClientInstance, Integer> counts = picks(new PowerOfTwoChoicesStrategy());
+
+        // the busiest candidate always loses against the other choice
+        assertFalse(counts.containsKey(third));
+        assertTrue(counts.containsKey(first));
+        assertTrue(counts.containsKey(second));
+
+        final JRPCClientInstance[] pair = {first, third};
+        for (int i = 0; i < PICKS; i++) {
+            assertSame(first, new PowerOfTwoChoicesStrategy().pick(pair));
+        }
+    }
+
+    @Test
+    void leastOutstandingPicksIdleCandidate() {
+        first.getOutstandingRequests().begin(1L);
+        third.getOutstandingRequests().begin(2L);
+
+        assertEquals(Map.of(second, PICKS), picks(new LeastOutstandingStrategy()));
+    }
+
+    @Test
+    void unknownStrategyFallsBackToLeastOutstanding() {
+        test.server().getConfig().getLoadBalancingStrategies().put("lobby", "FASTEST");
+        first.getOutstandingRequests().begin(1L);
+        third.getOutstandingRequests().begin(2L);
+
+        for (int i = 0; i < PICKS; i++) {
+            assertSame(second, test.server().getLoadBalancer().pick("lobby"));
+        }
+    }
+
+    @Test
+    void registeredStrategyIsUsedByName() {
+        test.server().getConfig().getLoadBalancingStrategies().put("lobby", "third");
+        test.server().getLoadBalancer().registerStrategy("THIRD", config -> candidates -> candidates[candidates.length - 1]);
+
+        assertSame(third, test.server().getLoadBalancer().pick("lobby"));
+    }
+
+    private Map<JRPCClientInstance, Integer> picks(final LoadBalancingStrategy strategy) {
+        final Map<JRPCClientInstance, Integer> counts = new HashMap<>();
+        for (int i = 0; i < PICKS; i++) {
+            counts.merge(strategy.pick(candidates), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static double share(final Map<JRPCClientInstance, Integer> counts, final JRPCClientInstance instance) {
+        return counts.getOrDefault(instance, 0) / (double) PICKS;
+    }
+}